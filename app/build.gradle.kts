@@ -20,6 +20,12 @@ android {
         }
     }
 
+    testOptions {
+        // Lets local JVM tests drive the library with SimulatedHackrfTransport
+        // (android.util.Log returns default values instead of throwing)
+        unitTests.isReturnDefaultValues = true
+    }
+
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -28,4 +34,5 @@ android {
 
 dependencies {
     implementation(libs.appcompat)
+    testImplementation(libs.junit)
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.mantz_it.hackrf_android;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      AdaptiveDepthController.java
+ * Description: Decides how many USB transfers receiveLoop() keeps in flight.
+ * 				It watches how long waitTransfer() blocks: if a transfer was
+ * 				already complete when the USB thread asked for it, the thread
+ * 				was late and the host controller was close to running out of
+ * 				queued transfers, so the depth grows. If the thread is always
+ * 				on time the depth slowly shrinks again. If the consumer lags
+ * 				(samples are dropped), the depth shrinks so that the blocks
+ * 				go back to the application.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+class AdaptiveDepthController {
+
+	private static final int windowSize = 32;			// number of completed transfers per decision
+	private static final int lateThreshold = 2;			// late transfers per window that trigger growing
+	private static final int quietWindows = 8;			// windows without late transfers before shrinking
+
+	private final int minDepth;
+	private final int maxDepth;
+	private int depth;
+
+	private long lastCompletion = 0;					// System.nanoTime() of the last completed transfer
+	private long interval = 0;							// average time between two completions (ns)
+	private int windowCount = 0;						// completed transfers in the current window
+	private int lateCount = 0;							// late transfers in the current window
+	private boolean lagging = false;					// consumer lagged in the current window
+	private int quietCount = 0;							// consecutive windows without late transfers
+
+	/**
+	 * @param minDepth		minimum number of transfers in flight
+	 * @param maxDepth		maximum number of transfers in flight
+	 * @param initialDepth	number of transfers in flight at start (clamped to min/max)
+	 */
+	AdaptiveDepthController(int minDepth, int maxDepth, int initialDepth)
+	{
+		this.minDepth = minDepth;
+		this.maxDepth = maxDepth;
+		this.depth = Math.max(minDepth, Math.min(maxDepth, initialDepth));
+	}
+
+	/**
+	 * @return number of transfers that should be in flight
+	 */
+	int getDepth()
+	{
+		return depth;
+	}
+
+	/**
+	 * Must be called by the USB thread for each completed transfer.
+	 *
+	 * @param waitTime		time (ns) waitTransfer() blocked before it returned the transfer
+	 * @param completion	System.nanoTime() after waitTransfer() returned
+	 * @param consumerLag	true if the samples of this (or the previous) transfer were dropped
+	 * @return change of the depth: positive if transfers should be added, negative if
+	 * 			transfers should not be requeued, 0 otherwise
+	 */
+	int update(long waitTime, long completion, boolean consumerLag)
+	{
+		if(lastCompletion != 0)
+		{
+			long delta = completion - lastCompletion;
+			interval = interval == 0 ? delta : interval + (delta - interval) / 8;
+		}
+		lastCompletion = completion;
+
+		// A transfer that is returned without waiting completed before we asked for it:
+		if(interval > 0 && waitTime < interval / 8)
+			lateCount++;
+		lagging |= consumerLag;
+
+		if(++windowCount < windowSize)
+			return 0;
+
+		int oldDepth = depth;
+		if(lagging)
+		{
+			// Transfers in flight hold blocks that the application could use:
+			depth = Math.max(minDepth, depth - 1);
+			quietCount = 0;
+		}
+		else if(lateCount >= lateThreshold)
+		{
+			// Grow quickly to protect the stream:
+			depth = Math.min(maxDepth, depth + Math.max(1, depth / 4));
+			quietCount = 0;
+		}
+		else if(lateCount == 0 && ++quietCount >= quietWindows)
+		{
+			// Shrink slowly:
+			depth = Math.max(minDepth, depth - 1);
+			quietCount = 0;
+		}
+		windowCount = 0;
+		lateCount = 0;
+		lagging = false;
+		return depth - oldDepth;
+	}
+
+	/**
+	 * Corrects the depth if not all requested transfers could be added (e.g. the
+	 * block pool was empty).
+	 *
+	 * @param actualDepth	number of transfers that are in flight
+	 */
+	void setActualDepth(int actualDepth)
+	{
+		this.depth = actualDepth;
+	}
+}
@@ -0,0 +1,161 @@
+package com.mantz_it.hackrf_android;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      ChannelBlock.java
+ * Description: Output of PfbChannelizer for one input packet: the decimated
+ * 				complex samples (interleaved I and Q) of each selected channel.
+ * 				Blocks come from a pool and must be released after use.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class ChannelBlock {
+
+	private final PfbChannelizer channelizer;	// channelizer whose pool this block belongs to
+	private int[] channels = new int[0];		// channel numbers of the outputs
+	private float[][] samples = new float[0][];	// interleaved samples of each selected channel
+	private int numSamples = 0;
+	private long frequency = 0;					// center frequency of the input
+	private int inputRate = 0;
+	private int numChannels;
+	private int decimation;
+	private long timestamp = 0;
+	private long sequenceNumber = 0;
+
+	ChannelBlock(PfbChannelizer channelizer)
+	{
+		this.channelizer = channelizer;
+	}
+
+	/**
+	 * @return number of selected channels in this block
+	 */
+	public int getNumChannels()
+	{
+		return channels.length;
+	}
+
+	/**
+	 * @param index		index of the selected channel (0 to getNumChannels()-1)
+	 * @return channel number (0 to PfbChannelizer.getNumChannels()-1)
+	 */
+	public int getChannel(int index)
+	{
+		return channels[index];
+	}
+
+	/**
+	 * Returns the samples of a channel. The array belongs to the block and is only valid
+	 * until release() is called. It may be longer than 2 * getNumSamples().
+	 *
+	 * @param index		index of the selected channel (0 to getNumChannels()-1)
+	 * @return interleaved I and Q values
+	 */
+	public float[] getSamples(int index)
+	{
+		return samples[index];
+	}
+
+	/**
+	 * @return number of complex samples of each channel
+	 */
+	public int getNumSamples()
+	{
+		return numSamples;
+	}
+
+	/**
+	 * @param index		index of the selected channel (0 to getNumChannels()-1)
+	 * @return center frequency of the channel in Hz (0 if the input frequency is unknown)
+	 */
+	public long getChannelFrequency(int index)
+	{
+		if(frequency == 0)
+			return 0;
+		return frequency + PfbChannelizer.getChannelOffset(channels[index], numChannels, inputRate);
+	}
+
+	/**
+	 * @return sample rate of each channel in Hz (0 if the input rate is unknown)
+	 */
+	public int getSampleRate()
+	{
+		return inputRate / decimation;
+	}
+
+	/**
+	 * @return time when the input packet was received (System.nanoTime(), see IqBlock.getTimestamp())
+	 */
+	public long getTimestamp()
+	{
+		return timestamp;
+	}
+
+	/**
+	 * @return number of this block since the channelizer was created (gaps mean dropped blocks)
+	 */
+	public long getSequenceNumber()
+	{
+		return sequenceNumber;
+	}
+
+	/**
+	 * Returns the block to the pool of its channelizer.
+	 */
+	public void release()
+	{
+		channelizer.recycle(this);
+	}
+
+	/**
+	 * Prepares the block for the output of one packet (the sample arrays grow if necessary).
+	 */
+	void prepare(int[] channels, int numSamples)
+	{
+		if(this.channels.length != channels.length || this.samples.length != channels.length)
+		{
+			this.channels = new int[channels.length];
+			this.samples = new float[channels.length][];
+		}
+		System.arraycopy(channels, 0, this.channels, 0, channels.length);
+		for(int i = 0; i < channels.length; i++)
+		{
+			if(samples[i] == null || samples[i].length < 2 * numSamples)
+				samples[i] = new float[2 * numSamples];
+		}
+		this.numSamples = numSamples;
+	}
+
+	void setMetadata(long frequency, int inputRate, int numChannels, int decimation, long timestamp, long sequenceNumber)
+	{
+		this.frequency = frequency;
+		this.inputRate = inputRate;
+		this.numChannels = numChannels;
+		this.decimation = decimation;
+		this.timestamp = timestamp;
+		this.sequenceNumber = sequenceNumber;
+	}
+
+	float[][] getSampleArrays()
+	{
+		return samples;
+	}
+}
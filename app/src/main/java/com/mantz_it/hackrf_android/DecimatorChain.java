@@ -0,0 +1,288 @@
+package com.mantz_it.hackrf_android;
+
+import java.util.ArrayList;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      DecimatorChain.java
+ * Description: Cascade of IqStages that brings the RX stream from the
+ * 				HackRF sample rate down to the rate a decoder needs (e.g. from
+ * 				8 Msps to 250 ksps). create() designs the cascade: half band
+ * 				decimators for the factors of two (at the high rates, where
+ * 				they are cheapest) and one FirDecimator or RationalResampler
+ * 				for the rest. The chain is an IqBlockHandler: it converts the
+ * 				8-bit samples of each block in small chunks (so the full rate
+ * 				float samples never leave the cache) and passes the output of
+ * 				each block to an IqSampleHandler.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class DecimatorChain implements IqStage, IqBlockHandler {
+
+	private static final int CHUNK = FirDecimator.CHUNK;	// input samples that are converted at once
+	private static final int MAX_INTERPOLATION = 1024;		// limit of the resampler's number of branches
+
+	private final IqStage[] stages;
+	private final float[][] scratch;			// output of each stage (one chunk)
+	private final float[] input = new float[2 * CHUNK];	// converted 8-bit samples
+	private final IqConverter converter = new IqConverter(IqConverter.KERNEL_LUT);
+	private final int interpolation;			// product of the factors of all stages
+	private final int decimation;
+	private final int maxChunkOutput;			// maximum output of one chunk
+	private IqSampleHandler handler = null;
+	private float[] output = new float[0];		// output of one block (grows if necessary)
+	private volatile long inputSampleCounter = 0;
+	private volatile long outputSampleCounter = 0;
+
+	/**
+	 * @param stages	stages in processing order (at least one)
+	 * @throws IllegalArgumentException if there is no stage
+	 */
+	public DecimatorChain(IqStage... stages)
+	{
+		if(stages.length < 1)
+			throw new IllegalArgumentException("DecimatorChain needs at least one stage");
+		this.stages = stages.clone();
+		this.scratch = new float[stages.length][];
+		long interpolation = 1;
+		long decimation = 1;
+		int maxLength = CHUNK;
+		for(int i = 0; i < stages.length; i++)
+		{
+			maxLength = stages[i].getMaxOutputLength(maxLength);
+			scratch[i] = new float[2 * maxLength];
+			interpolation *= stages[i].getInterpolation();
+			decimation *= stages[i].getDecimation();
+		}
+		this.maxChunkOutput = maxLength;
+		long gcd = gcd(interpolation, decimation);
+		this.interpolation = (int) (interpolation / gcd);
+		this.decimation = (int) (decimation / gcd);
+	}
+
+	/**
+	 * Designs a chain that resamples from inputRate to outputRate and keeps the band
+	 * [-bandwidth/2; bandwidth/2] free of aliases (aliases may fall into the transition
+	 * band between bandwidth/2 and outputRate/2).
+	 *
+	 * @param inputRate		sample rate of the input in Hz (e.g. Hackrf.getSampleRate())
+	 * @param outputRate	sample rate of the output in Hz
+	 * @param bandwidth		bandwidth of the signal in Hz (less than outputRate and inputRate)
+	 * @param attenuation	stop band attenuation in dB (e.g. 60)
+	 * @return new chain
+	 * @throws IllegalArgumentException if the rates can't be realized
+	 */
+	public static DecimatorChain create(int inputRate, int outputRate, int bandwidth, float attenuation)
+	{
+		if(inputRate <= 0 || outputRate <= 0 || bandwidth <= 0 || bandwidth >= outputRate || bandwidth >= inputRate)
+			throw new IllegalArgumentException("Invalid rates: input=" + inputRate + " output=" + outputRate + " bandwidth=" + bandwidth);
+		long gcd = gcd(inputRate, outputRate);
+		int interpolation = (int) (outputRate / gcd);
+		int decimation = (int) (inputRate / gcd);
+		if(interpolation > MAX_INTERPOLATION)
+			throw new IllegalArgumentException("Ratio " + outputRate + "/" + inputRate + " needs an interpolation of " + interpolation);
+
+		ArrayList<IqStage> stages = new ArrayList<IqStage>();
+		double passEdge = bandwidth / 2.0;
+		double rate = inputRate;
+		// Half bands as long as the rate after them is still above the output rate
+		// and the pass band ends below a quarter of the rate:
+		while(decimation % 2 == 0 && rate / 2 >= outputRate && passEdge / rate < 0.2)
+		{
+			stages.add(HalfBandDecimator.create(passEdge / rate, attenuation));
+			rate /= 2;
+			decimation /= 2;
+		}
+		// Before a resampler: small odd factors as separate decimators while the rate stays
+		// well above the output rate (the resampler then runs at a lower rate):
+		for(int factor = 5; interpolation > 1 && factor >= 3; factor -= 2)
+		{
+			while(decimation % factor == 0 && rate / factor >= 4.0 * outputRate)
+			{
+				stages.add(FirDecimator.create(factor, passEdge / rate, (rate / factor - passEdge) / rate, attenuation));
+				rate /= factor;
+				decimation /= factor;
+			}
+		}
+		if(interpolation == 1 && decimation > 1)
+			stages.add(FirDecimator.create(decimation, passEdge / rate, (outputRate - passEdge) / rate, attenuation));
+		else if(interpolation > 1)
+		{
+			double stopEdge = Math.min(rate, outputRate) - passEdge;
+			stages.add(RationalResampler.create(interpolation, decimation, passEdge / rate, stopEdge / rate, attenuation));
+		}
+		if(stages.isEmpty())
+			stages.add(new FirDecimator(new float[] {1}, 1));		// rates are equal
+		return new DecimatorChain(stages.toArray(new IqStage[stages.size()]));
+	}
+
+	/**
+	 * @return the stages of the chain (in processing order)
+	 */
+	public IqStage[] getStages()
+	{
+		return stages.clone();
+	}
+
+	/**
+	 * @param handler	receives the output of each block (see onIqBlock())
+	 */
+	public void setHandler(IqSampleHandler handler)
+	{
+		this.handler = handler;
+	}
+
+	/**
+	 * @param inputRate		sample rate of the input in Hz
+	 * @return sample rate of the output in Hz
+	 */
+	public int getOutputRate(int inputRate)
+	{
+		return (int) ((long) inputRate * interpolation / decimation);
+	}
+
+	public long getInputSampleCounter()
+	{
+		return inputSampleCounter;
+	}
+
+	public long getOutputSampleCounter()
+	{
+		return outputSampleCounter;
+	}
+
+	@Override
+	public int getInterpolation()
+	{
+		return interpolation;
+	}
+
+	@Override
+	public int getDecimation()
+	{
+		return decimation;
+	}
+
+	@Override
+	public int getMaxOutputLength(int numSamples)
+	{
+		int chunks = (numSamples + CHUNK - 1) / CHUNK;
+		return chunks * maxChunkOutput;
+	}
+
+	@Override
+	public void reset()
+	{
+		for(IqStage stage: stages)
+			stage.reset();
+	}
+
+	@Override
+	public int process(float[] in, int inOffset, int numSamples, float[] out, int outOffset)
+	{
+		int outIndex = outOffset;
+		for(int consumed = 0; consumed < numSamples; consumed += CHUNK)
+			outIndex += 2 * processChunk(in, inOffset + 2 * consumed, Math.min(CHUNK, numSamples - consumed), out, outIndex);
+		inputSampleCounter += numSamples;
+		outputSampleCounter += (outIndex - outOffset) / 2;
+		return (outIndex - outOffset) / 2;
+	}
+
+	/**
+	 * Converts and decimates the samples of a block and passes the output to the handler
+	 * (tagged with the block's frequency and the output rate). The history is cleared
+	 * at discontinuities.
+	 *
+	 * @param block		received samples
+	 * @return false if the handler wants to stop receiving
+	 */
+	@Override
+	public boolean onIqBlock(IqBlock block)
+	{
+		if(block.isDiscontinuity())
+			reset();
+		int numSamples = block.getLength() / 2;
+		int maxOutput = getMaxOutputLength(numSamples);
+		if(output.length < 2 * maxOutput)
+			output = new float[2 * maxOutput];
+
+		int outIndex = 0;
+		for(int consumed = 0; consumed < numSamples; consumed += CHUNK)
+		{
+			int chunk = Math.min(CHUNK, numSamples - consumed);
+			converter.toFloat(block.getBuffer(), 2 * consumed, input, 0, chunk);
+			outIndex += 2 * processChunk(input, 0, chunk, output, outIndex);
+		}
+		inputSampleCounter += numSamples;
+		outputSampleCounter += outIndex / 2;
+
+		IqSampleHandler handler = this.handler;
+		if(handler == null || outIndex == 0)
+			return true;
+		return handler.onSamples(output, 0, outIndex / 2, block.getFrequency(), getOutputRate(block.getSampleRate()));
+	}
+
+	/**
+	 * Runs up to CHUNK samples through all stages.
+	 */
+	private int processChunk(float[] in, int inOffset, int numSamples, float[] out, int outOffset)
+	{
+		float[] src = in;
+		int srcOffset = inOffset;
+		int count = numSamples;
+		for(int i = 0; i < stages.length; i++)
+		{
+			boolean last = i == stages.length - 1;
+			float[] dst = last ? out : scratch[i];
+			count = stages[i].process(src, srcOffset, count, dst, last ? outOffset : 0);
+			src = dst;
+			srcOffset = 0;
+			if(count == 0)
+				break;
+		}
+		return count;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder("DecimatorChain:");
+		for(IqStage stage: stages)
+		{
+			sb.append(' ').append(stage.getClass().getSimpleName()).append('(');
+			if(stage.getInterpolation() != 1)
+				sb.append(stage.getInterpolation()).append('/');
+			sb.append(stage.getDecimation()).append(')');
+		}
+		return sb.toString();
+	}
+
+	private static long gcd(long a, long b)
+	{
+		while(b != 0)
+		{
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+}
@@ -0,0 +1,701 @@
+package com.mantz_it.hackrf_android;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      DspPipeline.java
+ * Description: Chain of processing stages that run on their own threads.
+ * 				Consecutive stages are connected by bounded rings. A stage can
+ * 				have several worker threads that process different items in
+ * 				parallel; the items are put back into their original order
+ * 				before the next stage sees them (every item gets a sequence
+ * 				number and each ring slot belongs to one sequence number).
+ * 				If a stage is too slow, its input ring fills up and the stage
+ * 				before it waits, down to the first stage. When the pipeline
+ * 				is fed from an IqBlockRing (see Hackrf.startRXPipeline()),
+ * 				the IqBlockRing fills up next and the overflow policy of the
+ * 				stream decides what happens. Each stage reports its own
+ * 				throughput, load, backpressure and queue metrics.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class DspPipeline {
+
+	private static final String logTag = "hackrf_android";
+	private static final Object SKIP = new Object();			// marks a sequence number without item
+	private static final long producerParkTime = 50000;		// 50us between checks of a full ring
+	private static final long pollTimeout = 10000000;			// 10ms: how often waiting threads check for stop()
+	private static final int sourceBatchSize = 16;				// blocks the source thread takes out of the ring at once
+
+	/**
+	 * Processing step of a pipeline. Stages with more than one worker thread must be
+	 * thread-safe; process() is then called concurrently with different items. Stages
+	 * with one worker always see their items in order.
+	 *
+	 * @param <I>	type of the input items
+	 * @param <O>	type of the output items (= input of the next stage)
+	 */
+	public interface Stage<I, O> {
+		/**
+		 * Processes one item. The stage owns the item: it either passes it on (as or
+		 * inside the output) or releases it. If it throws an exception, the pipeline stops.
+		 *
+		 * @param input		item from the previous stage (or the source)
+		 * @return item for the next stage or null if there is nothing to pass on (the
+		 * 			value returned by the last stage is ignored)
+		 */
+		public O process(I input);
+
+		/**
+		 * Called for each item that was passed to this stage but will not be processed
+		 * because the pipeline was stopped (e.g. to release it).
+		 *
+		 * @param input		item that is dropped
+		 */
+		public void discard(I input);
+	}
+
+	private final int ringCapacity;
+	private final WaitStrategy waitStrategy;
+	private final ArrayList<StageInfo> stages = new ArrayList<StageInfo>();
+	private volatile boolean running = false;
+	private volatile RuntimeException error = null;		// exception that stopped the pipeline
+	private Thread feeder = null;							// drains the source ring (if any)
+	private long nextSequence = 0;							// next sequence number of offer() / the feeder
+	private long startTime = 0;
+	private long stopTime = 0;
+
+	/**
+	 * @param ringCapacity	minimum number of items in front of each stage (rounded up to a power of two)
+	 * @param waitStrategy	defines how the worker threads wait for items (WaitStrategy.PARK saves battery)
+	 */
+	public DspPipeline(int ringCapacity, WaitStrategy waitStrategy)
+	{
+		this.ringCapacity = Integer.highestOneBit(Math.max(1, ringCapacity - 1)) << 1;
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * Appends a stage. Must not be called while the pipeline is running.
+	 *
+	 * @param name			name of the stage (for the thread names and toString())
+	 * @param stage			processing step (its input type must match the output of the previous stage)
+	 * @param numWorkers	number of threads that run the stage (> 1 only for thread-safe stages)
+	 * @return metrics of the stage
+	 * @throws IllegalStateException if the pipeline is running
+	 * @throws IllegalArgumentException if numWorkers is less than 1
+	 */
+	public synchronized StageInfo addStage(String name, Stage<?, ?> stage, int numWorkers)
+	{
+		if(running)
+			throw new IllegalStateException("Stages can't be added while the pipeline is running!");
+		if(numWorkers < 1)
+			throw new IllegalArgumentException("Stage " + name + " needs at least one worker: " + numWorkers);
+		StageInfo info = new StageInfo(name, stage, numWorkers);
+		stages.add(info);
+		return info;
+	}
+
+	public synchronized int getNumStages()
+	{
+		return stages.size();
+	}
+
+	/**
+	 * @return highest number of items the pipeline holds at once if it is fed from a
+	 * 			ring: the batch of the source thread plus the ring and the workers of each
+	 * 			stage (Hackrf adds this to its pool, so that a stalled pipeline can't empty it)
+	 */
+	synchronized int getMaxHeldItems()
+	{
+		int items = sourceBatchSize;
+		for(StageInfo stage: stages)
+			items += ringCapacity + stage.numWorkers;
+		return items;
+	}
+
+	/**
+	 * @param index		index of the stage (in the order they were added)
+	 * @return metrics of the stage
+	 */
+	public synchronized StageInfo getStage(int index)
+	{
+		return stages.get(index);
+	}
+
+	/**
+	 * Wraps an IqBlockHandler (e.g. PsdEngine, PfbChannelizer or DecimatorChain) into a
+	 * stage with IqBlock input. The return value of the handler is ignored.
+	 *
+	 * @param handler	handler that is called with each block (run the stage with one worker
+	 * 					unless the handler is thread-safe)
+	 * @param release	true to release the block after the handler (last stage), false to
+	 * 					pass it on to the next stage
+	 * @return new stage
+	 */
+	public static Stage<IqBlock, IqBlock> handlerStage(final IqBlockHandler handler, final boolean release)
+	{
+		return new Stage<IqBlock, IqBlock>() {
+			@Override
+			public IqBlock process(IqBlock block)
+			{
+				handler.onIqBlock(block);
+				if(!release)
+					return block;
+				block.release();
+				return null;
+			}
+
+			@Override
+			public void discard(IqBlock block)
+			{
+				block.release();
+			}
+		};
+	}
+
+	/**
+	 * @return true between start() and stop() unless a stage threw an exception (call
+	 * 			stop() to clean up in that case)
+	 */
+	public boolean isRunning()
+	{
+		return running;
+	}
+
+	/**
+	 * @return exception that stopped the pipeline or null
+	 */
+	public RuntimeException getError()
+	{
+		return error;
+	}
+
+	/**
+	 * Starts the worker threads. The items are passed in by offer().
+	 *
+	 * @throws IllegalStateException if the pipeline has no stage or is already running
+	 */
+	public synchronized void start()
+	{
+		if(running || feeder != null || stages.isEmpty())
+			throw new IllegalStateException("Pipeline is running or has no stages!");
+		this.error = null;
+		this.nextSequence = 0;
+		this.startTime = System.nanoTime();
+		this.running = true;
+		for(StageInfo stage: stages)
+			stage.prepare();
+		for(int i = 0; i < stages.size(); i++)
+			stages.get(i).startWorkers(i + 1 < stages.size() ? stages.get(i + 1) : null);
+	}
+
+	/**
+	 * Starts the worker threads and a thread that moves the blocks of the ring into the
+	 * first stage (which must accept IqBlocks). If the first stage can't keep up, the
+	 * thread stops taking blocks out of the ring, so that the overflow policy of the
+	 * stream applies (see Hackrf.setOverflowPolicy()).
+	 *
+	 * @param source	ring of received blocks (e.g. from Hackrf.startRXRing())
+	 * @throws IllegalStateException if the pipeline has no stage or is already running
+	 */
+	public synchronized void start(final IqBlockRing source)
+	{
+		start();
+		final StageInfo first = stages.get(0);
+		feeder = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				IqBlock[] blocks = new IqBlock[sourceBatchSize];
+				try {
+					while(running)
+					{
+						int n = source.drainTo(blocks, pollTimeout, TimeUnit.NANOSECONDS);
+						for(int i = 0; i < n; i++)
+						{
+							if(!first.ring.publish(nextSequence, blocks[i], null))
+								blocks[i].release();		// stopped while the first stage was full
+							else
+								nextSequence++;
+							blocks[i] = null;
+						}
+					}
+				} catch (InterruptedException e) {
+					Log.i(logTag, "DspPipeline: Source thread was interrupted.");
+				}
+			}
+		}, "hackrf_android pipeline source");
+		feeder.setDaemon(true);
+		feeder.start();
+	}
+
+	/**
+	 * Passes an item to the first stage. Must only be called by one thread at a time
+	 * and not if the pipeline was started with a source ring.
+	 *
+	 * @param item		input of the first stage (the pipeline takes over the item)
+	 * @return false if the first stage is full or the pipeline isn't running (the
+	 * 			caller keeps the item)
+	 */
+	public boolean offer(Object item)
+	{
+		if(!running || !stages.get(0).ring.tryPublish(nextSequence, item))
+			return false;
+		nextSequence++;
+		return true;
+	}
+
+	/**
+	 * Passes an item to the first stage and waits if the first stage is full.
+	 *
+	 * @param item		input of the first stage (the pipeline takes over the item)
+	 * @param timeout	how long to wait at most
+	 * @param unit		unit of timeout
+	 * @return false if the first stage stayed full or the pipeline isn't running (the
+	 * 			caller keeps the item)
+	 */
+	public boolean offer(Object item, long timeout, TimeUnit unit)
+	{
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while(!offer(item))
+		{
+			if(!running || System.nanoTime() - deadline >= 0)
+				return false;
+			LockSupport.parkNanos(producerParkTime);
+		}
+		return true;
+	}
+
+	/**
+	 * Stops all threads and discards the items that are still in the pipeline (see
+	 * Stage.discard()). Blocks that are still in the source ring stay there.
+	 */
+	public synchronized void stop()
+	{
+		if(running)
+			stopTime = System.nanoTime();
+		running = false;
+		boolean interrupted = false;
+		if(feeder != null)
+		{
+			interrupted |= join(feeder);
+			feeder = null;
+		}
+		for(StageInfo stage: stages)
+		{
+			for(Thread thread: stage.threads)
+			{
+				LockSupport.unpark(thread);
+				interrupted |= join(thread);
+			}
+			stage.threads.clear();
+		}
+		for(StageInfo stage: stages)
+			if(stage.ring != null)
+				stage.ring.discardAll(stage);
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Waits for a thread to finish (the interrupt status of the caller is kept).
+	 *
+	 * @return true if the caller was interrupted
+	 */
+	private static boolean join(Thread thread)
+	{
+		boolean interrupted = false;
+		while(thread.isAlive())
+		{
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;		// the threads still use the stages, so we have to wait for them
+			}
+		}
+		return interrupted;
+	}
+
+	/**
+	 * Called by a worker whose stage threw an exception.
+	 */
+	private void fail(StageInfo stage, RuntimeException e)
+	{
+		Log.e(logTag, "DspPipeline: Stage " + stage.name + " threw an exception. Stop pipeline! " + e);
+		if(error == null)
+			error = e;		// (the first one wins unless two stages fail at the same time)
+		if(running)
+			stopTime = System.nanoTime();
+		running = false;
+	}
+
+	/**
+	 * @return elapsed time of the current (or last) run in ns
+	 */
+	private long getRunTime()
+	{
+		return (running ? System.nanoTime() : stopTime) - startTime;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		StringBuilder sb = new StringBuilder("DspPipeline:");
+		for(StageInfo stage: stages)
+			sb.append("\n  ").append(stage);
+		return sb.toString();
+	}
+
+	/**
+	 * A stage inside the pipeline: its input ring, its threads and its metrics.
+	 */
+	public class StageInfo {
+		private final String name;
+		private final Stage<Object, Object> stage;
+		private final int numWorkers;
+		private final ArrayList<Thread> threads = new ArrayList<Thread>();
+		private Ring ring = null;								// items in front of this stage
+		private final AtomicLong itemCounter = new AtomicLong(0);		// processed items
+		private final AtomicLong sampleCounter = new AtomicLong(0);	// samples of processed IqBlocks
+		private final AtomicLong processingTime = new AtomicLong(0);	// ns spent in Stage.process()
+		private final AtomicLong blockedTime = new AtomicLong(0);		// ns waiting for the next stage
+
+		@SuppressWarnings("unchecked")
+		private StageInfo(String name, Stage<?, ?> stage, int numWorkers)
+		{
+			this.name = name;
+			this.stage = (Stage<Object, Object>) stage;
+			this.numWorkers = numWorkers;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public int getNumWorkers()
+		{
+			return numWorkers;
+		}
+
+		/**
+		 * @return number of items this stage processed since the pipeline was started
+		 */
+		public long getItemCounter()
+		{
+			return itemCounter.get();
+		}
+
+		/**
+		 * @return number of samples in the IqBlocks this stage processed since the pipeline was started
+		 */
+		public long getSampleCounter()
+		{
+			return sampleCounter.get();
+		}
+
+		/**
+		 * @return processed items per second since the pipeline was started
+		 */
+		public double getThroughput()
+		{
+			long time = getRunTime();
+			return time > 0 ? itemCounter.get() * 1e9 / time : 0;
+		}
+
+		/**
+		 * @return processed IqBlock samples per second since the pipeline was started
+		 */
+		public double getSampleThroughput()
+		{
+			long time = getRunTime();
+			return time > 0 ? sampleCounter.get() * 1e9 / time : 0;
+		}
+
+		/**
+		 * @return fraction of the time the workers spent processing (1.0 = all workers always busy)
+		 */
+		public double getLoad()
+		{
+			long time = getRunTime();
+			return time > 0 ? (double) processingTime.get() / time / numWorkers : 0;
+		}
+
+		/**
+		 * @return ns the workers waited because the next stage was full (backpressure)
+		 */
+		public long getBlockedTime()
+		{
+			return blockedTime.get();
+		}
+
+		/**
+		 * @return number of items waiting in front of this stage
+		 */
+		public int getQueueSize()
+		{
+			Ring r = ring;
+			return r != null ? r.size() : 0;
+		}
+
+		/**
+		 * @return highest number of items that waited in front of this stage
+		 */
+		public int getMaxQueueSize()
+		{
+			Ring r = ring;
+			return r != null ? r.maxSize : 0;
+		}
+
+		/**
+		 * @return number of items that fit in front of this stage
+		 */
+		public int getQueueCapacity()
+		{
+			return ringCapacity;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%s: workers=%d items=%d throughput=%.1f/s (%.2f MS/s) load=%.2f queue=%d/%d (max %d) blocked=%dms",
+					name, numWorkers, getItemCounter(), getThroughput(), getSampleThroughput() / 1e6, getLoad(),
+					getQueueSize(), ringCapacity, getMaxQueueSize(), getBlockedTime() / 1000000);
+		}
+
+		/**
+		 * Creates an empty input ring and resets the metrics.
+		 */
+		private void prepare()
+		{
+			ring = new Ring(ringCapacity);
+			itemCounter.set(0);
+			sampleCounter.set(0);
+			processingTime.set(0);
+			blockedTime.set(0);
+		}
+
+		private void startWorkers(final StageInfo next)
+		{
+			Thread[] consumers = new Thread[numWorkers];
+			for(int i = 0; i < numWorkers; i++)
+			{
+				Thread thread = new Thread(new Runnable() {
+					@Override
+					public void run()
+					{
+						runWorker(next);
+					}
+				}, "hackrf_android pipeline " + name + " " + i);
+				thread.setDaemon(true);
+				consumers[i] = thread;
+				threads.add(thread);
+			}
+			ring.consumers = consumers;
+			for(Thread thread: consumers)
+				thread.start();
+		}
+
+		/**
+		 * Worker loop: takes items in sequence order and publishes the results with the
+		 * same sequence number, so the next stage gets them in order.
+		 */
+		private void runWorker(StageInfo next)
+		{
+			Claim claim = new Claim();
+			while(ring.take(claim))
+			{
+				Object output = SKIP;
+				if(claim.item != SKIP)
+				{
+					Object input = claim.item;
+					claim.item = null;
+					int samples = input instanceof IqBlock ? ((IqBlock) input).getLength() / 2 : 0;
+					long start = System.nanoTime();
+					try {
+						output = stage.process(input);
+					} catch (RuntimeException e) {
+						fail(this, e);
+						return;
+					}
+					processingTime.addAndGet(System.nanoTime() - start);
+					itemCounter.incrementAndGet();
+					if(samples > 0)
+						sampleCounter.addAndGet(samples);
+					if(output == null)
+						output = SKIP;
+				}
+				if(next != null && !next.ring.publish(claim.seq, output, this) && output != SKIP)
+					next.stage.discard(output);		// stopped while the next stage was full
+			}
+		}
+	}
+
+	/**
+	 * Item taken out of a ring.
+	 */
+	private static class Claim {
+		long seq;
+		Object item;
+	}
+
+	/**
+	 * Bounded ring in front of a stage. Any number of producers publish items with
+	 * sequence numbers (each number exactly once); slot seq % capacity belongs to seq
+	 * and is marked with seq when the item is ready. The consumers take the items
+	 * strictly in sequence order, so a fast producer can't overtake a slow one.
+	 */
+	private class Ring {
+		private final Object[] items;
+		private final AtomicLongArray stamps;			// sequence number of the item in each slot
+		private final int mask;
+		private final AtomicLong head = new AtomicLong(0);		// next sequence number to take (CAS)
+		private final AtomicLong published = new AtomicLong(0);	// number of published items
+		private final AtomicInteger numWaiting = new AtomicInteger(0);	// consumers that may be parked
+		private volatile Thread[] consumers = new Thread[0];
+		private volatile int maxSize = 0;
+
+		Ring(int capacity)
+		{
+			this.items = new Object[capacity];
+			this.stamps = new AtomicLongArray(capacity);
+			this.mask = capacity - 1;
+			for(int i = 0; i < capacity; i++)
+				stamps.set(i, -1);
+		}
+
+		int size()
+		{
+			return (int) Math.max(0, published.get() - head.get());
+		}
+
+		/**
+		 * Publishes an item if its slot is free.
+		 *
+		 * @return false if the ring is full
+		 */
+		boolean tryPublish(long seq, Object item)
+		{
+			if(seq - head.get() >= items.length)
+				return false;
+			int i = (int) seq & mask;
+			items[i] = item;
+			stamps.set(i, seq);		// volatile write: publishes the item
+			int size = (int) (published.incrementAndGet() - head.get());
+			if(size > maxSize)
+				maxSize = size;
+			if(numWaiting.get() > 0)
+				for(Thread consumer: consumers)
+					LockSupport.unpark(consumer);
+			return true;
+		}
+
+		/**
+		 * Publishes an item and waits until its slot is free.
+		 *
+		 * @param producer	stage that produced the item (for the metrics, null for the source)
+		 * @return false if the pipeline was stopped while waiting
+		 */
+		boolean publish(long seq, Object item, StageInfo producer)
+		{
+			if(tryPublish(seq, item))
+				return true;
+			long start = System.nanoTime();
+			boolean published;
+			while(!(published = tryPublish(seq, item)) && running)
+				LockSupport.parkNanos(producerParkTime);
+			if(producer != null)
+				producer.blockedTime.addAndGet(System.nanoTime() - start);
+			return published;
+		}
+
+		/**
+		 * Takes the next item in sequence order and waits (according to the wait strategy)
+		 * until it is ready.
+		 *
+		 * @param claim		receives the sequence number and the item
+		 * @return false if the pipeline was stopped
+		 */
+		boolean take(Claim claim)
+		{
+			int iteration = 0;
+			long deadline = System.nanoTime() + pollTimeout;
+			boolean blocking = waitStrategy.isBlocking();
+			while(running)
+			{
+				long h = head.get();
+				int i = (int) h & mask;
+				if(stamps.get(i) == h)
+				{
+					Object item = items[i];
+					// This fails if another worker took the item in the meantime:
+					if(head.compareAndSet(h, h + 1))
+					{
+						claim.seq = h;
+						claim.item = item;
+						return true;
+					}
+					continue;
+				}
+				if(System.nanoTime() - deadline >= 0)
+				{
+					deadline = System.nanoTime() + pollTimeout;
+					iteration = 0;
+				}
+				if(blocking)
+				{
+					numWaiting.incrementAndGet();
+					if(stamps.get(i) != h)		// check again: the producer might have published before it saw numWaiting
+						waitStrategy.idle(iteration++, deadline);
+					numWaiting.decrementAndGet();
+				}
+				else
+					waitStrategy.idle(iteration++, deadline);
+			}
+			return false;
+		}
+
+		/**
+		 * Passes all items that were not taken to stage.discard(). Must only be called
+		 * after all threads stopped.
+		 */
+		void discardAll(StageInfo stage)
+		{
+			long h = head.get();
+			for(long seq = h; seq < h + items.length; seq++)
+			{
+				int i = (int) seq & mask;
+				if(stamps.get(i) == seq && items[i] != SKIP)
+					stage.stage.discard(items[i]);
+				items[i] = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package com.mantz_it.hackrf_android;
+
+import java.util.HashMap;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      FftPlan.java
+ * Description: Precomputed plan of a radix-2 complex FFT: twiddle factors
+ * 				and bit reversal table of one size. Plans are cached, so that
+ * 				all users of the same size share one plan. A plan is
+ * 				immutable and can be used by several threads at once.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class FftPlan {
+
+	private static final HashMap<Integer, FftPlan> cache = new HashMap<Integer, FftPlan>();	// guarded by cache
+
+	private final int size;
+	private final float[] cos;			// twiddle factors of all stages: stage with butterfly distance
+	private final float[] sin;			// h uses exp(-pi*j*k/h), k < h, at index h+k (contiguous per stage)
+	private final int[] swap;			// pairs of indices that are swapped by the bit reversal
+
+	/**
+	 * Returns the (cached) plan of the given size.
+	 *
+	 * @param size		FFT size (power of two, at least 2)
+	 * @return plan of this size
+	 * @throws IllegalArgumentException if the size is not a power of two
+	 */
+	public static FftPlan get(int size)
+	{
+		if(size < 2 || Integer.bitCount(size) != 1)
+			throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+		synchronized (cache) {
+			FftPlan plan = cache.get(size);
+			if(plan == null)
+			{
+				plan = new FftPlan(size);
+				cache.put(size, plan);
+			}
+			return plan;
+		}
+	}
+
+	private FftPlan(int size)
+	{
+		this.size = size;
+		this.cos = new float[size];
+		this.sin = new float[size];
+		for(int half = 1; half < size; half <<= 1)
+		{
+			for(int k = 0; k < half; k++)
+			{
+				double phase = -Math.PI * k / half;
+				cos[half + k] = (float) Math.cos(phase);
+				sin[half + k] = (float) Math.sin(phase);
+			}
+		}
+
+		int bits = Integer.numberOfTrailingZeros(size);
+		int numSwaps = 0;
+		int[] swap = new int[size];
+		for(int i = 0; i < size; i++)
+		{
+			int j = Integer.reverse(i) >>> (32 - bits);
+			if(j > i)
+			{
+				swap[numSwaps++] = i;
+				swap[numSwaps++] = j;
+			}
+		}
+		this.swap = new int[numSwaps];
+		System.arraycopy(swap, 0, this.swap, 0, numSwaps);
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Forward FFT in place (not scaled): X[k] = sum(x[n] * exp(-2*pi*j*n*k/size)).
+	 *
+	 * @param re	real parts (at least size values)
+	 * @param im	imaginary parts (at least size values)
+	 */
+	public void forward(float[] re, float[] im)
+	{
+		transform(re, im, false);
+	}
+
+	/**
+	 * Inverse FFT in place (not scaled, i.e. forward(inverse(x)) = size * x).
+	 *
+	 * @param re	real parts (at least size values)
+	 * @param im	imaginary parts (at least size values)
+	 */
+	public void inverse(float[] re, float[] im)
+	{
+		transform(re, im, true);
+	}
+
+	private void transform(float[] re, float[] im, boolean inverse)
+	{
+		// Bit reversal:
+		int[] swap = this.swap;
+		for(int k = 0; k < swap.length; k += 2)
+		{
+			int i = swap[k];
+			int j = swap[k+1];
+			float t = re[i]; re[i] = re[j]; re[j] = t;
+			t = im[i]; im[i] = im[j]; im[j] = t;
+		}
+
+		// First two stages (twiddle factors 1 and -j, or +j for the inverse), combined
+		// into one radix-4 pass:
+		int size = this.size;
+		if(size == 2)
+		{
+			float tr = re[1];
+			float ti = im[1];
+			re[1] = re[0] - tr;
+			im[1] = im[0] - ti;
+			re[0] += tr;
+			im[0] += ti;
+			return;
+		}
+		float sign = inverse ? -1 : 1;
+		for(int a = 0; a < size; a += 4)
+		{
+			float r0 = re[a] + re[a+1];
+			float i0 = im[a] + im[a+1];
+			float r1 = re[a] - re[a+1];
+			float i1 = im[a] - im[a+1];
+			float r2 = re[a+2] + re[a+3];
+			float i2 = im[a+2] + im[a+3];
+			float r3 = sign * (im[a+2] - im[a+3]);		// (x2 - x3) * -j
+			float i3 = sign * (re[a+3] - re[a+2]);
+			re[a] 	= r0 + r2;
+			im[a] 	= i0 + i2;
+			re[a+2] = r0 - r2;
+			im[a+2] = i0 - i2;
+			re[a+1] = r1 + r3;
+			im[a+1] = i1 + i3;
+			re[a+3] = r1 - r3;
+			im[a+3] = i1 - i3;
+		}
+
+		// Remaining stages (decimation in time), with the twiddle factor in the outer loop:
+		float[] cos = this.cos;
+		float[] sin = this.sin;
+		for(int half = 4; half < size; half <<= 1)
+		{
+			for(int k = 0; k < half; k++)
+			{
+				float wr = cos[half + k];
+				float wi = sign * sin[half + k];
+				for(int a = k; a < size; a += 2 * half)
+				{
+					int b = a + half;
+					float tr = re[b] * wr - im[b] * wi;
+					float ti = re[b] * wi + im[b] * wr;
+					re[b] = re[a] - tr;
+					im[b] = im[a] - ti;
+					re[a] += tr;
+					im[a] += ti;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.mantz_it.hackrf_android;
+
+import java.util.HashMap;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      FftWindow.java
+ * Description: Window functions for spectral analysis. The tables are
+ * 				computed once per type and size and shared (they must not be
+ * 				modified by the caller).
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class FftWindow {
+
+	public static final int RECTANGLE 		= 0;
+	public static final int HANN 			= 1;
+	public static final int HAMMING 		= 2;
+	public static final int BLACKMAN_HARRIS = 3;	// 4 term, -92 dB side lobes
+
+	private static final HashMap<Long, float[]> cache = new HashMap<Long, float[]>();	// guarded by cache
+
+	private FftWindow()
+	{
+	}
+
+	/**
+	 * Returns the (cached) window table.
+	 *
+	 * @param type		RECTANGLE, HANN, HAMMING or BLACKMAN_HARRIS
+	 * @param size		number of coefficients
+	 * @return shared table of the window (must not be modified)
+	 * @throws IllegalArgumentException if the type is unknown
+	 */
+	public static float[] get(int type, int size)
+	{
+		if(type < RECTANGLE || type > BLACKMAN_HARRIS)
+			throw new IllegalArgumentException("Unknown window type: " + type);
+		Long key = ((long) type << 32) | size;
+		synchronized (cache) {
+			float[] window = cache.get(key);
+			if(window == null)
+			{
+				window = compute(type, size);
+				cache.put(key, window);
+			}
+			return window;
+		}
+	}
+
+	/**
+	 * @param window	window table
+	 * @return sum of the squared coefficients (noise power gain of the window)
+	 */
+	public static float powerGain(float[] window)
+	{
+		double sum = 0;
+		for(float w: window)
+			sum += w * w;
+		return (float) sum;
+	}
+
+	private static float[] compute(int type, int size)
+	{
+		float[] window = new float[size];
+		for(int n = 0; n < size; n++)
+		{
+			double x = 2 * Math.PI * n / size;		// periodic windows (for spectral analysis)
+			switch(type)
+			{
+				case HANN:				window[n] = (float) (0.5 - 0.5 * Math.cos(x)); 		break;
+				case HAMMING:			window[n] = (float) (0.54 - 0.46 * Math.cos(x)); 	break;
+				case BLACKMAN_HARRIS:	window[n] = (float) (0.35875 - 0.48829 * Math.cos(x)
+												+ 0.14128 * Math.cos(2*x) - 0.01168 * Math.cos(3*x));	break;
+				case RECTANGLE:
+				default:				window[n] = 1;	break;
+			}
+		}
+		return window;
+	}
+}
@@ -0,0 +1,151 @@
+package com.mantz_it.hackrf_android;
+
+import java.util.Arrays;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      FirDecimator.java
+ * Description: Decimating FIR filter for complex samples (real taps) in
+ * 				polyphase form: only every decimation-th output is computed,
+ * 				so the cost is numTaps / decimation multiplications per input
+ * 				sample. The input is copied in chunks behind the filter
+ * 				history, so that each output is one contiguous dot product.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class FirDecimator implements IqStage {
+
+	static final int CHUNK = 4096;			// input samples that are appended to the history at once
+
+	private final float[] taps;				// reversed taps (taps[0] is applied to the oldest sample)
+	private final int decimation;
+	private final float[] buffer;			// history (numTaps-1 samples) followed by the current chunk
+	private int next = 0;					// index of the oldest sample of the next output's window
+
+	/**
+	 * @param taps			filter taps (see FirDesign.lowPass())
+	 * @param decimation	decimation factor (at least 1)
+	 * @throws IllegalArgumentException if there are no taps or the decimation is less than 1
+	 */
+	public FirDecimator(float[] taps, int decimation)
+	{
+		if(taps.length < 1 || decimation < 1)
+			throw new IllegalArgumentException("FirDecimator needs taps and a decimation of at least 1");
+		this.decimation = decimation;
+		this.taps = new float[taps.length];
+		for(int i = 0; i < taps.length; i++)
+			this.taps[i] = taps[taps.length - 1 - i];
+		this.buffer = new float[2 * (taps.length - 1 + CHUNK)];
+	}
+
+	/**
+	 * Creates a decimator with a Kaiser low pass filter.
+	 *
+	 * @param decimation	decimation factor
+	 * @param passEdge		end of the pass band (normalized to the input rate)
+	 * @param stopEdge		start of the stop band (normalized to the input rate)
+	 * @param attenuation	stop band attenuation in dB
+	 * @return new decimator
+	 */
+	public static FirDecimator create(int decimation, double passEdge, double stopEdge, float attenuation)
+	{
+		return new FirDecimator(FirDesign.lowPass(passEdge, stopEdge, attenuation, 1), decimation);
+	}
+
+	public int getNumTaps()
+	{
+		return taps.length;
+	}
+
+	/**
+	 * @return copy of the filter taps (in the order they were passed to the constructor)
+	 */
+	public float[] getTaps()
+	{
+		float[] result = new float[taps.length];
+		for(int i = 0; i < taps.length; i++)
+			result[i] = taps[taps.length - 1 - i];
+		return result;
+	}
+
+	@Override
+	public int getInterpolation()
+	{
+		return 1;
+	}
+
+	@Override
+	public int getDecimation()
+	{
+		return decimation;
+	}
+
+	@Override
+	public int getMaxOutputLength(int numSamples)
+	{
+		return numSamples / decimation + 1;
+	}
+
+	@Override
+	public void reset()
+	{
+		Arrays.fill(buffer, 0);
+		next = 0;
+	}
+
+	@Override
+	public int process(float[] in, int inOffset, int numSamples, float[] out, int outOffset)
+	{
+		float[] taps = this.taps;
+		float[] buffer = this.buffer;
+		int numTaps = taps.length;
+		int history = numTaps - 1;
+		int outIndex = outOffset;
+		int consumed = 0;
+		while(consumed < numSamples)
+		{
+			int chunk = Math.min(CHUNK, numSamples - consumed);
+			System.arraycopy(in, inOffset + 2 * consumed, buffer, 2 * history, 2 * chunk);
+			consumed += chunk;
+			int total = history + chunk;
+
+			for(; next + numTaps <= total; next += decimation)
+			{
+				float re = 0;
+				float im = 0;
+				int p = 2 * next;
+				for(int k = 0; k < numTaps; k++, p += 2)
+				{
+					float h = taps[k];
+					re += h * buffer[p];
+					im += h * buffer[p+1];
+				}
+				out[outIndex++] = re;
+				out[outIndex++] = im;
+			}
+
+			// Keep the last numTaps-1 samples as history:
+			System.arraycopy(buffer, 2 * chunk, buffer, 0, 2 * history);
+			next -= chunk;
+		}
+		return (outIndex - outOffset) / 2;
+	}
+}
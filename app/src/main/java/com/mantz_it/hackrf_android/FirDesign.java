@@ -0,0 +1,270 @@
+package com.mantz_it.hackrf_android;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      FirDesign.java
+ * Description: Design of FIR low pass filters (windowed sinc with Kaiser
+ * 				window) for the decimation stages: general low pass filters
+ * 				and half band filters. Frequencies are normalized to the
+ * 				sample rate (0.5 = Nyquist).
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class FirDesign {
+
+	private static final int GRID_DENSITY = 8;			// stop band frequencies per 1/numTaps (see stopBandPeak())
+	private static final int REFINE_STEPS = 20;			// ternary search steps per side lobe
+
+	private FirDesign()
+	{
+	}
+
+	/**
+	 * Estimates the number of taps of a Kaiser window design.
+	 *
+	 * @param attenuation	stop band attenuation in dB
+	 * @param transition	width of the transition band (normalized to the sample rate)
+	 * @return number of taps (odd)
+	 */
+	public static int kaiserNumTaps(float attenuation, float transition)
+	{
+		int numTaps = (int) Math.ceil((attenuation - 7.95) / (14.36 * transition)) + 1;
+		return Math.max(3, numTaps | 1);
+	}
+
+	/**
+	 * @param attenuation	stop band attenuation in dB
+	 * @return beta of the Kaiser window that reaches this attenuation
+	 */
+	public static double kaiserBeta(float attenuation)
+	{
+		if(attenuation > 50)
+			return 0.1102 * (attenuation - 8.7);
+		if(attenuation > 21)
+			return 0.5842 * Math.pow(attenuation - 21, 0.4) + 0.07886 * (attenuation - 21);
+		return 0;
+	}
+
+	/**
+	 * Designs a low pass filter (windowed sinc, Kaiser window).
+	 *
+	 * @param numTaps		number of taps
+	 * @param cutoff		-6 dB frequency (normalized to the sample rate, 0 to 0.5)
+	 * @param beta			beta of the Kaiser window (see kaiserBeta())
+	 * @param gain			gain at DC (e.g. the interpolation factor of a resampler)
+	 * @return taps
+	 */
+	public static float[] lowPass(int numTaps, double cutoff, double beta, double gain)
+	{
+		double[] taps = new double[numTaps];
+		double center = (numTaps - 1) / 2.0;
+		double sum = 0;
+		for(int n = 0; n < numTaps; n++)
+		{
+			double t = n - center;
+			double sinc = t == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * t) / (Math.PI * t);
+			taps[n] = sinc * kaiser(n, numTaps, beta);
+			sum += taps[n];
+		}
+		float[] result = new float[numTaps];
+		for(int n = 0; n < numTaps; n++)
+			result[n] = (float) (taps[n] * gain / sum);
+		return result;
+	}
+
+	/**
+	 * Designs a low pass filter that passes [0; passEdge] and attenuates [stopEdge; 0.5].
+	 * Starts with the number of taps of kaiserNumTaps() and adds taps until the stop band
+	 * reaches the attenuation.
+	 *
+	 * @param passEdge		end of the pass band (normalized to the sample rate)
+	 * @param stopEdge		start of the stop band (normalized to the sample rate)
+	 * @param attenuation	stop band attenuation in dB
+	 * @param gain			gain at DC
+	 * @return taps
+	 * @throws IllegalArgumentException if the edges are not 0 <= passEdge < stopEdge <= 0.5
+	 */
+	public static float[] lowPass(double passEdge, double stopEdge, float attenuation, double gain)
+	{
+		if(passEdge < 0 || stopEdge <= passEdge || stopEdge > 0.5)
+			throw new IllegalArgumentException("Invalid band edges: " + passEdge + " / " + stopEdge);
+		int numTaps = kaiserNumTaps(attenuation, (float) (stopEdge - passEdge));
+		double cutoff = (passEdge + stopEdge) / 2;
+		double beta = kaiserBeta(attenuation);
+		double maxStopBand = gain * Math.pow(10, -attenuation / 20);
+		int maxTaps = 4 * numTaps;
+		float[] taps = lowPass(numTaps, cutoff, beta, gain);
+		// The estimate of kaiserNumTaps() is a few dB short for very wide or very narrow
+		// transition bands, so taps are added until the stop band is met:
+		while(numTaps < maxTaps && stopBandPeak(taps, stopEdge) > maxStopBand)
+		{
+			numTaps += 2 * Math.max(1, numTaps / 64);
+			taps = lowPass(numTaps, cutoff, beta, gain);
+		}
+		return taps;
+	}
+
+	/**
+	 * Designs a half band filter (cutoff at a quarter of the sample rate, every second
+	 * tap except the center is zero). The pass band is [0; passEdge], the stop band
+	 * [0.5 - passEdge; 0.5]. Like lowPass(), taps are added until the stop band reaches
+	 * the attenuation.
+	 *
+	 * @param passEdge		end of the pass band (normalized to the sample rate, less than 0.25)
+	 * @param attenuation	stop band attenuation in dB
+	 * @return taps (length 4*m-1, see HalfBandDecimator)
+	 * @throws IllegalArgumentException if passEdge is not in [0; 0.25)
+	 */
+	public static float[] halfBand(double passEdge, float attenuation)
+	{
+		if(passEdge < 0 || passEdge >= 0.25)
+			throw new IllegalArgumentException("Pass band of a half band filter must end below 0.25: " + passEdge);
+		int numTaps = kaiserNumTaps(attenuation, (float) (0.5 - 2 * passEdge));
+		int m = Math.max(1, (numTaps + 1 + 3) / 4);		// non-zero taps on each side
+		double beta = kaiserBeta(attenuation);
+		double maxStopBand = Math.pow(10, -attenuation / 20);
+		int maxM = 4 * m;
+		float[] taps = halfBand(m, beta);
+		while(m < maxM && stopBandPeak(taps, 0.5 - passEdge) > maxStopBand)
+		{
+			m += Math.max(1, m / 32);
+			taps = halfBand(m, beta);
+		}
+		return taps;
+	}
+
+	/**
+	 * @param m			number of non-zero taps on each side of the center
+	 * @param beta		beta of the Kaiser window
+	 * @return half band taps (length 4*m-1)
+	 */
+	private static float[] halfBand(int m, double beta)
+	{
+		int numTaps = 4 * m - 1;
+		int center = 2 * m - 1;
+
+		// Odd distances from the center, scaled so that their sum is 0.5 (DC gain 1):
+		double[] side = new double[m];
+		double sum = 0;
+		for(int i = 0; i < m; i++)
+		{
+			int t = 2 * i + 1;
+			side[i] = Math.sin(Math.PI * t / 2) / (Math.PI * t) * kaiser(center + t, numTaps, beta);
+			sum += 2 * side[i];
+		}
+		float[] taps = new float[numTaps];
+		taps[center] = 0.5f;
+		for(int i = 0; i < m; i++)
+		{
+			int t = 2 * i + 1;
+			taps[center - t] = taps[center + t] = (float) (side[i] * 0.5 / sum);
+		}
+		return taps;
+	}
+
+	/**
+	 * Finds the largest magnitude of the frequency response of symmetric taps (odd length)
+	 * in [stopEdge; 0.5]: a grid finds the side lobes, a ternary search their tops.
+	 *
+	 * @return largest magnitude in the stop band
+	 */
+	private static double stopBandPeak(float[] taps, double stopEdge)
+	{
+		int numPoints = (int) Math.ceil((0.5 - stopEdge) * GRID_DENSITY * taps.length) + 2;
+		double step = (0.5 - stopEdge) / (numPoints - 1);
+		double[] grid = new double[numPoints];
+		double peak = 0;
+		for(int k = 0; k < numPoints; k++)
+		{
+			grid[k] = response(taps, stopEdge + k * step);
+			peak = Math.max(peak, grid[k]);
+		}
+		for(int k = 0; k < numPoints; k++)
+		{
+			// Only lobes that could be the highest one:
+			if(grid[k] < 0.5 * peak || (k > 0 && grid[k-1] > grid[k]) || (k < numPoints - 1 && grid[k+1] > grid[k]))
+				continue;
+			double low = Math.max(stopEdge, stopEdge + (k - 1) * step);
+			double high = Math.min(0.5, stopEdge + (k + 1) * step);
+			for(int i = 0; i < REFINE_STEPS; i++)
+			{
+				double a = low + (high - low) / 3;
+				double b = high - (high - low) / 3;
+				if(response(taps, a) < response(taps, b))
+					low = a;
+				else
+					high = b;
+			}
+			peak = Math.max(peak, response(taps, (low + high) / 2));
+		}
+		return peak;
+	}
+
+	/**
+	 * @return magnitude of the frequency response of symmetric taps (odd length) at the frequency
+	 */
+	private static double response(float[] taps, double frequency)
+	{
+		// H(f) = h[center] + 2 * sum(h[center+t] * cos(2*pi*f*t)), the cosines by recurrence:
+		int center = (taps.length - 1) / 2;
+		double cos1 = Math.cos(2 * Math.PI * frequency);
+		double previous = 1;
+		double current = cos1;
+		double sum = taps[center];
+		for(int t = 1; t <= center; t++)
+		{
+			sum += 2 * taps[center + t] * current;
+			double next = 2 * cos1 * current - previous;
+			previous = current;
+			current = next;
+		}
+		return Math.abs(sum);
+	}
+
+	/**
+	 * @return coefficient n of a Kaiser window with numTaps coefficients
+	 */
+	private static double kaiser(int n, int numTaps, double beta)
+	{
+		if(numTaps == 1)
+			return 1;
+		double r = 2.0 * n / (numTaps - 1) - 1;
+		return besselI0(beta * Math.sqrt(Math.max(0, 1 - r * r))) / besselI0(beta);
+	}
+
+	/**
+	 * @return modified Bessel function of the first kind, order 0 (power series)
+	 */
+	private static double besselI0(double x)
+	{
+		double sum = 1;
+		double term = 1;
+		double q = x * x / 4;
+		for(int k = 1; k < 50; k++)
+		{
+			term *= q / (k * k);
+			sum += term;
+			if(term < sum * 1e-12)
+				break;
+		}
+		return sum;
+	}
+}
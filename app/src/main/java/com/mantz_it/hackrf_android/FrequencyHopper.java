@@ -0,0 +1,117 @@
+package com.mantz_it.hackrf_android;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      FrequencyHopper.java
+ * Description: State of the frequency hopping of one receive session (see
+ * 				HackrfHopSchedule). Each retune starts a new generation.
+ * 				Blocks are tagged with the generation when their transfer
+ * 				is queued, so blocks that were in flight during the retune
+ * 				can be recognized and dropped. The receive loop calls
+ * 				accept() for each completed block and retunes as soon as
+ * 				isDwellComplete() returns true.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+class FrequencyHopper {
+
+	private final HackrfHopSchedule schedule;
+	private final long[] dwellSamples;		// dwell time of each frequency in samples
+	private final long settleSamples;
+	private int index = 0;					// index of the current frequency
+	private int generation = 1;				// incremented with each retune
+	private long droppedSamples = 0;		// samples dropped for settling since the last retune
+	private long validSamples = 0;			// samples delivered since the last retune
+
+	/**
+	 * @param schedule		frequencies and dwell times
+	 * @param sampleRate	sample rate in Hz (to convert the dwell times into samples)
+	 */
+	FrequencyHopper(HackrfHopSchedule schedule, int sampleRate)
+	{
+		this.schedule = schedule;
+		this.dwellSamples = new long[schedule.size()];
+		for(int i = 0; i < dwellSamples.length; i++)
+			dwellSamples[i] = Math.max(1, (long) schedule.getDwellTime(i) * sampleRate / 1000000);
+		this.settleSamples = schedule.getSettleSamples();
+	}
+
+	/**
+	 * @return frequency the HackRF is (or should be) tuned to
+	 */
+	long getFrequency()
+	{
+		return schedule.getFrequency(index);
+	}
+
+	/**
+	 * @return generation that is used to tag the blocks which are queued now
+	 */
+	int getGeneration()
+	{
+		return generation;
+	}
+
+	/**
+	 * Decides if a completed block is delivered. Blocks of an older generation and the
+	 * settling samples after a retune are dropped. The first block that is delivered
+	 * after a retune is flagged as discontinuity.
+	 *
+	 * @param block		completed block
+	 * @return true if the block contains valid samples of the current frequency
+	 */
+	boolean accept(IqBlock block)
+	{
+		if(block.getGeneration() != generation)
+			return false;
+		if(droppedSamples < settleSamples)
+		{
+			droppedSamples += block.getLength() / 2;
+			return false;
+		}
+		if(validSamples == 0)
+			block.markDiscontinuity();
+		validSamples += block.getLength() / 2;
+		return true;
+	}
+
+	/**
+	 * @return true if enough samples were delivered on the current frequency
+	 */
+	boolean isDwellComplete()
+	{
+		return validSamples >= dwellSamples[index];
+	}
+
+	/**
+	 * Moves on to the next frequency and starts a new generation.
+	 *
+	 * @return frequency to tune to
+	 */
+	long next()
+	{
+		index = (index + 1) % dwellSamples.length;
+		generation++;
+		droppedSamples = 0;
+		validSamples = 0;
+		return getFrequency();
+	}
+}
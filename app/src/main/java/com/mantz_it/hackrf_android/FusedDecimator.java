@@ -0,0 +1,436 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      FusedDecimator.java
+ * Description: Single pass receive front end: converts the 8-bit samples,
+ * 				removes the DC offset (and IQ imbalance, see IqCorrector),
+ * 				shifts the spectrum with a numerically controlled oscillator (Nco)
+ * 				and decimates with a FIR filter, all in one pass over the
+ * 				packet. The packet is processed in chunks that are small enough
+ * 				to stay in the L1 cache, so the only memory traffic is reading
+ * 				the int8 packet and writing the decimated output (the chained
+ * 				stages write and read full rate float buffers between each
+ * 				step). Further decimation of the (already decimated) output
+ * 				can be done by a DecimatorChain (see create()).
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class FusedDecimator implements IqBlockHandler {
+
+	private static final int CHUNK = 1024;				// samples per chunk (8 KiB of floats)
+	private static final int STATS_STRIDE = 4;			// every 4th sample updates the correction estimates (power of 2)
+	private static final float[] floatTable = new float[256];		// 8-bit sample to float, indexed by the unsigned byte
+	static {
+		for(int i = 0; i < 256; i++)
+			floatTable[i] = (byte) i * IqConverter.SCALE;
+	}
+
+	private final float[] taps;					// reversed taps (taps[0] is applied to the oldest sample)
+	private final float[] halfBand;				// taps at odd distances from the center (null if no half band filter)
+	private final int decimation;
+	private final float[] buffer;				// history (numTaps-1 samples) followed by the current chunk
+	private int next = 0;						// index of the oldest sample of the next output's window
+	private final IqCorrector corrector = new IqCorrector();
+	private DecimatorChain chain = null;		// further stages (null if none)
+	private float[] output = new float[0];		// output of one block (grows if necessary)
+	private float[] chainOutput = new float[0];
+	private IqSampleHandler handler = null;
+
+	private final Nco nco = new Nco();
+	private boolean offsetTuning = false;		// true if the mix frequency follows the blocks' tuning offset
+
+	/**
+	 * @param taps			FIR filter of the decimation (see FirDesign). Half band filters
+	 * 						with decimation 2 use the cheaper half band kernel.
+	 * @param decimation	decimation factor (at least 1)
+	 * @throws IllegalArgumentException if there are no taps or the decimation is less than 1
+	 */
+	public FusedDecimator(float[] taps, int decimation)
+	{
+		if(taps.length < 1 || decimation < 1)
+			throw new IllegalArgumentException("FusedDecimator needs taps and a decimation of at least 1");
+		this.decimation = decimation;
+		this.taps = new float[taps.length];
+		for(int i = 0; i < taps.length; i++)
+			this.taps[i] = taps[taps.length - 1 - i];
+		this.halfBand = decimation == 2 && isHalfBand(taps) ? new float[(taps.length + 1) / 4] : null;
+		if(halfBand != null)
+		{
+			for(int i = 0; i < halfBand.length; i++)
+				halfBand[i] = taps[(taps.length - 1) / 2 + 2 * i + 1];
+		}
+		this.buffer = new float[2 * (taps.length - 1 + CHUNK)];
+	}
+
+	/**
+	 * Designs a front end that resamples from inputRate to outputRate (see
+	 * DecimatorChain.create()). The first decimation stage of the design is fused with the
+	 * conversion, the others follow as DecimatorChain.
+	 *
+	 * @param inputRate		sample rate of the input in Hz
+	 * @param outputRate	sample rate of the output in Hz
+	 * @param bandwidth		bandwidth of the signal in Hz
+	 * @param attenuation	stop band attenuation in dB
+	 * @return new front end
+	 * @throws IllegalArgumentException if the rates can't be realized
+	 */
+	public static FusedDecimator create(int inputRate, int outputRate, int bandwidth, float attenuation)
+	{
+		IqStage[] stages = DecimatorChain.create(inputRate, outputRate, bandwidth, attenuation).getStages();
+		FusedDecimator fused;
+		int rest = 1;
+		if(stages[0] instanceof HalfBandDecimator)
+			fused = new FusedDecimator(((HalfBandDecimator) stages[0]).getTaps(), 2);
+		else if(stages[0] instanceof FirDecimator)
+			fused = new FusedDecimator(((FirDecimator) stages[0]).getTaps(), stages[0].getDecimation());
+		else
+		{
+			fused = new FusedDecimator(new float[] {1}, 1);		// resampler: only convert and mix
+			rest = 0;
+		}
+		if(rest < stages.length)
+			fused.setChain(new DecimatorChain(Arrays.copyOfRange(stages, rest, stages.length)));
+		return fused;
+	}
+
+	/**
+	 * @return corrector whose estimates are used (and updated) for the DC / imbalance correction
+	 */
+	public IqCorrector getCorrector()
+	{
+		return corrector;
+	}
+
+	/**
+	 * @param chain		stages that process the output of the fused decimation (or null)
+	 */
+	public void setChain(DecimatorChain chain)
+	{
+		this.chain = chain;
+	}
+
+	public DecimatorChain getChain()
+	{
+		return chain;
+	}
+
+	/**
+	 * @param handler	receives the output of each block (see onIqBlock())
+	 */
+	public void setHandler(IqSampleHandler handler)
+	{
+		this.handler = handler;
+	}
+
+	/**
+	 * Sets the frequency of the oscillator: the input is multiplied with
+	 * exp(j*2*pi*frequency*n), i.e. a signal at -frequency ends up at DC (see Nco).
+	 *
+	 * @param frequency		in cycles per sample of the input (-0.5 to 0.5)
+	 * @return false if the frequency is out of range
+	 */
+	public boolean setMixFrequency(double frequency)
+	{
+		return nco.setFrequency(frequency);
+	}
+
+	public double getMixFrequency()
+	{
+		return nco.getFrequency();
+	}
+
+	/**
+	 * Lets the mix frequency follow the tuning offset of the blocks (see
+	 * Hackrf.setOffsetTuning()), so that the requested frequency ends up at DC.
+	 *
+	 * @param enable	true to take the mix frequency from each block in onIqBlock()
+	 */
+	public void setOffsetTuning(boolean enable)
+	{
+		this.offsetTuning = enable;
+	}
+
+	public boolean isOffsetTuning()
+	{
+		return offsetTuning;
+	}
+
+	/**
+	 * @return decimation factor of the fused stage (without the chain)
+	 */
+	public int getDecimation()
+	{
+		return decimation;
+	}
+
+	/**
+	 * @param inputRate		sample rate of the input in Hz
+	 * @return sample rate of the output (including the chain) in Hz
+	 */
+	public int getOutputRate(int inputRate)
+	{
+		int rate = inputRate / decimation;
+		return chain == null ? rate : chain.getOutputRate(rate);
+	}
+
+	/**
+	 * @param numSamples	number of input samples
+	 * @return maximum number of output samples of the fused stage (without the chain)
+	 */
+	public int getMaxOutputLength(int numSamples)
+	{
+		return numSamples / decimation + 1;
+	}
+
+	/**
+	 * Clears the filter history, the oscillator phase and the correction estimates.
+	 */
+	public void reset()
+	{
+		Arrays.fill(buffer, 0);
+		next = 0;
+		nco.reset();
+		corrector.reset();
+		if(chain != null)
+			chain.reset();
+	}
+
+	/**
+	 * Processes the samples of a block (fused stage and chain) and passes the output to the
+	 * handler, tagged with the center frequency of the output and the output rate. The
+	 * history is cleared at discontinuities.
+	 *
+	 * @param block		received samples
+	 * @return false if the handler wants to stop receiving
+	 */
+	@Override
+	public boolean onIqBlock(IqBlock block)
+	{
+		if(block.isDiscontinuity())
+			reset();
+		if(offsetTuning)
+			nco.setFrequency(block.getTuningOffset(), block.getSampleRate());
+		int numSamples = block.getLength() / 2;
+		int maxOutput = getMaxOutputLength(numSamples);
+		if(output.length < 2 * maxOutput)
+			output = new float[2 * maxOutput];
+		int count = process(block.getBuffer(), 0, numSamples, output, 0);
+
+		float[] result = output;
+		if(chain != null)
+		{
+			int maxChainOutput = chain.getMaxOutputLength(count);
+			if(chainOutput.length < 2 * maxChainOutput)
+				chainOutput = new float[2 * maxChainOutput];
+			count = chain.process(output, 0, count, chainOutput, 0);
+			result = chainOutput;
+		}
+
+		IqSampleHandler handler = this.handler;
+		if(handler == null || count == 0)
+			return true;
+		long frequency = block.getFrequency() - Math.round(nco.getFrequency() * block.getSampleRate());
+		return handler.onSamples(result, 0, count, frequency, getOutputRate(block.getSampleRate()));
+	}
+
+	/**
+	 * Converts, corrects, mixes and decimates 8-bit samples (fused stage only, the chain
+	 * is not applied).
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param numSamples	number of complex input samples
+	 * @param dst			destination (room for getMaxOutputLength(numSamples) samples)
+	 * @param dstOffset		index of the first float in dst
+	 * @return number of complex output samples
+	 */
+	public int process(byte[] src, int srcOffset, int numSamples, float[] dst, int dstOffset)
+	{
+		return process(src, null, srcOffset, numSamples, dst, dstOffset);
+	}
+
+	/**
+	 * Processes the samples of a ByteBuffer (e.g. IqBlock.getBuffer(), see
+	 * process(byte[], ...)). The position of the buffer is not changed.
+	 */
+	public int process(ByteBuffer src, int srcOffset, int numSamples, float[] dst, int dstOffset)
+	{
+		if(src.hasArray())
+			return process(src.array(), null, src.arrayOffset() + srcOffset, numSamples, dst, dstOffset);
+		return process(null, src, srcOffset, numSamples, dst, dstOffset);
+	}
+
+	private int process(byte[] array, ByteBuffer src, int srcOffset, int numSamples, float[] dst, int dstOffset)
+	{
+		float[] taps = this.taps;
+		float[] buffer = this.buffer;
+		int numTaps = taps.length;
+		int history = numTaps - 1;
+		int outIndex = dstOffset;
+
+		// The whole packet is corrected with the estimates of the previous packets:
+		float dcI = corrector.getCorrectionDcI();
+		float dcQ = corrector.getCorrectionDcQ();
+		float iqPhase = corrector.getCorrectionPhase();
+		float iqGain = corrector.getCorrectionGain();
+		long sumI = 0, sumQ = 0, sumII = 0, sumQQ = 0, sumIQ = 0;
+		int numStats = 0;
+
+		for(int consumed = 0; consumed < numSamples; )
+		{
+			int chunk = Math.min(CHUNK, numSamples - consumed);
+			int s = srcOffset + 2 * consumed;
+			float[] table = floatTable;
+			// Sums of one chunk fit into ints (chunk * 128 * 128 < 2^31). Only every
+			// STATS_STRIDE-th sample is used for the estimates (they average over 10^5
+			// samples or more anyway):
+			int chunkI = 0, chunkQ = 0, chunkII = 0, chunkQQ = 0, chunkIQ = 0;
+
+			// Convert and correct into the buffer (behind the history):
+			if(array != null)
+			{
+				for(int n = 0, d = 2 * history; n < chunk; n++, s += 2, d += 2)
+				{
+					float i = table[array[s] & 0xFF] - dcI;
+					buffer[d] = i;
+					buffer[d+1] = iqGain * (table[array[s+1] & 0xFF] - dcQ - iqPhase * i);
+				}
+				for(int k = srcOffset + 2 * consumed; k < s; k += 2 * STATS_STRIDE)
+				{
+					int rawI = array[k];
+					int rawQ = array[k+1];
+					chunkI += rawI;
+					chunkQ += rawQ;
+					chunkII += rawI * rawI;
+					chunkQQ += rawQ * rawQ;
+					chunkIQ += rawI * rawQ;
+				}
+			}
+			else
+			{
+				for(int n = 0, d = 2 * history; n < chunk; n++, s += 2, d += 2)
+				{
+					int rawI = src.get(s);
+					int rawQ = src.get(s+1);
+					if((n & (STATS_STRIDE - 1)) == 0)
+					{
+						chunkI += rawI;
+						chunkQ += rawQ;
+						chunkII += rawI * rawI;
+						chunkQQ += rawQ * rawQ;
+						chunkIQ += rawI * rawQ;
+					}
+					float i = table[rawI & 0xFF] - dcI;
+					buffer[d] = i;
+					buffer[d+1] = iqGain * (table[rawQ & 0xFF] - dcQ - iqPhase * i);
+				}
+			}
+			sumI += chunkI;
+			sumQ += chunkQ;
+			sumII += chunkII;
+			sumQQ += chunkQQ;
+			sumIQ += chunkIQ;
+			numStats += (chunk + STATS_STRIDE - 1) / STATS_STRIDE;
+
+			// Mix (the chunk is still in the L1 cache):
+			if(nco.getFrequency() != 0)
+				nco.mix(buffer, 2 * history, chunk);
+			consumed += chunk;
+			int total = history + chunk;
+
+			if(halfBand != null)
+				outIndex = filterHalfBand(total, dst, outIndex);
+			else
+			{
+				for(; next + numTaps <= total; next += decimation)
+				{
+					float re = 0;
+					float im = 0;
+					int b = 2 * next;
+					for(int k = 0; k < numTaps; k++, b += 2)
+					{
+						float h = taps[k];
+						re += h * buffer[b];
+						im += h * buffer[b+1];
+					}
+					dst[outIndex++] = re;
+					dst[outIndex++] = im;
+				}
+			}
+
+			// Keep the last numTaps-1 samples as history:
+			System.arraycopy(buffer, 2 * chunk, buffer, 0, 2 * history);
+			next -= chunk;
+		}
+		corrector.updateRaw(numStats, sumI, sumQ, sumII, sumQQ, sumIQ, numSamples);
+		return (outIndex - dstOffset) / 2;
+	}
+
+	/**
+	 * Half band decimation of the current chunk (see HalfBandDecimator).
+	 */
+	private int filterHalfBand(int total, float[] dst, int outIndex)
+	{
+		float[] coefficients = this.halfBand;
+		float[] buffer = this.buffer;
+		int numTaps = taps.length;
+		int center = (numTaps - 1) / 2;
+		for(; next + numTaps <= total; next += 2)
+		{
+			int c = 2 * (next + center);
+			float re = 0.5f * buffer[c];
+			float im = 0.5f * buffer[c+1];
+			for(int i = 0; i < coefficients.length; i++)
+			{
+				int d = 2 * (2 * i + 1);
+				float h = coefficients[i];
+				re += h * (buffer[c - d] + buffer[c + d]);
+				im += h * (buffer[c - d + 1] + buffer[c + d + 1]);
+			}
+			dst[outIndex++] = re;
+			dst[outIndex++] = im;
+		}
+		return outIndex;
+	}
+
+	/**
+	 * @return true if the taps have the structure of a half band filter (4*m-1 taps,
+	 * 			center 0.5, zero at even distances from the center)
+	 */
+	private static boolean isHalfBand(float[] taps)
+	{
+		if(taps.length % 4 != 3)
+			return false;
+		int center = (taps.length - 1) / 2;
+		if(taps[center] != 0.5f)
+			return false;
+		for(int t = 2; t <= center; t += 2)
+		{
+			if(taps[center - t] != 0 || taps[center + t] != 0)
+				return false;
+		}
+		return true;
+	}
+}
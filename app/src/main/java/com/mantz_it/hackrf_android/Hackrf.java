@@ -1,11 +1,15 @@
 package com.mantz_it.hackrf_android;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import android.app.PendingIntent;
@@ -14,13 +18,11 @@ import android.content.Context;
 import androidx.core.content.ContextCompat;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.hardware.usb.UsbConstants;
 import android.hardware.usb.UsbDevice;
 import android.hardware.usb.UsbDeviceConnection;
 import android.hardware.usb.UsbEndpoint;
 import android.hardware.usb.UsbInterface;
 import android.hardware.usb.UsbManager;
-import android.hardware.usb.UsbRequest;
 import android.util.Log;
 import android.widget.Toast;
 
@@ -68,53 +70,117 @@ import android.widget.Toast;
  */
 public class Hackrf implements Runnable{
 	
-	// Attributes to hold the USB related objects:
-	private UsbManager usbManager = null;
-	private UsbDevice usbDevice = null;
-	private UsbInterface usbInterface = null;
-	private UsbDeviceConnection usbConnection = null;
-	private UsbEndpoint usbEndpointIN = null;
-	private UsbEndpoint usbEndpointOUT = null;
+	// Transport that connects this instance to the device (USB or simulated):
+	private HackrfTransport transport = null;
 	
-	private int transceiverMode = HACKRF_TRANSCEIVER_MODE_OFF;	// current mode of the HackRF
-	private Thread usbThread = null;							// hold the transceiver Thread if running
+	private volatile int transceiverMode = HACKRF_TRANSCEIVER_MODE_OFF;	// current mode of the HackRF
+	private Thread usbThread = null;							// persistent worker thread that runs the sessions
+	private final Object workerLock = new Object();				// guards usbThread and workerSession
+	private int workerSession = HACKRF_TRANSCEIVER_MODE_OFF;	// session the worker runs (or is about to run)
+	private HackrfTransfer[] inTransfers = new HackrfTransfer[0];	// IN transfers, reused across sessions
+	private HackrfTransfer[] outTransfers = new HackrfTransfer[0];	// OUT transfers, reused across sessions
+	private final ArrayList<IqBlock> retiredBlocks = new ArrayList<IqBlock>();	// blocks of transfers that were never
+																// reaped (kept reachable, the USB stack may still write into them)
 	private ArrayBlockingQueue<byte[]> queue = null;			// queue that buffers samples to pass them
 																// between hackrf_android and the application
 	private ArrayBlockingQueue<byte[]> bufferPool = null;		// queue that holds old buffers which can be
 																// reused while receiving or transmitting samples
+	private final Set<byte[]> gapPackets = Collections.newSetFromMap(new IdentityHashMap<byte[], Boolean>());
+																// packets of the queue that follow a gap (guarded by itself)
+	private IqBlockPool blockPool = null;						// pool of direct buffers used for the USB transfers
+	private ArrayBlockingQueue<IqBlock> blockQueue = null;		// queue that passes IqBlocks to the application
+	private IqBlockRing blockRing = null;						// lock-free ring that passes IqBlocks to the application
+	private IqBlockBroadcast blockBroadcast = null;				// ring that passes IqBlocks to several subscribers
+	private HackrfSweepParser sweepParser = null;				// parser of the last sweep session (startRXSweep())
+	private IqBlockHandler blockHandler = null;					// handler that is called by the USB thread (RX_MODE_HANDLER)
+	private long handlerBudget = 0;								// time budget of the handler in ns (0 = unlimited)
+	private int rxMode = RX_MODE_QUEUE;							// how received samples are passed to the application
+	private HackrfStreamConfig streamConfig = new HackrfStreamConfig();	// settings of the (last) stream
+	private int overflowPolicy = OVERFLOW_POLICY_STOP;			// overflow policy of the current stream
+	private long overflowTimeout = 0;							// timeout in ms for OVERFLOW_POLICY_BLOCK
+	private volatile int sampleRate = 0;						// last sample rate set by setSampleRate() (in Hz)
+	private volatile int currentTransferDepth = 0;				// number of USB transfers in flight while receiving
+	private volatile long tunedFrequency = 0;					// frequency set by setFrequency() (in Hz, 0 if unknown)
+	private volatile int offsetTuning = 0;						// added to the frequency by setFrequency() (in Hz, see setOffsetTuning())
+	private volatile int tunedOffset = 0;						// offset tuning that is included in tunedFrequency (in Hz)
+	private volatile long hopCounter = 0;						// number of retunes of the hop schedule since start
+	private volatile int controlSessionDepth = 0;				// > 0 while the USB interface is claimed by a control session
+	private final HackrfConfig appliedConfig = new HackrfConfig();	// values that were successfully sent to the HackRF
+																// (shadow of the device state, see invalidateDeviceState())
+	private volatile int cachedBoardId = -1;					// metadata of the device (read once, -1 / null if unknown)
+	private volatile String cachedVersionString = null;
+	private volatile int[] cachedPartIdAndSerialNo = null;
+	private volatile long skippedRequestCounter = 0;			// setter calls that didn't need a USB transfer
+	
+	// Preallocated payloads of the control requests (only used while holding the lock of this instance):
+	private final byte[] requestBuffer8 = new byte[8];			// SET_FREQ, SAMPLE_RATE_SET
+	private final byte[] requestBuffer17 = new byte[17];		// SET_FREQ_EXPLICIT
+	private final byte[] requestResult = new byte[1];			// return value of the gain requests
+	private final HackrfCommandExecutor commandExecutor = new HackrfCommandExecutor();	// runs the *Async() commands
+	private boolean rxDiscontinuity = false;					// true if the last received block was dropped
 	
 	// startTime (in ms since 1970) and packetCounter for statistics:
 	private long transceiveStartTime = 0;
 	private long transceivePacketCounter = 0;
+	private volatile long droppedPacketCounter = 0;
+	private volatile long droppedSampleCounter = 0;
+	private volatile long handlerOverrunCounter = 0;
 	
 	// Transceiver Modes:
 	public static final int HACKRF_TRANSCEIVER_MODE_OFF 		= 0;
 	public static final int HACKRF_TRANSCEIVER_MODE_RECEIVE 	= 1;
 	public static final int HACKRF_TRANSCEIVER_MODE_TRANSMIT 	= 2;
+	public static final int HACKRF_TRANSCEIVER_MODE_RX_SWEEP 	= 5;	// receive while the firmware sweeps (see initSweep())
+	
+	// Sweep styles (see initSweep()):
+	public static final int SWEEP_STYLE_LINEAR 		= 0;	// step_width increments
+	public static final int SWEEP_STYLE_INTERLEAVED = 1;	// alternating step_width/4 and 3*step_width/4 increments
+	public static final int MAX_SWEEP_RANGES 		= 10;	// maximum number of frequency ranges of a sweep
+	
+	// Overflow Policies (what happens if the application doesn't read the samples fast enough):
+	public static final int OVERFLOW_POLICY_STOP 		= 0;	// stop receiving (default)
+	public static final int OVERFLOW_POLICY_DROP_NEWEST = 1;	// drop the block that was just received
+	public static final int OVERFLOW_POLICY_DROP_OLDEST = 2;	// drop the oldest block in the queue
+	public static final int OVERFLOW_POLICY_BLOCK 		= 3;	// wait up to a timeout, then drop the new block
+	
+	// Worker thread and transfer reuse:
+	private static final long workerKeepAlive 	= 60000;	// time (ms) the idle worker waits for the next session
+	private static final long sessionEndTimeout = 2000;		// time (ms) start*() waits for the previous session to end
+	private static final long reapTimeout 		= 250;		// time (ms) to wait for cancelled transfers
+	private static final long transferPollTimeout = 100;	// time (ms) between checks of the transceiver mode
+	private static final long transferStallTimeout = 5000;	// time (ms) without any completed transfer until we give up
+	
+	// Modes of passing received samples to the application:
+	private static final int RX_MODE_QUEUE 	= 0;	// byte[] packets in an ArrayBlockingQueue (copied)
+	private static final int RX_MODE_DIRECT = 1;	// IqBlocks with pooled direct buffers (zero-copy)
+	private static final int RX_MODE_RING 	= 2;	// IqBlocks in a lock-free SPSC ring (zero-copy)
+	private static final int RX_MODE_HANDLER = 3;	// IqBlocks are passed to an IqBlockHandler on the USB thread
+	private static final int RX_MODE_BROADCAST = 4;	// IqBlocks are shared by the subscribers of an IqBlockBroadcast
 	
 	// USB Vendor Requests (from hackrf.c)
-	private static final int HACKRF_VENDOR_REQUEST_SET_TRANSCEIVER_MODE = 1;
-	private static final int HACKRF_VENDOR_REQUEST_MAX2837_WRITE = 2;
-	private static final int HACKRF_VENDOR_REQUEST_MAX2837_READ = 3;
-	private static final int HACKRF_VENDOR_REQUEST_SI5351C_WRITE = 4;
-	private static final int HACKRF_VENDOR_REQUEST_SI5351C_READ = 5;
-	private static final int HACKRF_VENDOR_REQUEST_SAMPLE_RATE_SET = 6;
-	private static final int HACKRF_VENDOR_REQUEST_BASEBAND_FILTER_BANDWIDTH_SET = 7;
-	private static final int HACKRF_VENDOR_REQUEST_RFFC5071_WRITE = 8;
-	private static final int HACKRF_VENDOR_REQUEST_RFFC5071_READ = 9;
-	private static final int HACKRF_VENDOR_REQUEST_SPIFLASH_ERASE = 10;
-	private static final int HACKRF_VENDOR_REQUEST_SPIFLASH_WRITE = 11;
-	private static final int HACKRF_VENDOR_REQUEST_SPIFLASH_READ = 12;
-	private static final int HACKRF_VENDOR_REQUEST_BOARD_ID_READ = 14;
-	private static final int HACKRF_VENDOR_REQUEST_VERSION_STRING_READ = 15;
-	private static final int HACKRF_VENDOR_REQUEST_SET_FREQ = 16;
-	private static final int HACKRF_VENDOR_REQUEST_AMP_ENABLE = 17;
-	private static final int HACKRF_VENDOR_REQUEST_BOARD_PARTID_SERIALNO_READ = 18;
-	private static final int HACKRF_VENDOR_REQUEST_SET_LNA_GAIN = 19;
-	private static final int HACKRF_VENDOR_REQUEST_SET_VGA_GAIN = 20;
-	private static final int HACKRF_VENDOR_REQUEST_SET_TXVGA_GAIN = 21;
-	private static final int HACKRF_VENDOR_REQUEST_ANTENNA_ENABLE = 23;
-	private static final int HACKRF_VENDOR_REQUEST_SET_FREQ_EXPLICIT = 24;
+	static final int HACKRF_VENDOR_REQUEST_SET_TRANSCEIVER_MODE = 1;
+	static final int HACKRF_VENDOR_REQUEST_MAX2837_WRITE = 2;
+	static final int HACKRF_VENDOR_REQUEST_MAX2837_READ = 3;
+	static final int HACKRF_VENDOR_REQUEST_SI5351C_WRITE = 4;
+	static final int HACKRF_VENDOR_REQUEST_SI5351C_READ = 5;
+	static final int HACKRF_VENDOR_REQUEST_SAMPLE_RATE_SET = 6;
+	static final int HACKRF_VENDOR_REQUEST_BASEBAND_FILTER_BANDWIDTH_SET = 7;
+	static final int HACKRF_VENDOR_REQUEST_RFFC5071_WRITE = 8;
+	static final int HACKRF_VENDOR_REQUEST_RFFC5071_READ = 9;
+	static final int HACKRF_VENDOR_REQUEST_SPIFLASH_ERASE = 10;
+	static final int HACKRF_VENDOR_REQUEST_SPIFLASH_WRITE = 11;
+	static final int HACKRF_VENDOR_REQUEST_SPIFLASH_READ = 12;
+	static final int HACKRF_VENDOR_REQUEST_BOARD_ID_READ = 14;
+	static final int HACKRF_VENDOR_REQUEST_VERSION_STRING_READ = 15;
+	static final int HACKRF_VENDOR_REQUEST_SET_FREQ = 16;
+	static final int HACKRF_VENDOR_REQUEST_AMP_ENABLE = 17;
+	static final int HACKRF_VENDOR_REQUEST_BOARD_PARTID_SERIALNO_READ = 18;
+	static final int HACKRF_VENDOR_REQUEST_SET_LNA_GAIN = 19;
+	static final int HACKRF_VENDOR_REQUEST_SET_VGA_GAIN = 20;
+	static final int HACKRF_VENDOR_REQUEST_SET_TXVGA_GAIN = 21;
+	static final int HACKRF_VENDOR_REQUEST_ANTENNA_ENABLE = 23;
+	static final int HACKRF_VENDOR_REQUEST_SET_FREQ_EXPLICIT = 24;
+	static final int HACKRF_VENDOR_REQUEST_INIT_SWEEP = 26;
 	
 	// RF Filter Paths (from hackrf.c)
 	public static final int RF_PATH_FILTER_BYPASS 		= 0;
@@ -124,8 +190,6 @@ public class Hackrf implements Runnable{
 	// Some Constants:
 	private static final String logTag 					= "hackrf_android";
 	private static final String HACKRF_USB_PERMISSION 	= "com.mantz_it.hackrf_android.USB_PERMISSION";
-	private static final int numUsbRequests 			= 4; 		// Number of parallel UsbRequests
-	private static final int packetSize 				= 1024*256;	// Buffer Size of each UsbRequest
 	
 	/**
 	 * Initializing the Hackrf Instance with a USB Device. This will try to request
@@ -135,7 +199,7 @@ public class Hackrf implements Runnable{
 	 * @param context				Application context. Used to retrieve System Services (USB)
 	 * @param callbackInterface		This interface declares two methods that are called if the
 	 * 								device is ready or if there was an error
-	 * @param queueSize				Size of the receive/transmit queue (will hold queueSize buffers with packetSize bytes each)
+	 * @param queueSize				Size of the receive/transmit queue (will hold queueSize buffers with getPacketSize() bytes each)
 	 * @return false if no Hackrf could be found
 	 */
 	public static boolean initHackrf(Context context, final HackrfCallbackInterface callbackInterface, final int queueSize)
@@ -253,14 +317,15 @@ public class Hackrf implements Runnable{
 	 * 
 	 * @param usbManager	Instance of the USB Manager (System Service)
 	 * @param usbDevice		Instance of an USB Device representing the HackRF
-	 * @param queueSize		Size of the receive/transmit queue (will hold queueSize buffers with packetSize bytes each)
+	 * @param queueSize		Size of the receive/transmit queue (will hold queueSize buffers with getPacketSize() bytes each)
 	 * @throws HackrfUsbException
 	 */
 	private Hackrf (UsbManager usbManager, UsbDevice usbDevice, int queueSize) throws HackrfUsbException
 	{
-		// Initialize the class attributes:
-		this.usbManager = usbManager;
-		this.usbDevice = usbDevice;
+		UsbInterface usbInterface;
+		UsbEndpoint usbEndpointIN;
+		UsbEndpoint usbEndpointOUT;
+		UsbDeviceConnection usbConnection;
 		
 		// For detailed trouble shooting: Read out information of the device:
 		Log.i(logTag,"constructor: create Hackrf instance from " + usbDevice.getDeviceName()
@@ -272,7 +337,7 @@ public class Hackrf implements Runnable{
 		
 		try {
 			// Extract interface from the device:
-			this.usbInterface = usbDevice.getInterface(0);
+			usbInterface = usbDevice.getInterface(0);
 			
 			// For detailed trouble shooting: Read out interface information of the device:
 			Log.i(logTag,"constructor: [interface 0] interface protocol: " + usbInterface.getInterfaceProtocol()
@@ -281,8 +346,8 @@ public class Hackrf implements Runnable{
 			Log.i(logTag,"constructor: [interface 0] endpoint count: " + usbInterface.getEndpointCount());
 			
 			// Extract the endpoints from the device:
-			this.usbEndpointIN = usbInterface.getEndpoint(0);
-			this.usbEndpointOUT = usbInterface.getEndpoint(1);
+			usbEndpointIN = usbInterface.getEndpoint(0);
+			usbEndpointOUT = usbInterface.getEndpoint(1);
 			
 			// For detailed trouble shooting: Read out endpoint information of the interface:
 			Log.i(logTag,"constructor:     [endpoint 0 (IN)] address: " + usbEndpointIN.getAddress()
@@ -293,9 +358,9 @@ public class Hackrf implements Runnable{
 					+ " max_packet_size: " + usbEndpointOUT.getMaxPacketSize());
 			
 			// Open the device:
-			this.usbConnection = usbManager.openDevice(usbDevice);
+			usbConnection = usbManager.openDevice(usbDevice);
 			
-			if(this.usbConnection == null) {
+			if(usbConnection == null) {
 				Log.e(logTag, "constructor: Couldn't open HackRF USB Device: openDevice() returned null!");
 				throw(new HackrfUsbException("Couldn't open HackRF USB Device! (device is gone)"));
 			}
@@ -304,25 +369,47 @@ public class Hackrf implements Runnable{
 			throw(new HackrfUsbException("Error: Couldn't open HackRF USB Device!"));
 		}
 		
+		this.transport = new UsbHackrfTransport(usbConnection, usbInterface, usbEndpointIN, usbEndpointOUT);
+		
 		// Create the queue that is used to transport samples to the application.
 		this.queue = new ArrayBlockingQueue<byte[]>(queueSize);
 		
 		// Create another queue that will be used to collect old buffers for reusing them.
 		// This will speed up things a lot!
 		this.bufferPool = new ArrayBlockingQueue<byte[]>(queueSize);
+		
+		// startRX() without a stream config keeps using queueSize:
+		this.streamConfig.setNumBlocks(queueSize);
+	}
+	
+	/**
+	 * Initializing the Hackrf Instance with an arbitrary transport. This can be
+	 * used to run the library against a SimulatedHackrfTransport (no hardware
+	 * needed) or any other custom HackrfTransport implementation.
+	 * 
+	 * @param transport		Transport that is connected to the (real or simulated) device
+	 * @param queueSize		Size of the receive/transmit queue (will hold queueSize buffers with getPacketSize() bytes each)
+	 */
+	public Hackrf (HackrfTransport transport, int queueSize)
+	{
+		this.transport = transport;
+		this.queue = new ArrayBlockingQueue<byte[]>(queueSize);
+		this.bufferPool = new ArrayBlockingQueue<byte[]>(queueSize);
+		this.streamConfig.setNumBlocks(queueSize);
 	}
 	
 	/**
 	 * This returns the size of the packets that are used in receiving /
 	 * transmitting samples. Note that the size is measured in bytes and
-	 * a complex sample always consists of 2 bytes!
+	 * a complex sample always consists of 2 bytes! The size can be changed
+	 * by passing a HackrfStreamConfig to startRX() / startTX().
 	 * 
 	 * @return Packet size in Bytes
 	 */
 	public int getPacketSize()
 	{
-		//return this.usbEndpointIN.getMaxPacketSize(); <= gives 512 which is way too small
-		return packetSize;
+		//return usbEndpointIN.getMaxPacketSize(); <= gives 512 which is way too small
+		return this.streamConfig.getTransferSize();
 	}
 	
 	/**
@@ -338,7 +425,9 @@ public class Hackrf implements Runnable{
 	{
 		byte[] buffer = this.bufferPool.poll();
 		
-		// Check if we got a buffer:
+		// Check if we got a buffer (of the current packet size):
+		while(buffer != null && buffer.length != getPacketSize())
+			buffer = this.bufferPool.poll();
 		if(buffer == null)
 			buffer = new byte[getPacketSize()];
 		
@@ -364,6 +453,21 @@ public class Hackrf implements Runnable{
 			Log.w(logTag, "returnBuffer: Got a buffer with wrong size. Ignore it!");
 	}
 	
+	/**
+	 * Tells whether samples were dropped right before a packet of the startRX() queue
+	 * (the byte[] counterpart of IqBlock.isDiscontinuity()). Must be called before the
+	 * packet is returned with returnBufferToBufferPool().
+	 * 
+	 * @param packet	packet that was taken from the queue
+	 * @return true if there is a gap in the sample stream before this packet
+	 */
+	public boolean isDiscontinuity(byte[] packet)
+	{
+		synchronized (this.gapPackets) {
+			return this.gapPackets.contains(packet);
+		}
+	}
+	
 	/**
 	 * This returns the number of packets (of size getPacketSize()) received/transmitted since start.
 	 * 
@@ -374,6 +478,162 @@ public class Hackrf implements Runnable{
 		return this.transceivePacketCounter;
 	}
 	
+	/**
+	 * This returns the number of received packets that were dropped since start because
+	 * the application didn't read them fast enough (see setOverflowPolicy()).
+	 * 
+	 * @return Number of dropped packets since start
+	 */
+	public long getDroppedPacketCounter()
+	{
+		return this.droppedPacketCounter;
+	}
+	
+	/**
+	 * This returns the number of complex samples that were dropped since start because
+	 * the application didn't read them fast enough (see setOverflowPolicy()).
+	 * 
+	 * @return Number of dropped samples since start
+	 */
+	public long getDroppedSampleCounter()
+	{
+		return this.droppedSampleCounter;
+	}
+	
+	/**
+	 * This returns the number of retunes since start if the receive session follows a
+	 * hop schedule (see HackrfStreamConfig.setHopSchedule()).
+	 * 
+	 * @return Number of hops since start
+	 */
+	public long getHopCounter()
+	{
+		return this.hopCounter;
+	}
+	
+	/**
+	 * This returns the average number of hops per second since start (see getHopCounter()).
+	 * 
+	 * @return hops per second
+	 */
+	public float getHopRate()
+	{
+		float transTime = this.getTransceivingTime() / 1000f;
+		if(transTime == 0)
+			return 0;
+		return this.hopCounter / transTime;
+	}
+	
+	/**
+	 * This returns the sample rate that was last set by setSampleRate() (sample rate / divider).
+	 * 
+	 * @return sample rate in Hz (0 if it was never set)
+	 */
+	public int getSampleRate()
+	{
+		return this.sampleRate;
+	}
+	
+	/**
+	 * This returns the frequency the HackRF is currently tuned to (set by setFrequency()
+	 * or the hop schedule, including the offset tuning). It is unknown after
+	 * setFrequencyExplicit() and during a sweep.
+	 * 
+	 * @return frequency in Hz (0 if unknown)
+	 */
+	public long getFrequency()
+	{
+		return this.tunedFrequency;
+	}
+	
+	/**
+	 * This returns the offset tuning (see setOffsetTuning()).
+	 * 
+	 * @return offset in Hz (0 if offset tuning is off)
+	 */
+	public int getOffsetTuning()
+	{
+		return this.offsetTuning;
+	}
+	
+	/**
+	 * This returns the number of calls to the IqBlockHandler that took longer than the 
+	 * time budget since start (see startRX(IqBlockHandler)).
+	 * 
+	 * @return Number of handler calls that exceeded the budget
+	 */
+	public long getHandlerOverrunCounter()
+	{
+		return this.handlerOverrunCounter;
+	}
+	
+	/**
+	 * Sets the policy that is used while receiving if the queue (or ring) is full because
+	 * the application doesn't read the samples fast enough. With OVERFLOW_POLICY_STOP 
+	 * (default) receiving is stopped. All other policies drop samples, count them (see
+	 * getDroppedPacketCounter()) and set IqBlock.isDiscontinuity() on the block that
+	 * follows the gap (isDiscontinuity(byte[]) for the packets of startRX()). Takes
+	 * effect with the next call to startRX*() that doesn't get its own HackrfStreamConfig.
+	 * 
+	 * @param policy		OVERFLOW_POLICY_STOP, *_DROP_NEWEST, *_DROP_OLDEST or *_BLOCK
+	 * @param timeout		time in milliseconds to wait for free space (only OVERFLOW_POLICY_BLOCK)
+	 * @return false if the policy is invalid
+	 */
+	public boolean setOverflowPolicy(int policy, long timeout)
+	{
+		return this.streamConfig.setOverflowPolicy(policy, timeout);
+	}
+	
+	/**
+	 * Returns the policy that is used if the queue is full while receiving.
+	 * 
+	 * @return OVERFLOW_POLICY_STOP, *_DROP_NEWEST, *_DROP_OLDEST or *_BLOCK
+	 */
+	public int getOverflowPolicy()
+	{
+		return this.streamConfig.getOverflowPolicy();
+	}
+	
+	/**
+	 * Returns the number of USB transfers that are currently in flight while receiving.
+	 * This only changes during streaming if the adaptive depth is enabled (see 
+	 * HackrfStreamConfig.setAdaptiveDepth()).
+	 * 
+	 * @return number of queued USB transfers
+	 */
+	public int getCurrentTransferDepth()
+	{
+		return this.currentTransferDepth;
+	}
+	
+	/**
+	 * Returns a copy of the stream settings that are used by startRX() / startTX()
+	 * if no HackrfStreamConfig is passed.
+	 * 
+	 * @return current stream settings
+	 */
+	public HackrfStreamConfig getStreamConfig()
+	{
+		return new HackrfStreamConfig(this.streamConfig);
+	}
+	
+	/**
+	 * Creates stream settings for the sample rate that was set by setSampleRate()
+	 * (see HackrfStreamConfig.forSampleRate()).
+	 * 
+	 * @param profile	HackrfStreamConfig.PROFILE_LOW_LATENCY, *_BALANCED or *_MAX_THROUGHPUT
+	 * @return new stream settings which can be passed to startRX() / startTX()
+	 */
+	public HackrfStreamConfig createStreamConfig(int profile)
+	{
+		if(this.sampleRate == 0)
+		{
+			Log.w(logTag, "createStreamConfig: Sample rate was not set. Using default settings.");
+			return new HackrfStreamConfig();
+		}
+		return HackrfStreamConfig.forSampleRate(this.sampleRate, profile);
+	}
+	
 	/**
 	 * This returns the time in milliseconds since receiving/transmitting was started.
 	 * 
@@ -402,7 +662,7 @@ public class Hackrf implements Runnable{
 	/**
 	 * Returns the current mode of receiving / transmitting
 	 * 
-	 * @return HACKRF_TRANSCEIVER_MODE_OFF, *_RECEIVE, *_TRANSMIT
+	 * @return HACKRF_TRANSCEIVER_MODE_OFF, *_RECEIVE, *_TRANSMIT, *_RX_SWEEP
 	 */
 	public int getTransceiverMode() {
 		return transceiverMode;
@@ -436,43 +696,36 @@ public class Hackrf implements Runnable{
 	}
 	
 	/**
-	 * Converts an integer into a byte array using little endian byteorder.
+	 * Writes an integer into a byte array using little endian byteorder.
 	 * 
-	 * @param i		integer
-	 * @return 		byte array (length 4)
+	 * @param b			destination array
+	 * @param offset	index of the first byte (4 bytes are written)
+	 * @param i			integer
 	 */
-	private byte[] intToByteArray(int i)
+	private static void writeInt(byte[] b, int offset, int i)
 	{
-		byte[] b = new byte[4];
-		b[0] = (byte) (i & 0xff);
-		b[1] = (byte) ((i >> 8) & 0xff);
-		b[2] = (byte) ((i >> 16) & 0xff);
-		b[3] = (byte) ((i >> 24) & 0xff);
-		return b;
+		b[offset+0] = (byte) (i & 0xff);
+		b[offset+1] = (byte) ((i >> 8) & 0xff);
+		b[offset+2] = (byte) ((i >> 16) & 0xff);
+		b[offset+3] = (byte) ((i >> 24) & 0xff);
 	}
 	
 	/**
-	 * Converts a long integer into a byte array using little endian byteorder.
+	 * Writes a long integer into a byte array using little endian byteorder.
 	 * 
-	 * @param i		long integer
-	 * @return 		byte array (length 8)
+	 * @param b			destination array
+	 * @param offset	index of the first byte (8 bytes are written)
+	 * @param i			long integer
 	 */
-	private byte[] longToByteArray(long i)
+	private static void writeLong(byte[] b, int offset, long i)
 	{
-		byte[] b = new byte[8];
-		b[0] = (byte) (i & 0xff);
-		b[1] = (byte) ((i >> 8) & 0xff);
-		b[2] = (byte) ((i >> 16) & 0xff);
-		b[3] = (byte) ((i >> 24) & 0xff);
-		b[4] = (byte) ((i >> 32) & 0xff);
-		b[5] = (byte) ((i >> 40) & 0xff);
-		b[6] = (byte) ((i >> 48) & 0xff);
-		b[7] = (byte) ((i >> 56) & 0xff);
-		return b;
+		writeInt(b, offset, (int) i);
+		writeInt(b, offset + 4, (int) (i >> 32));
 	}
 	
 	/**
-	 * Executes a Request to the USB interface.
+	 * Executes a Request to the USB interface. Requests of different threads are
+	 * serialized (they never overlap).
 	 * 
 	 * Note: This function interacts with the USB Hardware and
 	 * should not be called from a GUI Thread!
@@ -485,7 +738,7 @@ public class Hackrf implements Runnable{
 	 * @return count of received bytes. Negative on error
 	 * @throws HackrfUsbException
 	 */
-	private int sendUsbRequest(int endpoint, int request, int value, int index, byte[] buffer) throws HackrfUsbException
+	private synchronized int sendUsbRequest(int endpoint, int request, int value, int index, byte[] buffer) throws HackrfUsbException
 	{
 		int len = 0;
 		
@@ -493,16 +746,17 @@ public class Hackrf implements Runnable{
 		if(buffer != null)
 			len = buffer.length;
 		
-		// Claim the usb interface
-		if( !this.usbConnection.claimInterface(this.usbInterface, true))
+		// Claim the usb interface (unless it is held by a control session)
+		boolean claim = this.controlSessionDepth == 0;
+		if(claim && !this.transport.claimInterface())
 		{
 			Log.e(logTag, "Couldn't claim HackRF USB Interface!");
 			throw(new HackrfUsbException("Couldn't claim HackRF USB Interface!"));
 		}
 		
 		// Send Board ID Read request
-		len = this.usbConnection.controlTransfer(
-				endpoint | UsbConstants.USB_TYPE_VENDOR,	// Request Type
+		len = this.transport.controlTransfer(
+				endpoint,	// Direction (the transport adds the vendor request type)
 				request,	// Request
 				value,		// Value (unused)
 				index,		// Index (unused)
@@ -512,13 +766,15 @@ public class Hackrf implements Runnable{
 			);
 		
 		// Release usb interface
-		this.usbConnection.releaseInterface(this.usbInterface);
+		if(claim)
+			this.transport.releaseInterface();
 		
 		return len;
 	}
 	
 	/**
-	 * Returns the Board ID of the HackRF.
+	 * Returns the Board ID of the HackRF. It is read only once and then cached
+	 * (see invalidateDeviceState()).
 	 * 
 	 * Note: This function interacts with the USB Hardware and
 	 * should not be called from a GUI Thread!
@@ -528,14 +784,18 @@ public class Hackrf implements Runnable{
 	 */
 	public byte getBoardID() throws HackrfUsbException
 	{
+		if(this.cachedBoardId >= 0)
+			return (byte) this.cachedBoardId;
+		
 		byte[] buffer = new byte[1];
 		
-		if (this.sendUsbRequest(UsbConstants.USB_DIR_IN, HACKRF_VENDOR_REQUEST_BOARD_ID_READ, 0, 0, buffer) != 1)
+		if (this.sendUsbRequest(HackrfTransport.DIR_IN, HACKRF_VENDOR_REQUEST_BOARD_ID_READ, 0, 0, buffer) != 1)
 		{
 			Log.e(logTag, "getBoardID: USB Transfer failed!");
 			throw(new HackrfUsbException("USB Transfer failed!"));
 		}
 		
+		this.cachedBoardId = buffer[0] & 0xFF;
 		return buffer[0];
 	}
 	
@@ -560,7 +820,8 @@ public class Hackrf implements Runnable{
 	}
 	
 	/**
-	 * Returns the Version String of the HackRF.
+	 * Returns the Version String of the HackRF. It is read only once and then cached
+	 * (see invalidateDeviceState()).
 	 * 
 	 * Note: This function interacts with the USB Hardware and
 	 * should not be called from a GUI Thread!
@@ -570,10 +831,13 @@ public class Hackrf implements Runnable{
 	 */
 	public String getVersionString() throws HackrfUsbException
 	{
+		if(this.cachedVersionString != null)
+			return this.cachedVersionString;
+		
 		byte[] buffer = new byte[255];
 		int len = 0;
 		
-		len = this.sendUsbRequest(UsbConstants.USB_DIR_IN, HACKRF_VENDOR_REQUEST_VERSION_STRING_READ, 0, 0, buffer);
+		len = this.sendUsbRequest(HackrfTransport.DIR_IN, HACKRF_VENDOR_REQUEST_VERSION_STRING_READ, 0, 0, buffer);
 		
 		if (len < 1)
 		{
@@ -581,12 +845,14 @@ public class Hackrf implements Runnable{
 			throw(new HackrfUsbException("USB Transfer failed!"));
 		}
 		
-		return new String(buffer);
+		this.cachedVersionString = new String(buffer);
+		return this.cachedVersionString;
 	}
 	
 	
 	/**
-	 * Returns the Part ID + Serial Number of the HackRF.
+	 * Returns the Part ID + Serial Number of the HackRF. It is read only once and
+	 * then cached (see invalidateDeviceState()).
 	 * 
 	 * Note: This function interacts with the USB Hardware and
 	 * should not be called from a GUI Thread!
@@ -596,10 +862,13 @@ public class Hackrf implements Runnable{
 	 */
 	public int[] getPartIdAndSerialNo() throws HackrfUsbException
 	{
+		if(this.cachedPartIdAndSerialNo != null)
+			return this.cachedPartIdAndSerialNo.clone();
+		
 		byte[] buffer = new byte[8+16];
 		int[] ret = new int[2+4];
 		
-		if(this.sendUsbRequest(UsbConstants.USB_DIR_IN, HACKRF_VENDOR_REQUEST_BOARD_PARTID_SERIALNO_READ, 
+		if(this.sendUsbRequest(HackrfTransport.DIR_IN, HACKRF_VENDOR_REQUEST_BOARD_PARTID_SERIALNO_READ, 
 				0, 0, buffer) != 8+16)
 		{
 			Log.e(logTag, "getPartIdAndSerialNo: USB Transfer failed!");
@@ -611,11 +880,13 @@ public class Hackrf implements Runnable{
 			ret[i] = this.byteArrayToInt(buffer, 4*i);
 		}
 		
+		this.cachedPartIdAndSerialNo = ret.clone();
 		return ret;
 	}
 	
 	/**
-	 * Sets the Sample Rate of the HackRF.
+	 * Sets the Sample Rate of the HackRF. If offset tuning is on (see setOffsetTuning()),
+	 * the offset must stay less than half the new sample rate.
 	 * 
 	 * Note: This function interacts with the USB Hardware and
 	 * should not be called from a GUI Thread!
@@ -625,24 +896,38 @@ public class Hackrf implements Runnable{
 	 * @return 	true on success
 	 * @throws 	HackrfUsbException
 	 */
-	public boolean setSampleRate(int sampRate, int divider) throws HackrfUsbException
+	public synchronized boolean setSampleRate(int sampRate, int divider) throws HackrfUsbException
 	{
-		ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-		
-		try {
-			byteOut.write(this.intToByteArray(sampRate));
-			byteOut.write(this.intToByteArray(divider));
-		} catch (IOException e) {
-			Log.e(logTag,"setSampleRate: Error while converting arguments to byte buffer.");
+		if(divider < 1)
+		{
+			Log.e(logTag,"setSampleRate: Invalid divider: " + divider);
+			return false;
+		}
+		if(this.offsetTuning != 0 && Math.abs((long) this.offsetTuning) * 2 >= sampRate / divider)
+		{
+			Log.e(logTag,"setSampleRate: Sample rate " + sampRate + "/" + divider
+					+ " is too small for the offset tuning of " + this.offsetTuning + " Hz!");
 			return false;
 		}
+		if(this.appliedConfig.isSet(HackrfConfig.FIELD_SAMPLE_RATE) && this.appliedConfig.getSampleRate() == sampRate
+				&& this.appliedConfig.getSampleRateDivider() == divider)
+		{
+			this.skippedRequestCounter++;
+			return true;
+		}
+		
+		writeInt(this.requestBuffer8, 0, sampRate);
+		writeInt(this.requestBuffer8, 4, divider);
 		
-		if(this.sendUsbRequest(UsbConstants.USB_DIR_OUT, HACKRF_VENDOR_REQUEST_SAMPLE_RATE_SET, 
-				0, 0, byteOut.toByteArray()) != 8)
+		this.appliedConfig.clear(HackrfConfig.FIELD_SAMPLE_RATE);
+		if(this.sendUsbRequest(HackrfTransport.DIR_OUT, HACKRF_VENDOR_REQUEST_SAMPLE_RATE_SET, 
+				0, 0, this.requestBuffer8) != 8)
 		{
 			Log.e(logTag, "setSampleRate: USB Transfer failed!");
 			throw(new HackrfUsbException("USB Transfer failed!"));
 		}
+		this.sampleRate = sampRate / divider;
+		this.appliedConfig.setSampleRate(sampRate, divider);
 		
 		return true;
 	}
@@ -684,15 +969,24 @@ public class Hackrf implements Runnable{
 	 * @return 	true on success
 	 * @throws 	HackrfUsbException
 	 */
-	public boolean setBasebandFilterBandwidth(int bandwidth) throws HackrfUsbException
+	public synchronized boolean setBasebandFilterBandwidth(int bandwidth) throws HackrfUsbException
 	{
-		if(this.sendUsbRequest(UsbConstants.USB_DIR_OUT, HACKRF_VENDOR_REQUEST_BASEBAND_FILTER_BANDWIDTH_SET, 
+		if(this.appliedConfig.isSet(HackrfConfig.FIELD_BASEBAND_FILTER) && this.appliedConfig.getBasebandFilterBandwidth() == bandwidth)
+		{
+			this.skippedRequestCounter++;
+			return true;
+		}
+		
+		this.appliedConfig.clear(HackrfConfig.FIELD_BASEBAND_FILTER);
+		if(this.sendUsbRequest(HackrfTransport.DIR_OUT, HACKRF_VENDOR_REQUEST_BASEBAND_FILTER_BANDWIDTH_SET, 
 				bandwidth & 0xffff, (bandwidth >> 16) & 0xffff, null) != 0)
 		{
 			Log.e(logTag, "setBasebandFilterBandwidth: USB Transfer failed!");
 			throw(new HackrfUsbException("USB Transfer failed!"));
 		}
 		
+		this.appliedConfig.setBasebandFilterBandwidth(bandwidth);
+		
 		return true;
 	}
 	
@@ -706,9 +1000,9 @@ public class Hackrf implements Runnable{
 	 * @return 	true on success
 	 * @throws 	HackrfUsbException
 	 */
-	public boolean setRxVGAGain(int gain) throws HackrfUsbException
+	public synchronized boolean setRxVGAGain(int gain) throws HackrfUsbException
 	{
-		byte[] retVal = new byte[1];
+		byte[] retVal = this.requestResult;
 		
 		if(gain > 62)
 		{
@@ -720,7 +1014,14 @@ public class Hackrf implements Runnable{
 		if(gain % 2 != 0)
 			gain = gain - (gain%2);
 		
-		if(this.sendUsbRequest(UsbConstants.USB_DIR_IN, HACKRF_VENDOR_REQUEST_SET_VGA_GAIN, 
+		if(this.appliedConfig.isSet(HackrfConfig.FIELD_VGA_GAIN) && this.appliedConfig.getRxVGAGain() == gain)
+		{
+			this.skippedRequestCounter++;
+			return true;
+		}
+		
+		this.appliedConfig.clear(HackrfConfig.FIELD_VGA_GAIN);
+		if(this.sendUsbRequest(HackrfTransport.DIR_IN, HACKRF_VENDOR_REQUEST_SET_VGA_GAIN, 
 				0, gain, retVal) != 1)
 		{
 			Log.e(logTag, "setRxVGAGain: USB Transfer failed!");
@@ -733,6 +1034,8 @@ public class Hackrf implements Runnable{
 			return false;
 		}
 		
+		this.appliedConfig.setRxVGAGain(gain);
+		
 		return true;
 	}
 	
@@ -746,9 +1049,9 @@ public class Hackrf implements Runnable{
 	 * @return 	true on success
 	 * @throws 	HackrfUsbException
 	 */
-	public boolean setTxVGAGain(int gain) throws HackrfUsbException
+	public synchronized boolean setTxVGAGain(int gain) throws HackrfUsbException
 	{
-		byte[] retVal = new byte[1];
+		byte[] retVal = this.requestResult;
 		
 		if(gain > 47)
 		{
@@ -756,7 +1059,14 @@ public class Hackrf implements Runnable{
 			return false;
 		}
 		
-		if(this.sendUsbRequest(UsbConstants.USB_DIR_IN, HACKRF_VENDOR_REQUEST_SET_TXVGA_GAIN, 
+		if(this.appliedConfig.isSet(HackrfConfig.FIELD_TX_VGA_GAIN) && this.appliedConfig.getTxVGAGain() == gain)
+		{
+			this.skippedRequestCounter++;
+			return true;
+		}
+		
+		this.appliedConfig.clear(HackrfConfig.FIELD_TX_VGA_GAIN);
+		if(this.sendUsbRequest(HackrfTransport.DIR_IN, HACKRF_VENDOR_REQUEST_SET_TXVGA_GAIN, 
 				0, gain, retVal) != 1)
 		{
 			Log.e(logTag, "setTxVGAGain: USB Transfer failed!");
@@ -769,6 +1079,8 @@ public class Hackrf implements Runnable{
 			return false;
 		}
 		
+		this.appliedConfig.setTxVGAGain(gain);
+		
 		return true;
 	}
 	
@@ -782,9 +1094,9 @@ public class Hackrf implements Runnable{
 	 * @return 	true on success
 	 * @throws 	HackrfUsbException
 	 */
-	public boolean setRxLNAGain(int gain) throws HackrfUsbException
+	public synchronized boolean setRxLNAGain(int gain) throws HackrfUsbException
 	{
-		byte[] retVal = new byte[1];
+		byte[] retVal = this.requestResult;
 		
 		if(gain > 40)
 		{
@@ -796,7 +1108,14 @@ public class Hackrf implements Runnable{
 		if(gain % 8 != 0)
 			gain = gain - (gain%8);
 		
-		if(this.sendUsbRequest(UsbConstants.USB_DIR_IN, HACKRF_VENDOR_REQUEST_SET_LNA_GAIN, 
+		if(this.appliedConfig.isSet(HackrfConfig.FIELD_LNA_GAIN) && this.appliedConfig.getRxLNAGain() == gain)
+		{
+			this.skippedRequestCounter++;
+			return true;
+		}
+		
+		this.appliedConfig.clear(HackrfConfig.FIELD_LNA_GAIN);
+		if(this.sendUsbRequest(HackrfTransport.DIR_IN, HACKRF_VENDOR_REQUEST_SET_LNA_GAIN, 
 				0, gain, retVal) != 1)
 		{
 			Log.e(logTag, "setRxLNAGain: USB Transfer failed!");
@@ -809,11 +1128,14 @@ public class Hackrf implements Runnable{
 			return false;
 		}
 		
+		this.appliedConfig.setRxLNAGain(gain);
+		
 		return true;
 	}
 	
 	/**
-	 * Sets the Frequency of the HackRF.
+	 * Sets the Frequency of the HackRF. If offset tuning is on (see setOffsetTuning()),
+	 * the HackRF is tuned to frequency + offset.
 	 * 
 	 * Note: This function interacts with the USB Hardware and
 	 * should not be called from a GUI Thread!
@@ -822,32 +1144,74 @@ public class Hackrf implements Runnable{
 	 * @return 	true on success
 	 * @throws 	HackrfUsbException
 	 */
-	public boolean setFrequency(long frequency) throws HackrfUsbException
+	public synchronized boolean setFrequency(long frequency) throws HackrfUsbException
 	{
-		ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-		int mhz = (int) (frequency/1000000l);
-		int hz = (int) (frequency%1000000l);
-		
-		Log.d(logTag, "Tune HackRF to " + mhz + "." + hz + "MHz...");
-		
-		try {
-			byteOut.write(this.intToByteArray(mhz));
-			byteOut.write(this.intToByteArray(hz));
-		} catch (IOException e) {
-			Log.e(logTag,"setFrequency: Error while converting arguments to byte buffer.");
-			return false;
+		if(this.appliedConfig.isSet(HackrfConfig.FIELD_FREQUENCY) && this.appliedConfig.getFrequency() == frequency)
+		{
+			this.skippedRequestCounter++;
+			return true;
 		}
 		
-		if(this.sendUsbRequest(UsbConstants.USB_DIR_OUT, HACKRF_VENDOR_REQUEST_SET_FREQ, 
-				0, 0, byteOut.toByteArray()) != 8)
+		// No logging and no allocations here: this is called at high rates while hopping.
+		int offset = this.offsetTuning;
+		long tuneFrequency = frequency + offset;
+		writeInt(this.requestBuffer8, 0, (int) (tuneFrequency/1000000l));
+		writeInt(this.requestBuffer8, 4, (int) (tuneFrequency%1000000l));
+		
+		this.appliedConfig.clear(HackrfConfig.FIELD_FREQUENCY);
+		if(this.sendUsbRequest(HackrfTransport.DIR_OUT, HACKRF_VENDOR_REQUEST_SET_FREQ, 
+				0, 0, this.requestBuffer8) != 8)
 		{
 			Log.e(logTag, "setFrequency: USB Transfer failed!");
 			throw(new HackrfUsbException("USB Transfer failed!"));
 		}
 		
+		this.appliedConfig.setFrequency(frequency);
+		this.tunedOffset = offset;
+		this.tunedFrequency = tuneFrequency;
+		
 		return true;
 	}
 	
+	/**
+	 * Turns offset tuning on or off. With offset tuning, setFrequency() (and the hop
+	 * schedule) tune the HackRF to frequency + offset, so that the DC spike and LO
+	 * leakage are offset Hz away from the signal. The received blocks are tagged with
+	 * the offset (IqBlock.getTuningOffset()) and startRXOffsetTuning(), OffsetTuner or
+	 * FusedDecimator.setOffsetTuning() shift the signal back digitally. If a frequency
+	 * was set before, the HackRF is retuned.
+	 * 
+	 * Note: This function interacts with the USB Hardware and
+	 * should not be called from a GUI Thread!
+	 * 
+	 * @param	offset		Offset in Hz (0 to turn offset tuning off). Must be less than
+	 * 						half the sample rate, which must be set before (see setSampleRate()).
+	 * @return 	true on success
+	 * @throws 	HackrfUsbException
+	 */
+	public synchronized boolean setOffsetTuning(int offset) throws HackrfUsbException
+	{
+		if(offset != 0 && this.sampleRate == 0)
+		{
+			Log.e(logTag,"setOffsetTuning: Sample rate must be set before offset tuning can be used!");
+			return false;
+		}
+		if(offset != 0 && Math.abs((long) offset) * 2 >= this.sampleRate)
+		{
+			Log.e(logTag,"setOffsetTuning: Offset must be less than half the sample rate (" + this.sampleRate + ")!");
+			return false;
+		}
+		if(offset == this.offsetTuning)
+			return true;
+		
+		this.offsetTuning = offset;
+		if(!this.appliedConfig.isSet(HackrfConfig.FIELD_FREQUENCY))
+			return true;
+		long frequency = this.appliedConfig.getFrequency();
+		this.appliedConfig.clear(HackrfConfig.FIELD_FREQUENCY);
+		return this.setFrequency(frequency);
+	}
+	
 	/**
 	 * Sets the explicit IF and LO frequency of the HackRF.
 	 * 
@@ -860,10 +1224,8 @@ public class Hackrf implements Runnable{
 	 * @return 	true on success
 	 * @throws 	HackrfUsbException
 	 */
-	public boolean setFrequencyExplicit(long ifFrequency, long loFrequency, int rfPath) throws HackrfUsbException
+	public synchronized boolean setFrequencyExplicit(long ifFrequency, long loFrequency, int rfPath) throws HackrfUsbException
 	{
-		ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-		
 		// check range of IF Frequency:
 		if (ifFrequency < 2150000000l || ifFrequency > 2750000000l) {
 			Log.e(logTag,"setFrequencyExplicit: IF Frequency must be in [2150000000; 2750000000]!");
@@ -881,20 +1243,16 @@ public class Hackrf implements Runnable{
 			Log.e(logTag,"setFrequencyExplicit: Invalid value for rf_path!");
 			return false;
 		}
-			
-		Log.d(logTag, "Tune HackRF to IF:" + ifFrequency + " Hz; LO:" + loFrequency + " Hz...");
 		
-		try {
-			byteOut.write(this.longToByteArray(ifFrequency));
-			byteOut.write(this.longToByteArray(loFrequency));
-			byteOut.write(rfPath);
-		} catch (IOException e) {
-			Log.e(logTag,"setFrequencyExplicit: Error while converting arguments to byte buffer.");
-			return false;
-		}
+		writeLong(this.requestBuffer17, 0, ifFrequency);
+		writeLong(this.requestBuffer17, 8, loFrequency);
+		this.requestBuffer17[16] = (byte) rfPath;
 		
-		if(this.sendUsbRequest(UsbConstants.USB_DIR_OUT, HACKRF_VENDOR_REQUEST_SET_FREQ_EXPLICIT, 
-				0, 0, byteOut.toByteArray()) != 17)
+		this.appliedConfig.clear(HackrfConfig.FIELD_FREQUENCY);
+		this.tunedFrequency = 0;
+		this.tunedOffset = 0;
+		if(this.sendUsbRequest(HackrfTransport.DIR_OUT, HACKRF_VENDOR_REQUEST_SET_FREQ_EXPLICIT, 
+				0, 0, this.requestBuffer17) != 17)
 		{
 			Log.e(logTag, "setFrequencyExplicit: USB Transfer failed!");
 			throw(new HackrfUsbException("USB Transfer failed!"));
@@ -913,15 +1271,24 @@ public class Hackrf implements Runnable{
 	 * @return 	true on success
 	 * @throws 	HackrfUsbException
 	 */
-	public boolean setAmp(boolean enable) throws HackrfUsbException
+	public synchronized boolean setAmp(boolean enable) throws HackrfUsbException
 	{
-		if(this.sendUsbRequest(UsbConstants.USB_DIR_OUT, HACKRF_VENDOR_REQUEST_AMP_ENABLE, 
+		if(this.appliedConfig.isSet(HackrfConfig.FIELD_AMP) && this.appliedConfig.isAmp() == enable)
+		{
+			this.skippedRequestCounter++;
+			return true;
+		}
+		
+		this.appliedConfig.clear(HackrfConfig.FIELD_AMP);
+		if(this.sendUsbRequest(HackrfTransport.DIR_OUT, HACKRF_VENDOR_REQUEST_AMP_ENABLE, 
 				(enable ? 1 : 0) , 0, null) != 0)
 		{
 			Log.e(logTag, "setAmp: USB Transfer failed!");
 			throw(new HackrfUsbException("USB Transfer failed!"));
 		}
 		
+		this.appliedConfig.setAmp(enable);
+		
 		return true;
 	}
 
@@ -935,25 +1302,35 @@ public class Hackrf implements Runnable{
 	 * @return 	true on success
 	 * @throws 	HackrfUsbException
 	 */
-	public boolean setAntennaPower(boolean enable) throws HackrfUsbException
+	public synchronized boolean setAntennaPower(boolean enable) throws HackrfUsbException
 	{
+		if(this.appliedConfig.isSet(HackrfConfig.FIELD_ANTENNA_POWER) && this.appliedConfig.isAntennaPower() == enable)
+		{
+			this.skippedRequestCounter++;
+			return true;
+		}
+		
 		// The Jawbreaker doesn't support this command!
-		if(this.getBoardID() == 1) {		// == Jawbreaker
+		byte boardId = this.getBoardID();
+		if(boardId == 1) {		// == Jawbreaker
 			Log.w(logTag, "setAntennaPower: Antenna Power is not supported for HackRF Jawbreaker. Ignore.");
 			return false;
 		}
 		// The rad1o doesn't support this command!
-		if(this.getBoardID() == 3) {		// == rad1o
+		if(boardId == 3) {		// == rad1o
 			Log.w(logTag, "setAntennaPower: Antenna Power is not supported for rad1o. Ignore.");
 			return false;
 		}
-		if(this.sendUsbRequest(UsbConstants.USB_DIR_OUT, HACKRF_VENDOR_REQUEST_ANTENNA_ENABLE, 
+		this.appliedConfig.clear(HackrfConfig.FIELD_ANTENNA_POWER);
+		if(this.sendUsbRequest(HackrfTransport.DIR_OUT, HACKRF_VENDOR_REQUEST_ANTENNA_ENABLE, 
 				(enable ? 1 : 0) , 0, null) != 0)
 		{
 			Log.e(logTag, "setAntennaPower: USB Transfer failed!");
 			throw(new HackrfUsbException("USB Transfer failed!"));
 		}
 		
+		this.appliedConfig.setAntennaPower(enable);
+		
 		return true;
 	}
 	
@@ -963,13 +1340,13 @@ public class Hackrf implements Runnable{
 	 * Note: This function interacts with the USB Hardware and
 	 * should not be called from a GUI Thread!
 	 * 
-	 * @param	mode		HACKRF_TRANSCEIVER_MODE_OFF, *_RECEIVE or *_TRANSMIT
+	 * @param	mode		HACKRF_TRANSCEIVER_MODE_OFF, *_RECEIVE, *_TRANSMIT or *_RX_SWEEP
 	 * @return 	true on success
 	 * @throws 	HackrfUsbException
 	 */
-	public boolean setTransceiverMode(int mode) throws HackrfUsbException
+	public synchronized boolean setTransceiverMode(int mode) throws HackrfUsbException
 	{
-		if (mode < 0 || mode > 2)
+		if ((mode < 0 || mode > 2) && mode != HACKRF_TRANSCEIVER_MODE_RX_SWEEP)
 		{
 			Log.e(logTag,"Invalid Transceiver Mode: " + mode);
 			return false;
@@ -977,7 +1354,10 @@ public class Hackrf implements Runnable{
 		
 		this.transceiverMode = mode;
 		
-		if(this.sendUsbRequest(UsbConstants.USB_DIR_OUT, HACKRF_VENDOR_REQUEST_SET_TRANSCEIVER_MODE, 
+		// The firmware switches the amplifier and the antenna power off when the direction changes:
+		this.appliedConfig.clear(HackrfConfig.FIELD_AMP | HackrfConfig.FIELD_ANTENNA_POWER);
+		
+		if(this.sendUsbRequest(HackrfTransport.DIR_OUT, HACKRF_VENDOR_REQUEST_SET_TRANSCEIVER_MODE, 
 				mode , 0, null) != 0)
 		{
 			Log.e(logTag, "setTransceiverMode: USB Transfer failed!");
@@ -988,154 +1368,1535 @@ public class Hackrf implements Runnable{
 	}
 	
 	/**
-	 * Starts receiving.
+	 * Configures the sweep mode of the firmware. In sweep mode (see startRXSweep()) the
+	 * HackRF retunes on its own: it starts at the lower end of the first range, receives
+	 * numBytes bytes, adds the step width (according to the style) and continues with
+	 * the next range after it passed the upper end of the current one. After the last
+	 * range it starts over. This is much faster than retuning with setFrequency().
+	 * Each 16 KiB block of the RX stream carries the frequency it was received on (see
+	 * HackrfSweepParser).
 	 * 
-	 * @return 	An ArrayBlockingQueue that will fill with the samples as they arrive. 
-	 * 			Each queue element is a block of samples (byte[]) of size getPacketSize().
-	 * @throws	HackrfUsbException
+	 * Note: This function interacts with the USB Hardware and
+	 * should not be called from a GUI Thread!
+	 * 
+	 * @param	frequencyRanges	pairs of lower and upper frequency (in MHz) of each range
+	 * @param	numBytes		bytes to receive on each frequency (multiple of HackrfSweepParser.BYTES_PER_BLOCK)
+	 * @param	stepWidth		increment of the frequency in Hz (e.g. the sample rate)
+	 * @param	offset			offset in Hz that is added to the tuned frequency (e.g. to avoid the DC spike)
+	 * @param	style			SWEEP_STYLE_LINEAR or SWEEP_STYLE_INTERLEAVED
+	 * @return 	true on success
+	 * @throws 	HackrfUsbException
 	 */
-	public ArrayBlockingQueue<byte[]> startRX() throws HackrfUsbException
+	public boolean initSweep(int[] frequencyRanges, int numBytes, int stepWidth, int offset, int style) throws HackrfUsbException
 	{
-		// Flush the queue
-	    this.queue.clear();
-	    
-		// Signal the HackRF Device to start receiving:
-		this.setTransceiverMode(HACKRF_TRANSCEIVER_MODE_RECEIVE);
+		int numRanges = frequencyRanges.length / 2;
+		if(numRanges < 1 || numRanges > MAX_SWEEP_RANGES || frequencyRanges.length % 2 != 0)
+		{
+			Log.e(logTag,"initSweep: Invalid number of frequency ranges: " + frequencyRanges.length / 2.0);
+			return false;
+		}
+		for(int i = 0; i < frequencyRanges.length; i += 2)
+		{
+			if(frequencyRanges[i] < 0 || frequencyRanges[i+1] > 0xFFFF || frequencyRanges[i] > frequencyRanges[i+1])
+			{
+				Log.e(logTag,"initSweep: Invalid frequency range: " + frequencyRanges[i] + "-" + frequencyRanges[i+1] + " MHz");
+				return false;
+			}
+		}
+		if(numBytes < HackrfSweepParser.BYTES_PER_BLOCK || numBytes % HackrfSweepParser.BYTES_PER_BLOCK != 0)
+		{
+			Log.e(logTag,"initSweep: numBytes must be a multiple of " + HackrfSweepParser.BYTES_PER_BLOCK + ": " + numBytes);
+			return false;
+		}
+		if(stepWidth < 1)
+		{
+			Log.e(logTag,"initSweep: Invalid step width: " + stepWidth);
+			return false;
+		}
+		if(style != SWEEP_STYLE_LINEAR && style != SWEEP_STYLE_INTERLEAVED)
+		{
+			Log.e(logTag,"initSweep: Invalid sweep style: " + style);
+			return false;
+		}
 		
-		// Start the Thread to queue the received samples:
-		this.usbThread = new Thread(this);  
-		this.usbThread.start();
+		// step width (4 bytes), offset (4 bytes), style (1 byte), then the ranges as uint16:
+		byte[] data = new byte[9 + frequencyRanges.length * 2];
+		writeInt(data, 0, stepWidth);
+		writeInt(data, 4, offset);
+		data[8] = (byte) style;
+		for(int i = 0; i < frequencyRanges.length; i++)
+		{
+			data[9 + 2*i] = (byte) (frequencyRanges[i] & 0xFF);
+			data[10 + 2*i] = (byte) ((frequencyRanges[i] >> 8) & 0xFF);
+		}
 		
-		// Reset the packet counter and start time for statistics:
-		this.transceiveStartTime = System.currentTimeMillis();
-		this.transceivePacketCounter = 0;
+		if(this.sendUsbRequest(HackrfTransport.DIR_OUT, HACKRF_VENDOR_REQUEST_INIT_SWEEP, 
+				numBytes & 0xFFFF, (numBytes >> 16) & 0xFFFF, data) != data.length)
+		{
+			Log.e(logTag, "initSweep: USB Transfer failed!");
+			throw(new HackrfUsbException("USB Transfer failed!"));
+		}
 		
-		return this.queue;
+		return true;
 	}
 	
 	/**
-	 * Starts transmitting.
+	 * Claims the USB interface until closeControlSession() is called. In between,
+	 * all control requests (setters, getters, ...) are sent without claiming and 
+	 * releasing the interface each time, which saves two USB round trips per 
+	 * request. Sessions can be nested.
 	 * 
-	 * @return 	An ArrayBlockingQueue from which the hackrf will read the samples to transmit. 
-	 * 			Each queue element must be a block of samples (byte[]) of size getPacketSize().
-	 * @throws	HackrfUsbException
+	 * Note: This function interacts with the USB Hardware and
+	 * should not be called from a GUI Thread!
+	 * 
+	 * @throws 	HackrfUsbException if the interface can't be claimed
 	 */
-	public ArrayBlockingQueue<byte[]> startTX() throws HackrfUsbException
+	public synchronized void openControlSession() throws HackrfUsbException
 	{
-		// Flush the queue
-	    this.queue.clear();
-	    
-		// Signal the HackRF Device to start transmitting:
-		this.setTransceiverMode(HACKRF_TRANSCEIVER_MODE_TRANSMIT);
-		
-		// Start the Thread to queue the received samples:
-		this.usbThread = new Thread(this);  
-		this.usbThread.start();
-		
-		// Reset the packet counter and start time for statistics:
-		this.transceiveStartTime = System.currentTimeMillis();
-		this.transceivePacketCounter = 0;
-		
-		return this.queue;
+		if(this.controlSessionDepth == 0 && !this.transport.claimInterface())
+		{
+			Log.e(logTag, "openControlSession: Couldn't claim HackRF USB Interface!");
+			throw(new HackrfUsbException("Couldn't claim HackRF USB Interface!"));
+		}
+		this.controlSessionDepth++;
 	}
 	
 	/**
-	 * Stops receiving or transmitting.
+	 * Ends a control session that was started with openControlSession(). The USB
+	 * interface is released when the outermost session ends.
+	 */
+	public synchronized void closeControlSession()
+	{
+		if(this.controlSessionDepth == 0)
+		{
+			Log.w(logTag, "closeControlSession: No control session open.");
+			return;
+		}
+		if(--this.controlSessionDepth == 0)
+			this.transport.releaseInterface();
+	}
+	
+	/**
+	 * Returns the values that were successfully sent to the HackRF by the setters
+	 * or applyConfig(). Fields that were never set (or whose last transfer failed)
+	 * are not set in the returned configuration.
 	 * 
-	 * @throws	HackrfUsbException
+	 * @return copy of the applied configuration
 	 */
-	public void stop() throws HackrfUsbException
+	public synchronized HackrfConfig getAppliedConfig()
 	{
-		// Signal the HackRF Device to start receiving:
-		this.setTransceiverMode(HACKRF_TRANSCEIVER_MODE_OFF);
+		return new HackrfConfig(this.appliedConfig);
 	}
 	
 	/**
-	 * This method will be executed in a separate Thread after the HackRF starts receiving
-	 * Samples. It will return as soon as the transceiverMode changes or an error occurs.
+	 * Forgets the shadow copy of the device state (see getAppliedConfig()) and the
+	 * cached metadata (board ID, version string, part ID and serial number). The next
+	 * call of each setter is sent to the HackRF again. Call this if the HackRF was
+	 * reset or reconnected, or if another application changed its settings.
 	 */
-	private void receiveLoop()
+	public synchronized void invalidateDeviceState()
 	{
-		UsbRequest[] usbRequests = new UsbRequest[numUsbRequests];
-		ByteBuffer buffer;
-		
-		try
-		{
-			// Create, initialize and queue all usb requests:
-			for(int i = 0; i < numUsbRequests; i++)
-			{
-				// Get a ByteBuffer for the request from the buffer pool:
-				buffer = ByteBuffer.wrap(this.getBufferFromBufferPool());
-				
-			    // Initialize the USB Request:
-				usbRequests[i] = new UsbRequest();
-				usbRequests[i].initialize(usbConnection, usbEndpointIN);
-				usbRequests[i].setClientData(buffer);
-			    
-			    // Queue the request
-			    if(	usbRequests[i].queue(buffer, getPacketSize()) == false)
-			    {
+		this.appliedConfig.clear(~0);
+		this.tunedFrequency = 0;
+		this.tunedOffset = 0;
+		this.cachedBoardId = -1;
+		this.cachedVersionString = null;
+		this.cachedPartIdAndSerialNo = null;
+	}
+	
+	/**
+	 * Sends the complete shadow copy of the device state to the HackRF again (e.g. after
+	 * it was reset or reconnected). The metadata cache is cleared as well.
+	 * 
+	 * Note: This function interacts with the USB Hardware and
+	 * should not be called from a GUI Thread!
+	 * 
+	 * @return report of the applied fields (see applyConfig())
+	 * @throws 	HackrfUsbException
+	 */
+	public HackrfConfig.Report resyncDeviceState() throws HackrfUsbException
+	{
+		HackrfConfig state;
+		synchronized (this) {
+			state = new HackrfConfig(this.appliedConfig);
+			this.invalidateDeviceState();
+		}
+		return this.applyConfig(state);
+	}
+	
+	/**
+	 * @return number of setter calls that didn't send a USB transfer because the HackRF
+	 * 			already had the requested value
+	 */
+	public long getSkippedRequestCounter()
+	{
+		return this.skippedRequestCounter;
+	}
+	
+	/**
+	 * Applies a complete (or partial) radio configuration in one transaction. The USB 
+	 * interface is claimed only once and fields that already have the requested value 
+	 * (see getAppliedConfig()) are skipped. The fields are applied in the order of the
+	 * HackrfConfig.FIELD_* constants (sample rate and filter first, then frequency, gains,
+	 * amp and antenna power). The transaction stops at the first field that fails.
+	 * 
+	 * Note: This function interacts with the USB Hardware and
+	 * should not be called from a GUI Thread!
+	 * 
+	 * @param config	configuration to apply (only the fields that are set)
+	 * @return report with the applied / skipped fields and the time of each step
+	 * @throws 	HackrfUsbException
+	 */
+	public HackrfConfig.Report applyConfig(HackrfConfig config) throws HackrfUsbException
+	{
+		HackrfConfig.Report report = new HackrfConfig.Report();
+		long startTime = System.nanoTime();
+		
+		this.openControlSession();
+		try {
+			for(int field = 1; field < (1 << HackrfConfig.NUM_FIELDS); field <<= 1)
+			{
+				if(!config.isSet(field))
+					continue;
+				boolean upToDate;
+				synchronized (this) {
+					upToDate = config.isEqual(this.appliedConfig, field);
+				}
+				if(upToDate)
+				{
+					report.setSkipped(field);
+					continue;
+				}
+				
+				long stepStart = System.nanoTime();
+				if(!this.applyConfigField(config, field))
+				{
+					report.setFailed(field, System.nanoTime() - stepStart);
+					Log.e(logTag, "applyConfig: Failed to apply " + HackrfConfig.getFieldName(field) + ". Abort.");
+					break;
+				}
+				report.setApplied(field, System.nanoTime() - stepStart);
+			}
+		} finally {
+			this.closeControlSession();
+		}
+		
+		report.setTotalTime(System.nanoTime() - startTime);
+		return report;
+	}
+	
+	/**
+	 * Applies a single field of a configuration by calling the according setter.
+	 * 
+	 * @param config	configuration
+	 * @param field		HackrfConfig.FIELD_*
+	 * @return 	true on success
+	 * @throws 	HackrfUsbException
+	 */
+	private boolean applyConfigField(HackrfConfig config, int field) throws HackrfUsbException
+	{
+		switch(field)
+		{
+			case HackrfConfig.FIELD_SAMPLE_RATE:	return this.setSampleRate(config.getSampleRate(), config.getSampleRateDivider());
+			case HackrfConfig.FIELD_BASEBAND_FILTER:return this.setBasebandFilterBandwidth(config.getBasebandFilterBandwidth());
+			case HackrfConfig.FIELD_FREQUENCY:		return this.setFrequency(config.getFrequency());
+			case HackrfConfig.FIELD_LNA_GAIN:		return this.setRxLNAGain(config.getRxLNAGain());
+			case HackrfConfig.FIELD_VGA_GAIN:		return this.setRxVGAGain(config.getRxVGAGain());
+			case HackrfConfig.FIELD_TX_VGA_GAIN:	return this.setTxVGAGain(config.getTxVGAGain());
+			case HackrfConfig.FIELD_AMP:			return this.setAmp(config.isAmp());
+			case HackrfConfig.FIELD_ANTENNA_POWER:	return this.setAntennaPower(config.isAntennaPower());
+			default:								return false;
+		}
+	}
+	
+	/**
+	 * Returns the executor that runs the *Async() commands on a single thread. It
+	 * provides the queue depth and the latency of each kind of command.
+	 * 
+	 * @return command executor of this instance
+	 */
+	public HackrfCommandExecutor getCommandExecutor()
+	{
+		return this.commandExecutor;
+	}
+	
+	/**
+	 * Queues a single field of a configuration. A queued command for the same field
+	 * is replaced, so that only the latest value is sent.
+	 * 
+	 * @param config	configuration that contains the value
+	 * @param field		HackrfConfig.FIELD_*
+	 * @return future that completes with the result of the setter
+	 */
+	private CompletableFuture<Boolean> submitConfigField(final HackrfConfig config, final int field)
+	{
+		return this.commandExecutor.submit(field, new HackrfCommandExecutor.Command<Boolean>() {
+			@Override
+			public Boolean execute() throws HackrfUsbException
+			{
+				return applyConfigField(config, field);
+			}
+		});
+	}
+	
+	/**
+	 * Asynchronous version of setSampleRate(). Can be called from the GUI thread.
+	 * Queued calls that weren't sent yet are replaced by this one.
+	 * 
+	 * @param	sampleRate	see setSampleRate()
+	 * @param	divider		see setSampleRate()
+	 * @return	future that completes with the result of setSampleRate()
+	 */
+	public CompletableFuture<Boolean> setSampleRateAsync(int sampleRate, int divider)
+	{
+		HackrfConfig config = new HackrfConfig();
+		config.setSampleRate(sampleRate, divider);
+		return this.submitConfigField(config, HackrfConfig.FIELD_SAMPLE_RATE);
+	}
+	
+	/**
+	 * Asynchronous version of setBasebandFilterBandwidth() (see setSampleRateAsync()).
+	 * 
+	 * @param	bandwidth	see setBasebandFilterBandwidth()
+	 * @return	future that completes with the result of setBasebandFilterBandwidth()
+	 */
+	public CompletableFuture<Boolean> setBasebandFilterBandwidthAsync(int bandwidth)
+	{
+		HackrfConfig config = new HackrfConfig();
+		config.setBasebandFilterBandwidth(bandwidth);
+		return this.submitConfigField(config, HackrfConfig.FIELD_BASEBAND_FILTER);
+	}
+	
+	/**
+	 * Asynchronous version of setFrequency() (see setSampleRateAsync()).
+	 * 
+	 * @param	frequency	see setFrequency()
+	 * @return	future that completes with the result of setFrequency()
+	 */
+	public CompletableFuture<Boolean> setFrequencyAsync(long frequency)
+	{
+		HackrfConfig config = new HackrfConfig();
+		config.setFrequency(frequency);
+		return this.submitConfigField(config, HackrfConfig.FIELD_FREQUENCY);
+	}
+	
+	/**
+	 * Asynchronous version of setRxLNAGain() (see setSampleRateAsync()).
+	 * 
+	 * @param	gain	see setRxLNAGain()
+	 * @return	future that completes with the result of setRxLNAGain()
+	 */
+	public CompletableFuture<Boolean> setRxLNAGainAsync(int gain)
+	{
+		HackrfConfig config = new HackrfConfig();
+		config.setRxLNAGain(gain);
+		return this.submitConfigField(config, HackrfConfig.FIELD_LNA_GAIN);
+	}
+	
+	/**
+	 * Asynchronous version of setRxVGAGain() (see setSampleRateAsync()).
+	 * 
+	 * @param	gain	see setRxVGAGain()
+	 * @return	future that completes with the result of setRxVGAGain()
+	 */
+	public CompletableFuture<Boolean> setRxVGAGainAsync(int gain)
+	{
+		HackrfConfig config = new HackrfConfig();
+		config.setRxVGAGain(gain);
+		return this.submitConfigField(config, HackrfConfig.FIELD_VGA_GAIN);
+	}
+	
+	/**
+	 * Asynchronous version of setTxVGAGain() (see setSampleRateAsync()).
+	 * 
+	 * @param	gain	see setTxVGAGain()
+	 * @return	future that completes with the result of setTxVGAGain()
+	 */
+	public CompletableFuture<Boolean> setTxVGAGainAsync(int gain)
+	{
+		HackrfConfig config = new HackrfConfig();
+		config.setTxVGAGain(gain);
+		return this.submitConfigField(config, HackrfConfig.FIELD_TX_VGA_GAIN);
+	}
+	
+	/**
+	 * Asynchronous version of setAmp() (see setSampleRateAsync()).
+	 * 
+	 * @param	enable	see setAmp()
+	 * @return	future that completes with the result of setAmp()
+	 */
+	public CompletableFuture<Boolean> setAmpAsync(boolean enable)
+	{
+		HackrfConfig config = new HackrfConfig();
+		config.setAmp(enable);
+		return this.submitConfigField(config, HackrfConfig.FIELD_AMP);
+	}
+	
+	/**
+	 * Asynchronous version of setAntennaPower() (see setSampleRateAsync()).
+	 * 
+	 * @param	enable	see setAntennaPower()
+	 * @return	future that completes with the result of setAntennaPower()
+	 */
+	public CompletableFuture<Boolean> setAntennaPowerAsync(boolean enable)
+	{
+		HackrfConfig config = new HackrfConfig();
+		config.setAntennaPower(enable);
+		return this.submitConfigField(config, HackrfConfig.FIELD_ANTENNA_POWER);
+	}
+	
+	/**
+	 * Asynchronous version of applyConfig(). The transaction is never coalesced, but
+	 * setter commands that are queued later are executed after it.
+	 * 
+	 * @param	config	configuration to apply (a copy is taken)
+	 * @return	future that completes with the report of applyConfig()
+	 */
+	public CompletableFuture<HackrfConfig.Report> applyConfigAsync(HackrfConfig config)
+	{
+		final HackrfConfig copy = new HackrfConfig(config);
+		return this.commandExecutor.submit(HackrfCommandExecutor.KEY_NONE, 
+				new HackrfCommandExecutor.Command<HackrfConfig.Report>() {
+			@Override
+			public HackrfConfig.Report execute() throws HackrfUsbException
+			{
+				return applyConfig(copy);
+			}
+		});
+	}
+	
+	/**
+	 * Starts receiving.
+	 * 
+	 * Note: Use isDiscontinuity(byte[]) to find out whether samples were dropped
+	 * before a packet (see setOverflowPolicy()).
+	 * 
+	 * @return 	An ArrayBlockingQueue that will fill with the samples as they arrive. 
+	 * 			Each queue element is a block of samples (byte[]) of size getPacketSize().
+	 * @throws	HackrfUsbException
+	 */
+	public ArrayBlockingQueue<byte[]> startRX() throws HackrfUsbException
+	{
+		return this.startRX(this.streamConfig);
+	}
+	
+	/**
+	 * Starts receiving with the given stream settings (transfer size, number of
+	 * transfers, overflow policy). See HackrfStreamConfig.forSampleRate(). The queue
+	 * holds config.getNumBlocks() packets.
+	 * 
+	 * @param config	settings of the stream (a copy is stored and reused by startRX())
+	 * @return 	An ArrayBlockingQueue that will fill with the samples as they arrive. 
+	 * 			Each queue element is a block of samples (byte[]) of size getPacketSize().
+	 * @throws	HackrfUsbException
+	 */
+	public ArrayBlockingQueue<byte[]> startRX(HackrfStreamConfig config) throws HackrfUsbException
+	{
+		this.awaitSessionEnd();
+		
+		// Flush the queue (or replace it if the stream needs another size)
+		if(this.queue.size() + this.queue.remainingCapacity() != config.getNumBlocks())
+		{
+			this.queue = new ArrayBlockingQueue<byte[]>(config.getNumBlocks());
+			this.bufferPool = new ArrayBlockingQueue<byte[]>(config.getNumBlocks());
+		}
+		else
+			this.queue.clear();
+		synchronized (this.gapPackets) {
+			this.gapPackets.clear();
+		}
+	    
+	    this.startReceiving(config, RX_MODE_QUEUE, HACKRF_TRANSCEIVER_MODE_RECEIVE);
+		
+		return this.queue;
+	}
+	
+	/**
+	 * Starts receiving in zero-copy mode. The samples are received into a pool of 
+	 * preallocated direct (off-heap) buffers which are passed to the application 
+	 * without copying them. The application must call IqBlock.release() for each
+	 * block after it is done with the samples. If the application keeps too many
+	 * blocks, the pool runs empty and the overflow policy applies.
+	 * 
+	 * @return 	An ArrayBlockingQueue that will fill with the samples as they arrive. 
+	 * 			Each queue element is an IqBlock with up to getPacketSize() bytes.
+	 * @throws	HackrfUsbException
+	 */
+	public ArrayBlockingQueue<IqBlock> startRXDirect() throws HackrfUsbException
+	{
+		return this.startRXDirect(this.streamConfig);
+	}
+	
+	/**
+	 * Starts receiving in zero-copy mode (see startRXDirect()) with the given stream
+	 * settings. The queue holds up to config.getNumBlocks() blocks.
+	 * 
+	 * @param config	settings of the stream (a copy is stored and reused by startRX*())
+	 * @return 	An ArrayBlockingQueue that will fill with the samples as they arrive. 
+	 * 			Each queue element is an IqBlock with up to getPacketSize() bytes.
+	 * @throws	HackrfUsbException
+	 */
+	public ArrayBlockingQueue<IqBlock> startRXDirect(HackrfStreamConfig config) throws HackrfUsbException
+	{
+		this.awaitSessionEnd();
+		
+		if(this.blockQueue == null 
+				|| this.blockQueue.size() + this.blockQueue.remainingCapacity() != config.getNumBlocks())
+		{
+			this.flushBlocks();
+			this.blockQueue = new ArrayBlockingQueue<IqBlock>(config.getNumBlocks());
+		}
+		
+		this.startReceiving(config, RX_MODE_DIRECT, HACKRF_TRANSCEIVER_MODE_RECEIVE);
+		
+		return this.blockQueue;
+	}
+	
+	/**
+	 * Starts receiving in zero-copy mode with a lock-free ring buffer (instead of
+	 * an ArrayBlockingQueue) between the USB thread and the application. The ring 
+	 * supports exactly one consumer thread, which can take all ready blocks at once
+	 * with IqBlockRing.drainTo(). 
+	 * 
+	 * @return 	An IqBlockRing that will fill with the samples as they arrive. 
+	 * 			The application must call IqBlock.release() for each block.
+	 * @throws	HackrfUsbException
+	 */
+	public IqBlockRing startRXRing() throws HackrfUsbException
+	{
+		return this.startRXRing(this.streamConfig);
+	}
+	
+	/**
+	 * Starts receiving in zero-copy mode with a lock-free ring buffer (see startRXRing()).
+	 * 
+	 * @param waitStrategy	defines how the consumer waits for new blocks (e.g. WaitStrategy.SPIN,
+	 * 						WaitStrategy.YIELD or WaitStrategy.PARK)
+	 * @return 	An IqBlockRing that will fill with the samples as they arrive. 
+	 * 			The application must call IqBlock.release() for each block.
+	 * @throws	HackrfUsbException
+	 */
+	public IqBlockRing startRXRing(WaitStrategy waitStrategy) throws HackrfUsbException
+	{
+		HackrfStreamConfig config = new HackrfStreamConfig(this.streamConfig);
+		config.setWaitStrategy(waitStrategy);
+		return this.startRXRing(config);
+	}
+	
+	/**
+	 * Starts receiving in zero-copy mode with a lock-free ring buffer (see startRXRing())
+	 * with the given stream settings. The ring holds at least config.getNumBlocks() blocks
+	 * and the consumer waits with config.getWaitStrategy().
+	 * 
+	 * @param config	settings of the stream (a copy is stored and reused by startRX*())
+	 * @return 	An IqBlockRing that will fill with the samples as they arrive. 
+	 * 			The application must call IqBlock.release() for each block.
+	 * @throws	HackrfUsbException
+	 */
+	public IqBlockRing startRXRing(HackrfStreamConfig config) throws HackrfUsbException
+	{
+		return this.startRXRing(config, 0);
+	}
+	
+	/**
+	 * Starts receiving into the ring (see startRXRing()).
+	 * 
+	 * @param config		settings of the stream
+	 * @param heldBlocks	number of blocks the consumer may hold besides the ring (e.g. in a pipeline)
+	 * @return 	The IqBlockRing that will fill with the samples as they arrive.
+	 * @throws	HackrfUsbException
+	 */
+	private IqBlockRing startRXRing(HackrfStreamConfig config, int heldBlocks) throws HackrfUsbException
+	{
+		this.awaitSessionEnd();
+		
+		if(this.blockRing == null || this.blockRing.getWaitStrategy() != config.getWaitStrategy()
+				|| this.blockRing.capacity() < config.getNumBlocks())
+		{
+			this.flushBlocks();
+			this.blockRing = new IqBlockRing(config.getNumBlocks(), config.getWaitStrategy());
+		}
+		
+		this.startReceiving(config, RX_MODE_RING, HACKRF_TRANSCEIVER_MODE_RECEIVE, heldBlocks);
+		
+		return this.blockRing;
+	}
+	
+	/**
+	 * Starts receiving in zero-copy mode (see startRXRing()) and feeds the blocks into
+	 * the given pipeline, whose first stage must accept IqBlocks. If the pipeline can't 
+	 * keep up, the ring fills up and the overflow policy applies (see setOverflowPolicy()).
+	 * The application must call stop() and DspPipeline.stop() to end the session.
+	 * 
+	 * @param pipeline	pipeline with at least one stage (must not be running)
+	 * @return 	The IqBlockRing between the USB thread and the pipeline (for its metrics).
+	 * @throws	HackrfUsbException
+	 */
+	public IqBlockRing startRXPipeline(DspPipeline pipeline) throws HackrfUsbException
+	{
+		return this.startRXPipeline(pipeline, this.streamConfig);
+	}
+	
+	/**
+	 * Starts receiving into a pipeline (see startRXPipeline()) with the given stream
+	 * settings. The ring holds at least config.getNumBlocks() blocks.
+	 * 
+	 * @param pipeline	pipeline with at least one stage (must not be running)
+	 * @param config	settings of the stream (a copy is stored and reused by startRX*())
+	 * @return 	The IqBlockRing between the USB thread and the pipeline (for its metrics).
+	 * @throws	HackrfUsbException
+	 */
+	public IqBlockRing startRXPipeline(DspPipeline pipeline, HackrfStreamConfig config) throws HackrfUsbException
+	{
+		if(pipeline.isRunning() || pipeline.getNumStages() == 0)
+		{
+			Log.e(logTag, "startRXPipeline: Pipeline is already running or has no stages!");
+			throw(new HackrfUsbException("Pipeline is already running or has no stages!"));
+		}
+		IqBlockRing ring = this.startRXRing(config, pipeline.getMaxHeldItems());
+		pipeline.start(ring);
+		return ring;
+	}
+	
+	/**
+	 * Starts receiving in zero-copy mode and shares each block between several consumers.
+	 * Each consumer calls IqBlockBroadcast.subscribe() (before or while receiving) and reads
+	 * the blocks from its own IqBlockBroadcast.Subscriber. A block goes back to the pool 
+	 * after all subscribers released it. A subscriber that doesn't read fast enough loses 
+	 * its oldest blocks without affecting the other subscribers. The broadcast (and its
+	 * subscribers) is kept for the next call as long as the settings don't change.
+	 * 
+	 * @return 	An IqBlockBroadcast that will fill with the samples as they arrive.
+	 * @throws	HackrfUsbException
+	 */
+	public IqBlockBroadcast startRXBroadcast() throws HackrfUsbException
+	{
+		return this.startRXBroadcast(this.streamConfig);
+	}
+	
+	/**
+	 * Starts receiving in zero-copy mode and shares each block between several consumers
+	 * (see startRXBroadcast()) with the given stream settings. Subscribers may lag behind
+	 * by config.getNumBlocks() blocks and wait with config.getWaitStrategy().
+	 * 
+	 * @param config	settings of the stream (a copy is stored and reused by startRX*())
+	 * @return 	An IqBlockBroadcast that will fill with the samples as they arrive.
+	 * @throws	HackrfUsbException
+	 */
+	public IqBlockBroadcast startRXBroadcast(HackrfStreamConfig config) throws HackrfUsbException
+	{
+		this.awaitSessionEnd();
+		
+		if(this.blockBroadcast == null || this.blockBroadcast.getWaitStrategy() != config.getWaitStrategy()
+				|| this.blockBroadcast.capacity() < config.getNumBlocks())
+		{
+			this.flushBlocks();
+			this.blockBroadcast = new IqBlockBroadcast(config.getNumBlocks(), config.getWaitStrategy());
+		}
+		
+		this.startReceiving(config, RX_MODE_BROADCAST, HACKRF_TRANSCEIVER_MODE_RECEIVE);
+		
+		return this.blockBroadcast;
+	}
+	
+	/**
+	 * Starts receiving and passes each block directly to the given handler. The handler
+	 * is called by the USB thread right after a transfer completed and the buffer is
+	 * queued again as soon as the handler returns. This saves the thread hand-off of the
+	 * other modes but the handler must be fast (see HackrfStreamConfig.setHandlerBudget()
+	 * and getHandlerOverrunCounter()). Receiving stops if the handler returns false.
+	 * 
+	 * @param handler	called with each received block (on the USB thread)
+	 * @throws	HackrfUsbException
+	 */
+	public void startRX(IqBlockHandler handler) throws HackrfUsbException
+	{
+		this.startRX(handler, this.streamConfig);
+	}
+	
+	/**
+	 * Starts receiving and passes each block directly to the given handler (see 
+	 * startRX(IqBlockHandler)) with the given stream settings.
+	 * 
+	 * @param handler	called with each received block (on the USB thread)
+	 * @param config	settings of the stream (a copy is stored and reused by startRX*())
+	 * @throws	HackrfUsbException
+	 */
+	public void startRX(IqBlockHandler handler, HackrfStreamConfig config) throws HackrfUsbException
+	{
+		this.awaitSessionEnd();
+		this.setBlockHandler(handler, config);
+		this.startReceiving(config, RX_MODE_HANDLER, HACKRF_TRANSCEIVER_MODE_RECEIVE);
+	}
+	
+	/**
+	 * Starts receiving in offset tuning mode: the samples are converted to float and
+	 * shifted by the tuning offset (see setOffsetTuning()), so that the frequency passed
+	 * to setFrequency() is at DC and the DC spike of the HackRF at -offset. The handler
+	 * is called by the USB thread with the shifted samples of each block (see 
+	 * startRX(IqBlockHandler)); they are tagged with the requested frequency.
+	 * 
+	 * @param handler	called with the shifted samples of each block (on the USB thread)
+	 * @throws	HackrfUsbException
+	 */
+	public void startRXOffsetTuning(IqSampleHandler handler) throws HackrfUsbException
+	{
+		this.startRXOffsetTuning(handler, this.streamConfig);
+	}
+	
+	/**
+	 * Starts receiving in offset tuning mode (see startRXOffsetTuning(IqSampleHandler))
+	 * with the given stream settings.
+	 * 
+	 * @param handler	called with the shifted samples of each block (on the USB thread)
+	 * @param config	settings of the stream (a copy is stored and reused by startRX*())
+	 * @throws	HackrfUsbException
+	 */
+	public void startRXOffsetTuning(IqSampleHandler handler, HackrfStreamConfig config) throws HackrfUsbException
+	{
+		if(this.sampleRate == 0)
+		{
+			Log.e(logTag, "startRXOffsetTuning: Sample rate must be set before offset tuning can be used!");
+			throw(new HackrfUsbException("Sample rate must be set before offset tuning can be used!"));
+		}
+		this.awaitSessionEnd();
+		this.setBlockHandler(new OffsetTuner(handler), config);
+		this.startReceiving(config, RX_MODE_HANDLER, HACKRF_TRANSCEIVER_MODE_RECEIVE);
+	}
+	
+	/**
+	 * Starts receiving in the sweep mode of the firmware (see initSweep()) and passes
+	 * the samples of each sweep block together with its frequency to the given handler.
+	 * The handler is called by the USB thread (see startRX(IqBlockHandler)).
+	 * 
+	 * @param handler	called with each sweep block (on the USB thread)
+	 * @throws	HackrfUsbException
+	 */
+	public void startRXSweep(HackrfSweepHandler handler) throws HackrfUsbException
+	{
+		this.startRXSweep(handler, this.streamConfig);
+	}
+	
+	/**
+	 * Starts receiving in the sweep mode of the firmware (see startRXSweep(HackrfSweepHandler))
+	 * with the given stream settings. The transfer size must be a multiple of 
+	 * HackrfSweepParser.BYTES_PER_BLOCK.
+	 * 
+	 * @param handler	called with each sweep block (on the USB thread)
+	 * @param config	settings of the stream (a copy is stored and reused by startRX*())
+	 * @throws	HackrfUsbException
+	 */
+	public void startRXSweep(HackrfSweepHandler handler, HackrfStreamConfig config) throws HackrfUsbException
+	{
+		if(config.getTransferSize() % HackrfSweepParser.BYTES_PER_BLOCK != 0)
+		{
+			Log.e(logTag, "startRXSweep: Transfer size is not a multiple of the sweep block size: " + config.getTransferSize());
+			throw(new HackrfUsbException("Transfer size is not a multiple of the sweep block size!"));
+		}
+		if(config.getHopSchedule() != null)
+		{
+			Log.e(logTag, "startRXSweep: Hop schedules can't be used in sweep mode!");
+			throw(new HackrfUsbException("Hop schedules can't be used in sweep mode!"));
+		}
+		this.awaitSessionEnd();
+		this.sweepParser = new HackrfSweepParser(handler);
+		this.setBlockHandler(this.sweepParser, config);
+		this.startReceiving(config, RX_MODE_HANDLER, HACKRF_TRANSCEIVER_MODE_RX_SWEEP);
+	}
+	
+	/**
+	 * @return parser of the last sweep session (block and sweep counters) or null
+	 */
+	public HackrfSweepParser getSweepParser()
+	{
+		return this.sweepParser;
+	}
+	
+	/**
+	 * Sets the handler that is called by the USB thread (RX_MODE_HANDLER) and its time budget.
+	 * 
+	 * @param handler	called with each received block
+	 * @param config	settings of the stream (handler budget and transfer size)
+	 */
+	private void setBlockHandler(IqBlockHandler handler, HackrfStreamConfig config)
+	{
+		this.blockHandler = handler;
+		if(config.getHandlerBudget() > 0)
+			this.handlerBudget = config.getHandlerBudget() * 1000L;
+		else if(this.sampleRate > 0)
+			this.handlerBudget = config.getTransferSize() / 2 * 1000000000L / this.sampleRate;
+		else
+			this.handlerBudget = 0;
+		this.handlerOverrunCounter = 0;
+	}
+	
+	/**
+	 * Waits until the worker thread finished the previous session (the session is stopped
+	 * first if it is still running). Afterwards the buffers and queues can be prepared
+	 * for the next session.
+	 * 
+	 * @throws	HackrfUsbException if the previous session doesn't end in time
+	 */
+	private void awaitSessionEnd() throws HackrfUsbException
+	{
+		synchronized (this.workerLock) {
+			if(this.workerSession == HACKRF_TRANSCEIVER_MODE_OFF)
+				return;
+		}
+		if(this.transceiverMode != HACKRF_TRANSCEIVER_MODE_OFF)
+			this.stop();
+		
+		synchronized (this.workerLock) {
+			long deadline = System.currentTimeMillis() + sessionEndTimeout;
+			while(this.workerSession != HACKRF_TRANSCEIVER_MODE_OFF)
+			{
+				long remaining = deadline - System.currentTimeMillis();
+				if(remaining <= 0)
+				{
+					Log.e(logTag, "awaitSessionEnd: Previous session didn't end!");
+					throw(new HackrfUsbException("Previous session didn't end!"));
+				}
+				try {
+					this.workerLock.wait(remaining);
+				} catch (InterruptedException e) {
+					Log.e(logTag, "awaitSessionEnd: Interrupted!");
+					throw(new HackrfUsbException("Interrupted while waiting for the previous session!"));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Hands the session over to the worker thread. The thread is started if it is
+	 * not running (it ends after workerKeepAlive ms without a session).
+	 * 
+	 * @param session	HACKRF_TRANSCEIVER_MODE_RECEIVE, *_RX_SWEEP or *_TRANSMIT
+	 */
+	private void startSession(int session)
+	{
+		synchronized (this.workerLock) {
+			this.workerSession = session;
+			if(this.usbThread == null)
+			{
+				this.usbThread = new Thread(this, "hackrf_android USB worker");
+				this.usbThread.setDaemon(true);
+				this.usbThread.start();
+			}
+			else
+				this.workerLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Returns the cached transfers of the given endpoint. Missing transfers are created.
+	 * The transfers are reused by all sessions (see finishTransfers()).
+	 * 
+	 * @param direction		HackrfTransport.DIR_IN or HackrfTransport.DIR_OUT
+	 * @param count			number of transfers that are needed
+	 * @return array that holds at least count initialized transfers
+	 * @throws	HackrfUsbException
+	 */
+	private HackrfTransfer[] getTransfers(int direction, int count) throws HackrfUsbException
+	{
+		HackrfTransfer[] transfers = direction == HackrfTransport.DIR_IN ? this.inTransfers : this.outTransfers;
+		if(transfers.length < count)
+			transfers = Arrays.copyOf(transfers, count);
+		for(int i = 0; i < count; i++)
+		{
+			if(transfers[i] == null)
+				transfers[i] = transport.createTransfer(direction);
+		}
+		if(direction == HackrfTransport.DIR_IN)
+			this.inTransfers = transfers;
+		else
+			this.outTransfers = transfers;
+		return transfers;
+	}
+	
+	/**
+	 * Waits for the next completed transfer as long as the session is running. The
+	 * transceiver mode is checked every transferPollTimeout ms, so that the worker
+	 * doesn't hang in waitTransfer() after the HackRF stopped streaming.
+	 * 
+	 * @param session	transceiver mode of the running session
+	 * @return completed transfer or null if the mode changed or no transfer
+	 * 			completed within transferStallTimeout ms
+	 */
+	private HackrfTransfer awaitTransfer(int session)
+	{
+		long deadline = System.currentTimeMillis() + transferStallTimeout;
+		while(this.transceiverMode == session)
+		{
+			HackrfTransfer transfer = transport.waitTransfer(transferPollTimeout);
+			if(transfer != null)
+				return transfer;
+			if(System.currentTimeMillis() - deadline > 0)
+				return null;
+		}
+		return null;
+	}
+	
+	/**
+	 * Cancels all queued transfers at the end of a session and reaps them with 
+	 * waitTransfer(), so that they can be queued again by the next session. Closing
+	 * them instead crashes the VM (SIGABRT) when the next session starts. Transfers
+	 * that are not returned in time are dropped from the cache and their blocks are
+	 * retired from the pool: the USB stack may still write into their buffers, so they
+	 * must never be handed out again. A transfer is queued as long as its client data
+	 * holds the IqBlock.
+	 * 
+	 * @param transfers		cached transfers of one endpoint
+	 * @param count			number of transfers that were used by the session
+	 */
+	private void finishTransfers(HackrfTransfer[] transfers, int count)
+	{
+		int numQueued = 0;
+		for(int i = 0; i < count; i++)
+		{
+			if(transfers[i] != null && transfers[i].getClientData() != null)
+			{
+				transfers[i].cancel();
+				numQueued++;
+			}
+		}
+		
+		// Cancelled (and completed) transfers are still returned by waitTransfer():
+		while(numQueued > 0)
+		{
+			HackrfTransfer transfer = transport.waitTransfer(reapTimeout);
+			if(transfer == null)
+				break;
+			if(transfer.getClientData() != null)
+			{
+				((IqBlock) transfer.getClientData()).release();
+				transfer.setClientData(null);
+				numQueued--;
+			}
+		}
+		
+		if(numQueued > 0)
+		{
+			Log.w(logTag, "finishTransfers: " + numQueued + " transfers were not returned. Retiring their buffers.");
+			for(int i = 0; i < count; i++)
+			{
+				if(transfers[i] != null && transfers[i].getClientData() != null)
+				{
+					IqBlock block = (IqBlock) transfers[i].getClientData();
+					block.retire();
+					this.retiredBlocks.add(block);
+					transfers[i].setClientData(null);
+					transfers[i] = null;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Sets the HackRF into receive mode and starts the thread that runs receiveLoop().
+	 * 
+	 * @param config	settings of the stream
+	 * @param rxMode	RX_MODE_QUEUE, RX_MODE_DIRECT, RX_MODE_RING, RX_MODE_HANDLER or RX_MODE_BROADCAST
+	 * @param mode		HACKRF_TRANSCEIVER_MODE_RECEIVE or HACKRF_TRANSCEIVER_MODE_RX_SWEEP
+	 * @throws	HackrfUsbException
+	 */
+	private void startReceiving(HackrfStreamConfig config, int rxMode, int mode) throws HackrfUsbException
+	{
+		this.startReceiving(config, rxMode, mode, 0);
+	}
+	
+	/**
+	 * Sets the HackRF into receive mode (see startReceiving()).
+	 * 
+	 * @param config		settings of the stream
+	 * @param rxMode		RX_MODE_QUEUE, RX_MODE_DIRECT, RX_MODE_RING, RX_MODE_HANDLER or RX_MODE_BROADCAST
+	 * @param mode			HACKRF_TRANSCEIVER_MODE_RECEIVE or HACKRF_TRANSCEIVER_MODE_RX_SWEEP
+	 * @param heldBlocks	number of blocks the consumer of the ring may hold besides the ring
+	 * @throws	HackrfUsbException
+	 */
+	private void startReceiving(HackrfStreamConfig config, int rxMode, int mode, int heldBlocks) throws HackrfUsbException
+	{
+		if(config.getHopSchedule() != null && this.sampleRate == 0)
+		{
+			Log.e(logTag, "startReceiving: The sample rate must be set before hopping!");
+			throw(new HackrfUsbException("Sample rate must be set before hopping!"));
+		}
+		this.applyStreamConfig(config);
+		this.flushBlocks();
+		int maxTransfers = config.isAdaptiveDepth() ? config.getMaxTransfers() : config.getNumTransfers();
+		if(rxMode == RX_MODE_BROADCAST)		// subscribers may lag by the full capacity and hold numBlocks more
+			this.prepareBlockPool(maxTransfers + this.blockBroadcast.capacity() + config.getNumBlocks());
+		else if(rxMode == RX_MODE_RING)		// the ring must fill up (its capacity is rounded up) before the pool runs empty
+			this.prepareBlockPool(maxTransfers + this.blockRing.capacity() + heldBlocks);
+		else if(rxMode == RX_MODE_DIRECT)
+			this.prepareBlockPool(maxTransfers + config.getNumBlocks());
+		else if(rxMode == RX_MODE_QUEUE)	// the replacement block is acquired before the completed one is copied and released
+			this.prepareBlockPool(maxTransfers + 1);
+		else
+			this.prepareBlockPool(maxTransfers);
+		this.rxMode = rxMode;
+		this.rxDiscontinuity = false;
+		this.droppedPacketCounter = 0;
+		this.droppedSampleCounter = 0;
+		this.hopCounter = 0;
+		
+		// Signal the HackRF Device to start receiving:
+		this.setTransceiverMode(mode);
+		
+		// Let the worker thread queue the received samples:
+		this.startSession(mode);
+		
+		// Reset the packet counter and start time for statistics:
+		this.transceiveStartTime = System.currentTimeMillis();
+		this.transceivePacketCounter = 0;
+	}
+	
+	/**
+	 * Starts transmitting.
+	 * 
+	 * @return 	An ArrayBlockingQueue from which the hackrf will read the samples to transmit. 
+	 * 			Each queue element must be a block of samples (byte[]) of size getPacketSize().
+	 * @throws	HackrfUsbException
+	 */
+	public ArrayBlockingQueue<byte[]> startTX() throws HackrfUsbException
+	{
+		return this.startTX(this.streamConfig);
+	}
+	
+	/**
+	 * Starts transmitting with the given stream settings (transfer size and number
+	 * of transfers).
+	 * 
+	 * @param config	settings of the stream (a copy is stored and reused by startTX())
+	 * @return 	An ArrayBlockingQueue from which the hackrf will read the samples to transmit. 
+	 * 			Each queue element must be a block of samples (byte[]) of size getPacketSize().
+	 * @throws	HackrfUsbException
+	 */
+	public ArrayBlockingQueue<byte[]> startTX(HackrfStreamConfig config) throws HackrfUsbException
+	{
+		this.awaitSessionEnd();
+		
+		// Flush the queue
+	    this.queue.clear();
+	    
+	    this.applyStreamConfig(config);
+	    this.prepareBlockPool(config.getNumTransfers());
+	    
+		// Signal the HackRF Device to start transmitting:
+		this.setTransceiverMode(HACKRF_TRANSCEIVER_MODE_TRANSMIT);
+		
+		// Let the worker thread send the samples:
+		this.startSession(HACKRF_TRANSCEIVER_MODE_TRANSMIT);
+		
+		// Reset the packet counter and start time for statistics:
+		this.transceiveStartTime = System.currentTimeMillis();
+		this.transceivePacketCounter = 0;
+		
+		return this.queue;
+	}
+	
+	/**
+	 * Stores a copy of the stream settings that are used by the next session. 
+	 * 
+	 * @param config	settings of the stream
+	 */
+	private void applyStreamConfig(HackrfStreamConfig config)
+	{
+		if(config != this.streamConfig)
+			this.streamConfig = new HackrfStreamConfig(config);
+		this.overflowPolicy = this.streamConfig.getOverflowPolicy();
+		this.overflowTimeout = this.streamConfig.getOverflowTimeout();
+	}
+	
+	/**
+	 * Makes sure that the pool of direct buffers has at least numBlocks blocks of
+	 * size getPacketSize(). The pool is only reallocated if it is too small.
+	 * 
+	 * @param numBlocks		minimum number of blocks in the pool
+	 */
+	private void prepareBlockPool(int numBlocks)
+	{
+		if(this.blockPool == null || this.blockPool.getSize() < numBlocks 
+				|| this.blockPool.getBlockSize() != getPacketSize())
+			this.blockPool = new IqBlockPool(numBlocks, getPacketSize());
+	}
+	
+	/**
+	 * @return pool of the direct buffers (null before the first zero-copy session). The
+	 * 			tests use it to check that no block is leaked.
+	 */
+	IqBlockPool getBlockPool()
+	{
+		return this.blockPool;
+	}
+	
+	/**
+	 * Gives all blocks that the application didn't consume in the last session back
+	 * to the block pool.
+	 */
+	private void flushBlocks()
+	{
+		IqBlock block;
+		if(this.blockQueue != null)
+			while((block = this.blockQueue.poll()) != null)
+				block.release();
+		if(this.blockRing != null)
+			this.blockRing.clear();
+		if(this.blockBroadcast != null)
+			this.blockBroadcast.clear();
+	}
+	
+	/**
+	 * Stops receiving or transmitting.
+	 * 
+	 * @throws	HackrfUsbException
+	 */
+	public void stop() throws HackrfUsbException
+	{
+		// Signal the HackRF Device to start receiving:
+		this.setTransceiverMode(HACKRF_TRANSCEIVER_MODE_OFF);
+	}
+	
+	/**
+	 * Passes a received block to the application according to the rxMode. If the
+	 * application doesn't read fast enough, the overflow policy decides what happens.
+	 * 
+	 * @param block		block that was filled by an IN transfer
+	 * @return false if the block couldn't be delivered and receiving must stop
+	 */
+	private boolean deliverBlock(IqBlock block)
+	{
+		int length = block.getLength();
+		boolean delivered;
+		
+		switch(this.rxMode)
+		{
+			case RX_MODE_DIRECT:	delivered = this.offerToBlockQueue(block);
+									break;
+			case RX_MODE_RING:		delivered = this.offerToBlockRing(block);
+									break;
+			case RX_MODE_BROADCAST:	this.blockBroadcast.publish(block);		// drops are counted per subscriber
+									delivered = true;
+									break;
+			case RX_MODE_QUEUE:
+			default:				delivered = this.offerToQueue(block);
+									break;
+		}
+		
+		if(delivered)
+			return true;
+		if(this.overflowPolicy == OVERFLOW_POLICY_STOP)
+			return false;
+		
+		// The block was dropped. Flag the next block so that the application can resynchronize:
+		this.countDroppedPacket(length);
+		this.rxDiscontinuity = true;
+		return true;
+	}
+	
+	/**
+	 * Calls the IqBlockHandler (RX_MODE_HANDLER) and counts the calls that
+	 * exceed the time budget.
+	 * 
+	 * @param block				block that was just received
+	 * @param completionTime	System.nanoTime() when the transfer completed
+	 * @return false if receiving should be stopped
+	 */
+	private boolean callBlockHandler(IqBlock block, long completionTime)
+	{
+		boolean proceed;
+		try {
+			proceed = this.blockHandler.onIqBlock(block);
+		} catch (RuntimeException e) {
+			Log.e(logTag, "callBlockHandler: Handler threw an exception. Stop receiving! " + e);
+			return false;
+		}
+		if(this.handlerBudget > 0 && System.nanoTime() - completionTime > this.handlerBudget)
+			this.handlerOverrunCounter++;
+		return proceed;
+	}
+	
+	/**
+	 * Copies the block into a byte array and puts it into the queue (RX_MODE_QUEUE).
+	 * The block is always released.
+	 * 
+	 * @param block		received block
+	 * @return false if the block was dropped
+	 */
+	private boolean offerToQueue(IqBlock block)
+	{
+		// Copy the samples into a heap buffer and reuse the direct buffer right away:
+		byte[] packet = this.getBufferFromBufferPool();
+		block.copyTo(packet);
+		this.markGap(packet, block.isDiscontinuity());		// also clears the mark of a reused packet
+		block.release();
+		
+		if(this.queue.offer(packet))
+			return true;
+		
+		switch(this.overflowPolicy)
+		{
+			case OVERFLOW_POLICY_DROP_OLDEST:
+				while(!this.queue.offer(packet))
+				{
+					Iterator<byte[]> iterator = this.queue.iterator();
+					if(!iterator.hasNext())
+						continue;
+					byte[] oldest = iterator.next();
+					
+					// Flag the successor before removing the oldest packet (see offerToBlockQueue()):
+					this.markGap(iterator.hasNext() ? iterator.next() : packet, true);
+					
+					// remove() fails if the application took the oldest packet in the meantime:
+					if(this.queue.remove(oldest))
+					{
+						this.countDroppedPacket(oldest.length);
+						this.returnBufferToBufferPool(oldest);
+					}
+				}
+				return true;
+				
+			case OVERFLOW_POLICY_BLOCK:
+				try {
+					if(this.queue.offer(packet, this.overflowTimeout, TimeUnit.MILLISECONDS))
+						return true;
+				} catch (InterruptedException e) {
+					Log.w(logTag, "offerToQueue: Interrupted while waiting on queue!");
+				}
+				break;
+				
+			default:
+		}
+		
+		this.returnBufferToBufferPool(packet);
+		return false;
+	}
+	
+	/**
+	 * Sets or clears the gap flag of a packet of the queue (see isDiscontinuity(byte[])).
+	 * 
+	 * @param packet	packet of the queue
+	 * @param gap		true if samples were dropped before the packet
+	 */
+	private void markGap(byte[] packet, boolean gap)
+	{
+		synchronized (this.gapPackets) {
+			if(gap)
+				this.gapPackets.add(packet);
+			else
+				this.gapPackets.remove(packet);
+		}
+	}
+	
+	/**
+	 * Puts the block into the block queue (RX_MODE_DIRECT). The block is released 
+	 * if it was dropped.
+	 * 
+	 * @param block		received block
+	 * @return false if the block was dropped
+	 */
+	private boolean offerToBlockQueue(IqBlock block)
+	{
+		if(this.blockQueue.offer(block))
+			return true;
+		
+		switch(this.overflowPolicy)
+		{
+			case OVERFLOW_POLICY_DROP_OLDEST:
+				while(!this.blockQueue.offer(block))
+				{
+					Iterator<IqBlock> iterator = this.blockQueue.iterator();
+					if(!iterator.hasNext())
+						continue;
+					IqBlock oldest = iterator.next();
+					
+					// Flag the successor before removing the oldest block. Otherwise the
+					// application could take the successor before it is flagged:
+					if(iterator.hasNext())
+						iterator.next().markDiscontinuity();
+					else
+						block.markDiscontinuity();
+					
+					// remove() fails if the application took the oldest block in the meantime:
+					if(this.blockQueue.remove(oldest))
+					{
+						this.countDroppedPacket(oldest.getLength());
+						oldest.release();
+					}
+				}
+				return true;
+				
+			case OVERFLOW_POLICY_BLOCK:
+				try {
+					if(this.blockQueue.offer(block, this.overflowTimeout, TimeUnit.MILLISECONDS))
+						return true;
+				} catch (InterruptedException e) {
+					Log.w(logTag, "offerToBlockQueue: Interrupted while waiting on queue!");
+				}
+				break;
+				
+			default:
+		}
+		
+		block.release();
+		return false;
+	}
+	
+	/**
+	 * Puts the block into the block ring (RX_MODE_RING). The block is released 
+	 * if it was dropped.
+	 * 
+	 * @param block		received block
+	 * @return false if the block was dropped
+	 */
+	private boolean offerToBlockRing(IqBlock block)
+	{
+		if(this.blockRing.offer(block))
+			return true;
+		
+		switch(this.overflowPolicy)
+		{
+			case OVERFLOW_POLICY_DROP_OLDEST:
+				IqBlock oldest = this.blockRing.offerEvictingOldest(block);
+				if(oldest != null)
+				{
+					this.countDroppedPacket(oldest.getLength());
+					oldest.release();
+				}
+				return true;
+				
+			case OVERFLOW_POLICY_BLOCK:
+				if(this.blockRing.offer(block, this.overflowTimeout, TimeUnit.MILLISECONDS))
+					return true;
+				break;
+				
+			default:
+		}
+		
+		block.release();
+		return false;
+	}
+	
+	/**
+	 * Updates the statistics of dropped packets and samples.
+	 * 
+	 * @param length	length of the dropped packet in bytes
+	 */
+	private void countDroppedPacket(int length)
+	{
+		this.droppedPacketCounter++;
+		this.droppedSampleCounter += length / 2;
+	}
+	
+	/**
+	 * This method will be executed in a separate Thread after the HackRF starts receiving
+	 * Samples. It will return as soon as the transceiverMode changes or an error occurs.
+	 * 
+	 * @param session	HACKRF_TRANSCEIVER_MODE_RECEIVE or HACKRF_TRANSCEIVER_MODE_RX_SWEEP
+	 */
+	private void receiveLoop(int session)
+	{
+		HackrfStreamConfig config = this.streamConfig;
+		int packetSize = config.getTransferSize();
+		AdaptiveDepthController depthController = null;
+		if(config.isAdaptiveDepth())
+			depthController = new AdaptiveDepthController(config.getMinTransfers(), config.getMaxTransfers(), config.getNumTransfers());
+		int numUsbRequests = depthController != null ? depthController.getDepth() : config.getNumTransfers();
+		int maxUsbRequests = depthController != null ? config.getMaxTransfers() : numUsbRequests;
+		HackrfTransfer[] usbRequests = null;
+		HackrfTransfer[] idleRequests = new HackrfTransfer[maxUsbRequests];	// requests that were taken out of flight
+		int numIdleRequests = 0;
+		int numUsedRequests = 0;
+		IqBlockPool blockPool = this.blockPool;
+		IqBlock block;
+		long sequenceNumber = 0;
+		FrequencyHopper hopper = null;
+		int generation = 0;			// hop generation of the transfers that are queued now
+		if(config.getHopSchedule() != null)
+			hopper = new FrequencyHopper(config.getHopSchedule(), this.sampleRate);
+		
+		try
+		{
+			// Get the usb requests (they are reused across sessions):
+			usbRequests = this.getTransfers(HackrfTransport.DIR_IN, maxUsbRequests);
+			
+			// Tune to the first frequency of the hop schedule:
+			if(hopper != null)
+			{
+				if(!this.setFrequency(hopper.getFrequency()))
+					throw(new HackrfUsbException("Couldn't tune to the first hop frequency!"));
+				generation = hopper.getGeneration();
+			}
+			
+			// Queue the first numUsbRequests usb requests:
+			for(int i = 0; i < numUsbRequests; i++)
+			{
+				// Get a direct buffer for the request from the block pool:
+				block = blockPool.acquire();
+				if(block == null)
+				{
+					Log.e(logTag,"receiveLoop: Buffer pool is empty.");
+					this.stop();
+					break;
+				}
+				
+			    // Attach the block to the USB Request:
+				usbRequests[i].setClientData(block);
+				numUsedRequests++;
+			    
+			    // Queue the request
+			    if(	usbRequests[i].queue(block.prepareReceive(packetSize, this.tunedFrequency, this.sampleRate, this.tunedOffset, generation)) == false)
+			    {
 		            Log.e(logTag,"receiveLoop: Couldn't queue USB Request.");
+		            usbRequests[i].setClientData(null);
+		            block.release();
 		            this.stop();
 		            break;
 			    }
 			}
+			this.currentTransferDepth = numUsbRequests;
 			
 			// Run loop until transceiver mode changes...
-		    while(this.transceiverMode == HACKRF_TRANSCEIVER_MODE_RECEIVE)
+		    while(this.transceiverMode == session)
 		    {
 			    // Wait for a request to return. This will block until one of the requests is ready.
-		    	UsbRequest request = usbConnection.requestWait(); 
+		    	long waitStart = System.nanoTime();
+		    	HackrfTransfer request = this.awaitTransfer(session); 
+		    	long completionTime = System.nanoTime();
 			    
 			    if(request == null)
 			    {
-			    	Log.e(logTag,"receiveLoop: Didn't receive USB Request.");
+			    	if(this.transceiverMode == session)
+			    		Log.e(logTag,"receiveLoop: Didn't receive USB Request.");
 			    	break;
 			    }
 			    
-			 // Make sure we got an UsbRequest for the IN endpoint!
-		    	if(request.getEndpoint() != usbEndpointIN)
+			    // Make sure we got an UsbRequest for the IN endpoint!
+		    	if(request.getDirection() != HackrfTransport.DIR_IN)
 		    		continue;
 			    
-			    // Extract the buffer
-			    buffer = (ByteBuffer) request.getClientData();
+			    // Extract the block and update its meta data
+			    block = (IqBlock) request.getClientData();
+			    request.setClientData(null);
+			    block.completeReceive(sequenceNumber++, completionTime, this.rxDiscontinuity);
+			    this.rxDiscontinuity = false;
+			    long droppedPackets = this.droppedPacketCounter;
 			    
 			    // Increment the packetCounter (for statistics)
 			    this.transceivePacketCounter++;
 			    
+			    IqBlock nextBlock;
+			    if(hopper != null && !hopper.accept(block))
+			    {
+			    	// Drop blocks that were in flight during the last retune and the settling samples:
+			    	nextBlock = block;
+			    }
+			    else if(this.rxMode == RX_MODE_HANDLER)
+			    {
+			    	// Pass the block to the handler and reuse it for the next transfer:
+			    	if(!this.callBlockHandler(block, completionTime))
+			    	{
+			    		block.release();
+			    		break;
+			    	}
+			    	nextBlock = block;
+			    }
+			    // Get a fresh block for the request from the block pool:
+			    else if((nextBlock = blockPool.acquire()) == null)
+			    {
+			    	if(this.overflowPolicy == OVERFLOW_POLICY_STOP)
+			    	{
+			    		Log.e(logTag,"receiveLoop: Buffer pool is empty (blocks were not released). Stop receiving!");
+			    		block.release();
+			    		break;
+			    	}
+			    	
+			    	// Drop the received samples and reuse the block for the next transfer:
+			    	this.countDroppedPacket(block.getLength());
+			    	this.rxDiscontinuity = true;
+			    	nextBlock = block;
+			    }
 			    // Put the received samples into the queue, so that they can be read by the application
-			    if(!this.queue.offer(buffer.array()))
+			    else if(!this.deliverBlock(block))
 			    {
-			    	// We hit the timeout.
+			    	// The queue is full and the overflow policy is OVERFLOW_POLICY_STOP.
 			    	Log.e(logTag,"receiveLoop: Queue is full. Stop receiving!");
+			    	nextBlock.release();
 			    	break;	
 			    }
 			    
-			    // Get a fresh ByteBuffer for the request from the buffer pool:
-				buffer = ByteBuffer.wrap(this.getBufferFromBufferPool());
-				request.setClientData(buffer);
+			    // Let the depth controller decide whether transfers are added or removed:
+			    int depthChange = 0;
+			    if(depthController != null)
+			    	depthChange = depthController.update(completionTime - waitStart, completionTime,
+			    			this.droppedPacketCounter != droppedPackets);
 			    
-			    // Queue the request again...
-			    if(request.queue(buffer, getPacketSize()) == false){
-	                Log.e(logTag,"receiveLoop: Couldn't queue USB Request.");
-	                break;
+			    if(depthChange < 0)
+			    {
+			    	// Take this request out of flight:
+			    	nextBlock.release();
+			    	idleRequests[numIdleRequests++] = request;
+			    	numUsbRequests--;
+			    }
+			    else
+			    {
+				    request.setClientData(nextBlock);
+				    
+				    // Queue the request again...
+				    if(request.queue(nextBlock.prepareReceive(packetSize, this.tunedFrequency, this.sampleRate, this.tunedOffset, generation)) == false){
+		                Log.e(logTag,"receiveLoop: Couldn't queue USB Request.");
+		                request.setClientData(null);
+		                nextBlock.release();
+		                break;
+				    }
+			    }
+			    
+			    // Add requests (reuse the idle ones first):
+			    for( ; depthChange > 0; depthChange--)
+			    {
+			    	IqBlock newBlock = blockPool.acquire();
+			    	if(newBlock == null)
+			    		break;
+			    	HackrfTransfer newRequest;
+			    	if(numIdleRequests > 0)
+			    		newRequest = idleRequests[--numIdleRequests];
+			    	else
+			    		newRequest = usbRequests[numUsedRequests++];
+			    	newRequest.setClientData(newBlock);
+			    	if(newRequest.queue(newBlock.prepareReceive(packetSize, this.tunedFrequency, this.sampleRate, this.tunedOffset, generation)) == false)
+			    	{
+			    		newRequest.setClientData(null);
+			    		newBlock.release();
+			    		idleRequests[numIdleRequests++] = newRequest;
+			    		break;
+			    	}
+			    	numUsbRequests++;
+			    }
+			    if(depthController != null && depthController.getDepth() != numUsbRequests)
+			    	depthController.setActualDepth(numUsbRequests);
+			    this.currentTransferDepth = numUsbRequests;
+			    
+			    // Retune if the dwell time on the current frequency is over:
+			    if(hopper != null && hopper.isDwellComplete())
+			    {
+			    	if(!this.setFrequency(hopper.next()))
+			    	{
+			    		Log.e(logTag,"receiveLoop: Retune failed. Stop receiving!");
+			    		break;
+			    	}
+			    	generation = hopper.getGeneration();
+			    	this.hopCounter++;
 			    }
 		    }
 		} catch (HackrfUsbException e) {
 			Log.e(logTag,"receiveLoop: USB Error!");
 		}
 		
-		// Receiving is done. Cancel and close all usb requests:
-	    for(UsbRequest request: usbRequests)
-	    {
-	    	if(request != null) {
-		    	request.cancel();
-		    	//request.close();    <-- This will cause the VM to crash with a SIGABRT when the next transceive starts?!?
-	    	}
-	    }
+		// Receiving is done. Cancel the usb requests and keep them for the next session:
+		if(usbRequests != null)
+			this.finishTransfers(usbRequests, numUsedRequests);
 		
-		// If the transceiverMode is still on RECEIVE, we stop Receiving:
-		if(this.transceiverMode == HACKRF_TRANSCEIVER_MODE_RECEIVE)
+		// If the transceiverMode is still on RECEIVE (or RX_SWEEP), we stop Receiving:
+		if(this.transceiverMode == session)
 		{
 			try {
 				this.stop();
@@ -1151,36 +2912,52 @@ public class Hackrf implements Runnable{
 	 */
 	private void transmitLoop()
 	{
-		UsbRequest[] usbRequests = new UsbRequest[numUsbRequests];
-		ByteBuffer buffer;
+		int numUsbRequests = this.streamConfig.getNumTransfers();
+		int packetSize = this.streamConfig.getTransferSize();
+		HackrfTransfer[] usbRequests = null;
+		int numUsedRequests = 0;
+		IqBlockPool blockPool = this.blockPool;
+		IqBlock block;
 		byte[] packet;
 		
 		try
 		{
-			// Create, initialize and queue all usb requests:
+			// Get the usb requests (they are reused across sessions):
+			usbRequests = this.getTransfers(HackrfTransport.DIR_OUT, numUsbRequests);
+			
+			// Fill and queue all usb requests:
 			for(int i = 0; i < numUsbRequests; i++)
 			{
 				// Get a packet from the queue:
-			    packet = (byte[]) queue.poll(1000, TimeUnit.MILLISECONDS);
-			    if(packet == null || packet.length != getPacketSize())
+			    packet = queue.poll(1000, TimeUnit.MILLISECONDS);
+			    if(packet == null || packet.length != packetSize)
 			    {
 			    	Log.e(logTag,"transmitLoop: Queue empty or wrong packet format. Abort.");
 			    	this.stop();
 			    	break;
 			    }
 			    
-			    // Wrap the packet in a ByteBuffer object:
-			    buffer = ByteBuffer.wrap(packet);
+			    // Get a direct buffer for the request. It stays with the request until we are done:
+			    block = blockPool.acquire();
+				if(block == null)
+				{
+					Log.e(logTag,"transmitLoop: Buffer pool is empty.");
+					this.stop();
+					break;
+				}
 				
-			    // Initialize the USB Request:
-				usbRequests[i] = new UsbRequest();
-				usbRequests[i].initialize(usbConnection, usbEndpointOUT);
-				usbRequests[i].setClientData(buffer);
+			    // Attach the block to the USB Request:
+				usbRequests[i].setClientData(block);
+				numUsedRequests++;
 			    
-			    // Queue the request
-			    if(	usbRequests[i].queue(buffer, getPacketSize()) == false)
+			    // Copy the packet into the direct buffer and queue the request
+			    ByteBuffer buffer = block.prepareTransmit(packet);
+			    this.returnBufferToBufferPool(packet);
+			    if(	usbRequests[i].queue(buffer) == false)
 			    {
-		            Log.e(logTag,"receiveLoop: Couldn't queue USB Request.");
+		            Log.e(logTag,"transmitLoop: Couldn't queue USB Request.");
+		            usbRequests[i].setClientData(null);
+		            block.release();
 		            this.stop();
 		            break;
 			    }
@@ -1190,40 +2967,42 @@ public class Hackrf implements Runnable{
 		    while(this.transceiverMode == HACKRF_TRANSCEIVER_MODE_TRANSMIT)
 		    {
 			    // Wait for a request to return. This will block until one of the requests is ready.
-		    	UsbRequest request = usbConnection.requestWait();
+		    	HackrfTransfer request = this.awaitTransfer(HACKRF_TRANSCEIVER_MODE_TRANSMIT);
 			    
 			    if(request == null)
 			    {
-			    	Log.e(logTag,"transmitLoop: Didn't receive USB Request.");
+			    	if(this.transceiverMode == HACKRF_TRANSCEIVER_MODE_TRANSMIT)
+			    		Log.e(logTag,"transmitLoop: Didn't receive USB Request.");
 			    	break;
 			    }
 			    
 			    // Make sure we got an UsbRequest for the OUT endpoint!
-		    	if(request.getEndpoint() != usbEndpointOUT)
+		    	if(request.getDirection() != HackrfTransport.DIR_OUT)
 		    		continue;
 
 			    // Increment the packetCounter (for statistics)
 			    this.transceivePacketCounter++;
 			    
-			    // Extract the buffer and return it to the buffer pool:
-			    buffer = (ByteBuffer) request.getClientData();
-			    this.returnBufferToBufferPool(buffer.array());
-			    
 			    // Get the next packet from the queue:
-			    packet = (byte[]) queue.poll(1000, TimeUnit.MILLISECONDS);
-			    if(packet == null || packet.length != getPacketSize())
+			    block = (IqBlock) request.getClientData();
+			    packet = queue.poll(1000, TimeUnit.MILLISECONDS);
+			    if(packet == null || packet.length != packetSize)
 			    {
 			    	Log.e(logTag,"transmitLoop: Queue empty or wrong packet format. Stop transmitting.");
+			    	request.setClientData(null);
+			    	block.release();
 			    	break;
 			    }
 			    
-			    // Wrap the packet in a ByteBuffer object:
-			    buffer = ByteBuffer.wrap(packet);
-			    request.setClientData(buffer);
+			    // Copy the packet into the direct buffer of the request and return it to the buffer pool:
+			    ByteBuffer buffer = block.prepareTransmit(packet);
+			    this.returnBufferToBufferPool(packet);
 			    
 			    // Queue the request again...
-			    if(request.queue(buffer, getPacketSize()) == false){
+			    if(request.queue(buffer) == false){
 	                Log.e(logTag,"transmitLoop: Couldn't queue USB Request.");
+	                request.setClientData(null);
+	                block.release();
 	                break;
 			    }
 		    }
@@ -1233,14 +3012,9 @@ public class Hackrf implements Runnable{
 			Log.e(logTag,"transmitLoop: Interrup while waiting on queue!");
 		}
 		
-		// Transmitting is done. Cancel and close all usb requests:
-	    for(UsbRequest request: usbRequests)
-	    {
-	    	if(request != null) {
-		    	request.cancel();
-		    	//request.close();   <-- This will cause the VM to crash with a SIGABRT when the next transceive starts?!?
-	    	}
-	    }
+		// Transmitting is done. Cancel the usb requests and keep them for the next session:
+		if(usbRequests != null)
+			this.finishTransfers(usbRequests, numUsedRequests);
 		
 		// If the transceiverMode is still on TRANSMIT, we stop Transmitting:
 		if(this.transceiverMode == HACKRF_TRANSCEIVER_MODE_TRANSMIT)
@@ -1254,18 +3028,51 @@ public class Hackrf implements Runnable{
 	}
 
 	/**
-	 * This method will run when a new Thread was created. It simply calls
-	 * receiveLoop() or transmitLoop() according to the transceiveMode.
+	 * This method is run by the persistent worker thread. It waits for the next
+	 * session and calls receiveLoop() or transmitLoop() according to it. The
+	 * thread ends if no session is started within workerKeepAlive ms.
 	 */
 	@Override
 	public void run() {
-		switch(this.transceiverMode)
+		while(true)
 		{
-			case HACKRF_TRANSCEIVER_MODE_RECEIVE: 	receiveLoop();
-													break;
-			case HACKRF_TRANSCEIVER_MODE_TRANSMIT:  transmitLoop();
-													break;
-			default:
+			// Wait for the next session:
+			int session;
+			synchronized (this.workerLock) {
+				long deadline = System.currentTimeMillis() + workerKeepAlive;
+				while(this.workerSession == HACKRF_TRANSCEIVER_MODE_OFF)
+				{
+					long remaining = deadline - System.currentTimeMillis();
+					if(remaining <= 0)
+					{
+						this.usbThread = null;
+						return;
+					}
+					try {
+						this.workerLock.wait(remaining);
+					} catch (InterruptedException e) {
+						this.usbThread = null;
+						return;
+					}
+				}
+				session = this.workerSession;
+			}
+			
+			switch(session)
+			{
+				case HACKRF_TRANSCEIVER_MODE_RECEIVE:
+				case HACKRF_TRANSCEIVER_MODE_RX_SWEEP:	receiveLoop(session);
+														break;
+				case HACKRF_TRANSCEIVER_MODE_TRANSMIT:  transmitLoop();
+														break;
+				default:
+			}
+			
+			// The session is done:
+			synchronized (this.workerLock) {
+				this.workerSession = HACKRF_TRANSCEIVER_MODE_OFF;
+				this.workerLock.notifyAll();
+			}
 		}
 	}
 	
@@ -0,0 +1,284 @@
+package com.mantz_it.hackrf_android;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      HackrfCommandExecutor.java
+ * Description: Runs control commands (setters, applyConfig(), ...) of a
+ * 				Hackrf asynchronously on a single thread, so that they never
+ * 				overlap and never block the caller (e.g. the GUI thread).
+ * 				Commands of the same kind that are still queued are coalesced:
+ * 				only the latest value is sent (e.g. while a gain slider is
+ * 				dragged) and all callers get the result of that transfer.
+ * 				The executor counts the queued, executed and coalesced
+ * 				commands and measures the latency of each kind of command.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class HackrfCommandExecutor {
+
+	/**
+	 * A control command. It runs on the executor thread.
+	 *
+	 * @param <T>	type of the result
+	 */
+	public interface Command<T> {
+		public T execute() throws HackrfUsbException;
+	}
+
+	public static final int KEY_NONE = 0;		// commands with this key are never coalesced
+
+	private static final String logTag = "hackrf_android";
+	private static final int NUM_KINDS = HackrfConfig.NUM_FIELDS + 1;	// one kind per config field + others
+	private static final long keepAlive = 60000;	// time (ms) the idle thread waits for new commands
+
+	private final ThreadPoolExecutor executor;
+	private final ArrayDeque<Entry> queue = new ArrayDeque<Entry>();			// queued commands (guarded by this)
+	private final HashMap<Integer, Entry> coalescable = new HashMap<Integer, Entry>();	// last queued entry of each key
+
+	// Statistics (guarded by this):
+	private long submittedCounter = 0;
+	private long executedCounter = 0;
+	private long coalescedCounter = 0;
+	private long failedCounter = 0;
+	private final long[] lastLatency = new long[NUM_KINDS];		// in ns, indexed by kind
+	private final long[] maxLatency = new long[NUM_KINDS];
+	private final long[] totalLatency = new long[NUM_KINDS];
+	private final long[] kindCounter = new long[NUM_KINDS];
+
+	private static class Entry {
+		final int key;
+		final int kind;
+		Command<?> command;
+		final CompletableFuture<Object> future = new CompletableFuture<Object>();
+		final long submitTime = System.nanoTime();		// submission of the first (coalesced) command
+
+		Entry(int key, Command<?> command)
+		{
+			this.key = key;
+			this.kind = kindOf(key);
+			this.command = command;
+		}
+	}
+
+	/**
+	 * Creates a new executor. The thread is started with the first command and ends
+	 * after it was idle for a minute.
+	 */
+	public HackrfCommandExecutor()
+	{
+		this.executor = new ThreadPoolExecutor(0, 1, keepAlive, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable)
+					{
+						Thread thread = new Thread(runnable, "hackrf_android control");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * Queues a command. If a command with the same key is still queued, it is replaced
+	 * by this one (at its position in the queue) and the future of the queued command
+	 * is returned. It completes with the result of this command. Commands with KEY_NONE
+	 * are barriers: commands that are queued after them are never coalesced with commands
+	 * in front of them.
+	 *
+	 * @param key		kind of the command: HackrfConfig.FIELD_* for the setters of a config
+	 * 					field or KEY_NONE (never coalesced)
+	 * @param command	command to execute
+	 * @return future that completes with the result of the command (or exceptionally
+	 * 			with the HackrfUsbException it threw, or if the executor was shut down)
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> CompletableFuture<T> submit(int key, Command<T> command)
+	{
+		if(executor.isShutdown())
+		{
+			// Don't queue the command: it would never run (and later commands would coalesce with it)
+			Log.e(logTag, "HackrfCommandExecutor: Command rejected (executor is shut down)!");
+			CompletableFuture<T> future = new CompletableFuture<T>();
+			future.completeExceptionally(new HackrfUsbException("Command executor is shut down!"));
+			return future;
+		}
+		submittedCounter++;
+		Entry entry = coalescable.get(key);
+		if(entry != null)
+		{
+			entry.command = command;
+			coalescedCounter++;
+			return (CompletableFuture<T>) (CompletableFuture<?>) entry.future;
+		}
+
+		entry = new Entry(key, command);
+		queue.add(entry);
+		if(key == KEY_NONE)
+			coalescable.clear();
+		else
+			coalescable.put(key, entry);
+		executor.execute(new Runnable() {
+			@Override
+			public void run()
+			{
+				runNext();
+			}
+		});
+		return (CompletableFuture<T>) (CompletableFuture<?>) entry.future;
+	}
+
+	/**
+	 * Executes the oldest queued command (on the executor thread). Each queued entry
+	 * schedules exactly one call.
+	 */
+	private void runNext()
+	{
+		Entry entry;
+		synchronized (this) {
+			entry = queue.poll();
+			if(entry == null)
+				return;
+			if(coalescable.get(entry.key) == entry)
+				coalescable.remove(entry.key);
+		}
+
+		Object result = null;
+		Exception error = null;
+		try {
+			result = entry.command.execute();
+		} catch (Exception e) {
+			Log.e(logTag, "HackrfCommandExecutor: Command failed: " + e.getMessage());
+			error = e;
+		}
+
+		long latency = System.nanoTime() - entry.submitTime;
+		synchronized (this) {
+			executedCounter++;
+			if(error != null || Boolean.FALSE.equals(result))
+				failedCounter++;
+			lastLatency[entry.kind] = latency;
+			if(latency > maxLatency[entry.kind])
+				maxLatency[entry.kind] = latency;
+			totalLatency[entry.kind] += latency;
+			kindCounter[entry.kind]++;
+		}
+
+		if(error != null)
+			entry.future.completeExceptionally(error);
+		else
+			entry.future.complete(result);
+	}
+
+	/**
+	 * @return number of commands that are queued and not yet running
+	 */
+	public synchronized int getQueueDepth()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * @return number of submitted commands (including the coalesced ones)
+	 */
+	public synchronized long getSubmittedCounter()
+	{
+		return submittedCounter;
+	}
+
+	/**
+	 * @return number of commands that were executed
+	 */
+	public synchronized long getExecutedCounter()
+	{
+		return executedCounter;
+	}
+
+	/**
+	 * @return number of commands that were replaced by a newer command of the same kind
+	 */
+	public synchronized long getCoalescedCounter()
+	{
+		return coalescedCounter;
+	}
+
+	/**
+	 * @return number of commands that threw an exception or returned false
+	 */
+	public synchronized long getFailedCounter()
+	{
+		return failedCounter;
+	}
+
+	/**
+	 * Latency of the last command of a kind: time from submitting the (first coalesced)
+	 * command until it was executed.
+	 *
+	 * @param key	HackrfConfig.FIELD_* or KEY_NONE
+	 * @return latency in ns (0 if no such command was executed)
+	 */
+	public synchronized long getLastLatency(int key)
+	{
+		return lastLatency[kindOf(key)];
+	}
+
+	/**
+	 * @param key	HackrfConfig.FIELD_* or KEY_NONE
+	 * @return highest latency of a kind of command in ns (see getLastLatency())
+	 */
+	public synchronized long getMaxLatency(int key)
+	{
+		return maxLatency[kindOf(key)];
+	}
+
+	/**
+	 * @param key	HackrfConfig.FIELD_* or KEY_NONE
+	 * @return average latency of a kind of command in ns (see getLastLatency())
+	 */
+	public synchronized long getAverageLatency(int key)
+	{
+		int kind = kindOf(key);
+		return kindCounter[kind] == 0 ? 0 : totalLatency[kind] / kindCounter[kind];
+	}
+
+	/**
+	 * Stops the executor thread. Queued commands are still executed, new commands
+	 * are rejected.
+	 */
+	public synchronized void shutdown()
+	{
+		executor.shutdown();		// synchronized: submit() can't pass its check and then be rejected
+	}
+
+	private static int kindOf(int key)
+	{
+		return key == KEY_NONE ? NUM_KINDS - 1 : Integer.numberOfTrailingZeros(key);
+	}
+}
@@ -0,0 +1,360 @@
+package com.mantz_it.hackrf_android;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      HackrfConfig.java
+ * Description: A (partial) radio configuration of the HackRF: sample rate,
+ * 				frequency, baseband filter, gains, amplifier and antenna
+ * 				power. Only the fields that were set are part of the
+ * 				configuration. Hackrf.applyConfig() applies all of them in
+ * 				one transaction (the USB interface is claimed only once),
+ * 				skips the fields that already have the requested value and
+ * 				returns a Report with the time each step took.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class HackrfConfig {
+
+	// Fields of the configuration (in the order they are applied):
+	public static final int FIELD_SAMPLE_RATE 			= 0x01;
+	public static final int FIELD_BASEBAND_FILTER 		= 0x02;
+	public static final int FIELD_FREQUENCY 			= 0x04;
+	public static final int FIELD_LNA_GAIN 				= 0x08;
+	public static final int FIELD_VGA_GAIN 				= 0x10;
+	public static final int FIELD_TX_VGA_GAIN 			= 0x20;
+	public static final int FIELD_AMP 					= 0x40;
+	public static final int FIELD_ANTENNA_POWER 		= 0x80;
+	static final int NUM_FIELDS 						= 8;
+
+	private static final String[] fieldNames = {"sampleRate", "basebandFilter", "frequency",
+			"lnaGain", "vgaGain", "txVgaGain", "amp", "antennaPower"};
+
+	private int fields = 0;					// FIELD_* flags of the fields that are set
+	private int sampleRate = 0;				// in Hz
+	private int sampleRateDivider = 1;
+	private int basebandFilterBandwidth = 0;	// in Hz
+	private long frequency = 0;				// in Hz
+	private int lnaGain = 0;
+	private int vgaGain = 0;
+	private int txVgaGain = 0;
+	private boolean amp = false;
+	private boolean antennaPower = false;
+
+	/**
+	 * Creates an empty configuration (no field is set).
+	 */
+	public HackrfConfig()
+	{
+	}
+
+	/**
+	 * Creates a copy of another configuration.
+	 *
+	 * @param other		configuration to copy
+	 */
+	public HackrfConfig(HackrfConfig other)
+	{
+		this.fields = other.fields;
+		this.sampleRate = other.sampleRate;
+		this.sampleRateDivider = other.sampleRateDivider;
+		this.basebandFilterBandwidth = other.basebandFilterBandwidth;
+		this.frequency = other.frequency;
+		this.lnaGain = other.lnaGain;
+		this.vgaGain = other.vgaGain;
+		this.txVgaGain = other.txVgaGain;
+		this.amp = other.amp;
+		this.antennaPower = other.antennaPower;
+	}
+
+	/**
+	 * @param field		FIELD_*
+	 * @return true if the field is part of this configuration
+	 */
+	public boolean isSet(int field)
+	{
+		return (fields & field) != 0;
+	}
+
+	/**
+	 * Removes fields from this configuration.
+	 *
+	 * @param field		FIELD_* (can be or'ed)
+	 */
+	public void clear(int field)
+	{
+		this.fields &= ~field;
+	}
+
+	/**
+	 * @param field		FIELD_*
+	 * @return name of the field (e.g. for logging)
+	 */
+	public static String getFieldName(int field)
+	{
+		return fieldNames[Integer.numberOfTrailingZeros(field)];
+	}
+
+	public void setSampleRate(int sampleRate, int divider)
+	{
+		this.sampleRate = sampleRate;
+		this.sampleRateDivider = divider;
+		this.fields |= FIELD_SAMPLE_RATE;
+	}
+
+	public void setBasebandFilterBandwidth(int bandwidth)
+	{
+		this.basebandFilterBandwidth = bandwidth;
+		this.fields |= FIELD_BASEBAND_FILTER;
+	}
+
+	public void setFrequency(long frequency)
+	{
+		this.frequency = frequency;
+		this.fields |= FIELD_FREQUENCY;
+	}
+
+	public void setRxLNAGain(int gain)
+	{
+		this.lnaGain = gain;
+		this.fields |= FIELD_LNA_GAIN;
+	}
+
+	public void setRxVGAGain(int gain)
+	{
+		this.vgaGain = gain;
+		this.fields |= FIELD_VGA_GAIN;
+	}
+
+	public void setTxVGAGain(int gain)
+	{
+		this.txVgaGain = gain;
+		this.fields |= FIELD_TX_VGA_GAIN;
+	}
+
+	public void setAmp(boolean enable)
+	{
+		this.amp = enable;
+		this.fields |= FIELD_AMP;
+	}
+
+	public void setAntennaPower(boolean enable)
+	{
+		this.antennaPower = enable;
+		this.fields |= FIELD_ANTENNA_POWER;
+	}
+
+	public int getSampleRate()
+	{
+		return sampleRate;
+	}
+
+	public int getSampleRateDivider()
+	{
+		return sampleRateDivider;
+	}
+
+	public int getBasebandFilterBandwidth()
+	{
+		return basebandFilterBandwidth;
+	}
+
+	public long getFrequency()
+	{
+		return frequency;
+	}
+
+	public int getRxLNAGain()
+	{
+		return lnaGain;
+	}
+
+	public int getRxVGAGain()
+	{
+		return vgaGain;
+	}
+
+	public int getTxVGAGain()
+	{
+		return txVgaGain;
+	}
+
+	public boolean isAmp()
+	{
+		return amp;
+	}
+
+	public boolean isAntennaPower()
+	{
+		return antennaPower;
+	}
+
+	/**
+	 * Checks if a field has the same value in both configurations.
+	 *
+	 * @param other		other configuration
+	 * @param field		FIELD_*
+	 * @return true if the field is set in both configurations and has the same value
+	 */
+	boolean isEqual(HackrfConfig other, int field)
+	{
+		if(!this.isSet(field) || !other.isSet(field))
+			return false;
+		switch(field)
+		{
+			case FIELD_SAMPLE_RATE:		return sampleRate == other.sampleRate && sampleRateDivider == other.sampleRateDivider;
+			case FIELD_BASEBAND_FILTER:	return basebandFilterBandwidth == other.basebandFilterBandwidth;
+			case FIELD_FREQUENCY:		return frequency == other.frequency;
+			case FIELD_LNA_GAIN:		return lnaGain == other.lnaGain;
+			case FIELD_VGA_GAIN:		return vgaGain == other.vgaGain;
+			case FIELD_TX_VGA_GAIN:		return txVgaGain == other.txVgaGain;
+			case FIELD_AMP:				return amp == other.amp;
+			case FIELD_ANTENNA_POWER:	return antennaPower == other.antennaPower;
+			default:					return false;
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder("HackrfConfig:");
+		for(int i = 0; i < NUM_FIELDS; i++)
+		{
+			int field = 1 << i;
+			if(!isSet(field))
+				continue;
+			sb.append(' ').append(fieldNames[i]).append('=');
+			switch(field)
+			{
+				case FIELD_SAMPLE_RATE:		sb.append(sampleRate).append('/').append(sampleRateDivider);	break;
+				case FIELD_BASEBAND_FILTER:	sb.append(basebandFilterBandwidth);	break;
+				case FIELD_FREQUENCY:		sb.append(frequency);	break;
+				case FIELD_LNA_GAIN:		sb.append(lnaGain);		break;
+				case FIELD_VGA_GAIN:		sb.append(vgaGain);		break;
+				case FIELD_TX_VGA_GAIN:		sb.append(txVgaGain);	break;
+				case FIELD_AMP:				sb.append(amp);			break;
+				case FIELD_ANTENNA_POWER:	sb.append(antennaPower);	break;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Result of Hackrf.applyConfig(): which fields were applied or skipped and how
+	 * long each step took.
+	 */
+	public static class Report {
+		private final long[] stepTime = new long[NUM_FIELDS];		// in ns, indexed by field bit
+		private int appliedFields = 0;
+		private int skippedFields = 0;
+		private int failedField = 0;
+		private long totalTime = 0;
+
+		void setApplied(int field, long time)
+		{
+			appliedFields |= field;
+			stepTime[Integer.numberOfTrailingZeros(field)] = time;
+		}
+
+		void setSkipped(int field)
+		{
+			skippedFields |= field;
+		}
+
+		void setFailed(int field, long time)
+		{
+			failedField = field;
+			stepTime[Integer.numberOfTrailingZeros(field)] = time;
+		}
+
+		void setTotalTime(long totalTime)
+		{
+			this.totalTime = totalTime;
+		}
+
+		/**
+		 * @return true if all fields were applied (or skipped)
+		 */
+		public boolean isSuccessful()
+		{
+			return failedField == 0;
+		}
+
+		/**
+		 * @return FIELD_* that failed (the transaction stops there) or 0
+		 */
+		public int getFailedField()
+		{
+			return failedField;
+		}
+
+		/**
+		 * @param field		FIELD_*
+		 * @return true if the field was sent to the HackRF
+		 */
+		public boolean isApplied(int field)
+		{
+			return (appliedFields & field) != 0;
+		}
+
+		/**
+		 * @param field		FIELD_*
+		 * @return true if the field was skipped because the HackRF already had the value
+		 */
+		public boolean isSkipped(int field)
+		{
+			return (skippedFields & field) != 0;
+		}
+
+		/**
+		 * @param field		FIELD_*
+		 * @return time in ns it took to apply the field (0 if it was not applied)
+		 */
+		public long getStepTime(int field)
+		{
+			return stepTime[Integer.numberOfTrailingZeros(field)];
+		}
+
+		/**
+		 * @return time in ns of the whole transaction (including claiming the interface)
+		 */
+		public long getTotalTime()
+		{
+			return totalTime;
+		}
+
+		@Override
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder("HackrfConfig.Report: total=");
+			sb.append(totalTime / 1000).append("us");
+			for(int i = 0; i < NUM_FIELDS; i++)
+			{
+				int field = 1 << i;
+				if(isApplied(field) || field == failedField)
+					sb.append(' ').append(fieldNames[i]).append('=').append(stepTime[i] / 1000).append("us")
+							.append(field == failedField ? "(failed)" : "");
+				else if(isSkipped(field))
+					sb.append(' ').append(fieldNames[i]).append("=skipped");
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.mantz_it.hackrf_android;
+
+import java.util.Arrays;
+
+import android.util.Log;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      HackrfHopSchedule.java
+ * Description: List of center frequencies and dwell times for frequency
+ * 				hopping while receiving. If a schedule is set in the
+ * 				HackrfStreamConfig, the receive loop retunes the HackRF
+ * 				after each dwell time, tags each block with its frequency
+ * 				(IqBlock.getFrequency()) and drops the blocks that were in
+ * 				flight during the retune plus the settling samples of the
+ * 				PLL. The frequencies are visited round robin.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class HackrfHopSchedule {
+
+	private static final String logTag = "hackrf_android";
+
+	private final long[] frequencies;		// center frequencies in Hz
+	private final int[] dwellTimes;			// time to receive valid samples on each frequency (in us)
+	private int settleSamples = 0;			// samples to drop after each retune
+
+	/**
+	 * Creates a schedule with the same dwell time on each frequency.
+	 *
+	 * @param frequencies	center frequencies in Hz (visited in this order)
+	 * @param dwellTime		time in us to receive (valid) samples on each frequency
+	 */
+	public HackrfHopSchedule(long[] frequencies, int dwellTime)
+	{
+		this.frequencies = frequencies.clone();
+		this.dwellTimes = new int[frequencies.length];
+		Arrays.fill(this.dwellTimes, dwellTime);
+	}
+
+	/**
+	 * Creates a schedule with individual dwell times.
+	 *
+	 * @param frequencies	center frequencies in Hz (visited in this order)
+	 * @param dwellTimes	time in us to receive (valid) samples on the frequency with the same index
+	 */
+	public HackrfHopSchedule(long[] frequencies, int[] dwellTimes)
+	{
+		this.frequencies = frequencies.clone();
+		this.dwellTimes = dwellTimes.clone();
+	}
+
+	/**
+	 * @return true if the schedule can be used (at least one frequency, dwell times > 0)
+	 */
+	public boolean isValid()
+	{
+		if(frequencies.length == 0 || frequencies.length != dwellTimes.length)
+		{
+			Log.e(logTag, "HackrfHopSchedule: Need one dwell time for each frequency!");
+			return false;
+		}
+		for(int dwellTime: dwellTimes)
+		{
+			if(dwellTime <= 0)
+			{
+				Log.e(logTag, "HackrfHopSchedule: Dwell times must be positive!");
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of frequencies
+	 */
+	public int size()
+	{
+		return frequencies.length;
+	}
+
+	public long getFrequency(int index)
+	{
+		return frequencies[index];
+	}
+
+	/**
+	 * @param index		index of the frequency
+	 * @return dwell time in us
+	 */
+	public int getDwellTime(int index)
+	{
+		return dwellTimes[index];
+	}
+
+	/**
+	 * @return number of samples that are dropped after each retune
+	 */
+	public int getSettleSamples()
+	{
+		return settleSamples;
+	}
+
+	/**
+	 * Sets the number of samples that are dropped after each retune (in addition to the
+	 * transfers that were in flight during the retune) while the PLL settles. Blocks are
+	 * dropped as a whole, so the number is rounded up to full transfers.
+	 *
+	 * @param settleSamples		number of complex samples
+	 * @return false if the value is invalid
+	 */
+	public boolean setSettleSamples(int settleSamples)
+	{
+		if(settleSamples < 0)
+		{
+			Log.e(logTag, "setSettleSamples: Number of samples must not be negative!");
+			return false;
+		}
+		this.settleSamples = settleSamples;
+		return true;
+	}
+}
@@ -0,0 +1,393 @@
+package com.mantz_it.hackrf_android;
+
+import android.util.Log;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      HackrfStreamConfig.java
+ * Description: Holds the settings of a receive / transmit stream: size and
+ * 				number of the USB transfers, number of blocks the application
+ * 				can hold in the zero-copy modes, the overflow policy and the
+ * 				wait strategy of the ring mode. The config is passed to
+ * 				Hackrf.startRX(), startTX(), ... and the buffers and queues
+ * 				are sized accordingly. forSampleRate() creates a config for
+ * 				a given sample rate and one of the profiles low latency,
+ * 				balanced or max throughput.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class HackrfStreamConfig {
+
+	// Profiles for forSampleRate():
+	public static final int PROFILE_LOW_LATENCY 	= 0;	// small transfers (~2ms of samples each)
+	public static final int PROFILE_BALANCED 		= 1;	// medium transfers (~10ms of samples each)
+	public static final int PROFILE_MAX_THROUGHPUT 	= 2;	// large transfers and deep queues
+
+	// Limits:
+	public static final int MIN_TRANSFER_SIZE 		= 512;			// max. packet size of the bulk endpoints
+	public static final int MAX_TRANSFER_SIZE 		= 1024*1024;
+	public static final int MAX_NUM_TRANSFERS 		= 64;
+
+	private static final String logTag 				= "hackrf_android";
+	private static final int maxBlockMemory 		= 64*1024*1024;	// upper limit for numBlocks*transferSize of the profiles
+
+	// Duration (in ms) of one transfer, of all transfers in flight and of all blocks
+	// the application may hold. Indexed by profile:
+	private static final double[] profileTransferTime 	= {2, 10, 50};
+	private static final double[] profileInFlightTime 	= {16, 80, 250};
+	private static final double[] profileQueueTime 		= {100, 500, 1000};
+
+	private int transferSize = 1024*256;		// size of each USB transfer in bytes
+	private int numTransfers = 4;				// number of USB transfers in flight
+	private int numBlocks = 32;					// number of blocks / packets the application can hold
+	private int overflowPolicy = Hackrf.OVERFLOW_POLICY_STOP;
+	private long overflowTimeout = 0;			// in ms (only for OVERFLOW_POLICY_BLOCK)
+	private WaitStrategy waitStrategy = WaitStrategy.PARK;
+	private boolean adaptiveDepth = false;		// let receiveLoop() adjust the number of transfers in flight
+	private int minTransfers = 4;				// lower limit of the adaptive depth
+	private int maxTransfers = 4;				// upper limit of the adaptive depth
+	private int handlerBudget = 0;				// in us (IqBlockHandler mode); 0 = duration of one transfer
+	private HackrfHopSchedule hopSchedule = null;	// frequency hopping while receiving (null = no hopping)
+
+	/**
+	 * Creates a config with the default settings (4 transfers of 256KB, 32 blocks,
+	 * OVERFLOW_POLICY_STOP, WaitStrategy.PARK).
+	 */
+	public HackrfStreamConfig()
+	{
+	}
+
+	/**
+	 * Creates a copy of another config.
+	 *
+	 * @param other		config to copy
+	 */
+	public HackrfStreamConfig(HackrfStreamConfig other)
+	{
+		this.transferSize = other.transferSize;
+		this.numTransfers = other.numTransfers;
+		this.numBlocks = other.numBlocks;
+		this.overflowPolicy = other.overflowPolicy;
+		this.overflowTimeout = other.overflowTimeout;
+		this.waitStrategy = other.waitStrategy;
+		this.adaptiveDepth = other.adaptiveDepth;
+		this.minTransfers = other.minTransfers;
+		this.maxTransfers = other.maxTransfers;
+		this.handlerBudget = other.handlerBudget;
+		this.hopSchedule = other.hopSchedule;
+	}
+
+	/**
+	 * Creates a config that fits the given sample rate. The transfer size is a power of
+	 * two that holds roughly the transfer time of the profile; the number of transfers and
+	 * blocks is chosen so that they cover the in-flight and queue time of the profile.
+	 * The adaptive depth is enabled with half / four times the number of transfers as limits.
+	 *
+	 * @param sampleRate	sample rate in Hz (see Hackrf.setSampleRate())
+	 * @param profile		PROFILE_LOW_LATENCY, PROFILE_BALANCED or PROFILE_MAX_THROUGHPUT
+	 * @return new config
+	 */
+	public static HackrfStreamConfig forSampleRate(int sampleRate, int profile)
+	{
+		HackrfStreamConfig config = new HackrfStreamConfig();
+		if(profile < PROFILE_LOW_LATENCY || profile > PROFILE_MAX_THROUGHPUT)
+		{
+			Log.e(logTag, "forSampleRate: Invalid profile: " + profile + ". Use PROFILE_BALANCED.");
+			profile = PROFILE_BALANCED;
+		}
+		if(sampleRate <= 0)
+		{
+			Log.e(logTag, "forSampleRate: Invalid sample rate: " + sampleRate);
+			return config;
+		}
+
+		double bytesPerMs = 2.0 * sampleRate / 1000;
+
+		// Largest power of two that doesn't exceed the transfer time (but at least 16KB):
+		int transferSize = Integer.highestOneBit((int) Math.min(MAX_TRANSFER_SIZE, bytesPerMs * profileTransferTime[profile]));
+		transferSize = Math.max(16*1024, Math.min(MAX_TRANSFER_SIZE, transferSize));
+		double transferTime = transferSize / bytesPerMs;
+
+		config.transferSize = transferSize;
+		config.numTransfers = clamp((int) Math.ceil(profileInFlightTime[profile] / transferTime), 4, MAX_NUM_TRANSFERS);
+		config.numBlocks = clamp((int) Math.ceil(profileQueueTime[profile] / transferTime), 8, maxBlockMemory / transferSize);
+		if(profile == PROFILE_LOW_LATENCY)
+			config.waitStrategy = WaitStrategy.YIELD;
+
+		// Let the receive loop adapt the depth to the load of the device:
+		config.setAdaptiveDepth(true, Math.max(2, config.numTransfers / 2), Math.min(MAX_NUM_TRANSFERS, config.numTransfers * 4));
+		return config;
+	}
+
+	/**
+	 * @return size of each USB transfer in bytes (= Hackrf.getPacketSize() while streaming)
+	 */
+	public int getTransferSize()
+	{
+		return transferSize;
+	}
+
+	/**
+	 * Sets the size of each USB transfer. Small transfers reduce the latency, large
+	 * transfers reduce the CPU load.
+	 *
+	 * @param transferSize	size in bytes (multiple of 512 between MIN_TRANSFER_SIZE and MAX_TRANSFER_SIZE)
+	 * @return false if the value is invalid
+	 */
+	public boolean setTransferSize(int transferSize)
+	{
+		if(transferSize < MIN_TRANSFER_SIZE || transferSize > MAX_TRANSFER_SIZE || transferSize % MIN_TRANSFER_SIZE != 0)
+		{
+			Log.e(logTag, "setTransferSize: Transfer size must be a multiple of " + MIN_TRANSFER_SIZE
+					+ " within " + MIN_TRANSFER_SIZE + "-" + MAX_TRANSFER_SIZE + "!");
+			return false;
+		}
+		this.transferSize = transferSize;
+		return true;
+	}
+
+	/**
+	 * @return number of USB transfers that are queued in parallel
+	 */
+	public int getNumTransfers()
+	{
+		return numTransfers;
+	}
+
+	/**
+	 * Sets the number of USB transfers that are queued in parallel. More transfers give the
+	 * USB thread more slack if it is not scheduled in time.
+	 *
+	 * @param numTransfers	number of transfers (1-MAX_NUM_TRANSFERS)
+	 * @return false if the value is invalid
+	 */
+	public boolean setNumTransfers(int numTransfers)
+	{
+		if(numTransfers < 1 || numTransfers > MAX_NUM_TRANSFERS)
+		{
+			Log.e(logTag, "setNumTransfers: Number of transfers must be within 1-" + MAX_NUM_TRANSFERS + "!");
+			return false;
+		}
+		this.numTransfers = numTransfers;
+		return true;
+	}
+
+	/**
+	 * @return number of blocks (or byte[] packets in the queue of Hackrf.startRX()) the
+	 * 			application can hold
+	 */
+	public int getNumBlocks()
+	{
+		return numBlocks;
+	}
+
+	/**
+	 * Sets the number of blocks the application can hold (capacity of the byte[] queue
+	 * of startRX() and of the block queue / ring of the zero-copy modes). In the zero-copy
+	 * modes the block pool holds numBlocks + numTransfers direct buffers of
+	 * getTransferSize() bytes.
+	 *
+	 * @param numBlocks		number of blocks (at least 1)
+	 * @return false if the value is invalid
+	 */
+	public boolean setNumBlocks(int numBlocks)
+	{
+		if(numBlocks < 1)
+		{
+			Log.e(logTag, "setNumBlocks: Number of blocks must be at least 1!");
+			return false;
+		}
+		this.numBlocks = numBlocks;
+		return true;
+	}
+
+	/**
+	 * @return OVERFLOW_POLICY_STOP, *_DROP_NEWEST, *_DROP_OLDEST or *_BLOCK (see Hackrf)
+	 */
+	public int getOverflowPolicy()
+	{
+		return overflowPolicy;
+	}
+
+	/**
+	 * @return timeout in ms for OVERFLOW_POLICY_BLOCK
+	 */
+	public long getOverflowTimeout()
+	{
+		return overflowTimeout;
+	}
+
+	/**
+	 * Sets the overflow policy (see Hackrf.setOverflowPolicy()).
+	 *
+	 * @param policy		Hackrf.OVERFLOW_POLICY_STOP, *_DROP_NEWEST, *_DROP_OLDEST or *_BLOCK
+	 * @param timeout		time in milliseconds to wait for free space (only OVERFLOW_POLICY_BLOCK)
+	 * @return false if the policy is invalid
+	 */
+	public boolean setOverflowPolicy(int policy, long timeout)
+	{
+		if (policy < Hackrf.OVERFLOW_POLICY_STOP || policy > Hackrf.OVERFLOW_POLICY_BLOCK)
+		{
+			Log.e(logTag,"setOverflowPolicy: Invalid overflow policy: " + policy);
+			return false;
+		}
+		this.overflowPolicy = policy;
+		this.overflowTimeout = timeout;
+		return true;
+	}
+
+	/**
+	 * @return wait strategy of the consumer in ring mode (Hackrf.startRXRing())
+	 */
+	public WaitStrategy getWaitStrategy()
+	{
+		return waitStrategy;
+	}
+
+	/**
+	 * Sets the wait strategy of the consumer in ring mode (Hackrf.startRXRing()).
+	 *
+	 * @param waitStrategy	e.g. WaitStrategy.SPIN, WaitStrategy.YIELD or WaitStrategy.PARK
+	 */
+	public void setWaitStrategy(WaitStrategy waitStrategy)
+	{
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * @return true if the receive loop adjusts the number of transfers in flight
+	 */
+	public boolean isAdaptiveDepth()
+	{
+		return adaptiveDepth;
+	}
+
+	/**
+	 * @return lower limit of the adaptive depth
+	 */
+	public int getMinTransfers()
+	{
+		return minTransfers;
+	}
+
+	/**
+	 * @return upper limit of the adaptive depth
+	 */
+	public int getMaxTransfers()
+	{
+		return maxTransfers;
+	}
+
+	/**
+	 * Enables or disables the adaptive depth. If enabled, the receive loop starts with
+	 * getNumTransfers() transfers in flight and adds transfers (up to maxTransfers) if the
+	 * USB thread is late to requeue them. It removes transfers again (down to minTransfers)
+	 * if the thread is always on time or if the application doesn't release its blocks
+	 * in time. The block pool holds maxTransfers + getNumBlocks() blocks.
+	 * See Hackrf.getCurrentTransferDepth(). Transmitting always uses getNumTransfers().
+	 *
+	 * @param enabled		true to enable the adaptive depth
+	 * @param minTransfers	lower limit (1-maxTransfers)
+	 * @param maxTransfers	upper limit (minTransfers-MAX_NUM_TRANSFERS)
+	 * @return false if the limits are invalid
+	 */
+	public boolean setAdaptiveDepth(boolean enabled, int minTransfers, int maxTransfers)
+	{
+		if(minTransfers < 1 || maxTransfers > MAX_NUM_TRANSFERS || minTransfers > maxTransfers)
+		{
+			Log.e(logTag, "setAdaptiveDepth: Limits must satisfy 1 <= min <= max <= " + MAX_NUM_TRANSFERS + "!");
+			return false;
+		}
+		this.adaptiveDepth = enabled;
+		this.minTransfers = minTransfers;
+		this.maxTransfers = maxTransfers;
+		return true;
+	}
+
+	/**
+	 * @return time budget of the IqBlockHandler in microseconds (0 = duration of one transfer)
+	 */
+	public int getHandlerBudget()
+	{
+		return handlerBudget;
+	}
+
+	/**
+	 * Sets the time an IqBlockHandler (see Hackrf.startRX(IqBlockHandler)) may take for
+	 * one block. Each call that takes longer is counted as overrun (see
+	 * Hackrf.getHandlerOverrunCounter()). On average the handler must be faster than
+	 * the duration of one transfer, otherwise the HackRF runs out of queued transfers.
+	 *
+	 * @param handlerBudget		budget in microseconds or 0 to use the duration of one
+	 * 							transfer at the sample rate set by Hackrf.setSampleRate()
+	 * @return false if the value is invalid
+	 */
+	public boolean setHandlerBudget(int handlerBudget)
+	{
+		if(handlerBudget < 0)
+		{
+			Log.e(logTag, "setHandlerBudget: Budget must not be negative!");
+			return false;
+		}
+		this.handlerBudget = handlerBudget;
+		return true;
+	}
+
+	/**
+	 * @return frequency hopping schedule or null if the receive session doesn't hop
+	 */
+	public HackrfHopSchedule getHopSchedule()
+	{
+		return hopSchedule;
+	}
+
+	/**
+	 * Lets the receive loop hop through the frequencies of the schedule. Each delivered
+	 * block is tagged with its frequency (IqBlock.getFrequency()). Blocks that were in
+	 * flight during a retune and the settling samples are dropped, so it is best to use
+	 * small transfers and few transfers in flight (e.g. PROFILE_LOW_LATENCY). The schedule
+	 * must not be modified while receiving. Requires Hackrf.setSampleRate() to be called
+	 * before receiving.
+	 *
+	 * @param hopSchedule	schedule or null to disable hopping
+	 * @return false if the schedule is invalid
+	 */
+	public boolean setHopSchedule(HackrfHopSchedule hopSchedule)
+	{
+		if(hopSchedule != null && !hopSchedule.isValid())
+			return false;
+		this.hopSchedule = hopSchedule;
+		return true;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "HackrfStreamConfig: transferSize=" + transferSize + " numTransfers=" + numTransfers
+				+ (adaptiveDepth ? " (" + minTransfers + "-" + maxTransfers + ")" : "")
+				+ " numBlocks=" + numBlocks + " overflowPolicy=" + overflowPolicy;
+	}
+
+	private static int clamp(int value, int min, int max)
+	{
+		return Math.max(min, Math.min(max, value));
+	}
+}
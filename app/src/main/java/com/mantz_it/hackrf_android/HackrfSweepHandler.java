@@ -0,0 +1,50 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      HackrfSweepHandler.java
+ * Description: Callback interface for Hackrf.startRXSweep(). The firmware
+ * 				sweeps over the configured frequency ranges on its own (see
+ * 				Hackrf.initSweep()) and puts the frequency into a header of
+ * 				each 16 KiB block of the RX stream. HackrfSweepParser splits
+ * 				the stream at these headers and calls the handler with the
+ * 				samples of each block (without copying them).
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public interface HackrfSweepHandler {
+
+	/**
+	 * Called by the USB thread for each sweep block. The samples are a part of the
+	 * pooled transfer buffer and are only valid until this method returns. The handler
+	 * must copy the samples it wants to keep.
+	 *
+	 * @param frequency		frequency of the block as reported by the firmware (in Hz)
+	 * @param samples		read-only buffer that contains the samples (interleaved, 8-bit, signed IQ)
+	 * @param offset		index of the first sample byte in samples
+	 * @param length		number of sample bytes (2 bytes per complex sample)
+	 * @param sweepStart	true if this is the first block of a new sweep
+	 * @return false to stop receiving
+	 */
+	public boolean onSweepBlock(long frequency, ByteBuffer samples, int offset, int length, boolean sweepStart);
+}
@@ -0,0 +1,146 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      HackrfSweepParser.java
+ * Description: Splits the RX stream of the firmware's sweep mode into
+ * 				(frequency, samples) blocks. In sweep mode every 16 KiB block
+ * 				of the stream starts with a 10 byte header: the magic bytes
+ * 				0x7F 0x7F and the frequency as 64 bit little endian integer.
+ * 				The parser passes each block as view on the pooled transfer
+ * 				buffer to a HackrfSweepHandler. It is used by
+ * 				Hackrf.startRXSweep() but can also parse IqBlocks that were
+ * 				received by one of the other startRX*() methods.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class HackrfSweepParser implements IqBlockHandler {
+
+	public static final int BYTES_PER_BLOCK 	= 16384;	// size of one sweep block (including the header)
+	public static final int HEADER_LENGTH 		= 10;		// magic (2 bytes) + frequency (8 bytes)
+	private static final byte MAGIC 			= 0x7F;
+
+	private final HackrfSweepHandler handler;
+	private long firstFrequency = -1;				// frequency of the first block of a sweep
+	private long lastFrequency = -1;				// frequency of the last block
+	private volatile long blockCounter = 0;
+	private volatile long invalidBlockCounter = 0;
+	private volatile long sweepCounter = 0;
+
+	/**
+	 * @param handler	called with the samples of each sweep block
+	 */
+	public HackrfSweepParser(HackrfSweepHandler handler)
+	{
+		this.handler = handler;
+	}
+
+	/**
+	 * Parses all sweep blocks of the given IqBlock and calls the handler for each
+	 * of them. Blocks without valid header are skipped (see getInvalidBlockCounter()).
+	 *
+	 * @param block		received samples (length should be a multiple of BYTES_PER_BLOCK)
+	 * @return false if the handler wants to stop receiving
+	 */
+	@Override
+	public boolean onIqBlock(IqBlock block)
+	{
+		ByteBuffer buffer = block.getBuffer();
+		int length = block.getLength();
+		if(block.isDiscontinuity())
+			lastFrequency = -1;		// blocks are missing, so we can't tell where the sweep started
+
+		int offset = 0;
+		for(; offset + BYTES_PER_BLOCK <= length; offset += BYTES_PER_BLOCK)
+		{
+			if(buffer.get(offset) != MAGIC || buffer.get(offset + 1) != MAGIC)
+			{
+				invalidBlockCounter++;
+				continue;
+			}
+			long frequency = readLong(buffer, offset + 2);
+
+			// A new sweep starts when the firmware returns to the first frequency:
+			boolean sweepStart = false;
+			if(firstFrequency < 0)
+				firstFrequency = frequency;
+			if(frequency == firstFrequency && frequency != lastFrequency)
+			{
+				sweepStart = true;
+				sweepCounter++;
+			}
+			lastFrequency = frequency;
+			blockCounter++;
+
+			if(!handler.onSweepBlock(frequency, buffer, offset + HEADER_LENGTH, BYTES_PER_BLOCK - HEADER_LENGTH, sweepStart))
+				return false;
+		}
+		if(offset < length)
+			invalidBlockCounter++;		// incomplete block at the end
+		return true;
+	}
+
+	/**
+	 * Forgets the sweep state (e.g. after the sweep was initialized again).
+	 */
+	public void reset()
+	{
+		firstFrequency = -1;
+		lastFrequency = -1;
+		blockCounter = 0;
+		invalidBlockCounter = 0;
+		sweepCounter = 0;
+	}
+
+	/**
+	 * @return number of sweep blocks that were passed to the handler
+	 */
+	public long getBlockCounter()
+	{
+		return blockCounter;
+	}
+
+	/**
+	 * @return number of blocks that were skipped because of a missing header
+	 */
+	public long getInvalidBlockCounter()
+	{
+		return invalidBlockCounter;
+	}
+
+	/**
+	 * @return number of sweeps that were started (including the current one)
+	 */
+	public long getSweepCounter()
+	{
+		return sweepCounter;
+	}
+
+	private static long readLong(ByteBuffer buffer, int offset)
+	{
+		long value = 0;
+		for(int i = 7; i >= 0; i--)
+			value = (value << 8) | (buffer.get(offset + i) & 0xFF);
+		return value;
+	}
+}
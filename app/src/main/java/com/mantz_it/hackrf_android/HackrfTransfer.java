@@ -0,0 +1,79 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      HackrfTransfer.java
+ * Description: This Interface represents an asynchronous bulk transfer
+ * 				of a HackrfTransport (the equivalent of an UsbRequest).
+ * 				A transfer is queued with a buffer and returned by
+ * 				HackrfTransport.waitTransfer() after it completed.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public interface HackrfTransfer {
+
+	/**
+	 * Returns the direction of the endpoint this transfer belongs to.
+	 *
+	 * @return HackrfTransport.DIR_IN or HackrfTransport.DIR_OUT
+	 */
+	public int getDirection();
+
+	/**
+	 * Queues the transfer. The remaining bytes of the buffer (position to limit)
+	 * will be filled (IN) or sent (OUT). After the transfer completed, the position
+	 * of the buffer is advanced by the number of transferred bytes.
+	 *
+	 * @param buffer	buffer to fill or to send
+	 * @return true on success
+	 */
+	public boolean queue(ByteBuffer buffer);
+
+	/**
+	 * Cancels the transfer if it is currently queued. Like a completed transfer, the
+	 * cancelled transfer is returned by HackrfTransport.waitTransfer() and must be
+	 * reaped that way before it is queued again.
+	 *
+	 * @return true on success
+	 */
+	public boolean cancel();
+
+	/**
+	 * Frees all resources of the transfer.
+	 */
+	public void close();
+
+	/**
+	 * Returns the object that was attached to this transfer by setClientData().
+	 *
+	 * @return client data
+	 */
+	public Object getClientData();
+
+	/**
+	 * Attaches an arbitrary object to the transfer (e.g. the buffer it was queued with).
+	 *
+	 * @param data	client data
+	 */
+	public void setClientData(Object data);
+}
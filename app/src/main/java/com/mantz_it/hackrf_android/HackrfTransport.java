@@ -0,0 +1,98 @@
+package com.mantz_it.hackrf_android;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      HackrfTransport.java
+ * Description: This Interface abstracts the communication channel between
+ * 				the Hackrf class and the device. It covers the vendor
+ * 				control transfers and the asynchronous bulk transfers that
+ * 				are used while receiving or transmitting. The default
+ * 				implementation is based on the Android USB Host API
+ * 				(UsbHackrfTransport); SimulatedHackrfTransport is a pure
+ * 				Java device that can be used without any hardware.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public interface HackrfTransport {
+
+	// Transfer directions (same values as UsbConstants.USB_DIR_IN / USB_DIR_OUT):
+	public static final int DIR_IN 	= 0x80;
+	public static final int DIR_OUT = 0x00;
+
+	/**
+	 * Claims the interface of the device for exclusive access.
+	 *
+	 * @return true on success
+	 */
+	public boolean claimInterface();
+
+	/**
+	 * Releases the interface that was claimed by claimInterface().
+	 *
+	 * @return true on success
+	 */
+	public boolean releaseInterface();
+
+	/**
+	 * Executes a vendor control transfer on endpoint 0.
+	 *
+	 * @param direction	DIR_IN or DIR_OUT
+	 * @param request	vendor request (HACKRF_VENDOR_REQUEST_**)
+	 * @param value		value field of the setup packet
+	 * @param index		index field of the setup packet
+	 * @param buffer	buffer for the data stage (may be null if length is 0)
+	 * @param length	length of the data stage
+	 * @param timeout	timeout in milliseconds (0 means no timeout)
+	 * @return count of transferred bytes. Negative on error
+	 */
+	public int controlTransfer(int direction, int request, int value, int index, byte[] buffer, int length, int timeout);
+
+	/**
+	 * Creates a new asynchronous bulk transfer for the IN or the OUT endpoint.
+	 *
+	 * @param direction	DIR_IN or DIR_OUT
+	 * @return new transfer object which can be queued
+	 * @throws HackrfUsbException if the transfer could not be initialized
+	 */
+	public HackrfTransfer createTransfer(int direction) throws HackrfUsbException;
+
+	/**
+	 * Waits for the completion of one of the queued transfers. This will block
+	 * until a transfer is done (same semantic as UsbDeviceConnection.requestWait()).
+	 *
+	 * @return the completed transfer or null on error
+	 */
+	public HackrfTransfer waitTransfer();
+
+	/**
+	 * Waits for the completion of one of the queued transfers, but at most timeout
+	 * milliseconds (same semantic as UsbDeviceConnection.requestWait(long)).
+	 *
+	 * @param timeout	timeout in milliseconds (0 means don't wait)
+	 * @return the completed transfer or null on error or timeout
+	 */
+	public HackrfTransfer waitTransfer(long timeout);
+
+	/**
+	 * Closes the transport. No transfers can be executed afterwards.
+	 */
+	public void close();
+}
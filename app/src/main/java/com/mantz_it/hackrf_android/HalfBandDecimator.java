@@ -0,0 +1,148 @@
+package com.mantz_it.hackrf_android;
+
+import java.util.Arrays;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      HalfBandDecimator.java
+ * Description: Decimation by 2 with a half band filter (see
+ * 				FirDesign.halfBand()). Every second tap of a half band filter
+ * 				is zero and the taps are symmetric, so one output costs
+ * 				(numTaps+1)/4 multiplications for I and Q. Cascades of these
+ * 				stages are the cheapest way to decimate by powers of two.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class HalfBandDecimator implements IqStage {
+
+	private final float[] coefficients;		// taps at the odd distances 1, 3, 5, ... from the center
+	private final int numTaps;
+	private final int center;
+	private final float[] buffer;			// history (numTaps-1 samples) followed by the current chunk
+	private int next = 0;					// index of the oldest sample of the next output's window
+
+	/**
+	 * @param taps		half band filter (length 4*m-1, center 0.5, zero at even distances from the center)
+	 * @throws IllegalArgumentException if the length is not 4*m-1
+	 */
+	public HalfBandDecimator(float[] taps)
+	{
+		if(taps.length % 4 != 3)
+			throw new IllegalArgumentException("Half band filter must have 4*m-1 taps: " + taps.length);
+		this.numTaps = taps.length;
+		this.center = (numTaps - 1) / 2;
+		this.coefficients = new float[(numTaps + 1) / 4];
+		for(int i = 0; i < coefficients.length; i++)
+			coefficients[i] = taps[center + 2 * i + 1];
+		this.buffer = new float[2 * (numTaps - 1 + FirDecimator.CHUNK)];
+	}
+
+	/**
+	 * Creates a half band decimator.
+	 *
+	 * @param passEdge		end of the pass band (normalized to the input rate, less than 0.25)
+	 * @param attenuation	stop band attenuation in dB
+	 * @return new decimator
+	 */
+	public static HalfBandDecimator create(double passEdge, float attenuation)
+	{
+		return new HalfBandDecimator(FirDesign.halfBand(passEdge, attenuation));
+	}
+
+	public int getNumTaps()
+	{
+		return numTaps;
+	}
+
+	/**
+	 * @return copy of the filter taps (including the zeros)
+	 */
+	public float[] getTaps()
+	{
+		float[] taps = new float[numTaps];
+		taps[center] = 0.5f;
+		for(int i = 0; i < coefficients.length; i++)
+			taps[center - 2 * i - 1] = taps[center + 2 * i + 1] = coefficients[i];
+		return taps;
+	}
+
+	@Override
+	public int getInterpolation()
+	{
+		return 1;
+	}
+
+	@Override
+	public int getDecimation()
+	{
+		return 2;
+	}
+
+	@Override
+	public int getMaxOutputLength(int numSamples)
+	{
+		return numSamples / 2 + 1;
+	}
+
+	@Override
+	public void reset()
+	{
+		Arrays.fill(buffer, 0);
+		next = 0;
+	}
+
+	@Override
+	public int process(float[] in, int inOffset, int numSamples, float[] out, int outOffset)
+	{
+		float[] coefficients = this.coefficients;
+		float[] buffer = this.buffer;
+		int history = numTaps - 1;
+		int outIndex = outOffset;
+		int consumed = 0;
+		while(consumed < numSamples)
+		{
+			int chunk = Math.min(FirDecimator.CHUNK, numSamples - consumed);
+			System.arraycopy(in, inOffset + 2 * consumed, buffer, 2 * history, 2 * chunk);
+			consumed += chunk;
+			int total = history + chunk;
+
+			for(; next + numTaps <= total; next += 2)
+			{
+				int c = 2 * (next + center);
+				float re = 0.5f * buffer[c];
+				float im = 0.5f * buffer[c+1];
+				for(int i = 0; i < coefficients.length; i++)
+				{
+					int d = 2 * (2 * i + 1);
+					float h = coefficients[i];
+					re += h * (buffer[c - d] + buffer[c + d]);
+					im += h * (buffer[c - d + 1] + buffer[c + d + 1]);
+				}
+				out[outIndex++] = re;
+				out[outIndex++] = im;
+			}
+
+			System.arraycopy(buffer, 2 * chunk, buffer, 0, 2 * history);
+			next -= chunk;
+		}
+		return (outIndex - outOffset) / 2;
+	}
+}
@@ -0,0 +1,291 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      IqBlock.java
+ * Description: A block of interleaved, 8-bit, signed IQ samples that was
+ * 				received by one USB transfer. The samples live in a direct
+ * 				(off-heap) ByteBuffer that belongs to an IqBlockPool and is
+ * 				handed to the USB stack without copying. The application
+ * 				gets a read-only view of the buffer and must call release()
+ * 				as soon as it doesn't need the samples any more. If the block
+ * 				is shared by several consumers (IqBlockBroadcast), it goes
+ * 				back to the pool after all of them released it.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class IqBlock {
+
+	private final IqBlockPool pool;				// pool this block belongs to
+	private final int index;					// index of this block inside the pool
+	private final ByteBuffer buffer;			// direct buffer that is used for the USB transfers
+	private final ByteBuffer readOnlyView;		// read-only view on buffer that is handed to the application
+
+	private int length = 0;						// number of valid bytes in the buffer
+	private long sequenceNumber = 0;			// number of the transfer since the stream was started
+	private long timestamp = 0;					// System.nanoTime() when the transfer completed
+	private boolean discontinuity = false;		// true if samples were dropped right before this block
+	private long frequency = 0;					// frequency the HackRF was tuned to (in Hz, 0 if unknown)
+	private int sampleRate = 0;					// sample rate of the samples (in Hz, 0 if unknown)
+	private int tuningOffset = 0;				// offset of the HackRF's tuning from the requested frequency (in Hz)
+	private int generation = 0;					// hop generation when the transfer was queued (see FrequencyHopper)
+	private volatile int refCount = 0;			// number of consumers that still hold this block
+	private volatile boolean shared = false;	// true if several consumers got this block
+
+	private static final AtomicIntegerFieldUpdater<IqBlock> refCountUpdater =
+			AtomicIntegerFieldUpdater.newUpdater(IqBlock.class, "refCount");
+
+	IqBlock(IqBlockPool pool, int index, int capacity)
+	{
+		this.pool = pool;
+		this.index = index;
+		this.buffer = ByteBuffer.allocateDirect(capacity);
+		this.readOnlyView = buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns the samples of this block. The returned buffer is a read-only view
+	 * on the pooled direct buffer (position 0, limit getLength()). It is only
+	 * valid until release() is called. If the block is shared by several consumers
+	 * (IqBlockBroadcast), each call returns a new view, so that relative gets and
+	 * position() / limit() of one consumer don't affect the others.
+	 *
+	 * @return read-only buffer containing interleaved, 8-bit, signed IQ samples
+	 */
+	public ByteBuffer getBuffer()
+	{
+		return shared ? readOnlyView.duplicate() : readOnlyView;
+	}
+
+	/**
+	 * @return number of valid bytes in this block (2 bytes per complex sample)
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+
+	/**
+	 * @return maximum number of bytes this block can hold
+	 */
+	public int getCapacity()
+	{
+		return buffer.capacity();
+	}
+
+	/**
+	 * @return number of this block since the stream was started (starting at 0)
+	 */
+	public long getSequenceNumber()
+	{
+		return sequenceNumber;
+	}
+
+	/**
+	 * @return time when the USB transfer of this block completed (System.nanoTime())
+	 */
+	public long getTimestamp()
+	{
+		return timestamp;
+	}
+
+	/**
+	 * @return center frequency (in Hz) the HackRF was tuned to when the transfer of this
+	 * 			block was queued (0 if unknown). While hopping (HackrfHopSchedule) this is
+	 * 			the exact frequency of the samples.
+	 */
+	public long getFrequency()
+	{
+		return frequency;
+	}
+
+	/**
+	 * @return sample rate (in Hz) of the samples in this block (0 if unknown)
+	 */
+	public int getSampleRate()
+	{
+		return sampleRate;
+	}
+
+	/**
+	 * Returns the offset tuning of the HackRF (see Hackrf.setOffsetTuning()) when the transfer
+	 * of this block was queued. The requested frequency is getFrequency() - getTuningOffset()
+	 * and appears at -getTuningOffset() in the baseband.
+	 *
+	 * @return tuning offset in Hz (0 if offset tuning is off)
+	 */
+	public int getTuningOffset()
+	{
+		return tuningOffset;
+	}
+
+	/**
+	 * Returns true if samples were dropped between the previous block and this block
+	 * (see Hackrf.setOverflowPolicy()). Downstream processing should resynchronize.
+	 * In rare cases (the consumer takes blocks while the USB thread drops the oldest
+	 * one) the flag may be set although no samples are missing, but it is never
+	 * missing if there is a gap.
+	 * 
+	 * @return true if there is a gap in the sample stream before this block
+	 */
+	public boolean isDiscontinuity()
+	{
+		return discontinuity;
+	}
+
+	/**
+	 * Returns this block to its pool. The block (and the buffer returned by
+	 * getBuffer()) must not be used afterwards. If the block is shared by several
+	 * consumers, it goes back to the pool when the last one released it.
+	 */
+	public void release()
+	{
+		int count = refCountUpdater.decrementAndGet(this);
+		if(count == 0)
+			pool.recycle(this);
+		else if(count < 0)
+		{
+			refCountUpdater.incrementAndGet(this);
+			throw new IllegalStateException("IqBlock " + index + " was released twice!");
+		}
+	}
+
+	/**
+	 * Takes this block out of its pool for good (see IqBlockPool.retire()).
+	 *
+	 * @return false if the block is not in use
+	 */
+	boolean retire()
+	{
+		return pool.retire(this);
+	}
+
+	/**
+	 * Sets the number of consumers that hold this block (1 after it was acquired from the pool).
+	 *
+	 * @param count		number of release() calls until the block goes back to the pool
+	 */
+	void setRefCount(int count)
+	{
+		this.shared = count > 1;
+		this.refCount = count;
+	}
+
+	int getIndex()
+	{
+		return index;
+	}
+
+	/**
+	 * Prepares the buffer to receive up to length bytes.
+	 *
+	 * @param length	number of bytes to receive
+	 * @return buffer that can be queued in an IN transfer
+	 */
+	ByteBuffer prepareReceive(int length)
+	{
+		buffer.clear();
+		buffer.limit(length);
+		return buffer;
+	}
+
+	/**
+	 * Prepares the buffer to receive up to length bytes and tags it with the tuning
+	 * of the HackRF at the time the transfer is queued.
+	 *
+	 * @param length		number of bytes to receive
+	 * @param frequency		frequency the HackRF is tuned to (in Hz)
+	 * @param sampleRate	sample rate (in Hz)
+	 * @param tuningOffset	offset tuning (in Hz, see Hackrf.setOffsetTuning())
+	 * @param generation	hop generation (see FrequencyHopper)
+	 * @return buffer that can be queued in an IN transfer
+	 */
+	ByteBuffer prepareReceive(int length, long frequency, int sampleRate, int tuningOffset, int generation)
+	{
+		this.frequency = frequency;
+		this.sampleRate = sampleRate;
+		this.tuningOffset = tuningOffset;
+		this.generation = generation;
+		return prepareReceive(length);
+	}
+
+	int getGeneration()
+	{
+		return generation;
+	}
+
+	/**
+	 * Updates the meta data and the read-only view after the IN transfer completed.
+	 *
+	 * @param sequenceNumber	number of the transfer since start
+	 * @param timestamp			completion time (System.nanoTime())
+	 * @param discontinuity		true if the previous block was dropped
+	 */
+	void completeReceive(long sequenceNumber, long timestamp, boolean discontinuity)
+	{
+		this.length = buffer.position();
+		this.sequenceNumber = sequenceNumber;
+		this.timestamp = timestamp;
+		this.discontinuity = discontinuity;
+		readOnlyView.clear();
+		readOnlyView.limit(length);
+	}
+
+	/**
+	 * Flags this block because the block before it was dropped.
+	 */
+	void markDiscontinuity()
+	{
+		this.discontinuity = true;
+	}
+
+	/**
+	 * Copies the given packet into the buffer.
+	 *
+	 * @param packet	samples to transmit
+	 * @return buffer that can be queued in an OUT transfer
+	 */
+	ByteBuffer prepareTransmit(byte[] packet)
+	{
+		buffer.clear();
+		buffer.put(packet, 0, Math.min(packet.length, buffer.capacity()));
+		buffer.flip();
+		this.length = buffer.limit();
+		return buffer;
+	}
+
+	/**
+	 * Copies the valid bytes of this block into a byte array.
+	 *
+	 * @param dest	destination array (should have at least getLength() bytes)
+	 * @return number of copied bytes
+	 */
+	int copyTo(byte[] dest)
+	{
+		int len = Math.min(length, dest.length);
+		buffer.clear();
+		buffer.get(dest, 0, len);
+		return len;
+	}
+}
@@ -0,0 +1,420 @@
+package com.mantz_it.hackrf_android;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      IqBlockBroadcast.java
+ * Description: Lock-free ring buffer that passes each IqBlock from the USB
+ * 				thread to several consumers (e.g. recorder, waterfall and
+ * 				demodulator) without copying it. Every consumer subscribes
+ * 				and gets its own read position (Subscriber). A block goes
+ * 				back to the pool after every subscriber released it.
+ * 				A slow subscriber never holds up the others: if it falls
+ * 				behind by more than the capacity, its oldest blocks are
+ * 				dropped (only for this subscriber) and counted.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class IqBlockBroadcast {
+
+	private final IqBlock[] slots;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong(0);		// sequence of the next block to write
+	private final WaitStrategy waitStrategy;
+	private volatile Subscriber[] subscribers = new Subscriber[0];	// copy on write (guarded by this)
+
+	/**
+	 * Creates a new broadcast ring.
+	 *
+	 * @param capacity		minimum number of blocks a subscriber may lag behind (rounded up to a power of two)
+	 * @param waitStrategy	defines how the subscribers wait for new blocks
+	 */
+	public IqBlockBroadcast(int capacity, WaitStrategy waitStrategy)
+	{
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.slots = new IqBlock[size];
+		this.mask = size - 1;
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * @return number of blocks a subscriber may lag behind before blocks are dropped
+	 */
+	public int capacity()
+	{
+		return slots.length;
+	}
+
+	public WaitStrategy getWaitStrategy()
+	{
+		return waitStrategy;
+	}
+
+	/**
+	 * Creates a new subscriber. It receives all blocks that are published after the
+	 * next block arrived. Each subscriber must only be used by one consumer thread.
+	 *
+	 * @return new subscriber
+	 */
+	public synchronized Subscriber subscribe()
+	{
+		Subscriber subscriber = new Subscriber();
+		Subscriber[] subs = new Subscriber[subscribers.length + 1];
+		System.arraycopy(subscribers, 0, subs, 0, subscribers.length);
+		subs[subs.length - 1] = subscriber;
+		subscribers = subs;
+		return subscriber;
+	}
+
+	/**
+	 * @return number of subscribers (including the ones that were closed but not yet removed)
+	 */
+	public int getSubscriberCount()
+	{
+		return subscribers.length;
+	}
+
+	/**
+	 * Removes a closed subscriber from the list.
+	 */
+	private synchronized void remove(Subscriber subscriber)
+	{
+		Subscriber[] subs = subscribers;
+		for(int i = 0; i < subs.length; i++)
+		{
+			if(subs[i] == subscriber)
+			{
+				Subscriber[] newSubs = new Subscriber[subs.length - 1];
+				System.arraycopy(subs, 0, newSubs, 0, i);
+				System.arraycopy(subs, i + 1, newSubs, i, subs.length - i - 1);
+				subscribers = newSubs;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Publishes a block to all subscribers. Subscribers that lag behind by the full
+	 * capacity lose their oldest block. If there is no subscriber, the block is
+	 * released immediately. Must only be called by the producer thread.
+	 *
+	 * @param block		block to publish (the broadcast takes over the reference)
+	 */
+	public void publish(IqBlock block)
+	{
+		long t = tail.get();
+		Subscriber[] subs = subscribers;
+		int numActive = 0;
+		for(Subscriber sub: subs)
+		{
+			if(sub.closed)
+			{
+				// Release everything the closed subscriber didn't read:
+				sub.skipTo(t);
+				sub.active = false;
+				remove(sub);
+				continue;
+			}
+			if(!sub.active)
+			{
+				// New subscribers start with this block:
+				sub.head.set(t);
+				sub.active = true;
+			}
+			else
+				sub.makeRoom(t);
+			numActive++;
+		}
+
+		if(numActive == 0)
+		{
+			block.release();
+			return;
+		}
+
+		block.setRefCount(numActive);
+		slots[(int) t & mask] = block;
+		tail.set(t + 1);		// volatile write: publishes the slot before we look at the waiting threads
+
+		for(Subscriber sub: subs)
+		{
+			Thread waiter = sub.waitingConsumer;
+			if(waiter != null)
+				LockSupport.unpark(waiter);
+		}
+	}
+
+	/**
+	 * Releases all blocks that are still held by the subscribers and removes the closed
+	 * subscribers. Must only be called if neither the producer nor a consumer is active.
+	 */
+	public void clear()
+	{
+		long t = tail.get();
+		for(Subscriber sub: subscribers)
+		{
+			if(sub.active)
+				sub.skipTo(t);
+			if(sub.closed)
+			{
+				sub.active = false;
+				remove(sub);
+			}
+		}
+	}
+
+	/**
+	 * Read position of one consumer. All methods except close() and the metrics must only
+	 * be called by the consumer thread of this subscriber. Each block returned by poll()
+	 * or drainTo() must be released by the consumer.
+	 */
+	public class Subscriber {
+		private final AtomicLong head = new AtomicLong(0);		// sequence of the next block to read (CAS)
+		private volatile boolean active = false;				// set by the producer when it takes the subscriber into account
+		private volatile boolean closed = false;
+		private volatile Thread waitingConsumer = null;			// set while the consumer may be parked
+		private volatile long droppedCounter = 0;				// blocks dropped because this subscriber lagged
+		private volatile int maxLag = 0;						// highest lag seen by the producer
+		private long lastSequenceNumber = -1;					// sequence number of the last block returned
+		private boolean discontinuity = false;					// gap before the last block returned
+
+		/**
+		 * @return number of blocks that are ready but not yet read by this subscriber
+		 */
+		public int getLag()
+		{
+			return active ? (int) (tail.get() - head.get()) : 0;
+		}
+
+		/**
+		 * @return highest lag (in blocks) since the subscriber was created
+		 */
+		public int getMaxLag()
+		{
+			return maxLag;
+		}
+
+		/**
+		 * @return number of blocks this subscriber lost because it didn't read fast enough
+		 */
+		public long getDroppedCounter()
+		{
+			return droppedCounter;
+		}
+
+		/**
+		 * Returns true if samples are missing before the block that was returned by the
+		 * last call to poll() (or before any of the blocks of the last drainTo()). The gap is
+		 * either caused by this subscriber (see getDroppedCounter()) or by the USB thread
+		 * (see IqBlock.isDiscontinuity()).
+		 *
+		 * @return true if samples are missing before the last block
+		 */
+		public boolean isDiscontinuity()
+		{
+			return discontinuity;
+		}
+
+		/**
+		 * Unsubscribes. Blocks that were not read yet are released by the producer
+		 * (with the next block or by clear()).
+		 * The subscriber must not be used afterwards (blocks that were already
+		 * returned by poll() must still be released).
+		 */
+		public void close()
+		{
+			closed = true;
+		}
+
+		/**
+		 * Removes the oldest block of this subscriber.
+		 *
+		 * @return oldest block or null if nothing is ready
+		 */
+		public IqBlock poll()
+		{
+			if(!active)
+				return null;
+			while(true)
+			{
+				long h = head.get();
+				if(h >= tail.get())
+					return null;
+				IqBlock block = slots[(int) h & mask];
+				if(head.compareAndSet(h, h + 1))
+				{
+					discontinuity = checkSequence(block);
+					return block;
+				}
+			}
+		}
+
+		/**
+		 * Waits until a block is available and removes it.
+		 *
+		 * @param timeout	how long to wait at most
+		 * @param unit		unit of timeout
+		 * @return oldest block or null if the timeout elapsed
+		 * @throws InterruptedException if the consumer was interrupted while waiting
+		 */
+		public IqBlock poll(long timeout, TimeUnit unit) throws InterruptedException
+		{
+			if(!awaitBlocks(unit.toNanos(timeout)))
+				return null;
+			return poll();
+		}
+
+		/**
+		 * Removes all ready blocks (up to dest.length) of this subscriber at once.
+		 *
+		 * @param dest		array that will be filled with the blocks (oldest first)
+		 * @return number of blocks written into dest
+		 */
+		public int drainTo(IqBlock[] dest)
+		{
+			if(!active)
+				return 0;
+			while(true)
+			{
+				long h = head.get();
+				int n = (int) Math.min(tail.get() - h, dest.length);
+				if(n <= 0)
+					return 0;
+				for(int i = 0; i < n; i++)
+					dest[i] = slots[(int) (h + i) & mask];
+				if(head.compareAndSet(h, h + n))
+				{
+					boolean gap = false;
+					for(int i = 0; i < n; i++)
+						gap |= checkSequence(dest[i]);
+					discontinuity = gap;
+					return n;
+				}
+			}
+		}
+
+		/**
+		 * Waits until at least one block is available and then removes all ready blocks
+		 * (up to dest.length) at once.
+		 *
+		 * @param dest		array that will be filled with the blocks (oldest first)
+		 * @param timeout	how long to wait at most
+		 * @param unit		unit of timeout
+		 * @return number of blocks written into dest (0 if the timeout elapsed)
+		 * @throws InterruptedException if the consumer was interrupted while waiting
+		 */
+		public int drainTo(IqBlock[] dest, long timeout, TimeUnit unit) throws InterruptedException
+		{
+			if(!awaitBlocks(unit.toNanos(timeout)))
+				return 0;
+			return drainTo(dest);
+		}
+
+		private boolean isEmpty()
+		{
+			return !active || head.get() >= tail.get();
+		}
+
+		/**
+		 * @return true if samples are missing before the given block
+		 */
+		private boolean checkSequence(IqBlock block)
+		{
+			boolean gap = block.isDiscontinuity()
+					|| (lastSequenceNumber >= 0 && block.getSequenceNumber() != lastSequenceNumber + 1);
+			lastSequenceNumber = block.getSequenceNumber();
+			return gap;
+		}
+
+		/**
+		 * Called by the producer before it writes the slot of sequence t. Drops the
+		 * oldest block of this subscriber if it lags behind by the full capacity.
+		 */
+		private void makeRoom(long t)
+		{
+			while(true)
+			{
+				long h = head.get();
+				int lag = (int) (t - h);
+				if(lag > maxLag)
+					maxLag = lag;
+				if(lag < slots.length)
+					return;
+				IqBlock oldest = slots[(int) h & mask];
+				// This fails if the consumer took the oldest block in the meantime:
+				if(head.compareAndSet(h, h + 1))
+				{
+					oldest.release();
+					droppedCounter++;
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Releases all blocks of this subscriber up to sequence t (producer side).
+		 */
+		private void skipTo(long t)
+		{
+			long h;
+			while((h = head.get()) < t)
+			{
+				IqBlock block = slots[(int) h & mask];
+				if(head.compareAndSet(h, h + 1))
+					block.release();
+			}
+		}
+
+		/**
+		 * Waits (according to the wait strategy) until a block is ready.
+		 *
+		 * @param timeout	timeout in ns
+		 * @return false if the timeout elapsed
+		 * @throws InterruptedException if the thread was interrupted
+		 */
+		private boolean awaitBlocks(long timeout) throws InterruptedException
+		{
+			long deadline = System.nanoTime() + timeout;
+			int iteration = 0;
+			boolean blocking = waitStrategy.isBlocking();
+			while(isEmpty())
+			{
+				if(Thread.interrupted())
+					throw new InterruptedException();
+				if(System.nanoTime() - deadline >= 0)
+					return false;
+				if(blocking)
+				{
+					waitingConsumer = Thread.currentThread();
+					if(isEmpty())		// check again: the producer might have published before it saw waitingConsumer
+						waitStrategy.idle(iteration++, deadline);
+					waitingConsumer = null;
+				}
+				else
+					waitStrategy.idle(iteration++, deadline);
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.mantz_it.hackrf_android;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      IqBlockHandler.java
+ * Description: Callback interface for Hackrf.startRX(IqBlockHandler). The
+ * 				handler is called directly by the USB thread with each
+ * 				received block before its buffer is queued again. There is
+ * 				no queue and no thread hand-off in between, which makes it
+ * 				ideal for lightweight processing (power detection, decimation,
+ * 				...). The USB thread can't queue the transfer again while the
+ * 				handler runs, so it must return within the time budget (see
+ * 				HackrfStreamConfig.setHandlerBudget()).
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public interface IqBlockHandler {
+
+	/**
+	 * Called by the USB thread for each received block. The block and its buffer
+	 * are only valid until this method returns (the buffer is reused by the next
+	 * transfer). The handler must not call IqBlock.release() and must copy
+	 * the samples it wants to keep.
+	 *
+	 * @param block		received samples (see IqBlock.getBuffer())
+	 * @return false to stop receiving
+	 */
+	public boolean onIqBlock(IqBlock block);
+}
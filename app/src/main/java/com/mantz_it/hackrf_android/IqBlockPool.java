@@ -0,0 +1,152 @@
+package com.mantz_it.hackrf_android;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      IqBlockPool.java
+ * Description: A fixed set of preallocated IqBlocks with direct (off-heap)
+ * 				buffers. Direct buffers can be handed to the USB stack
+ * 				without copying them between native and heap memory.
+ * 				acquire() and release() are lock-free and don't allocate,
+ * 				so blocks can be released from any thread. A block whose
+ * 				buffer may still be written by the USB stack is retired
+ * 				instead and never handed out again.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class IqBlockPool {
+
+	private static final int FREE 		= 0;
+	private static final int IN_USE 	= 1;
+	private static final int RETIRED 	= 2;
+
+	private final IqBlock[] blocks;
+	private final AtomicIntegerArray inUse;		// FREE, IN_USE or RETIRED for the block with the same index
+	private final AtomicInteger available;		// number of free blocks
+	private final AtomicInteger retired = new AtomicInteger(0);	// number of retired blocks
+	private final int blockSize;
+	private volatile int nextIndex = 0;			// hint where acquire() starts searching
+
+	/**
+	 * Allocates all blocks of the pool.
+	 *
+	 * @param numBlocks		number of blocks in the pool
+	 * @param blockSize		capacity of each block in bytes
+	 */
+	public IqBlockPool(int numBlocks, int blockSize)
+	{
+		this.blocks = new IqBlock[numBlocks];
+		this.inUse = new AtomicIntegerArray(numBlocks);
+		this.available = new AtomicInteger(numBlocks);
+		this.blockSize = blockSize;
+		for(int i = 0; i < numBlocks; i++)
+			blocks[i] = new IqBlock(this, i, blockSize);
+	}
+
+	/**
+	 * Takes a free block out of the pool.
+	 *
+	 * @return free block or null if all blocks are in use
+	 */
+	public IqBlock acquire()
+	{
+		int start = nextIndex;
+		for(int n = 0; n < blocks.length; n++)
+		{
+			int i = (start + n) % blocks.length;
+			if(inUse.get(i) == FREE && inUse.compareAndSet(i, FREE, IN_USE))
+			{
+				available.decrementAndGet();
+				nextIndex = i + 1;
+				blocks[i].setRefCount(1);
+				return blocks[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Puts a block back into the pool (same as block.release()).
+	 *
+	 * @param block		block that was acquired from this pool
+	 */
+	public void release(IqBlock block)
+	{
+		block.release();
+	}
+
+	/**
+	 * Marks the block as free after the last consumer released it.
+	 *
+	 * @param block		block that was acquired from this pool
+	 */
+	void recycle(IqBlock block)
+	{
+		if(inUse.compareAndSet(block.getIndex(), IN_USE, FREE))
+			available.incrementAndGet();
+		else if(inUse.get(block.getIndex()) == FREE)
+			throw new IllegalStateException("IqBlock " + block.getIndex() + " was released twice!");
+		// else: retired blocks never come back
+	}
+
+	/**
+	 * Takes an acquired block out of the pool for good, e.g. because it belongs to a USB
+	 * transfer that couldn't be reaped and the USB stack may still write into its buffer.
+	 * The block is never handed out again (releasing it has no effect) and the size of
+	 * the pool shrinks by one.
+	 *
+	 * @param block		block that was acquired from this pool
+	 * @return false if the block is not in use (free or already retired)
+	 */
+	public boolean retire(IqBlock block)
+	{
+		if(!inUse.compareAndSet(block.getIndex(), IN_USE, RETIRED))
+			return false;
+		retired.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * @return number of blocks in the pool (without the retired ones)
+	 */
+	public int getSize()
+	{
+		return blocks.length - retired.get();
+	}
+
+	/**
+	 * @return capacity of each block in bytes
+	 */
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+
+	/**
+	 * @return number of blocks that are currently not in use
+	 */
+	public int getAvailableCount()
+	{
+		return available.get();
+	}
+}
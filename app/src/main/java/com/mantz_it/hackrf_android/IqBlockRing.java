@@ -0,0 +1,279 @@
+package com.mantz_it.hackrf_android;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      IqBlockRing.java
+ * Description: Lock-free single-producer / single-consumer ring buffer
+ * 				that passes IqBlocks from the USB thread to exactly one
+ * 				consumer thread. Unlike the ArrayBlockingQueue it takes no
+ * 				locks and the consumer can drain all ready blocks in one
+ * 				go. How the consumer waits for new blocks is defined by
+ * 				a WaitStrategy.
+ * 				If the ring is full, the producer may drop the oldest block
+ * 				(offerEvictingOldest()). Therefore the read position is
+ * 				advanced with compare-and-set by both sides.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class IqBlockRing {
+
+	private final IqBlock[] slots;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong(0);		// sequence of the next block to read (CAS)
+	private final AtomicLong tail = new AtomicLong(0);		// sequence of the next block to write
+	private final WaitStrategy waitStrategy;
+	private volatile Thread waitingConsumer = null;			// set while the consumer may be parked
+	private static final long producerParkTime = 50000;		// 50us between retries of a blocking offer()
+
+	/**
+	 * Creates a new ring.
+	 *
+	 * @param capacity		minimum number of blocks the ring can hold (rounded up to a power of two)
+	 * @param waitStrategy	defines how the consumer waits for new blocks
+	 */
+	public IqBlockRing(int capacity, WaitStrategy waitStrategy)
+	{
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.slots = new IqBlock[size];
+		this.mask = size - 1;
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * @return number of blocks the ring can hold
+	 */
+	public int capacity()
+	{
+		return slots.length;
+	}
+
+	/**
+	 * @return number of blocks that are ready to be consumed
+	 */
+	public int size()
+	{
+		return (int) (tail.get() - head.get());
+	}
+
+	public boolean isEmpty()
+	{
+		return head.get() >= tail.get();
+	}
+
+	public WaitStrategy getWaitStrategy()
+	{
+		return waitStrategy;
+	}
+
+	/**
+	 * Inserts a block. Must only be called by the producer thread.
+	 *
+	 * @param block		block to publish
+	 * @return false if the ring is full
+	 */
+	public boolean offer(IqBlock block)
+	{
+		long t = tail.get();
+		if(t - head.get() >= slots.length)
+			return false;
+		slots[(int) t & mask] = block;
+		tail.set(t + 1);		// volatile write: publishes the slot before we look at waitingConsumer
+
+		Thread waiter = waitingConsumer;
+		if(waiter != null)
+			LockSupport.unpark(waiter);
+		return true;
+	}
+
+	/**
+	 * Inserts a block and waits for free space if the ring is full. Must only be
+	 * called by the producer thread.
+	 *
+	 * @param block		block to publish
+	 * @param timeout	how long to wait at most
+	 * @param unit		unit of timeout
+	 * @return false if the ring stayed full until the timeout elapsed
+	 */
+	public boolean offer(IqBlock block, long timeout, TimeUnit unit)
+	{
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while(!offer(block))
+		{
+			if(System.nanoTime() - deadline >= 0)
+				return false;
+			LockSupport.parkNanos(producerParkTime);
+		}
+		return true;
+	}
+
+	/**
+	 * Inserts a block. If the ring is full, the oldest block is removed and the block
+	 * that follows it is flagged as discontinuity. Must only be called by the producer thread.
+	 *
+	 * @param block		block to publish
+	 * @return the removed block (the caller must release it) or null if nothing was removed
+	 */
+	public IqBlock offerEvictingOldest(IqBlock block)
+	{
+		while(true)
+		{
+			long h = head.get();
+			if(tail.get() - h < slots.length)
+			{
+				if(offer(block))
+					return null;
+				continue;
+			}
+
+			// Flag the successor before the oldest block is removed. Otherwise the
+			// consumer could take the successor before it is flagged:
+			IqBlock oldest = slots[(int) h & mask];
+			if(slots.length > 1)
+				slots[(int) (h + 1) & mask].markDiscontinuity();
+			else
+				block.markDiscontinuity();
+
+			// This fails if the consumer took the oldest block in the meantime:
+			if(head.compareAndSet(h, h + 1))
+			{
+				offer(block);
+				return oldest;
+			}
+		}
+	}
+
+	/**
+	 * Removes the oldest block. Must only be called by the consumer thread.
+	 *
+	 * @return oldest block or null if the ring is empty
+	 */
+	public IqBlock poll()
+	{
+		while(true)
+		{
+			long h = head.get();
+			if(h >= tail.get())
+				return null;
+			IqBlock block = slots[(int) h & mask];
+			if(head.compareAndSet(h, h + 1))
+				return block;
+		}
+	}
+
+	/**
+	 * Waits until a block is available and removes it. Must only be called by the consumer thread.
+	 *
+	 * @param timeout	how long to wait at most
+	 * @param unit		unit of timeout
+	 * @return oldest block or null if the timeout elapsed
+	 * @throws InterruptedException if the consumer was interrupted while waiting
+	 */
+	public IqBlock poll(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		if(!awaitBlocks(unit.toNanos(timeout)))
+			return null;
+		return poll();
+	}
+
+	/**
+	 * Removes all ready blocks (up to dest.length) at once. Must only be called by the consumer thread.
+	 *
+	 * @param dest		array that will be filled with the blocks (oldest first)
+	 * @return number of blocks written into dest
+	 */
+	public int drainTo(IqBlock[] dest)
+	{
+		while(true)
+		{
+			long h = head.get();
+			int n = (int) Math.min(tail.get() - h, dest.length);
+			if(n <= 0)
+				return 0;
+			for(int i = 0; i < n; i++)
+				dest[i] = slots[(int) (h + i) & mask];
+			if(head.compareAndSet(h, h + n))
+				return n;
+		}
+	}
+
+	/**
+	 * Waits until at least one block is available and then removes all ready blocks
+	 * (up to dest.length) at once. Must only be called by the consumer thread.
+	 *
+	 * @param dest		array that will be filled with the blocks (oldest first)
+	 * @param timeout	how long to wait at most
+	 * @param unit		unit of timeout
+	 * @return number of blocks written into dest (0 if the timeout elapsed)
+	 * @throws InterruptedException if the consumer was interrupted while waiting
+	 */
+	public int drainTo(IqBlock[] dest, long timeout, TimeUnit unit) throws InterruptedException
+	{
+		if(!awaitBlocks(unit.toNanos(timeout)))
+			return 0;
+		return drainTo(dest);
+	}
+
+	/**
+	 * Releases all blocks that are still in the ring. Must only be called if
+	 * neither the producer nor the consumer is active.
+	 */
+	public void clear()
+	{
+		IqBlock block;
+		while((block = poll()) != null)
+			block.release();
+	}
+
+	/**
+	 * Waits (according to the wait strategy) until the ring is not empty.
+	 *
+	 * @param timeout	timeout in ns
+	 * @return false if the timeout elapsed
+	 * @throws InterruptedException if the thread was interrupted
+	 */
+	private boolean awaitBlocks(long timeout) throws InterruptedException
+	{
+		long deadline = System.nanoTime() + timeout;
+		int iteration = 0;
+		boolean blocking = waitStrategy.isBlocking();
+		while(isEmpty())
+		{
+			if(Thread.interrupted())
+				throw new InterruptedException();
+			if(System.nanoTime() - deadline >= 0)
+				return false;
+			if(blocking)
+			{
+				waitingConsumer = Thread.currentThread();
+				if(isEmpty())		// check again: the producer might have published before it saw waitingConsumer
+					waitStrategy.idle(iteration++, deadline);
+				waitingConsumer = null;
+			}
+			else
+				waitStrategy.idle(iteration++, deadline);
+		}
+		return true;
+	}
+}
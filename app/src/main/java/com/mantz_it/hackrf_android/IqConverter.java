@@ -0,0 +1,598 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      IqConverter.java
+ * Description: Converts the interleaved, 8-bit, signed IQ samples of the
+ * 				HackRF into float (interleaved or planar), 16-bit integers,
+ * 				magnitude or power. The converter writes into arrays (or
+ * 				FloatBuffers) of the caller and never allocates while
+ * 				converting. There are several kernels (plain loop, lookup
+ * 				table, unrolled loop) because the fastest one depends on the
+ * 				CPU and the runtime. The selected kernel is used for arrays and
+ * 				for direct ByteBuffers (e.g. IqBlock) alike. calibrate()
+ * 				measures the kernels on the device.
+ * 				An instance must only be used by one thread at a time.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class IqConverter {
+
+	public static final int KERNEL_LOOP 	= 0;	// plain loop with one multiplication per value (auto-vectorized by some JITs)
+	public static final int KERNEL_LUT 		= 1;	// 256 entry lookup table
+	public static final int KERNEL_UNROLLED = 2;	// plain loop, unrolled by 8 values
+	private static final int NUM_KERNELS 	= 3;
+
+	public static final float SCALE = 1.0f / 128.0f;	// float value of one LSB (full scale is [-1; 1))
+
+	private static final float[] floatTable = new float[256];		// indexed by the unsigned byte
+	private static final float[] squareTable = new float[256];		// (value/128)^2, indexed by the unsigned byte
+	private static final short[] shortTable = new short[256];		// value << 8, indexed by the unsigned byte
+	static {
+		for(int i = 0; i < 256; i++)
+		{
+			floatTable[i] = (byte) i * SCALE;
+			squareTable[i] = floatTable[i] * floatTable[i];
+			shortTable[i] = (short) ((byte) i << 8);
+		}
+	}
+
+	private static final int SCRATCH_SIZE = 4096;		// floats converted at once for FloatBuffers without array
+	private final float[] scratch = new float[SCRATCH_SIZE];
+	private int kernel;
+
+	/**
+	 * Creates a converter that uses the lookup table kernel.
+	 */
+	public IqConverter()
+	{
+		this(KERNEL_LUT);
+	}
+
+	/**
+	 * @param kernel	KERNEL_LOOP, KERNEL_LUT or KERNEL_UNROLLED (see calibrate())
+	 */
+	public IqConverter(int kernel)
+	{
+		this.kernel = kernel >= 0 && kernel < NUM_KERNELS ? kernel : KERNEL_LUT;
+	}
+
+	public int getKernel()
+	{
+		return kernel;
+	}
+
+	/**
+	 * @param kernel	KERNEL_LOOP, KERNEL_LUT or KERNEL_UNROLLED
+	 * @return false if the kernel is invalid
+	 */
+	public boolean setKernel(int kernel)
+	{
+		if(kernel < 0 || kernel >= NUM_KERNELS)
+			return false;
+		this.kernel = kernel;
+		return true;
+	}
+
+	/**
+	 * Converts interleaved 8-bit samples to interleaved float samples (I, Q, I, Q, ...)
+	 * in the range [-1; 1).
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (2 floats per sample)
+	 * @param dstOffset		index of the first float in dst
+	 * @param numSamples	number of complex samples to convert
+	 */
+	public void toFloat(byte[] src, int srcOffset, float[] dst, int dstOffset, int numSamples)
+	{
+		int n = 2 * numSamples;
+		switch(kernel)
+		{
+			case KERNEL_LOOP:
+				for(int i = 0; i < n; i++)
+					dst[dstOffset + i] = src[srcOffset + i] * SCALE;
+				break;
+			case KERNEL_UNROLLED:
+				int i = 0;
+				for(; i <= n - 8; i += 8)
+				{
+					int s = srcOffset + i;
+					int d = dstOffset + i;
+					dst[d] 	 = src[s] 	* SCALE;
+					dst[d+1] = src[s+1] * SCALE;
+					dst[d+2] = src[s+2] * SCALE;
+					dst[d+3] = src[s+3] * SCALE;
+					dst[d+4] = src[s+4] * SCALE;
+					dst[d+5] = src[s+5] * SCALE;
+					dst[d+6] = src[s+6] * SCALE;
+					dst[d+7] = src[s+7] * SCALE;
+				}
+				for(; i < n; i++)
+					dst[dstOffset + i] = src[srcOffset + i] * SCALE;
+				break;
+			case KERNEL_LUT:
+			default:
+				float[] table = floatTable;
+				for(int j = 0; j < n; j++)
+					dst[dstOffset + j] = table[src[srcOffset + j] & 0xFF];
+				break;
+		}
+	}
+
+	/**
+	 * Converts interleaved 8-bit samples from a ByteBuffer (e.g. IqBlock.getBuffer()) to
+	 * interleaved float samples. Only absolute get() calls are used, so the position of
+	 * the buffer is not changed (it may be shared by several consumers).
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (2 floats per sample)
+	 * @param dstOffset		index of the first float in dst
+	 * @param numSamples	number of complex samples to convert
+	 */
+	public void toFloat(ByteBuffer src, int srcOffset, float[] dst, int dstOffset, int numSamples)
+	{
+		if(src.hasArray())
+		{
+			toFloat(src.array(), src.arrayOffset() + srcOffset, dst, dstOffset, numSamples);
+			return;
+		}
+		int n = 2 * numSamples;
+		switch(kernel)
+		{
+			case KERNEL_LOOP:
+				for(int i = 0; i < n; i++)
+					dst[dstOffset + i] = src.get(srcOffset + i) * SCALE;
+				break;
+			case KERNEL_UNROLLED:
+				int i = 0;
+				for(; i <= n - 8; i += 8)
+				{
+					int s = srcOffset + i;
+					int d = dstOffset + i;
+					dst[d] 	 = src.get(s) 	* SCALE;
+					dst[d+1] = src.get(s+1) * SCALE;
+					dst[d+2] = src.get(s+2) * SCALE;
+					dst[d+3] = src.get(s+3) * SCALE;
+					dst[d+4] = src.get(s+4) * SCALE;
+					dst[d+5] = src.get(s+5) * SCALE;
+					dst[d+6] = src.get(s+6) * SCALE;
+					dst[d+7] = src.get(s+7) * SCALE;
+				}
+				for(; i < n; i++)
+					dst[dstOffset + i] = src.get(srcOffset + i) * SCALE;
+				break;
+			case KERNEL_LUT:
+			default:
+				float[] table = floatTable;
+				for(int j = 0; j < n; j++)
+					dst[dstOffset + j] = table[src.get(srcOffset + j) & 0xFF];
+				break;
+		}
+	}
+
+	/**
+	 * Converts interleaved 8-bit samples to interleaved float samples and puts them
+	 * into a FloatBuffer (at its position, which is advanced).
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination with at least 2*numSamples floats remaining
+	 * @param numSamples	number of complex samples to convert
+	 */
+	public void toFloat(byte[] src, int srcOffset, FloatBuffer dst, int numSamples)
+	{
+		if(dst.hasArray())
+		{
+			toFloat(src, srcOffset, dst.array(), dst.arrayOffset() + dst.position(), numSamples);
+			dst.position(dst.position() + 2 * numSamples);
+			return;
+		}
+		while(numSamples > 0)
+		{
+			int chunk = Math.min(numSamples, SCRATCH_SIZE / 2);
+			toFloat(src, srcOffset, scratch, 0, chunk);
+			dst.put(scratch, 0, 2 * chunk);
+			srcOffset += 2 * chunk;
+			numSamples -= chunk;
+		}
+	}
+
+	/**
+	 * Converts interleaved 8-bit samples to separate arrays for I and Q.
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param re			destination of the I values
+	 * @param im			destination of the Q values
+	 * @param dstOffset		index of the first value in re and im
+	 * @param numSamples	number of complex samples to convert
+	 */
+	public void toFloatPlanar(byte[] src, int srcOffset, float[] re, float[] im, int dstOffset, int numSamples)
+	{
+		switch(kernel)
+		{
+			case KERNEL_LOOP:
+				for(int i = 0; i < numSamples; i++)
+				{
+					re[dstOffset + i] = src[srcOffset + 2*i] * SCALE;
+					im[dstOffset + i] = src[srcOffset + 2*i + 1] * SCALE;
+				}
+				break;
+			case KERNEL_UNROLLED:
+				int i = 0;
+				for(; i <= numSamples - 4; i += 4)
+				{
+					int s = srcOffset + 2*i;
+					int d = dstOffset + i;
+					re[d] 	= src[s] 	* SCALE;
+					im[d] 	= src[s+1] 	* SCALE;
+					re[d+1] = src[s+2] 	* SCALE;
+					im[d+1] = src[s+3] 	* SCALE;
+					re[d+2] = src[s+4] 	* SCALE;
+					im[d+2] = src[s+5] 	* SCALE;
+					re[d+3] = src[s+6] 	* SCALE;
+					im[d+3] = src[s+7] 	* SCALE;
+				}
+				for(; i < numSamples; i++)
+				{
+					re[dstOffset + i] = src[srcOffset + 2*i] * SCALE;
+					im[dstOffset + i] = src[srcOffset + 2*i + 1] * SCALE;
+				}
+				break;
+			case KERNEL_LUT:
+			default:
+				float[] table = floatTable;
+				for(int j = 0; j < numSamples; j++)
+				{
+					re[dstOffset + j] = table[src[srcOffset + 2*j] & 0xFF];
+					im[dstOffset + j] = table[src[srcOffset + 2*j + 1] & 0xFF];
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Converts interleaved 8-bit samples from a ByteBuffer to separate arrays for I and Q
+	 * (see toFloat(ByteBuffer, ...)).
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param re			destination of the I values
+	 * @param im			destination of the Q values
+	 * @param dstOffset		index of the first value in re and im
+	 * @param numSamples	number of complex samples to convert
+	 */
+	public void toFloatPlanar(ByteBuffer src, int srcOffset, float[] re, float[] im, int dstOffset, int numSamples)
+	{
+		if(src.hasArray())
+		{
+			toFloatPlanar(src.array(), src.arrayOffset() + srcOffset, re, im, dstOffset, numSamples);
+			return;
+		}
+		switch(kernel)
+		{
+			case KERNEL_LOOP:
+				for(int i = 0; i < numSamples; i++)
+				{
+					re[dstOffset + i] = src.get(srcOffset + 2*i) * SCALE;
+					im[dstOffset + i] = src.get(srcOffset + 2*i + 1) * SCALE;
+				}
+				break;
+			case KERNEL_UNROLLED:
+				int i = 0;
+				for(; i <= numSamples - 4; i += 4)
+				{
+					int s = srcOffset + 2*i;
+					int d = dstOffset + i;
+					re[d] 	= src.get(s) 	* SCALE;
+					im[d] 	= src.get(s+1) 	* SCALE;
+					re[d+1] = src.get(s+2) 	* SCALE;
+					im[d+1] = src.get(s+3) 	* SCALE;
+					re[d+2] = src.get(s+4) 	* SCALE;
+					im[d+2] = src.get(s+5) 	* SCALE;
+					re[d+3] = src.get(s+6) 	* SCALE;
+					im[d+3] = src.get(s+7) 	* SCALE;
+				}
+				for(; i < numSamples; i++)
+				{
+					re[dstOffset + i] = src.get(srcOffset + 2*i) * SCALE;
+					im[dstOffset + i] = src.get(srcOffset + 2*i + 1) * SCALE;
+				}
+				break;
+			case KERNEL_LUT:
+			default:
+				float[] table = floatTable;
+				for(int j = 0; j < numSamples; j++)
+				{
+					re[dstOffset + j] = table[src.get(srcOffset + 2*j) & 0xFF];
+					im[dstOffset + j] = table[src.get(srcOffset + 2*j + 1) & 0xFF];
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Converts interleaved 8-bit samples to interleaved 16-bit samples (the 8-bit
+	 * value is shifted into the upper byte, so full scale stays full scale).
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (2 shorts per sample)
+	 * @param dstOffset		index of the first short in dst
+	 * @param numSamples	number of complex samples to convert
+	 */
+	public void toShort(byte[] src, int srcOffset, short[] dst, int dstOffset, int numSamples)
+	{
+		int n = 2 * numSamples;
+		switch(kernel)
+		{
+			case KERNEL_LOOP:
+				for(int i = 0; i < n; i++)
+					dst[dstOffset + i] = (short) (src[srcOffset + i] << 8);
+				break;
+			case KERNEL_UNROLLED:
+				int i = 0;
+				for(; i <= n - 8; i += 8)
+				{
+					int s = srcOffset + i;
+					int d = dstOffset + i;
+					dst[d] 	 = (short) (src[s] 	 << 8);
+					dst[d+1] = (short) (src[s+1] << 8);
+					dst[d+2] = (short) (src[s+2] << 8);
+					dst[d+3] = (short) (src[s+3] << 8);
+					dst[d+4] = (short) (src[s+4] << 8);
+					dst[d+5] = (short) (src[s+5] << 8);
+					dst[d+6] = (short) (src[s+6] << 8);
+					dst[d+7] = (short) (src[s+7] << 8);
+				}
+				for(; i < n; i++)
+					dst[dstOffset + i] = (short) (src[srcOffset + i] << 8);
+				break;
+			case KERNEL_LUT:
+			default:
+				short[] table = shortTable;
+				for(int j = 0; j < n; j++)
+					dst[dstOffset + j] = table[src[srcOffset + j] & 0xFF];
+				break;
+		}
+	}
+
+	/**
+	 * Converts interleaved 8-bit samples from a ByteBuffer to interleaved 16-bit samples
+	 * (see toShort(byte[], ...) and toFloat(ByteBuffer, ...)).
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (2 shorts per sample)
+	 * @param dstOffset		index of the first short in dst
+	 * @param numSamples	number of complex samples to convert
+	 */
+	public void toShort(ByteBuffer src, int srcOffset, short[] dst, int dstOffset, int numSamples)
+	{
+		if(src.hasArray())
+		{
+			toShort(src.array(), src.arrayOffset() + srcOffset, dst, dstOffset, numSamples);
+			return;
+		}
+		int n = 2 * numSamples;
+		switch(kernel)
+		{
+			case KERNEL_LOOP:
+				for(int i = 0; i < n; i++)
+					dst[dstOffset + i] = (short) (src.get(srcOffset + i) << 8);
+				break;
+			case KERNEL_UNROLLED:
+				int i = 0;
+				for(; i <= n - 8; i += 8)
+				{
+					int s = srcOffset + i;
+					int d = dstOffset + i;
+					dst[d] 	 = (short) (src.get(s) 	 << 8);
+					dst[d+1] = (short) (src.get(s+1) << 8);
+					dst[d+2] = (short) (src.get(s+2) << 8);
+					dst[d+3] = (short) (src.get(s+3) << 8);
+					dst[d+4] = (short) (src.get(s+4) << 8);
+					dst[d+5] = (short) (src.get(s+5) << 8);
+					dst[d+6] = (short) (src.get(s+6) << 8);
+					dst[d+7] = (short) (src.get(s+7) << 8);
+				}
+				for(; i < n; i++)
+					dst[dstOffset + i] = (short) (src.get(srcOffset + i) << 8);
+				break;
+			case KERNEL_LUT:
+			default:
+				short[] table = shortTable;
+				for(int j = 0; j < n; j++)
+					dst[dstOffset + j] = table[src.get(srcOffset + j) & 0xFF];
+				break;
+		}
+	}
+
+	/**
+	 * Computes the power (I^2 + Q^2, full scale = 1) of each sample.
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (1 float per sample)
+	 * @param dstOffset		index of the first float in dst
+	 * @param numSamples	number of complex samples
+	 */
+	public void power(byte[] src, int srcOffset, float[] dst, int dstOffset, int numSamples)
+	{
+		if(kernel == KERNEL_LUT)
+		{
+			float[] table = squareTable;
+			for(int i = 0; i < numSamples; i++)
+				dst[dstOffset + i] = table[src[srcOffset + 2*i] & 0xFF] + table[src[srcOffset + 2*i + 1] & 0xFF];
+		}
+		else
+		{
+			// Integer arithmetic is exact and the JIT can vectorize it:
+			final float scale = SCALE * SCALE;
+			for(int i = 0; i < numSamples; i++)
+			{
+				int re = src[srcOffset + 2*i];
+				int im = src[srcOffset + 2*i + 1];
+				dst[dstOffset + i] = (re*re + im*im) * scale;
+			}
+		}
+	}
+
+	/**
+	 * Computes the power of each sample of a ByteBuffer (see power(byte[], ...)).
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (1 float per sample)
+	 * @param dstOffset		index of the first float in dst
+	 * @param numSamples	number of complex samples
+	 */
+	public void power(ByteBuffer src, int srcOffset, float[] dst, int dstOffset, int numSamples)
+	{
+		if(src.hasArray())
+		{
+			power(src.array(), src.arrayOffset() + srcOffset, dst, dstOffset, numSamples);
+			return;
+		}
+		if(kernel == KERNEL_LUT)
+		{
+			float[] table = squareTable;
+			for(int i = 0; i < numSamples; i++)
+				dst[dstOffset + i] = table[src.get(srcOffset + 2*i) & 0xFF] + table[src.get(srcOffset + 2*i + 1) & 0xFF];
+		}
+		else
+		{
+			final float scale = SCALE * SCALE;
+			for(int i = 0; i < numSamples; i++)
+			{
+				int re = src.get(srcOffset + 2*i);
+				int im = src.get(srcOffset + 2*i + 1);
+				dst[dstOffset + i] = (re*re + im*im) * scale;
+			}
+		}
+	}
+
+	/**
+	 * Computes the magnitude (sqrt(I^2 + Q^2), full scale = 1) of each sample.
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (1 float per sample)
+	 * @param dstOffset		index of the first float in dst
+	 * @param numSamples	number of complex samples
+	 */
+	public void magnitude(byte[] src, int srcOffset, float[] dst, int dstOffset, int numSamples)
+	{
+		power(src, srcOffset, dst, dstOffset, numSamples);
+		for(int i = 0; i < numSamples; i++)
+			dst[dstOffset + i] = (float) Math.sqrt(dst[dstOffset + i]);
+	}
+
+	/**
+	 * Computes the magnitude of each sample of a ByteBuffer (see magnitude(byte[], ...)).
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (1 float per sample)
+	 * @param dstOffset		index of the first float in dst
+	 * @param numSamples	number of complex samples
+	 */
+	public void magnitude(ByteBuffer src, int srcOffset, float[] dst, int dstOffset, int numSamples)
+	{
+		power(src, srcOffset, dst, dstOffset, numSamples);
+		for(int i = 0; i < numSamples; i++)
+			dst[dstOffset + i] = (float) Math.sqrt(dst[dstOffset + i]);
+	}
+
+	/**
+	 * Measures the throughput of each kernel of toFloat() with a byte[] source and
+	 * returns the fastest one (see calibrate(int, int, boolean)).
+	 *
+	 * @param numSamples	number of samples per conversion (e.g. the samples of one transfer)
+	 * @param iterations	number of measured conversions per kernel (after a warm-up of the same length)
+	 * @return KERNEL_* with the shortest run time
+	 */
+	public static int calibrate(int numSamples, int iterations)
+	{
+		return calibrate(numSamples, iterations, false);
+	}
+
+	/**
+	 * Measures the throughput of each kernel of toFloat() on this device and returns the
+	 * fastest one. Takes about 14 * iterations conversions of numSamples samples. Arrays
+	 * and direct ByteBuffers favor different kernels, so calibrate with the kind of
+	 * source that is converted later (IqBlock buffers are direct).
+	 *
+	 * @param numSamples	number of samples per conversion (e.g. the samples of one transfer)
+	 * @param iterations	number of measured conversions per kernel (after a warm-up of the same length)
+	 * @param direct		true to measure a direct ByteBuffer source, false for a byte[] source
+	 * @return KERNEL_* with the shortest run time
+	 */
+	public static int calibrate(int numSamples, int iterations, boolean direct)
+	{
+		byte[] src = new byte[2 * numSamples];
+		for(int i = 0; i < src.length; i++)
+			src[i] = (byte) (i * 31);
+		ByteBuffer directSrc = null;
+		if(direct)
+		{
+			directSrc = ByteBuffer.allocateDirect(src.length);
+			directSrc.put(src);
+			directSrc.clear();
+		}
+		float[] dst = new float[2 * numSamples];
+		IqConverter converter = new IqConverter();
+		long[] bestTime = new long[NUM_KERNELS];
+		for(int round = 0; round < 3; round++)
+		{
+			for(int kernel = 0; kernel < NUM_KERNELS; kernel++)
+			{
+				converter.setKernel(kernel);
+				for(int i = 0; i < iterations / 2 + 1; i++)		// warm-up
+					converter.convertForCalibration(src, directSrc, dst, numSamples);
+				long start = System.nanoTime();
+				for(int i = 0; i < iterations; i++)
+					converter.convertForCalibration(src, directSrc, dst, numSamples);
+				long time = System.nanoTime() - start;
+				if(round == 0 || time < bestTime[kernel])
+					bestTime[kernel] = time;
+			}
+		}
+		int fastest = 0;
+		for(int kernel = 1; kernel < NUM_KERNELS; kernel++)
+			if(bestTime[kernel] < bestTime[fastest])
+				fastest = kernel;
+		return fastest;
+	}
+
+	private void convertForCalibration(byte[] src, ByteBuffer directSrc, float[] dst, int numSamples)
+	{
+		if(directSrc != null)
+			toFloat(directSrc, 0, dst, 0, numSamples);
+		else
+			toFloat(src, 0, dst, 0, numSamples);
+	}
+}
@@ -0,0 +1,400 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      IqCorrector.java
+ * Description: Streaming correction of the DC offset and the IQ imbalance
+ * 				(gain and phase error between I and Q) of the HackRF. The
+ * 				corrector keeps running estimates that are updated once per
+ * 				block with the statistics of the block (exponential averages
+ * 				with configurable time constants). A block is corrected with
+ * 				the estimates of the previous blocks, so that everything is
+ * 				done in a single pass: either in place on float samples or
+ * 				fused with the 8-bit to float conversion (e.g. directly on the
+ * 				pooled buffer of an IqBlock). Nothing is allocated per block.
+ * 				An instance must only be used by one thread at a time.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class IqCorrector {
+
+	private static final float[] floatTable = new float[256];		// 8-bit sample to float, indexed by the unsigned byte
+	static {
+		for(int i = 0; i < 256; i++)
+			floatTable[i] = (byte) i * IqConverter.SCALE;
+	}
+
+	private boolean dcCorrection = true;
+	private boolean imbalanceCorrection = true;
+	private int dcTimeConstant;				// in samples
+	private int imbalanceTimeConstant;		// in samples
+
+	// Running estimates:
+	private boolean initialized = false;	// false until the first block was seen
+	private float dcI = 0;					// DC offset of I and Q
+	private float dcQ = 0;
+	private float powerI = 0;				// E[I^2], E[Q^2], E[IQ] (without DC)
+	private float powerQ = 0;
+	private float crossIQ = 0;
+
+	// Correction derived from the estimates: Q' = gain * (Q - phase * I)
+	private float phase = 0;
+	private float gain = 1;
+
+	/**
+	 * Creates a corrector with time constants of 100000 samples (DC) and 1000000
+	 * samples (imbalance).
+	 */
+	public IqCorrector()
+	{
+		this(100000, 1000000);
+	}
+
+	/**
+	 * @param dcTimeConstant			time constant of the DC estimate in samples (e.g. sampleRate / 100 for 10 ms)
+	 * @param imbalanceTimeConstant		time constant of the gain/phase estimate in samples
+	 */
+	public IqCorrector(int dcTimeConstant, int imbalanceTimeConstant)
+	{
+		this.dcTimeConstant = Math.max(1, dcTimeConstant);
+		this.imbalanceTimeConstant = Math.max(1, imbalanceTimeConstant);
+	}
+
+	/**
+	 * @param timeConstant	time constant of the DC estimate in samples (> 0)
+	 * @return false if the time constant is invalid
+	 */
+	public boolean setDcTimeConstant(int timeConstant)
+	{
+		if(timeConstant < 1)
+			return false;
+		this.dcTimeConstant = timeConstant;
+		return true;
+	}
+
+	/**
+	 * @param timeConstant	time constant of the gain/phase estimate in samples (> 0)
+	 * @return false if the time constant is invalid
+	 */
+	public boolean setImbalanceTimeConstant(int timeConstant)
+	{
+		if(timeConstant < 1)
+			return false;
+		this.imbalanceTimeConstant = timeConstant;
+		return true;
+	}
+
+	public int getDcTimeConstant()
+	{
+		return dcTimeConstant;
+	}
+
+	public int getImbalanceTimeConstant()
+	{
+		return imbalanceTimeConstant;
+	}
+
+	/**
+	 * @param enable	true to remove the DC offset (default)
+	 */
+	public void setDcCorrection(boolean enable)
+	{
+		this.dcCorrection = enable;
+	}
+
+	/**
+	 * @param enable	true to correct the gain and phase imbalance (default)
+	 */
+	public void setImbalanceCorrection(boolean enable)
+	{
+		this.imbalanceCorrection = enable;
+	}
+
+	public boolean isDcCorrection()
+	{
+		return dcCorrection;
+	}
+
+	public boolean isImbalanceCorrection()
+	{
+		return imbalanceCorrection;
+	}
+
+	/**
+	 * @return estimated DC offset of I (full scale = 1)
+	 */
+	public float getDcOffsetI()
+	{
+		return dcI;
+	}
+
+	/**
+	 * @return estimated DC offset of Q (full scale = 1)
+	 */
+	public float getDcOffsetQ()
+	{
+		return dcQ;
+	}
+
+	/**
+	 * @return estimated amplitude ratio of I to Q (1 = no gain imbalance)
+	 */
+	public float getGainImbalance()
+	{
+		return (float) (gain * Math.cos(getPhaseImbalance()));
+	}
+
+	/**
+	 * @return estimated phase error between I and Q in radians (0 = orthogonal)
+	 */
+	public float getPhaseImbalance()
+	{
+		return (float) Math.atan(phase * gain);
+	}
+
+	/**
+	 * Forgets all estimates (e.g. after retuning or changing the gain).
+	 */
+	public void reset()
+	{
+		initialized = false;
+		dcI = dcQ = 0;
+		powerI = powerQ = crossIQ = 0;
+		phase = 0;
+		gain = 1;
+	}
+
+	/**
+	 * Corrects interleaved float samples in place and updates the estimates.
+	 *
+	 * @param samples		interleaved float IQ samples
+	 * @param offset		index of the first float
+	 * @param numSamples	number of complex samples
+	 */
+	public void correct(float[] samples, int offset, int numSamples)
+	{
+		if(numSamples <= 0)
+			return;
+		float dcI = this.dcCorrection ? this.dcI : 0;
+		float dcQ = this.dcCorrection ? this.dcQ : 0;
+		float phase = this.imbalanceCorrection ? this.phase : 0;
+		float gain = this.imbalanceCorrection ? this.gain : 1;
+		double sumI = 0, sumQ = 0, sumII = 0, sumQQ = 0, sumIQ = 0;
+		int end = offset + 2 * numSamples;
+		for(int k = offset; k < end; k += 2)
+		{
+			float i = samples[k];
+			float q = samples[k+1];
+			sumI += i;
+			sumQ += q;
+			sumII += i * i;
+			sumQQ += q * q;
+			sumIQ += i * q;
+			i -= dcI;
+			q -= dcQ;
+			samples[k] = i;
+			samples[k+1] = gain * (q - phase * i);
+		}
+		update(numSamples, sumI, sumQ, sumII, sumQQ, sumIQ);
+	}
+
+	/**
+	 * Converts interleaved 8-bit samples to interleaved float samples, corrects them
+	 * and updates the estimates (one pass over the samples).
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (2 floats per sample)
+	 * @param dstOffset		index of the first float in dst
+	 * @param numSamples	number of complex samples
+	 */
+	public void convertAndCorrect(byte[] src, int srcOffset, float[] dst, int dstOffset, int numSamples)
+	{
+		if(numSamples <= 0)
+			return;
+		float[] table = floatTable;
+		float dcI = this.dcCorrection ? this.dcI : 0;
+		float dcQ = this.dcCorrection ? this.dcQ : 0;
+		float phase = this.imbalanceCorrection ? this.phase : 0;
+		float gain = this.imbalanceCorrection ? this.gain : 1;
+		// Sums of the raw 8-bit values are exact as long integers:
+		long sumI = 0, sumQ = 0, sumII = 0, sumQQ = 0, sumIQ = 0;
+		for(int n = 0; n < numSamples; n++)
+		{
+			int rawI = src[srcOffset + 2*n];
+			int rawQ = src[srcOffset + 2*n + 1];
+			sumI += rawI;
+			sumQ += rawQ;
+			sumII += rawI * rawI;
+			sumQQ += rawQ * rawQ;
+			sumIQ += rawI * rawQ;
+			float i = table[rawI & 0xFF] - dcI;
+			float q = table[rawQ & 0xFF] - dcQ;
+			dst[dstOffset + 2*n] = i;
+			dst[dstOffset + 2*n + 1] = gain * (q - phase * i);
+		}
+		updateRaw(numSamples, sumI, sumQ, sumII, sumQQ, sumIQ);
+	}
+
+	/**
+	 * Converts and corrects the samples of a ByteBuffer (e.g. IqBlock.getBuffer(), see
+	 * convertAndCorrect(byte[], ...)). The position of the buffer is not changed.
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (2 floats per sample)
+	 * @param dstOffset		index of the first float in dst
+	 * @param numSamples	number of complex samples
+	 */
+	public void convertAndCorrect(ByteBuffer src, int srcOffset, float[] dst, int dstOffset, int numSamples)
+	{
+		if(src.hasArray())
+		{
+			convertAndCorrect(src.array(), src.arrayOffset() + srcOffset, dst, dstOffset, numSamples);
+			return;
+		}
+		if(numSamples <= 0)
+			return;
+		float[] table = floatTable;
+		float dcI = this.dcCorrection ? this.dcI : 0;
+		float dcQ = this.dcCorrection ? this.dcQ : 0;
+		float phase = this.imbalanceCorrection ? this.phase : 0;
+		float gain = this.imbalanceCorrection ? this.gain : 1;
+		long sumI = 0, sumQ = 0, sumII = 0, sumQQ = 0, sumIQ = 0;
+		for(int n = 0; n < numSamples; n++)
+		{
+			int rawI = src.get(srcOffset + 2*n);
+			int rawQ = src.get(srcOffset + 2*n + 1);
+			sumI += rawI;
+			sumQ += rawQ;
+			sumII += rawI * rawI;
+			sumQQ += rawQ * rawQ;
+			sumIQ += rawI * rawQ;
+			float i = table[rawI & 0xFF] - dcI;
+			float q = table[rawQ & 0xFF] - dcQ;
+			dst[dstOffset + 2*n] = i;
+			dst[dstOffset + 2*n + 1] = gain * (q - phase * i);
+		}
+		updateRaw(numSamples, sumI, sumQ, sumII, sumQQ, sumIQ);
+	}
+
+	// Correction that is applied to the next block (for kernels that fuse the correction
+	// with other processing, see FusedDecimator):
+
+	float getCorrectionDcI()
+	{
+		return dcCorrection ? dcI : 0;
+	}
+
+	float getCorrectionDcQ()
+	{
+		return dcCorrection ? dcQ : 0;
+	}
+
+	float getCorrectionPhase()
+	{
+		return imbalanceCorrection ? phase : 0;
+	}
+
+	float getCorrectionGain()
+	{
+		return imbalanceCorrection ? gain : 1;
+	}
+
+	/**
+	 * Updates the running estimates with the sums of the raw 8-bit values of a block.
+	 */
+	void updateRaw(int numSamples, long sumI, long sumQ, long sumII, long sumQQ, long sumIQ)
+	{
+		updateRaw(numSamples, sumI, sumQ, sumII, sumQQ, sumIQ, numSamples);
+	}
+
+	/**
+	 * Updates the running estimates with the sums of the raw 8-bit values of a subset of
+	 * the samples of a block.
+	 *
+	 * @param numSummed		number of samples in the sums
+	 * @param blockLength	number of samples of the block (for the time constants)
+	 */
+	void updateRaw(int numSummed, long sumI, long sumQ, long sumII, long sumQQ, long sumIQ, int blockLength)
+	{
+		if(numSummed <= 0)
+			return;
+		final double scale = IqConverter.SCALE;
+		update(numSummed, sumI * scale, sumQ * scale, sumII * scale * scale, sumQQ * scale * scale, sumIQ * scale * scale, blockLength);
+	}
+
+	/**
+	 * Updates the running estimates with the raw (uncorrected) moments of a block.
+	 */
+	private void update(int numSamples, double sumI, double sumQ, double sumII, double sumQQ, double sumIQ)
+	{
+		update(numSamples, sumI, sumQ, sumII, sumQQ, sumIQ, numSamples);
+	}
+
+	/**
+	 * Updates the running estimates with the moments of numSamples samples of a block
+	 * with blockLength samples.
+	 */
+	private void update(int numSamples, double sumI, double sumQ, double sumII, double sumQQ, double sumIQ, int blockLength)
+	{
+		double meanI = sumI / numSamples;
+		double meanQ = sumQ / numSamples;
+		// Second moments without the DC of this block:
+		double varI = sumII / numSamples - meanI * meanI;
+		double varQ = sumQQ / numSamples - meanQ * meanQ;
+		double covIQ = sumIQ / numSamples - meanI * meanQ;
+
+		if(!initialized)
+		{
+			dcI = (float) meanI;
+			dcQ = (float) meanQ;
+			powerI = (float) varI;
+			powerQ = (float) varQ;
+			crossIQ = (float) covIQ;
+			initialized = true;
+		}
+		else
+		{
+			float dcAlpha = (float) (1 - Math.exp(-(double) blockLength / dcTimeConstant));
+			float iqAlpha = (float) (1 - Math.exp(-(double) blockLength / imbalanceTimeConstant));
+			dcI += dcAlpha * (meanI - dcI);
+			dcQ += dcAlpha * (meanQ - dcQ);
+			powerI += iqAlpha * (varI - powerI);
+			powerQ += iqAlpha * (varQ - powerQ);
+			crossIQ += iqAlpha * (covIQ - crossIQ);
+		}
+
+		// Remove the part of Q that is correlated with I, then scale Q to the power of I:
+		if(powerI > 0)
+		{
+			float p = crossIQ / powerI;
+			float residual = powerQ - p * crossIQ;
+			if(residual > 0)
+			{
+				phase = p;
+				gain = (float) Math.sqrt(powerI / residual);
+			}
+		}
+	}
+}
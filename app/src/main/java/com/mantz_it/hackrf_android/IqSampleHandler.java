@@ -0,0 +1,43 @@
+package com.mantz_it.hackrf_android;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      IqSampleHandler.java
+ * Description: Interface that receives complex float samples (interleaved I
+ * 				and Q) from a processing chain (e.g. DecimatorChain).
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public interface IqSampleHandler {
+
+	/**
+	 * Called for each packet of processed samples. The array is reused by the caller,
+	 * so the handler must copy the samples it wants to keep.
+	 *
+	 * @param samples		interleaved I and Q values
+	 * @param offset		index of the first float
+	 * @param numSamples	number of complex samples
+	 * @param frequency		center frequency of the samples in Hz (0 if unknown)
+	 * @param sampleRate	sample rate of the samples in Hz (0 if unknown)
+	 * @return false to stop receiving
+	 */
+	public boolean onSamples(float[] samples, int offset, int numSamples, long frequency, int sampleRate);
+}
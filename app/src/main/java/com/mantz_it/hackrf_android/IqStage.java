@@ -0,0 +1,66 @@
+package com.mantz_it.hackrf_android;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      IqStage.java
+ * Description: A processing stage for complex float samples (interleaved I
+ * 				and Q, see IqConverter.toFloat()) that changes the sample rate
+ * 				by interpolation / decimation. Stages keep their state (filter
+ * 				history, phase) across calls, so a stream can be processed in
+ * 				packets of any size. A stage is used by one thread at a time.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public interface IqStage {
+
+	/**
+	 * Processes the next samples of the stream.
+	 *
+	 * @param in			input samples (interleaved I and Q)
+	 * @param inOffset		index of the first float in in
+	 * @param numSamples	number of complex input samples
+	 * @param out			destination (must have room for getMaxOutputLength(numSamples) samples)
+	 * @param outOffset		index of the first float in out
+	 * @return number of complex output samples
+	 */
+	public int process(float[] in, int inOffset, int numSamples, float[] out, int outOffset);
+
+	/**
+	 * @param numSamples	number of input samples
+	 * @return maximum number of output samples that process() returns for numSamples input samples
+	 */
+	public int getMaxOutputLength(int numSamples);
+
+	/**
+	 * @return interpolation factor (output rate = input rate * interpolation / decimation)
+	 */
+	public int getInterpolation();
+
+	/**
+	 * @return decimation factor (output rate = input rate * interpolation / decimation)
+	 */
+	public int getDecimation();
+
+	/**
+	 * Clears the history of the stage (e.g. after a discontinuity of the input).
+	 */
+	public void reset();
+}
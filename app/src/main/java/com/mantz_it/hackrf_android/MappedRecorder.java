@@ -0,0 +1,392 @@
+package com.mantz_it.hackrf_android;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      MappedRecorder.java
+ * Description: Records the RX stream into a file without an intermediate heap
+ * 				buffer: the file is preallocated (posix_fallocate(), so a
+ * 				full storage fails the allocation instead of a later write
+ * 				into the mapping) and mapped into memory in
+ * 				windows (FileChannel.map()), and each block is copied from its
+ * 				direct buffer straight into the mapped window. The kernel
+ * 				writes the dirty pages to the storage in the background, so
+ * 				a write is a memcpy (plus page faults) instead of a system
+ * 				call per packet. The recorder measures the sustained write
+ * 				rate and the longest single write (the worst-case stall).
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class MappedRecorder implements IqBlockHandler {
+
+	private static final String logTag = "hackrf_android";
+	public static final long DEFAULT_PREALLOCATION 	= 256L * 1024 * 1024;	// 256 MB
+	public static final int DEFAULT_WINDOW_SIZE 	= 32 * 1024 * 1024;		// 32 MB
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	private final long preallocation;			// the file grows in steps of this size
+	private final int windowSize;				// size of one mapped window
+	private MappedByteBuffer window = null;		// mapped part of the file that is written next
+	private long windowStart = 0;				// file position of the window
+	private long fileSize;						// current (preallocated) size of the file
+	private long bytesWritten = 0;
+	private boolean closed = false;
+
+	// Statistics:
+	private long firstWriteTime = 0;			// System.nanoTime() of the first write
+	private long lastWriteTime = 0;				// System.nanoTime() at the end of the last write
+	private long writeTime = 0;					// sum of the time spent in write() in ns
+	private long maxWriteTime = 0;				// longest write() in ns
+	private int mapCounter = 0;					// number of mapped windows
+	private int growCounter = 0;				// number of times the file was extended
+
+	/**
+	 * Creates (or overwrites) the file with DEFAULT_PREALLOCATION bytes and maps
+	 * windows of DEFAULT_WINDOW_SIZE.
+	 *
+	 * @param file		file to write
+	 * @throws IOException if the file can't be created
+	 */
+	public MappedRecorder(File file) throws IOException
+	{
+		this(file, DEFAULT_PREALLOCATION, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Creates (or overwrites) the file and preallocates it. If the recording gets longer,
+	 * the file grows in steps of preallocation bytes. close() truncates the file to the
+	 * recorded length. If the file system doesn't support posix_fallocate(), the file is
+	 * only extended (sparse) and a full storage is detected by the kernel on write-back.
+	 *
+	 * @param file				file to write
+	 * @param preallocation		initial size of the file and size of each extension in bytes
+	 * 							(rounded up to a multiple of windowSize)
+	 * @param windowSize		size of one mapped window in bytes (larger windows map less often,
+	 * 							smaller windows use less address space)
+	 * @throws IOException if the file can't be created or there is not enough free space
+	 * @throws IllegalArgumentException if a size is not positive
+	 */
+	public MappedRecorder(File file, long preallocation, int windowSize) throws IOException
+	{
+		if(preallocation <= 0 || windowSize <= 0)
+			throw new IllegalArgumentException("Invalid preallocation / window size: " + preallocation + " / " + windowSize);
+		this.file = file;
+		this.windowSize = windowSize;
+		this.preallocation = (preallocation + windowSize - 1) / windowSize * windowSize;
+		this.randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			allocate(0, this.preallocation);
+		} catch (IOException e) {
+			randomAccessFile.close();
+			throw e;
+		}
+		this.channel = randomAccessFile.getChannel();
+		this.fileSize = this.preallocation;
+	}
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * @return number of bytes that were recorded
+	 */
+	public long getBytesWritten()
+	{
+		return bytesWritten;
+	}
+
+	/**
+	 * @return current size of the file including the preallocated space
+	 */
+	public long getFileSize()
+	{
+		return fileSize;
+	}
+
+	/**
+	 * @return bytes per second between the start of the first and the end of the last write
+	 */
+	public double getThroughput()
+	{
+		long time = lastWriteTime - firstWriteTime;
+		return time > 0 ? bytesWritten * 1e9 / time : 0;
+	}
+
+	/**
+	 * @return bytes per second while the recorder was writing (the rate it could sustain
+	 * 			if it were never idle)
+	 */
+	public double getWriteRate()
+	{
+		return writeTime > 0 ? bytesWritten * 1e9 / writeTime : 0;
+	}
+
+	/**
+	 * @return time in ns spent writing
+	 */
+	public long getWriteTime()
+	{
+		return writeTime;
+	}
+
+	/**
+	 * @return longest single write in ns (including mapping a new window or extending the file)
+	 */
+	public long getMaxWriteTime()
+	{
+		return maxWriteTime;
+	}
+
+	/**
+	 * @return number of windows that were mapped
+	 */
+	public int getMapCounter()
+	{
+		return mapCounter;
+	}
+
+	/**
+	 * @return number of times the file was extended beyond the preallocation
+	 */
+	public int getGrowCounter()
+	{
+		return growCounter;
+	}
+
+	/**
+	 * Writes the valid bytes of a block and releases it (also if the write fails).
+	 *
+	 * @param block		received block (see Hackrf.startRXDirect() or startRXRing())
+	 * @throws IOException if the file can't be written
+	 */
+	public void record(IqBlock block) throws IOException
+	{
+		try {
+			write(block.getBuffer(), 0, block.getLength());
+		} finally {
+			block.release();
+		}
+	}
+
+	/**
+	 * Writes the block (for startRX(IqBlockHandler) or DspPipeline.handlerStage()).
+	 *
+	 * @param block		received block
+	 * @return false if the write failed (receiving stops)
+	 */
+	@Override
+	public boolean onIqBlock(IqBlock block)
+	{
+		try {
+			write(block.getBuffer(), 0, block.getLength());
+			return true;
+		} catch (IOException e) {
+			Log.e(logTag, "MappedRecorder.onIqBlock: Write to " + file + " failed: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Writes bytes of a buffer. The position and limit of src are not changed (a
+	 * duplicate is used, so the shared view of an IqBlock can be passed).
+	 *
+	 * @param src		buffer (preferably direct)
+	 * @param offset	index of the first byte in src
+	 * @param length	number of bytes
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(ByteBuffer src, int offset, int length) throws IOException
+	{
+		long startTime = startWrite();
+		ByteBuffer view = src.duplicate();
+		int end = offset + length;
+		while(offset < end)
+		{
+			int n = Math.min(end - offset, prepareWindow());
+			view.limit(offset + n);
+			view.position(offset);
+			window.put(view);
+			offset += n;
+		}
+		endWrite(startTime, length);
+	}
+
+	/**
+	 * Writes bytes of an array (e.g. a packet from Hackrf.startRX()).
+	 *
+	 * @param packet	samples
+	 * @param offset	index of the first byte
+	 * @param length	number of bytes
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(byte[] packet, int offset, int length) throws IOException
+	{
+		long startTime = startWrite();
+		int end = offset + length;
+		while(offset < end)
+		{
+			int n = Math.min(end - offset, prepareWindow());
+			window.put(packet, offset, n);
+			offset += n;
+		}
+		endWrite(startTime, length);
+	}
+
+	/**
+	 * Forces all recorded data to the storage (this blocks until the pages are
+	 * written, so don't call it for every block).
+	 *
+	 * @throws IOException if the data can't be written
+	 */
+	public void flush() throws IOException
+	{
+		if(window != null)
+			window.force();
+		channel.force(false);		// includes the windows that were already replaced
+	}
+
+	/**
+	 * Writes the recorded data to the storage, truncates the file to the recorded
+	 * length and closes it.
+	 *
+	 * @throws IOException if the file can't be truncated or closed
+	 */
+	public void close() throws IOException
+	{
+		close(true);
+	}
+
+	/**
+	 * Truncates the file to the recorded length and closes it.
+	 *
+	 * @param sync		true to force the recorded data to the storage first
+	 * @throws IOException if the file can't be truncated or closed
+	 */
+	void close(boolean sync) throws IOException
+	{
+		if(closed)
+			return;
+		closed = true;
+		try {
+			if(sync)
+				flush();
+			window = null;		// the mapping is removed when the buffer is garbage collected
+			randomAccessFile.setLength(bytesWritten);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Maps the first window in advance, so that the first write doesn't have to
+	 * (see SegmentedRecorder).
+	 *
+	 * @throws IOException if the file can't be mapped
+	 */
+	void premap() throws IOException
+	{
+		if(window == null)
+			prepareWindow();
+	}
+
+	private long startWrite() throws IOException
+	{
+		if(closed)
+			throw new IOException("MappedRecorder for " + file + " is closed!");
+		long now = System.nanoTime();
+		if(firstWriteTime == 0)
+			firstWriteTime = now;
+		return now;
+	}
+
+	private void endWrite(long startTime, int length)
+	{
+		long now = System.nanoTime();
+		long time = now - startTime;
+		bytesWritten += length;
+		writeTime += time;
+		if(time > maxWriteTime)
+			maxWriteTime = time;
+		lastWriteTime = now;
+	}
+
+	/**
+	 * Makes sure that the current window has free space: maps the next window and
+	 * extends the file if necessary.
+	 *
+	 * @return number of bytes that fit into the current window
+	 * @throws IOException if the file can't be extended or mapped
+	 */
+	private int prepareWindow() throws IOException
+	{
+		if(window != null && window.hasRemaining())
+			return window.remaining();
+		long start = window == null ? 0 : windowStart + windowSize;
+		if(start + windowSize > fileSize)
+		{
+			allocate(fileSize, preallocation);
+			fileSize += preallocation;
+			growCounter++;
+		}
+		window = channel.map(FileChannel.MapMode.READ_WRITE, start, windowSize);
+		windowStart = start;
+		mapCounter++;
+		return window.remaining();
+	}
+
+	/**
+	 * Allocates storage for a range of the file and extends the file if necessary.
+	 * Without the allocation, a full storage would only be noticed when the kernel
+	 * writes back a page of the mapping, and the write into the mapping crashes the
+	 * process (SIGBUS).
+	 *
+	 * @param offset	file position of the range
+	 * @param length	number of bytes
+	 * @throws IOException if there is not enough free space or the file can't be extended
+	 */
+	private void allocate(long offset, long length) throws IOException
+	{
+		try {
+			Os.posix_fallocate(randomAccessFile.getFD(), offset, length);
+			return;
+		} catch (ErrnoException e) {
+			if(e.errno == OsConstants.ENOSPC)
+				throw new IOException("Not enough free space for " + file + ": " + e.getMessage());
+			Log.w(logTag, "MappedRecorder.allocate: posix_fallocate failed (" + e.getMessage() + "). Extending the file instead.");
+		}
+		randomAccessFile.setLength(offset + length);
+	}
+}
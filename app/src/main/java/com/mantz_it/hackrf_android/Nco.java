@@ -0,0 +1,267 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      Nco.java
+ * Description: Numerically controlled oscillator that shifts complex samples
+ * 				in frequency (multiplication with exp(j*2*pi*f*n)). The phase
+ * 				is a 32-bit accumulator (wraps around at one cycle, so it
+ * 				never loses precision) and sine / cosine come from a lookup
+ * 				table of 4096 entries (spurs of the phase truncation are
+ * 				about 72 dB below the signal). The phase continues across
+ * 				calls and frequency changes, so a stream can be mixed in
+ * 				blocks without discontinuities. Nothing is allocated.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class Nco implements IqStage {
+
+	static final int TABLE_BITS = 12;
+	static final int TABLE_SHIFT = 32 - TABLE_BITS;		// phase >>> TABLE_SHIFT is the table index
+	static final float[] cosTable = new float[1 << TABLE_BITS];
+	static final float[] sinTable = new float[1 << TABLE_BITS];
+	private static final float[] floatTable = new float[256];		// 8-bit sample to float, indexed by the unsigned byte
+	static {
+		for(int i = 0; i < cosTable.length; i++)
+		{
+			double phase = 2 * Math.PI * i / cosTable.length;
+			cosTable[i] = (float) Math.cos(phase);
+			sinTable[i] = (float) Math.sin(phase);
+		}
+		for(int i = 0; i < 256; i++)
+			floatTable[i] = (byte) i * IqConverter.SCALE;
+	}
+
+	private double frequency = 0;			// in cycles per sample
+	private int phaseIncrement = 0;			// per sample (2^32 = one cycle)
+	private int phase = 0;
+
+	/**
+	 * Creates an oscillator with frequency 0 (no shift).
+	 */
+	public Nco()
+	{
+	}
+
+	/**
+	 * @param frequency		in cycles per sample (-0.5 to 0.5)
+	 */
+	public Nco(double frequency)
+	{
+		setFrequency(frequency);
+	}
+
+	/**
+	 * Sets the frequency. The phase is not changed (no phase jump).
+	 *
+	 * @param frequency		shift in cycles per sample (-0.5 to 0.5): a signal at f ends up at f + frequency
+	 * @return false if the frequency is out of range
+	 */
+	public boolean setFrequency(double frequency)
+	{
+		if(frequency < -0.5 || frequency > 0.5)
+			return false;
+		this.frequency = frequency;
+		this.phaseIncrement = (int) Math.round(frequency * 4294967296.0);		// wraps to [-2^31; 2^31)
+		return true;
+	}
+
+	/**
+	 * Sets the frequency in Hz (see setFrequency(double)).
+	 *
+	 * @param frequency		shift in Hz
+	 * @param sampleRate	sample rate in Hz
+	 * @return false if the shift is more than half the sample rate
+	 */
+	public boolean setFrequency(long frequency, int sampleRate)
+	{
+		if(sampleRate <= 0)
+			return false;
+		return setFrequency((double) frequency / sampleRate);
+	}
+
+	/**
+	 * @return frequency in cycles per sample
+	 */
+	public double getFrequency()
+	{
+		return frequency;
+	}
+
+	/**
+	 * @return current phase (2^32 = one cycle)
+	 */
+	public int getPhase()
+	{
+		return phase;
+	}
+
+	/**
+	 * @param phase		new phase (2^32 = one cycle)
+	 */
+	public void setPhase(int phase)
+	{
+		this.phase = phase;
+	}
+
+	/**
+	 * Sets the phase to 0 (the frequency is kept).
+	 */
+	@Override
+	public void reset()
+	{
+		this.phase = 0;
+	}
+
+	@Override
+	public int getInterpolation()
+	{
+		return 1;
+	}
+
+	@Override
+	public int getDecimation()
+	{
+		return 1;
+	}
+
+	@Override
+	public int getMaxOutputLength(int numSamples)
+	{
+		return numSamples;
+	}
+
+	@Override
+	public int process(float[] in, int inOffset, int numSamples, float[] out, int outOffset)
+	{
+		mix(in, inOffset, out, outOffset, numSamples);
+		return numSamples;
+	}
+
+	/**
+	 * Mixes interleaved float samples in place.
+	 *
+	 * @param samples		interleaved I and Q values
+	 * @param offset		index of the first float
+	 * @param numSamples	number of complex samples
+	 */
+	public void mix(float[] samples, int offset, int numSamples)
+	{
+		mix(samples, offset, samples, offset, numSamples);
+	}
+
+	/**
+	 * Mixes interleaved float samples (src and dst may be the same array).
+	 *
+	 * @param src			interleaved I and Q values
+	 * @param srcOffset		index of the first float in src
+	 * @param dst			destination
+	 * @param dstOffset		index of the first float in dst
+	 * @param numSamples	number of complex samples
+	 */
+	public void mix(float[] src, int srcOffset, float[] dst, int dstOffset, int numSamples)
+	{
+		float[] cosTable = Nco.cosTable;
+		float[] sinTable = Nco.sinTable;
+		int p = phase;
+		int inc = phaseIncrement;
+		for(int n = 0; n < numSamples; n++)
+		{
+			int index = p >>> TABLE_SHIFT;
+			float c = cosTable[index];
+			float s = sinTable[index];
+			p += inc;
+			float i = src[srcOffset + 2*n];
+			float q = src[srcOffset + 2*n + 1];
+			dst[dstOffset + 2*n] = i * c - q * s;
+			dst[dstOffset + 2*n + 1] = i * s + q * c;
+		}
+		phase = p;
+	}
+
+	/**
+	 * Converts interleaved 8-bit samples to float and mixes them (one pass).
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (2 floats per sample)
+	 * @param dstOffset		index of the first float in dst
+	 * @param numSamples	number of complex samples
+	 */
+	public void mix(byte[] src, int srcOffset, float[] dst, int dstOffset, int numSamples)
+	{
+		float[] table = floatTable;
+		float[] cosTable = Nco.cosTable;
+		float[] sinTable = Nco.sinTable;
+		int p = phase;
+		int inc = phaseIncrement;
+		for(int n = 0; n < numSamples; n++)
+		{
+			int index = p >>> TABLE_SHIFT;
+			float c = cosTable[index];
+			float s = sinTable[index];
+			p += inc;
+			float i = table[src[srcOffset + 2*n] & 0xFF];
+			float q = table[src[srcOffset + 2*n + 1] & 0xFF];
+			dst[dstOffset + 2*n] = i * c - q * s;
+			dst[dstOffset + 2*n + 1] = i * s + q * c;
+		}
+		phase = p;
+	}
+
+	/**
+	 * Converts and mixes the samples of a ByteBuffer (e.g. IqBlock.getBuffer(), see
+	 * mix(byte[], ...)). The position of the buffer is not changed.
+	 *
+	 * @param src			interleaved 8-bit IQ samples
+	 * @param srcOffset		index of the first byte in src
+	 * @param dst			destination (2 floats per sample)
+	 * @param dstOffset		index of the first float in dst
+	 * @param numSamples	number of complex samples
+	 */
+	public void mix(ByteBuffer src, int srcOffset, float[] dst, int dstOffset, int numSamples)
+	{
+		if(src.hasArray())
+		{
+			mix(src.array(), src.arrayOffset() + srcOffset, dst, dstOffset, numSamples);
+			return;
+		}
+		float[] table = floatTable;
+		float[] cosTable = Nco.cosTable;
+		float[] sinTable = Nco.sinTable;
+		int p = phase;
+		int inc = phaseIncrement;
+		for(int n = 0; n < numSamples; n++)
+		{
+			int index = p >>> TABLE_SHIFT;
+			float c = cosTable[index];
+			float s = sinTable[index];
+			p += inc;
+			float i = table[src.get(srcOffset + 2*n) & 0xFF];
+			float q = table[src.get(srcOffset + 2*n + 1) & 0xFF];
+			dst[dstOffset + 2*n] = i * c - q * s;
+			dst[dstOffset + 2*n + 1] = i * s + q * c;
+		}
+		phase = p;
+	}
+}
@@ -0,0 +1,70 @@
+package com.mantz_it.hackrf_android;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      OffsetTuner.java
+ * Description: IqBlockHandler that undoes the offset tuning of the HackRF
+ * 				(see Hackrf.setOffsetTuning()): it converts each block to float
+ * 				and shifts it by the block's tuning offset with an Nco (one
+ * 				pass, continuous phase), so that the requested frequency is at
+ * 				DC. The shifted samples are passed to an IqSampleHandler. The
+ * 				sample array is reused (allocated once for the largest block).
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class OffsetTuner implements IqBlockHandler {
+
+	private final IqSampleHandler handler;
+	private final Nco nco = new Nco();
+	private float[] samples = new float[0];
+
+	/**
+	 * @param handler	receives the shifted samples of each block
+	 */
+	public OffsetTuner(IqSampleHandler handler)
+	{
+		this.handler = handler;
+	}
+
+	/**
+	 * @return oscillator that shifts the samples
+	 */
+	public Nco getNco()
+	{
+		return nco;
+	}
+
+	@Override
+	public boolean onIqBlock(IqBlock block)
+	{
+		int numSamples = block.getLength() / 2;
+		if(samples.length < 2 * numSamples)
+			samples = new float[2 * numSamples];
+		long frequency = block.getFrequency() - block.getTuningOffset();
+		if(!nco.setFrequency(block.getTuningOffset(), block.getSampleRate()))
+		{
+			nco.setFrequency(0);		// sample rate unknown: the samples stay at the tuned frequency
+			frequency = block.getFrequency();
+		}
+		nco.mix(block.getBuffer(), 0, samples, 0, numSamples);
+		return handler.onSamples(samples, 0, numSamples, frequency, block.getSampleRate());
+	}
+}
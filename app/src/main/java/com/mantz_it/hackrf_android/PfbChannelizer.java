@@ -0,0 +1,441 @@
+package com.mantz_it.hackrf_android;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      PfbChannelizer.java
+ * Description: Polyphase filter bank channelizer: splits the RX stream into
+ * 				numChannels equally spaced channels (spacing sampleRate /
+ * 				numChannels, channel 0 at the center frequency) and decimates
+ * 				each of them by the given factor (numChannels for critical
+ * 				sampling, numChannels/2 for 2x oversampling). One output step
+ * 				costs numChannels * tapsPerBranch multiplications and one
+ * 				inverse FFT, regardless of how many channels are selected, so
+ * 				dozens of channels cost about as much as a single NCO + FIR.
+ * 				The output steps of a packet are split across worker threads
+ * 				(see setNumThreads()) and written into pooled ChannelBlocks
+ * 				that are passed to the application through a queue.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class PfbChannelizer implements IqBlockHandler {
+
+	private static final String logTag = "hackrf_android";
+
+	private final int numChannels;				// M (FFT size)
+	private final int decimation;				// D (divides M)
+	private final int tapsPerBranch;			// K
+	private final float[] polyphase;			// prototype filter h (tap k of branch m is h[k*M + m])
+	private final FftPlan plan;
+	private final IqConverter converter = new IqConverter(IqConverter.KERNEL_LUT);
+	private final ArrayBlockingQueue<ChannelBlock> blockPool;
+	private final ArrayBlockingQueue<ChannelBlock> blockQueue;
+	private int[] channels;						// selected channels
+
+	// Stream state:
+	private float[] buffer;						// history (M*K-1 samples) followed by the current packet
+	private int next;							// buffer index of the newest sample of the next output step
+	private int rotation = 0;					// absolute index of that sample modulo M
+	private long frequency = 0;					// tuning of the current stream
+	private int sampleRate = 0;
+
+	// Current packet (read by the workers):
+	private ChannelBlock currentBlock = null;
+
+	// Worker threads:
+	private final WorkerGroup workerGroup = new WorkerGroup("hackrf_android PFB worker");
+	private final ArrayList<Scratch> scratch = new ArrayList<Scratch>();	// buffers of each thread (index 0 = calling thread)
+	private final WorkerGroup.Task stepTask = new WorkerGroup.Task() {
+		@Override
+		public void run(int worker, int first, int last)
+		{
+			processSteps(scratch.get(worker), first, last);
+		}
+	};
+	private int numThreads = 1;
+
+	// Statistics:
+	private volatile long blockCounter = 0;
+	private volatile long droppedBlockCounter = 0;
+	private volatile long processingTime = 0;	// sum of the processing times in ns
+
+	/**
+	 * Creates a channelizer with 12 taps per branch, 60 dB stop band attenuation and a pool
+	 * of 8 blocks.
+	 *
+	 * @param numChannels	number of channels (power of two)
+	 * @param decimation	decimation of each channel (must divide numChannels)
+	 * @throws IllegalArgumentException if the parameters are invalid
+	 */
+	public PfbChannelizer(int numChannels, int decimation)
+	{
+		this(numChannels, decimation, 12, 60, 8);
+	}
+
+	/**
+	 * @param numChannels		number of channels (power of two)
+	 * @param decimation		decimation of each channel (must divide numChannels)
+	 * @param tapsPerBranch		taps of the prototype filter per channel (more taps = steeper channel edges)
+	 * @param attenuation		stop band attenuation of the prototype filter in dB
+	 * @param poolSize			number of ChannelBlocks in the pool (blocks the application can hold + 1)
+	 * @throws IllegalArgumentException if the parameters are invalid
+	 */
+	public PfbChannelizer(int numChannels, int decimation, int tapsPerBranch, float attenuation, int poolSize)
+	{
+		if(decimation < 1 || numChannels % decimation != 0 || tapsPerBranch < 1 || poolSize < 2)
+			throw new IllegalArgumentException("Invalid channelizer: " + numChannels + " channels, decimation "
+					+ decimation + ", " + tapsPerBranch + " taps per branch, pool size " + poolSize);
+		this.plan = FftPlan.get(numChannels);
+		this.numChannels = numChannels;
+		this.decimation = decimation;
+		this.tapsPerBranch = tapsPerBranch;
+
+		// Prototype low pass with the -6 dB point at half the channel spacing (tap k of
+		// branch m is h[m + k*M], so the filter is used as is):
+		int numTaps = numChannels * tapsPerBranch;
+		this.polyphase = FirDesign.lowPass(numTaps, 0.5 / numChannels, FirDesign.kaiserBeta(attenuation), 1);
+
+		this.buffer = new float[2 * numTaps];
+		this.next = numTaps - 1;
+		this.channels = new int[numChannels];
+		for(int c = 0; c < numChannels; c++)
+			channels[c] = c;
+		this.blockPool = new ArrayBlockingQueue<ChannelBlock>(poolSize);
+		this.blockQueue = new ArrayBlockingQueue<ChannelBlock>(poolSize);
+		for(int i = 0; i < poolSize; i++)
+			blockPool.offer(new ChannelBlock(this));
+		this.scratch.add(new Scratch());
+	}
+
+	public int getNumChannels()
+	{
+		return numChannels;
+	}
+
+	public int getDecimation()
+	{
+		return decimation;
+	}
+
+	public int getTapsPerBranch()
+	{
+		return tapsPerBranch;
+	}
+
+	/**
+	 * @param channel		channel number (0 to numChannels-1)
+	 * @param numChannels	number of channels
+	 * @param sampleRate	input sample rate in Hz
+	 * @return offset of the channel's center from the input's center frequency in Hz
+	 * 			(channels above numChannels/2 are below the center)
+	 */
+	public static long getChannelOffset(int channel, int numChannels, int sampleRate)
+	{
+		int c = channel < (numChannels + 1) / 2 ? channel : channel - numChannels;
+		return (long) c * sampleRate / numChannels;
+	}
+
+	/**
+	 * @param offset		frequency offset from the center in Hz
+	 * @param sampleRate	input sample rate in Hz
+	 * @return channel whose center is closest to the offset
+	 */
+	public int getChannel(long offset, int sampleRate)
+	{
+		long c = Math.round((double) offset * numChannels / sampleRate);
+		return (int) (((c % numChannels) + numChannels) % numChannels);
+	}
+
+	/**
+	 * Selects the channels that are written to the ChannelBlocks (all by default). The
+	 * cost of the channelizer doesn't depend on the selection.
+	 *
+	 * @param channels	channel numbers (0 to numChannels-1)
+	 * @return false if a channel is out of range
+	 */
+	public synchronized boolean setChannels(int... channels)
+	{
+		for(int c: channels)
+		{
+			if(c < 0 || c >= numChannels)
+			{
+				Log.e(logTag, "setChannels: Channel out of range: " + c);
+				return false;
+			}
+		}
+		this.channels = channels.clone();
+		return true;
+	}
+
+	public synchronized int[] getChannels()
+	{
+		return channels.clone();
+	}
+
+	/**
+	 * @param numThreads	number of threads that process each packet (including the calling thread)
+	 * @return false if numThreads is less than 1
+	 */
+	public synchronized boolean setNumThreads(int numThreads)
+	{
+		if(numThreads < 1)
+		{
+			Log.e(logTag, "setNumThreads: Number of threads must be at least 1: " + numThreads);
+			return false;
+		}
+		this.numThreads = numThreads;
+		return true;
+	}
+
+	public synchronized int getNumThreads()
+	{
+		return numThreads;
+	}
+
+	/**
+	 * @return queue of complete blocks (each block must be released after use)
+	 */
+	public ArrayBlockingQueue<ChannelBlock> getBlockQueue()
+	{
+		return blockQueue;
+	}
+
+	/**
+	 * Waits for the next block.
+	 *
+	 * @param timeout	maximum time to wait in ms
+	 * @return next block (must be released after use) or null on timeout
+	 * @throws InterruptedException
+	 */
+	public ChannelBlock getBlock(long timeout) throws InterruptedException
+	{
+		return blockQueue.poll(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return number of blocks that were put into the block queue
+	 */
+	public long getBlockCounter()
+	{
+		return blockCounter;
+	}
+
+	/**
+	 * @return number of packets whose output was lost because the pool was empty
+	 */
+	public long getDroppedBlockCounter()
+	{
+		return droppedBlockCounter;
+	}
+
+	/**
+	 * @return time in ns spent processing packets since the channelizer was created
+	 */
+	public long getProcessingTime()
+	{
+		return processingTime;
+	}
+
+	/**
+	 * Clears the filter history (done automatically on discontinuities and tuning changes).
+	 */
+	public synchronized void reset()
+	{
+		Arrays.fill(buffer, 0);
+		next = numChannels * tapsPerBranch - 1;
+		rotation = 0;
+	}
+
+	/**
+	 * Stops the worker threads (they are started again if necessary).
+	 */
+	public synchronized void close()
+	{
+		workerGroup.close();
+	}
+
+	@Override
+	public boolean onIqBlock(IqBlock block)
+	{
+		synchronized (this) {
+			if(block.isDiscontinuity())
+				reset();
+			int numSamples = block.getLength() / 2;
+			float[] buffer = prepareBuffer(block.getFrequency(), block.getSampleRate(), numSamples);
+			converter.toFloat(block.getBuffer(), 0, buffer, 2 * (numChannels * tapsPerBranch - 1), numSamples);
+			process(numSamples, block.getTimestamp());
+		}
+		return true;
+	}
+
+	/**
+	 * Processes a packet of interleaved, 8-bit, signed IQ samples.
+	 *
+	 * @param packet		samples
+	 * @param offset		index of the first byte
+	 * @param length		number of bytes (2 per sample)
+	 * @param frequency		center frequency of the samples in Hz
+	 * @param sampleRate	sample rate in Hz
+	 */
+	public synchronized void process(byte[] packet, int offset, int length, long frequency, int sampleRate)
+	{
+		int numSamples = length / 2;
+		float[] buffer = prepareBuffer(frequency, sampleRate, numSamples);
+		converter.toFloat(packet, offset, buffer, 2 * (numChannels * tapsPerBranch - 1), numSamples);
+		process(numSamples, System.nanoTime());
+	}
+
+	/**
+	 * Resets the stream on tuning changes and makes room for numSamples behind the history.
+	 *
+	 * @return buffer
+	 */
+	private float[] prepareBuffer(long frequency, int sampleRate, int numSamples)
+	{
+		if(frequency != this.frequency || sampleRate != this.sampleRate)
+		{
+			reset();		// the history belongs to another tuning
+			this.frequency = frequency;
+			this.sampleRate = sampleRate;
+		}
+		int history = numChannels * tapsPerBranch - 1;
+		if(buffer.length < 2 * (history + numSamples))
+			buffer = Arrays.copyOf(buffer, 2 * (history + numSamples));
+		return buffer;
+	}
+
+	/**
+	 * Computes the output steps of the packet that was converted behind the history.
+	 */
+	private void process(int numSamples, long timestamp)
+	{
+		long startTime = System.nanoTime();
+		int history = numChannels * tapsPerBranch - 1;
+		int total = history + numSamples;
+		int numSteps = next < total ? (total - 1 - next) / decimation + 1 : 0;
+
+		ChannelBlock block = numSteps > 0 ? blockPool.poll() : null;
+		if(numSteps > 0 && block == null)
+			droppedBlockCounter++;
+		if(block != null)
+		{
+			block.prepare(channels, numSteps);
+			block.setMetadata(frequency, sampleRate, numChannels, decimation, timestamp, blockCounter + droppedBlockCounter);
+			currentBlock = block;
+			while(scratch.size() < numThreads)
+				scratch.add(new Scratch());
+			workerGroup.execute(stepTask, numSteps, numThreads);
+			currentBlock = null;
+			blockQueue.offer(block);		// can't fail: the queue is as large as the pool
+			blockCounter++;
+		}
+
+		// Advance to the next packet and keep the history:
+		next += numSteps * decimation;
+		rotation = (int) ((rotation + (long) numSteps * decimation) % numChannels);
+		System.arraycopy(buffer, 2 * numSamples, buffer, 0, 2 * history);
+		next -= numSamples;
+		processingTime += System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Computes the output steps [first; last) of the current packet.
+	 */
+	private void processSteps(Scratch scratch, int first, int last)
+	{
+		float[] buffer = this.buffer;
+		float[] polyphase = this.polyphase;
+		float[] re = scratch.re;
+		float[] im = scratch.im;
+		float[] accRe = scratch.accRe;
+		float[] accIm = scratch.accIm;
+		int M = numChannels;
+		int K = tapsPerBranch;
+		int[] channels = this.channels;
+		float[][] out = currentBlock.getSampleArrays();
+
+		for(int step = first; step < last; step++)
+		{
+			int n = next + step * decimation;					// newest sample of this step
+			int shift = (int) ((rotation + (long) step * decimation) % M);
+
+			// Branch m filters x[n - m - k*M]. The taps are stored tap by tap so that the inner
+			// loop walks through the buffer sequentially (backwards):
+			for(int m = 0; m < M; m++)
+			{
+				accRe[m] = 0;
+				accIm[m] = 0;
+			}
+			for(int k = 0, h = 0; k < K; k++, h += M)
+			{
+				int p = 2 * (n - k * M);
+				for(int m = 0; m < M; m++, p -= 2)
+				{
+					float tap = polyphase[h + m];
+					accRe[m] += tap * buffer[p];
+					accIm[m] += tap * buffer[p+1];
+				}
+			}
+
+			// The result of branch m goes to FFT bin (m - shift) mod M:
+			for(int m = 0; m < M; m++)
+			{
+				int bin = (m - shift) & (M - 1);
+				re[bin] = accRe[m];
+				im[bin] = accIm[m];
+			}
+
+			plan.inverse(re, im);
+
+			for(int i = 0; i < out.length; i++)
+			{
+				int c = channels[i];
+				out[i][2 * step] = re[c];
+				out[i][2 * step + 1] = im[c];
+			}
+		}
+	}
+
+	/**
+	 * Returns a block to the pool (called by ChannelBlock.release()).
+	 */
+	void recycle(ChannelBlock block)
+	{
+		if(!blockPool.offer(block))
+			throw new IllegalStateException("ChannelBlock was released twice!");
+	}
+
+	/**
+	 * Scratch buffers of one thread (see WorkerGroup).
+	 */
+	private class Scratch {
+		final float[] re = new float[numChannels];
+		final float[] im = new float[numChannels];
+		final float[] accRe = new float[numChannels];
+		final float[] accIm = new float[numChannels];
+	}
+}
@@ -0,0 +1,629 @@
+package com.mantz_it.hackrf_android;
+
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      PsdEngine.java
+ * Description: Power spectral density estimation of the RX stream (Welch's
+ * 				method): the samples are cut into overlapping segments, each
+ * 				segment is windowed and transformed (FftPlan) and the power of
+ * 				numAverages segments is averaged into one PsdFrame. Segments
+ * 				continue across packet boundaries. The frames come from a
+ * 				fixed pool and are passed to the application through a queue.
+ * 				If one thread can't keep up with the sample rate, the segments
+ * 				of each packet are split across additional worker threads.
+ * 				The engine can be used as IqBlockHandler (the frames are tagged
+ * 				with the frequency and sample rate of the blocks) or be fed
+ * 				with byte[] packets (tagged with the current tuning of the
+ * 				Hackrf instance, see setHackrf()).
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class PsdEngine implements IqBlockHandler {
+
+	private static final String logTag = "hackrf_android";
+	private static final float LOAD_HIGH = 0.8f;		// add a worker thread if the load is above this value
+	private static final float LOAD_LOW = 0.5f;			// remove one if the load would stay below this value without it
+	private static final float LOAD_SMOOTHING = 0.25f;	// weight of the newest packet in the load average
+
+	private final int fftSize;
+	private final FftPlan plan;
+	private final ArrayBlockingQueue<PsdFrame> framePool;
+	private final ArrayBlockingQueue<PsdFrame> frameQueue;
+
+	// Settings (changing them restarts the averaging):
+	private int windowType = FftWindow.HANN;
+	private float[] window;
+	private float windowPowerGain;				// sum of the squared window coefficients
+	private int hop;							// distance between the starts of two segments (in samples)
+	private int numAverages = 16;				// segments per frame
+	private boolean decibel = false;
+	private int maxThreads;						// including the calling thread
+	private volatile Hackrf hackrf = null;		// tuning of the byte[] packets
+
+	// State of the stream:
+	private final byte[] carry;					// samples of the next (incomplete) segment + prefix of the next packet
+	private int carryLength = 0;				// number of samples of the next segment in carry
+	private long segmentCounter = 0;			// number of segments since the last reset
+	private PsdFrame openFrame = null;			// frame that is not complete yet (null if it was dropped)
+	private long frequency = 0;					// tuning of the current stream
+	private int sampleRate = 0;
+	private final ArrayList<PsdFrame> frames = new ArrayList<PsdFrame>();	// frames touched by the current packet
+
+	// Current packet (read by the workers):
+	private byte[] packetArray = null;
+	private ByteBuffer packetBuffer = null;
+	private int packetOffset = 0;
+	private long firstSegment = 0;				// segmentCounter of the first segment of the current packet
+
+	// Worker threads:
+	private final WorkerGroup workerGroup = new WorkerGroup("hackrf_android PSD worker");
+	private final ArrayList<Scratch> scratch = new ArrayList<Scratch>();	// buffers of each thread (index 0 = calling thread)
+	private final WorkerGroup.Task segmentTask = new WorkerGroup.Task() {
+		@Override
+		public void run(int worker, int first, int last)
+		{
+			processRange(scratch.get(worker), first, last);
+		}
+	};
+	private int activeThreads = 1;
+	private float load = 0;						// processing time / duration of the samples (smoothed)
+
+	// Statistics:
+	private volatile long frameCounter = 0;
+	private volatile long droppedFrameCounter = 0;
+	private volatile long segmentTotal = 0;
+
+	/**
+	 * Creates an engine with a Hann window, 50% overlap, 16 averages and a pool of 8 frames.
+	 *
+	 * @param fftSize		number of bins (power of two)
+	 * @throws IllegalArgumentException if fftSize is not a power of two
+	 */
+	public PsdEngine(int fftSize)
+	{
+		this(fftSize, 8);
+	}
+
+	/**
+	 * @param fftSize		number of bins (power of two)
+	 * @param poolSize		number of frames in the pool (frames the application can hold + 1)
+	 * @throws IllegalArgumentException if fftSize is not a power of two or poolSize < 2
+	 */
+	public PsdEngine(int fftSize, int poolSize)
+	{
+		if(poolSize < 2)
+			throw new IllegalArgumentException("Pool size must be at least 2: " + poolSize);
+		this.fftSize = fftSize;
+		this.plan = FftPlan.get(fftSize);
+		this.carry = new byte[4 * fftSize];
+		this.hop = fftSize / 2;
+		this.window = FftWindow.get(windowType, fftSize);
+		this.windowPowerGain = FftWindow.powerGain(window);
+		this.framePool = new ArrayBlockingQueue<PsdFrame>(poolSize);
+		this.frameQueue = new ArrayBlockingQueue<PsdFrame>(poolSize);
+		for(int i = 0; i < poolSize; i++)
+			framePool.offer(new PsdFrame(this, fftSize));
+		this.maxThreads = Runtime.getRuntime().availableProcessors();
+		this.scratch.add(new Scratch());
+	}
+
+	public int getFftSize()
+	{
+		return fftSize;
+	}
+
+	/**
+	 * @param windowType	FftWindow.RECTANGLE, HANN, HAMMING or BLACKMAN_HARRIS
+	 * @return false if the type is unknown
+	 */
+	public synchronized boolean setWindow(int windowType)
+	{
+		if(windowType < FftWindow.RECTANGLE || windowType > FftWindow.BLACKMAN_HARRIS)
+		{
+			Log.e(logTag, "setWindow: Unknown window type: " + windowType);
+			return false;
+		}
+		this.windowType = windowType;
+		this.window = FftWindow.get(windowType, fftSize);
+		this.windowPowerGain = FftWindow.powerGain(window);
+		reset();
+		return true;
+	}
+
+	public synchronized int getWindow()
+	{
+		return windowType;
+	}
+
+	/**
+	 * @param overlap	number of samples that consecutive segments share (0 to fftSize-1)
+	 * @return false if the overlap is out of range
+	 */
+	public synchronized boolean setOverlap(int overlap)
+	{
+		if(overlap < 0 || overlap >= fftSize)
+		{
+			Log.e(logTag, "setOverlap: Overlap must be in [0; " + (fftSize - 1) + "]: " + overlap);
+			return false;
+		}
+		this.hop = fftSize - overlap;
+		reset();
+		return true;
+	}
+
+	public synchronized int getOverlap()
+	{
+		return fftSize - hop;
+	}
+
+	/**
+	 * @param numAverages	number of segments that are averaged into one frame (at least 1)
+	 * @return false if numAverages is out of range
+	 */
+	public synchronized boolean setNumAverages(int numAverages)
+	{
+		if(numAverages < 1)
+		{
+			Log.e(logTag, "setNumAverages: Number of averages must be at least 1: " + numAverages);
+			return false;
+		}
+		this.numAverages = numAverages;
+		reset();
+		return true;
+	}
+
+	public synchronized int getNumAverages()
+	{
+		return numAverages;
+	}
+
+	/**
+	 * @param decibel	true for frames in dB (10*log10 of the power), false for linear power
+	 */
+	public synchronized void setDecibel(boolean decibel)
+	{
+		this.decibel = decibel;
+	}
+
+	public synchronized boolean isDecibel()
+	{
+		return decibel;
+	}
+
+	/**
+	 * Sets the maximum number of threads that process one packet (including the thread
+	 * that calls process() / onIqBlock()). The engine starts with one thread and adds
+	 * worker threads while it can't keep up with the sample rate (see getLoad()).
+	 *
+	 * @param maxThreads	1 to disable the worker threads
+	 * @return false if maxThreads is less than 1
+	 */
+	public synchronized boolean setMaxThreads(int maxThreads)
+	{
+		if(maxThreads < 1)
+		{
+			Log.e(logTag, "setMaxThreads: Number of threads must be at least 1: " + maxThreads);
+			return false;
+		}
+		this.maxThreads = maxThreads;
+		this.activeThreads = Math.min(activeThreads, maxThreads);
+		return true;
+	}
+
+	public synchronized int getMaxThreads()
+	{
+		return maxThreads;
+	}
+
+	/**
+	 * @return number of threads that currently process each packet
+	 */
+	public synchronized int getActiveThreads()
+	{
+		return activeThreads;
+	}
+
+	/**
+	 * @return processing time of a packet divided by the duration of its samples (averaged,
+	 * 			0 if the sample rate is unknown). Above 1 the engine can't keep up.
+	 */
+	public synchronized float getLoad()
+	{
+		return load;
+	}
+
+	/**
+	 * Sets the Hackrf instance whose tuning (getFrequency(), getSampleRate()) is used to
+	 * tag frames of byte[] packets and of IqBlocks without frequency tag.
+	 *
+	 * @param hackrf	Hackrf instance or null
+	 */
+	public synchronized void setHackrf(Hackrf hackrf)
+	{
+		this.hackrf = hackrf;
+	}
+
+	/**
+	 * @return queue of complete frames (each frame must be released after use)
+	 */
+	public ArrayBlockingQueue<PsdFrame> getFrameQueue()
+	{
+		return frameQueue;
+	}
+
+	/**
+	 * Waits for the next complete frame.
+	 *
+	 * @param timeout	maximum time to wait in ms
+	 * @return next frame (must be released after use) or null on timeout
+	 * @throws InterruptedException
+	 */
+	public PsdFrame getFrame(long timeout) throws InterruptedException
+	{
+		return frameQueue.poll(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return number of frames that were put into the frame queue since the engine was created
+	 */
+	public long getFrameCounter()
+	{
+		return frameCounter;
+	}
+
+	/**
+	 * @return number of frames that were skipped because the pool was empty (the application
+	 * 			doesn't release the frames fast enough)
+	 */
+	public long getDroppedFrameCounter()
+	{
+		return droppedFrameCounter;
+	}
+
+	/**
+	 * @return number of FFTs since the engine was created
+	 */
+	public long getSegmentCounter()
+	{
+		return segmentTotal;
+	}
+
+	/**
+	 * Discards the incomplete segment and frame. The next packet starts a new frame.
+	 * This happens automatically on discontinuities and when the tuning changes.
+	 */
+	public synchronized void reset()
+	{
+		carryLength = 0;
+		segmentCounter = 0;
+		if(openFrame != null)
+			recycle(openFrame);
+		openFrame = null;
+	}
+
+	/**
+	 * Stops the worker threads. The engine can still be used afterwards (it starts
+	 * new workers if necessary).
+	 */
+	public synchronized void close()
+	{
+		workerGroup.close();
+		activeThreads = 1;
+		load = 0;
+	}
+
+	@Override
+	public boolean onIqBlock(IqBlock block)
+	{
+		long frequency = block.getFrequency();
+		int sampleRate = block.getSampleRate();
+		Hackrf hackrf = this.hackrf;
+		if(frequency == 0 && hackrf != null)
+		{
+			frequency = hackrf.getFrequency();
+			sampleRate = hackrf.getSampleRate();
+		}
+		synchronized (this) {
+			if(block.isDiscontinuity())
+				reset();
+			packetArray = null;
+			packetBuffer = block.getBuffer();
+			process(0, block.getLength(), frequency, sampleRate, block.getTimestamp());
+			packetBuffer = null;
+		}
+		return true;
+	}
+
+	/**
+	 * Processes a packet of interleaved, 8-bit, signed IQ samples (e.g. from Hackrf.getRxQueue()).
+	 * The frames are tagged with the current tuning of the Hackrf instance (see setHackrf()).
+	 *
+	 * @param packet	samples
+	 * @param offset	index of the first byte
+	 * @param length	number of bytes (2 per sample)
+	 */
+	public void process(byte[] packet, int offset, int length)
+	{
+		Hackrf hackrf = this.hackrf;
+		if(hackrf == null)
+			process(packet, offset, length, 0, 0);
+		else
+			process(packet, offset, length, hackrf.getFrequency(), hackrf.getSampleRate());
+	}
+
+	/**
+	 * Processes a packet of interleaved, 8-bit, signed IQ samples with the given tuning.
+	 *
+	 * @param packet		samples
+	 * @param offset		index of the first byte
+	 * @param length		number of bytes (2 per sample)
+	 * @param frequency		center frequency of the samples in Hz
+	 * @param sampleRate	sample rate in Hz
+	 */
+	public synchronized void process(byte[] packet, int offset, int length, long frequency, int sampleRate)
+	{
+		packetArray = packet;
+		packetBuffer = null;
+		process(offset, length, frequency, sampleRate, System.nanoTime());
+		packetArray = null;
+	}
+
+	/**
+	 * Processes the current packet (packetArray or packetBuffer).
+	 */
+	private void process(int offset, int length, long frequency, int sampleRate, long timestamp)
+	{
+		long startTime = System.nanoTime();
+		if(frequency != this.frequency || sampleRate != this.sampleRate)
+		{
+			reset();		// the partial frame belongs to another tuning
+			this.frequency = frequency;
+			this.sampleRate = sampleRate;
+		}
+		int packetSamples = length / 2;
+		this.packetOffset = offset;
+
+		// Append the beginning of the packet to the carry, so that the segments that start
+		// in the carry can be read from one array:
+		int prefix = Math.min(packetSamples, fftSize);
+		readPacket(0, carry, carryLength, prefix);
+
+		int totalSamples = carryLength + packetSamples;
+		int numSegments = totalSamples < fftSize ? 0 : (totalSamples - fftSize) / hop + 1;
+		if(numSegments > 0)
+		{
+			prepareFrames(numSegments);
+			runJob(numSegments);
+			publishFrames(numSegments, timestamp);
+			segmentCounter += numSegments;
+			segmentTotal += numSegments;
+		}
+
+		// Keep the samples of the next segment:
+		int nextStart = numSegments * hop;
+		int newCarryLength = totalSamples - nextStart;
+		if(nextStart < carryLength)
+		{
+			System.arraycopy(carry, 2 * nextStart, carry, 0, 2 * (carryLength - nextStart));
+			readPacket(0, carry, carryLength - nextStart, packetSamples);
+		}
+		else
+			readPacket(nextStart - carryLength, carry, 0, newCarryLength);
+		carryLength = newCarryLength;
+
+		if(sampleRate > 0 && packetSamples > 0)
+			updateLoad((System.nanoTime() - startTime) / 1e9f * sampleRate / packetSamples);
+	}
+
+	/**
+	 * Copies samples of the current packet into an array.
+	 */
+	private void readPacket(int firstSample, byte[] dst, int dstSample, int numSamples)
+	{
+		if(packetArray != null)
+			System.arraycopy(packetArray, packetOffset + 2 * firstSample, dst, 2 * dstSample, 2 * numSamples);
+		else
+		{
+			int src = packetOffset + 2 * firstSample;
+			for(int i = 0; i < 2 * numSamples; i++)
+				dst[2 * dstSample + i] = packetBuffer.get(src + i);
+		}
+	}
+
+	/**
+	 * Collects the frames the segments of the current packet belong to (index 0 is the
+	 * frame of the first segment). Entries are null if the pool was empty.
+	 */
+	private void prepareFrames(int numSegments)
+	{
+		frames.clear();
+		firstSegment = segmentCounter;
+		long firstFrame = segmentCounter / numAverages;
+		long lastFrame = (segmentCounter + numSegments - 1) / numAverages;
+		for(long f = firstFrame; f <= lastFrame; f++)
+		{
+			if(f == firstFrame && segmentCounter % numAverages != 0)
+			{
+				frames.add(openFrame);		// continue the open frame
+				continue;
+			}
+			PsdFrame frame = framePool.poll();
+			if(frame == null)
+				droppedFrameCounter++;
+			else
+				Arrays.fill(frame.getPower(), 0);
+			frames.add(frame);
+		}
+		openFrame = null;
+	}
+
+	/**
+	 * Normalizes the completed frames and puts them into the frame queue. The last frame
+	 * stays open if it is not complete.
+	 */
+	private void publishFrames(int numSegments, long timestamp)
+	{
+		long firstFrame = firstSegment / numAverages;
+		long end = firstSegment + numSegments;		// first segment of the next packet
+		float scale = 1.0f / (numAverages * windowPowerGain);
+		for(int i = 0; i < frames.size(); i++)
+		{
+			PsdFrame frame = frames.get(i);
+			if((firstFrame + i + 1) * numAverages > end)
+			{
+				openFrame = frame;
+				break;
+			}
+			if(frame == null)
+				continue;
+			float[] power = frame.getPower();
+			for(int k = 0; k < fftSize; k++)
+				power[k] = decibel ? (float) (10 * Math.log10(power[k] * scale + 1e-20)) : power[k] * scale;
+			frame.setMetadata(frequency, sampleRate, timestamp, numAverages, decibel);
+			frameQueue.offer(frame);		// can't fail: the queue is as large as the pool
+			frameCounter++;
+		}
+		frames.clear();
+	}
+
+	/**
+	 * Processes the segments of the current packet on activeThreads threads.
+	 */
+	private void runJob(int numSegments)
+	{
+		while(scratch.size() < activeThreads)
+			scratch.add(new Scratch());
+		workerGroup.execute(segmentTask, numSegments, activeThreads);
+	}
+
+	/**
+	 * Adds or removes worker threads depending on the load.
+	 *
+	 * @param packetLoad	processing time / duration of the last packet
+	 */
+	private void updateLoad(float packetLoad)
+	{
+		load = load == 0 ? packetLoad : load + LOAD_SMOOTHING * (packetLoad - load);
+		if(load > LOAD_HIGH && activeThreads < maxThreads)
+		{
+			activeThreads++;
+			load = load * (activeThreads - 1) / activeThreads;		// expected load with one more thread
+		}
+		else if(activeThreads > 1 && load * activeThreads / (activeThreads - 1) < LOAD_LOW)
+		{
+			activeThreads--;
+			load = load * (activeThreads + 1) / activeThreads;
+		}
+	}
+
+	/**
+	 * Computes the segments [first; last) of the current packet and adds their power to the frames.
+	 */
+	private void processRange(Scratch worker, int first, int last)
+	{
+		float[] re = worker.re;
+		float[] im = worker.im;
+		float[] acc = worker.acc;
+		float[] window = this.window;
+		int mask = fftSize - 1;
+		int half = fftSize / 2;
+		int currentFrame = -1;
+		boolean dirty = false;
+
+		for(int s = first; s < last; s++)
+		{
+			int frameIndex = (int) ((firstSegment + s) / numAverages - firstSegment / numAverages);
+			if(frameIndex != currentFrame)
+			{
+				if(dirty)
+					flush(acc, frames.get(currentFrame));
+				dirty = false;
+				currentFrame = frameIndex;
+			}
+			if(frames.get(frameIndex) == null)
+				continue;		// frame was dropped
+
+			// Read and window the segment:
+			int start = s * hop;
+			if(start < carryLength)
+				worker.converter.toFloatPlanar(carry, 2 * start, re, im, 0, fftSize);
+			else if(packetArray != null)
+				worker.converter.toFloatPlanar(packetArray, packetOffset + 2 * (start - carryLength), re, im, 0, fftSize);
+			else
+				worker.converter.toFloatPlanar(packetBuffer, packetOffset + 2 * (start - carryLength), re, im, 0, fftSize);
+			for(int i = 0; i < fftSize; i++)
+			{
+				re[i] *= window[i];
+				im[i] *= window[i];
+			}
+
+			plan.forward(re, im);
+
+			// Accumulate the power (DC in the middle):
+			for(int k = 0; k < fftSize; k++)
+				acc[(k + half) & mask] += re[k] * re[k] + im[k] * im[k];
+			dirty = true;
+		}
+		if(dirty)
+			flush(acc, frames.get(currentFrame));
+	}
+
+	/**
+	 * Adds the accumulated power to a frame (which may be shared with another worker) and
+	 * clears the accumulator.
+	 */
+	private static void flush(float[] acc, PsdFrame frame)
+	{
+		float[] power = frame.getPower();
+		synchronized (frame) {
+			for(int k = 0; k < acc.length; k++)
+				power[k] += acc[k];
+		}
+		Arrays.fill(acc, 0);
+	}
+
+	/**
+	 * Returns a frame to the pool (called by PsdFrame.release()).
+	 */
+	void recycle(PsdFrame frame)
+	{
+		if(!framePool.offer(frame))
+			throw new IllegalStateException("PsdFrame was released twice!");
+	}
+
+	/**
+	 * Scratch buffers of one thread (see WorkerGroup).
+	 */
+	private class Scratch {
+		final float[] re = new float[fftSize];
+		final float[] im = new float[fftSize];
+		final float[] acc = new float[fftSize];
+		final IqConverter converter = new IqConverter(IqConverter.KERNEL_LUT);
+	}
+}
@@ -0,0 +1,130 @@
+package com.mantz_it.hackrf_android;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      PsdFrame.java
+ * Description: One power spectral density estimate of PsdEngine: the
+ * 				averaged power of each FFT bin (lowest frequency first, the
+ * 				center frequency is in bin fftSize/2), tagged with the center
+ * 				frequency and the sample rate of the samples. Frames come
+ * 				from a pool and must be released after use.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class PsdFrame {
+
+	private final PsdEngine engine;		// engine whose pool this frame belongs to
+	private final float[] power;
+	private long centerFrequency = 0;
+	private int sampleRate = 0;
+	private long timestamp = 0;
+	private int numAverages = 0;
+	private boolean decibel = false;
+
+	PsdFrame(PsdEngine engine, int fftSize)
+	{
+		this.engine = engine;
+		this.power = new float[fftSize];
+	}
+
+	/**
+	 * Returns the power of each bin. Without decibel scale, white noise with a power of
+	 * P (full scale = 1) results in P in every bin. The array belongs to the frame and is
+	 * only valid until release() is called.
+	 *
+	 * @return power of the bins, bin i is at centerFrequency + (i - fftSize/2) * sampleRate / fftSize
+	 */
+	public float[] getPower()
+	{
+		return power;
+	}
+
+	public int getFftSize()
+	{
+		return power.length;
+	}
+
+	/**
+	 * @return center frequency of the samples in Hz (0 if unknown)
+	 */
+	public long getCenterFrequency()
+	{
+		return centerFrequency;
+	}
+
+	/**
+	 * @return sample rate of the samples in Hz (0 if unknown)
+	 */
+	public int getSampleRate()
+	{
+		return sampleRate;
+	}
+
+	/**
+	 * @param bin	index of the bin
+	 * @return frequency of the bin in Hz
+	 */
+	public long getBinFrequency(int bin)
+	{
+		return centerFrequency + (long) (bin - power.length / 2) * sampleRate / power.length;
+	}
+
+	/**
+	 * @return time when the last samples of this frame were received (System.nanoTime(), see IqBlock.getTimestamp())
+	 */
+	public long getTimestamp()
+	{
+		return timestamp;
+	}
+
+	/**
+	 * @return number of FFTs that were averaged
+	 */
+	public int getNumAverages()
+	{
+		return numAverages;
+	}
+
+	/**
+	 * @return true if the power is in dB (10*log10) instead of linear
+	 */
+	public boolean isDecibel()
+	{
+		return decibel;
+	}
+
+	/**
+	 * Returns the frame to the pool of its engine.
+	 */
+	public void release()
+	{
+		engine.recycle(this);
+	}
+
+	void setMetadata(long centerFrequency, int sampleRate, long timestamp, int numAverages, boolean decibel)
+	{
+		this.centerFrequency = centerFrequency;
+		this.sampleRate = sampleRate;
+		this.timestamp = timestamp;
+		this.numAverages = numAverages;
+		this.decibel = decibel;
+	}
+}
@@ -0,0 +1,159 @@
+package com.mantz_it.hackrf_android;
+
+import java.util.Arrays;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      RationalResampler.java
+ * Description: Polyphase resampler for complex samples that changes the
+ * 				sample rate by interpolation / decimation. The prototype low
+ * 				pass filter runs at input rate * interpolation and is split
+ * 				into interpolation branches. Each output uses one branch, so
+ * 				the cost per output is numTaps / interpolation multiplications
+ * 				for I and Q, independent of the factors.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class RationalResampler implements IqStage {
+
+	private final int interpolation;
+	private final int decimation;
+	private final float[][] branches;		// reversed taps of each branch (branchLength each)
+	private final int branchLength;
+	private final float[] buffer;			// history (branchLength-1 samples) followed by the current chunk
+	private int nextInput;					// index of the newest input sample of the next output
+	private int phase = 0;					// branch of the next output
+
+	/**
+	 * @param taps				prototype low pass filter at input rate * interpolation (DC gain = interpolation)
+	 * @param interpolation		interpolation factor (at least 1)
+	 * @param decimation		decimation factor (at least 1)
+	 * @throws IllegalArgumentException if a factor is less than 1 or there are no taps
+	 */
+	public RationalResampler(float[] taps, int interpolation, int decimation)
+	{
+		if(taps.length < 1 || interpolation < 1 || decimation < 1)
+			throw new IllegalArgumentException("RationalResampler needs taps and factors of at least 1");
+		this.interpolation = interpolation;
+		this.decimation = decimation;
+		this.branchLength = (taps.length + interpolation - 1) / interpolation;
+		this.branches = new float[interpolation][branchLength];
+		for(int b = 0; b < interpolation; b++)
+		{
+			for(int j = 0; j < branchLength; j++)
+			{
+				int k = b + interpolation * (branchLength - 1 - j);		// branch b uses taps b, b+L, b+2L, ...
+				branches[b][j] = k < taps.length ? taps[k] : 0;
+			}
+		}
+		this.buffer = new float[2 * (branchLength - 1 + FirDecimator.CHUNK)];
+		this.nextInput = branchLength - 1;
+	}
+
+	/**
+	 * Creates a resampler with a Kaiser low pass filter.
+	 *
+	 * @param interpolation		interpolation factor
+	 * @param decimation		decimation factor
+	 * @param passEdge			end of the pass band (normalized to the input rate)
+	 * @param stopEdge			start of the stop band (normalized to the input rate, at most
+	 * 							0.5 * min(1, interpolation / decimation))
+	 * @param attenuation		stop band attenuation in dB
+	 * @return new resampler
+	 */
+	public static RationalResampler create(int interpolation, int decimation, double passEdge, double stopEdge, float attenuation)
+	{
+		float[] taps = FirDesign.lowPass(passEdge / interpolation, stopEdge / interpolation, attenuation, interpolation);
+		return new RationalResampler(taps, interpolation, decimation);
+	}
+
+	public int getNumTaps()
+	{
+		return branchLength * interpolation;
+	}
+
+	@Override
+	public int getInterpolation()
+	{
+		return interpolation;
+	}
+
+	@Override
+	public int getDecimation()
+	{
+		return decimation;
+	}
+
+	@Override
+	public int getMaxOutputLength(int numSamples)
+	{
+		return (int) (((long) numSamples * interpolation) / decimation) + 1;
+	}
+
+	@Override
+	public void reset()
+	{
+		Arrays.fill(buffer, 0);
+		nextInput = branchLength - 1;
+		phase = 0;
+	}
+
+	@Override
+	public int process(float[] in, int inOffset, int numSamples, float[] out, int outOffset)
+	{
+		float[] buffer = this.buffer;
+		int history = branchLength - 1;
+		int outIndex = outOffset;
+		int consumed = 0;
+		while(consumed < numSamples)
+		{
+			int chunk = Math.min(FirDecimator.CHUNK, numSamples - consumed);
+			System.arraycopy(in, inOffset + 2 * consumed, buffer, 2 * history, 2 * chunk);
+			consumed += chunk;
+			int total = history + chunk;
+
+			while(nextInput < total)
+			{
+				float[] taps = branches[phase];
+				float re = 0;
+				float im = 0;
+				int p = 2 * (nextInput - history);
+				for(int k = 0; k < branchLength; k++, p += 2)
+				{
+					float h = taps[k];
+					re += h * buffer[p];
+					im += h * buffer[p+1];
+				}
+				out[outIndex++] = re;
+				out[outIndex++] = im;
+
+				// Advance by decimation steps of the interpolated rate:
+				phase += decimation;
+				nextInput += phase / interpolation;
+				phase %= interpolation;
+			}
+
+			System.arraycopy(buffer, 2 * chunk, buffer, 0, 2 * history);
+			nextInput -= chunk;
+		}
+		return (outIndex - outOffset) / 2;
+	}
+}
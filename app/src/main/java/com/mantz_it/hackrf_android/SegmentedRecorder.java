@@ -0,0 +1,570 @@
+package com.mantz_it.hackrf_android;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      SegmentedRecorder.java
+ * Description: Records the RX stream into a series of segment files
+ * 				(MappedRecorder) instead of one huge file. A new segment starts
+ * 				when the current one reaches the segment size or the segment
+ * 				duration (and optionally when the frequency / sample rate
+ * 				changes). The next segment is created, preallocated and
+ * 				mapped by a background thread long before it is needed, so
+ * 				switching segments on the writer thread only swaps a
+ * 				reference. Closing (and syncing) the finished segments,
+ * 				deleting old segments (retention) and updating the manifest
+ * 				(sample ranges of the segments with their tuning) also happen
+ * 				in the background.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class SegmentedRecorder implements IqBlockHandler {
+
+	private static final String logTag = "hackrf_android";
+	private static final long keepAlive = 60000;		// ms until the idle background thread ends
+
+	// Sync policies:
+	public static final int SYNC_NONE 		= 0;	// the kernel writes the pages back whenever it wants (fastest)
+	public static final int SYNC_SEGMENT 	= 1;	// all data of a finished segment is on the storage before it is listed
+													// in the manifest (forced in the background, see MappedRecorder.flush())
+
+	public static final long DEFAULT_SEGMENT_SIZE = 1024L * 1024 * 1024;	// 1 GB
+
+	private final File directory;
+	private final String baseName;
+	private final long segmentSize;				// maximum size of a segment in bytes
+	private final long segmentDuration;			// maximum duration of a segment in ns (0 = unlimited)
+	private final int retention;				// number of finished segments to keep (0 = all)
+	private final int syncPolicy;
+	private volatile boolean rotateOnTuningChange = false;	// start a new segment when the frequency / sample rate changes
+	private final ThreadPoolExecutor executor;
+
+	// Writer thread:
+	private Segment current = null;				// segment that is written
+	private Future<Segment> next = null;		// next segment (prepared in the background)
+	private int nextIndex = 0;					// index of the next segment to prepare
+	private long sampleCounter = 0;				// samples recorded since the start
+	private boolean closed = false;
+
+	// Background thread:
+	private final ArrayDeque<Segment> finished = new ArrayDeque<Segment>();	// retained finished segments
+
+	// Statistics:
+	private long bytesWritten = 0;
+	private long firstWriteTime = 0;
+	private long lastWriteTime = 0;
+	private long writeTime = 0;					// time spent in write() in ns
+	private long maxWriteTime = 0;				// longest write() in ns (including segment switches)
+	private long maxSwitchTime = 0;				// longest segment switch in ns
+	private int switchStallCounter = 0;			// switches that had to wait for the background thread
+	private volatile int backgroundErrorCounter = 0;
+
+	/**
+	 * Creates a recorder with segments of DEFAULT_SEGMENT_SIZE, no time limit, no
+	 * retention limit and SYNC_NONE.
+	 *
+	 * @param directory		directory of the segments and the manifest
+	 * @param baseName		name of the recording (segments are baseName_00000.iq, ..., the
+	 * 						manifest is baseName.manifest)
+	 * @throws IOException if the first segment can't be created
+	 */
+	public SegmentedRecorder(File directory, String baseName) throws IOException
+	{
+		this(directory, baseName, DEFAULT_SEGMENT_SIZE, 0, 0, SYNC_NONE);
+	}
+
+	/**
+	 * @param directory			directory of the segments and the manifest
+	 * @param baseName			name of the recording (segments are baseName_00000.iq, ..., the
+	 * 							manifest is baseName.manifest)
+	 * @param segmentSize		maximum size of a segment in bytes (each segment is preallocated with this size)
+	 * @param segmentDuration	maximum duration of a segment in ms (0 = unlimited)
+	 * @param retention			number of finished segments to keep; older ones are deleted (0 = keep all)
+	 * @param syncPolicy		SYNC_NONE or SYNC_SEGMENT
+	 * @throws IOException if the first segment can't be created
+	 * @throws IllegalArgumentException if a parameter is out of range
+	 */
+	public SegmentedRecorder(File directory, String baseName, long segmentSize, long segmentDuration,
+							int retention, int syncPolicy) throws IOException
+	{
+		if(segmentSize <= 0 || segmentDuration < 0 || retention < 0 || syncPolicy < SYNC_NONE || syncPolicy > SYNC_SEGMENT)
+			throw new IllegalArgumentException("Invalid segment size / duration / retention / sync policy: " + segmentSize
+					+ " / " + segmentDuration + " / " + retention + " / " + syncPolicy);
+		this.directory = directory;
+		this.baseName = baseName;
+		this.segmentSize = segmentSize;
+		this.segmentDuration = segmentDuration * 1000000;
+		this.retention = retention;
+		this.syncPolicy = syncPolicy;
+		this.executor = new ThreadPoolExecutor(0, 1, keepAlive, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable)
+					{
+						Thread thread = new Thread(runnable, "hackrf_android recorder");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+		// The first segment is created right away, the second one in the background:
+		this.current = createSegment(nextIndex++);
+		this.next = prepareNext();
+	}
+
+	/**
+	 * @return file that lists the segments (one line per segment, see writeManifest())
+	 */
+	public File getManifestFile()
+	{
+		return new File(directory, baseName + ".manifest");
+	}
+
+	/**
+	 * By default, a change of the frequency or sample rate (e.g. hopping) only starts a
+	 * new sample range in the manifest. With rotation on, it also starts a new segment,
+	 * so every file has a single tuning. Don't turn it on while hopping faster than the
+	 * background thread can prepare segments (see getSwitchStallCounter()).
+	 *
+	 * @param rotate	true to start a new segment on each tuning change
+	 */
+	public void setRotateOnTuningChange(boolean rotate)
+	{
+		this.rotateOnTuningChange = rotate;
+	}
+
+	public boolean isRotateOnTuningChange()
+	{
+		return rotateOnTuningChange;
+	}
+
+	/**
+	 * @return number of segments that were started
+	 */
+	public int getSegmentCounter()
+	{
+		return current != null ? current.index + 1 : nextIndex - 1;
+	}
+
+	/**
+	 * @return number of samples (2 bytes each) recorded since the start
+	 */
+	public long getSampleCounter()
+	{
+		return sampleCounter;
+	}
+
+	public long getBytesWritten()
+	{
+		return bytesWritten;
+	}
+
+	/**
+	 * @return bytes per second between the start of the first and the end of the last write
+	 */
+	public double getThroughput()
+	{
+		long time = lastWriteTime - firstWriteTime;
+		return time > 0 ? bytesWritten * 1e9 / time : 0;
+	}
+
+	/**
+	 * @return bytes per second while the recorder was writing (including segment switches)
+	 */
+	public double getWriteRate()
+	{
+		return writeTime > 0 ? bytesWritten * 1e9 / writeTime : 0;
+	}
+
+	/**
+	 * @return longest single write in ns (the worst-case stall of the writer thread)
+	 */
+	public long getMaxWriteTime()
+	{
+		return maxWriteTime;
+	}
+
+	/**
+	 * @return longest segment switch in ns
+	 */
+	public long getMaxSwitchTime()
+	{
+		return maxSwitchTime;
+	}
+
+	/**
+	 * @return number of switches where the next segment wasn't ready yet (the background
+	 * 			thread is too slow, e.g. because syncing takes longer than filling a segment)
+	 */
+	public int getSwitchStallCounter()
+	{
+		return switchStallCounter;
+	}
+
+	/**
+	 * @return number of failures of the background thread (closing, deleting or the manifest)
+	 */
+	public int getBackgroundErrorCounter()
+	{
+		return backgroundErrorCounter;
+	}
+
+	/**
+	 * Writes the valid bytes of a block and releases it (also if the write fails).
+	 *
+	 * @param block		received block (see Hackrf.startRXDirect() or startRXRing())
+	 * @throws IOException if the segment can't be written or the next segment can't be created
+	 */
+	public void record(IqBlock block) throws IOException
+	{
+		try {
+			write(block.getBuffer(), null, 0, block.getLength(), block.getFrequency(), block.getSampleRate(),
+					block.isDiscontinuity());
+		} finally {
+			block.release();
+		}
+	}
+
+	/**
+	 * Writes the block (for startRX(IqBlockHandler) or DspPipeline.handlerStage()).
+	 *
+	 * @param block		received block
+	 * @return false if the write failed (receiving stops)
+	 */
+	@Override
+	public boolean onIqBlock(IqBlock block)
+	{
+		try {
+			write(block.getBuffer(), null, 0, block.getLength(), block.getFrequency(), block.getSampleRate(),
+					block.isDiscontinuity());
+			return true;
+		} catch (IOException e) {
+			Log.e(logTag, "SegmentedRecorder.onIqBlock: Write failed: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Writes bytes of an array (e.g. a packet from Hackrf.startRX()).
+	 *
+	 * @param packet		samples
+	 * @param offset		index of the first byte
+	 * @param length		number of bytes
+	 * @param frequency		frequency of the samples in Hz (0 if unknown, for the manifest)
+	 * @param sampleRate	sample rate in Hz (0 if unknown, for the manifest)
+	 * @throws IOException if the segment can't be written or the next segment can't be created
+	 */
+	public void write(byte[] packet, int offset, int length, long frequency, int sampleRate) throws IOException
+	{
+		write(null, packet, offset, length, frequency, sampleRate, false);
+	}
+
+	/**
+	 * Writes either from a buffer or from an array into the current segment and starts
+	 * a new segment first if necessary. Blocks are never split across segments.
+	 */
+	private void write(ByteBuffer buffer, byte[] array, int offset, int length, long frequency, int sampleRate,
+					   boolean discontinuity) throws IOException
+	{
+		if(closed)
+			throw new IOException("SegmentedRecorder " + baseName + " is closed!");
+		long startTime = System.nanoTime();
+		if(firstWriteTime == 0)
+			firstWriteTime = startTime;
+
+		Segment segment = current;
+		Range range = segment.numBytes > 0 ? segment.ranges.get(segment.ranges.size() - 1) : null;
+		boolean retuned = range != null && (frequency != range.frequency || sampleRate != range.sampleRate);
+		if(segment.numBytes > 0 && (segment.numBytes + length > segmentSize
+				|| (segmentDuration > 0 && startTime - segment.startTime >= segmentDuration)
+				|| (retuned && rotateOnTuningChange)))
+		{
+			segment = switchSegment();
+			maxSwitchTime = Math.max(maxSwitchTime, System.nanoTime() - startTime);
+		}
+		if(segment.numBytes == 0)
+			segment.startTime = startTime;
+		if(segment.numBytes == 0 || retuned)
+		{
+			range = new Range(sampleCounter, System.currentTimeMillis(), frequency, sampleRate);
+			segment.ranges.add(range);
+		}
+
+		if(buffer != null)
+			segment.recorder.write(buffer, offset, length);
+		else
+			segment.recorder.write(array, offset, length);
+		segment.numBytes += length;
+		range.numSamples += length / 2;
+		if(discontinuity)
+			range.discontinuities++;
+		sampleCounter += length / 2;
+		bytesWritten += length;
+
+		long now = System.nanoTime();
+		long time = now - startTime;
+		writeTime += time;
+		if(time > maxWriteTime)
+			maxWriteTime = time;
+		lastWriteTime = now;
+	}
+
+	/**
+	 * Swaps in the prepared segment, lets the background thread prepare the one after it
+	 * and close the finished one.
+	 *
+	 * @return new current segment
+	 */
+	private Segment switchSegment() throws IOException
+	{
+		if(!next.isDone())
+			switchStallCounter++;
+		Segment segment = await(next);
+		final Segment old = current;
+		current = segment;
+		next = prepareNext();
+		executor.execute(new Runnable() {
+			@Override
+			public void run()
+			{
+				finishSegment(old);
+			}
+		});
+		return segment;
+	}
+
+	/**
+	 * Finishes the last segment, waits for the background thread, deletes the unused
+	 * prepared segment and writes the final manifest.
+	 *
+	 * @throws IOException if the last segment can't be closed
+	 */
+	public void close() throws IOException
+	{
+		if(closed)
+			return;
+		closed = true;
+		final Segment last = current;
+		current = null;
+		Segment unused = null;
+		try {
+			unused = await(next);
+		} catch (IOException e) {
+			// nothing to delete
+		}
+		next = null;
+		if(unused != null)
+		{
+			unused.recorder.close(false);
+			if(!unused.file.delete())
+				Log.w(logTag, "SegmentedRecorder.close: Couldn't delete unused segment " + unused.file);
+		}
+		if(last.numBytes > 0)
+		{
+			last.recorder.close(true);		// the last segment is always synced
+			executor.execute(new Runnable() {
+				@Override
+				public void run()
+				{
+					finishSegment(last);
+				}
+			});
+		}
+		else
+		{
+			last.recorder.close(false);
+			if(!last.file.delete())
+				Log.w(logTag, "SegmentedRecorder.close: Couldn't delete empty segment " + last.file);
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Log.e(logTag, "SegmentedRecorder.close: Interrupted while waiting for the background thread!");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Creates and preallocates the segment with the given index in the background.
+	 */
+	private Future<Segment> prepareNext()
+	{
+		final int index = nextIndex++;
+		return executor.submit(new Callable<Segment>() {
+			@Override
+			public Segment call() throws IOException
+			{
+				return createSegment(index);
+			}
+		});
+	}
+
+	private Segment createSegment(int index) throws IOException
+	{
+		File file = new File(directory, String.format(Locale.US, "%s_%05d.iq", baseName, index));
+		int windowSize = (int) Math.min(MappedRecorder.DEFAULT_WINDOW_SIZE, segmentSize);
+		MappedRecorder recorder = new MappedRecorder(file, segmentSize, windowSize);
+		try {
+			recorder.premap();
+		} catch (IOException e) {
+			recorder.close(false);
+			throw e;
+		}
+		return new Segment(index, file, recorder);
+	}
+
+	private static Segment await(Future<Segment> future) throws IOException
+	{
+		boolean interrupted = false;
+		try {
+			while(true)
+			{
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;		// the segment is needed anyway
+				}
+			}
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException("Couldn't create segment: " + e.getCause());
+		} finally {
+			if(interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Background thread: closes a finished segment, applies the retention and
+	 * updates the manifest.
+	 */
+	private void finishSegment(Segment segment)
+	{
+		try {
+			segment.recorder.close(syncPolicy == SYNC_SEGMENT);
+		} catch (IOException e) {
+			Log.e(logTag, "SegmentedRecorder: Couldn't close segment " + segment.file + ": " + e.getMessage());
+			backgroundErrorCounter++;
+		}
+		finished.add(segment);
+		while(retention > 0 && finished.size() > retention)
+		{
+			Segment oldest = finished.poll();
+			if(!oldest.file.delete())
+			{
+				Log.e(logTag, "SegmentedRecorder: Couldn't delete segment " + oldest.file);
+				backgroundErrorCounter++;
+			}
+		}
+		try {
+			writeManifest();
+		} catch (IOException e) {
+			Log.e(logTag, "SegmentedRecorder: Couldn't write manifest: " + e.getMessage());
+			backgroundErrorCounter++;
+		}
+	}
+
+	/**
+	 * Background thread: writes the sample ranges of the retained segments into a temporary
+	 * file and renames it to the manifest. Format: one comment line, then one line per range
+	 * (consecutive samples of a segment with the same tuning, a segment without tuning changes
+	 * has a single range): segment index, file name, first sample (counted from the start of
+	 * the recording), number of samples, start time (ms since 1970), frequency (Hz), sample
+	 * rate (Hz), number of discontinuities (separated by commas). The byte offset of a range
+	 * in its file is 2 * (first sample - first sample of the segment's first range).
+	 */
+	private void writeManifest() throws IOException
+	{
+		File manifest = getManifestFile();
+		File tmp = new File(directory, baseName + ".manifest.tmp");
+		FileWriter writer = new FileWriter(tmp);
+		try {
+			writer.write("# index,file,first_sample,num_samples,start_time_ms,frequency_hz,sample_rate_hz,discontinuities\n");
+			for(Segment segment: finished)
+				for(Range range: segment.ranges)
+					writer.write(String.format(Locale.US, "%d,%s,%d,%d,%d,%d,%d,%d\n", segment.index, segment.file.getName(),
+							range.firstSample, range.numSamples, range.startTimeMillis, range.frequency,
+							range.sampleRate, range.discontinuities));
+		} finally {
+			writer.close();
+		}
+		if(!tmp.renameTo(manifest))
+			throw new IOException("Couldn't rename " + tmp + " to " + manifest);
+	}
+
+	/**
+	 * One segment file and the meta data of its samples. Written by the writer thread
+	 * until it is handed to the background thread (via the executor).
+	 */
+	private static class Segment {
+		final int index;
+		final File file;
+		final MappedRecorder recorder;
+		final ArrayList<Range> ranges = new ArrayList<Range>();	// one per tuning (at least one if numBytes > 0)
+		long numBytes = 0;
+		long startTime = 0;			// System.nanoTime() of the first write
+
+		Segment(int index, File file, MappedRecorder recorder)
+		{
+			this.index = index;
+			this.file = file;
+			this.recorder = recorder;
+		}
+	}
+
+	/**
+	 * Consecutive samples of a segment that were received with the same tuning.
+	 */
+	private static class Range {
+		final long firstSample;
+		final long startTimeMillis;	// System.currentTimeMillis() of the first write
+		final long frequency;
+		final int sampleRate;
+		long numSamples = 0;
+		int discontinuities = 0;
+
+		Range(long firstSample, long startTimeMillis, long frequency, int sampleRate)
+		{
+			this.firstSample = firstSample;
+			this.startTimeMillis = startTimeMillis;
+			this.frequency = frequency;
+			this.sampleRate = sampleRate;
+		}
+	}
+}
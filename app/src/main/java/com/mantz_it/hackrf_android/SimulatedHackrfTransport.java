@@ -0,0 +1,647 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      SimulatedHackrfTransport.java
+ * Description: A HackrfTransport that simulates a HackRF One inside the JVM.
+ * 				It answers the vendor requests (sample rate, frequency, gains,
+ * 				transceiver mode, board information, ...) and generates
+ * 				synthetic IQ samples (a complex tone plus noise) for queued
+ * 				IN transfers. OUT transfers are consumed and counted.
+ * 				In realtime mode the transfers complete at the pace of the
+ * 				configured sample rate; otherwise as fast as possible.
+ *
+ * 				This makes it possible to run and profile the streaming
+ * 				code of the Hackrf class without a device, e.g.:
+ *
+ * 				  SimulatedHackrfTransport sim = new SimulatedHackrfTransport();
+ * 				  Hackrf hackrf = new Hackrf(sim, 1000);
+ * 				  hackrf.setSampleRate(20000000, 1);
+ * 				  ArrayBlockingQueue<byte[]> queue = hackrf.startRX();
+ *
+ * 				Note: The Hackrf class logs through android.util.Log. On a plain
+ * 				JVM (local unit tests) the android.jar stubs must return default
+ * 				values (unitTests.isReturnDefaultValues).
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class SimulatedHackrfTransport implements HackrfTransport {
+
+	private static final int PATTERN_SAMPLES 	= 1024*256;		// length of the generated sample pattern
+	private static final int BOARD_ID 			= 2;			// == HackRF One
+	private static final String VERSION_STRING 	= "simulated";
+
+	private final Object lock = new Object();							// guards pending and the stream clock
+	private final ArrayDeque<SimulatedTransfer> pending = new ArrayDeque<SimulatedTransfer>();
+	private final ArrayDeque<SimulatedTransfer> cancelled = new ArrayDeque<SimulatedTransfer>();	// not yet returned by waitTransfer()
+	private final ArrayList<ByteBuffer> lostBuffers = new ArrayList<ByteBuffer>();	// buffers of cancelled transfers that are never returned
+	private boolean closed = false;
+
+	// Simulated device state:
+	private volatile int transceiverMode = Hackrf.HACKRF_TRANSCEIVER_MODE_OFF;
+	private volatile int sampleRate = 10000000;
+	private volatile long frequency = 0;
+	private volatile int basebandFilterBandwidth = 0;
+	private volatile int lnaGain = 0;
+	private volatile int vgaGain = 0;
+	private volatile int txVgaGain = 0;
+	private volatile boolean amp = false;
+	private volatile boolean antennaPower = false;
+
+	// Sweep mode (only used by the thread calling waitTransfer() once the sweep is running):
+	private volatile int[] sweepRanges = null;		// lower and upper frequency (in MHz) of each range
+	private volatile int sweepBytes = 0;			// bytes per frequency step
+	private volatile int sweepStepWidth = 0;		// in Hz
+	private volatile int sweepOffset = 0;			// in Hz
+	private volatile int sweepStyle = Hackrf.SWEEP_STYLE_LINEAR;
+	private int sweepRange = 0;						// index of the current range
+	private long sweepFrequency = 0;				// current step frequency (in Hz, without offset)
+	private int sweepStepBytes = 0;					// bytes received on the current step
+	private boolean sweepOddStep = false;			// interleaved style: next increment is 3/4 of the step width
+
+	// Signal generation:
+	private volatile boolean realtime = true;
+	private volatile boolean loseCancelledTransfers = false;
+	private volatile int toneOffset = 100000;		// in Hz relative to the center frequency
+	private volatile int toneAmplitude = 64;		// in LSB (max 127)
+	private volatile int noiseAmplitude = 4;		// in LSB
+	private volatile byte[] pattern = null;			// interleaved IQ samples that are repeated cyclically
+	private int patternPosition = 0;				// only used by the thread calling waitTransfer()
+
+	// Stream clock (guarded by lock):
+	private long streamStartTime = 0;				// in ns (System.nanoTime())
+	private long streamBytes = 0;					// bytes completed since streamStartTime
+
+	// Statistics:
+	private volatile long controlTransferCounter = 0;
+	private volatile long generatedBytes = 0;
+	private volatile long consumedBytes = 0;
+	private volatile long lostBufferReuseCounter = 0;
+
+	/**
+	 * Creates a simulated HackRF with a sample rate of 10 Msps.
+	 */
+	public SimulatedHackrfTransport()
+	{
+		this(10000000);
+	}
+
+	/**
+	 * Creates a simulated HackRF.
+	 *
+	 * @param sampleRate	initial sample rate in Hz (can be changed with Hackrf.setSampleRate())
+	 */
+	public SimulatedHackrfTransport(int sampleRate)
+	{
+		this.sampleRate = sampleRate;
+		this.pattern = generatePattern();
+	}
+
+	/**
+	 * If realtime is set (default), transfers complete at the rate of the configured
+	 * sample rate. Otherwise they complete immediately, which measures the maximum
+	 * throughput of the streaming code.
+	 *
+	 * @param realtime	true to pace the transfers according to the sample rate
+	 */
+	public void setRealtime(boolean realtime)
+	{
+		this.realtime = realtime;
+	}
+
+	/**
+	 * Simulates a USB stack that never returns cancelled transfers from waitTransfer().
+	 * The buffers of those transfers still belong to the (simulated) USB stack: queuing
+	 * one of them again is counted by getLostBufferReuseCounter().
+	 *
+	 * @param lose	true to swallow the transfers that are cancelled from now on
+	 */
+	public void setLoseCancelledTransfers(boolean lose)
+	{
+		this.loseCancelledTransfers = lose;
+	}
+
+	/**
+	 * Configures the generated signal: a complex tone plus uniform noise.
+	 * The tone frequency is rounded so that the generated pattern repeats without
+	 * phase discontinuity.
+	 *
+	 * @param toneOffset		frequency of the tone relative to the center frequency in Hz
+	 * @param toneAmplitude		amplitude of the tone (0-127)
+	 * @param noiseAmplitude	peak amplitude of the noise (0-127)
+	 */
+	public void setSignal(int toneOffset, int toneAmplitude, int noiseAmplitude)
+	{
+		this.toneOffset = toneOffset;
+		this.toneAmplitude = toneAmplitude;
+		this.noiseAmplitude = noiseAmplitude;
+		this.pattern = generatePattern();
+	}
+
+	public int getTransceiverMode() {
+		return transceiverMode;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public long getFrequency() {
+		return frequency;
+	}
+
+	public int getBasebandFilterBandwidth() {
+		return basebandFilterBandwidth;
+	}
+
+	public int getLnaGain() {
+		return lnaGain;
+	}
+
+	public int getVgaGain() {
+		return vgaGain;
+	}
+
+	public int getTxVgaGain() {
+		return txVgaGain;
+	}
+
+	public boolean isAmp() {
+		return amp;
+	}
+
+	public boolean isAntennaPower() {
+		return antennaPower;
+	}
+
+	/**
+	 * @return number of control transfers handled so far
+	 */
+	public long getControlTransferCounter() {
+		return controlTransferCounter;
+	}
+
+	/**
+	 * @return number of bytes delivered to IN transfers so far
+	 */
+	public long getGeneratedBytes() {
+		return generatedBytes;
+	}
+
+	/**
+	 * @return number of bytes consumed from OUT transfers so far
+	 */
+	public long getConsumedBytes() {
+		return consumedBytes;
+	}
+
+	/**
+	 * @return number of cancelled transfers that were never returned (see setLoseCancelledTransfers())
+	 */
+	public int getLostTransferCounter() {
+		synchronized (lock) {
+			return lostBuffers.size();
+		}
+	}
+
+	/**
+	 * @return number of times a buffer of a lost transfer was queued again
+	 */
+	public long getLostBufferReuseCounter() {
+		return lostBufferReuseCounter;
+	}
+
+	@Override
+	public boolean claimInterface()
+	{
+		return !closed;
+	}
+
+	@Override
+	public boolean releaseInterface()
+	{
+		return !closed;
+	}
+
+	@Override
+	public int controlTransfer(int direction, int request, int value, int index, byte[] buffer, int length, int timeout)
+	{
+		if(closed)
+			return -1;
+		controlTransferCounter++;
+
+		switch(request)
+		{
+			case Hackrf.HACKRF_VENDOR_REQUEST_SET_TRANSCEIVER_MODE:
+				setTransceiverMode(value);
+				return 0;
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_SAMPLE_RATE_SET:
+				if(length != 8)
+					return -1;
+				int divider = readInt(buffer, 4);
+				if(divider == 0)
+					return -1;
+				this.sampleRate = readInt(buffer, 0) / divider;
+				this.pattern = generatePattern();
+				restartStreamClock();
+				return 8;
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_BASEBAND_FILTER_BANDWIDTH_SET:
+				this.basebandFilterBandwidth = (value & 0xffff) | ((index & 0xffff) << 16);
+				return 0;
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_SET_FREQ:
+				if(length != 8)
+					return -1;
+				this.frequency = readInt(buffer, 0) * 1000000l + readInt(buffer, 4);
+				return 8;
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_SET_FREQ_EXPLICIT:
+				if(length != 17)
+					return -1;
+				this.frequency = Math.abs(readLong(buffer, 0) - readLong(buffer, 8));
+				return 17;
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_SET_LNA_GAIN:
+				this.lnaGain = index;
+				return writeSuccess(buffer, length);
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_SET_VGA_GAIN:
+				this.vgaGain = index;
+				return writeSuccess(buffer, length);
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_SET_TXVGA_GAIN:
+				this.txVgaGain = index;
+				return writeSuccess(buffer, length);
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_AMP_ENABLE:
+				this.amp = value != 0;
+				return 0;
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_ANTENNA_ENABLE:
+				this.antennaPower = value != 0;
+				return 0;
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_INIT_SWEEP:
+				if(length < 9 || (length - 9) % 4 != 0)
+					return -1;
+				int[] ranges = new int[(length - 9) / 2];
+				for(int i = 0; i < ranges.length; i++)
+					ranges[i] = (buffer[9 + 2*i] & 0xFF) | (buffer[10 + 2*i] & 0xFF) << 8;
+				this.sweepStepWidth = readInt(buffer, 0);
+				this.sweepOffset = readInt(buffer, 4);
+				this.sweepStyle = buffer[8];
+				this.sweepBytes = (value & 0xffff) | ((index & 0xffff) << 16);
+				this.sweepRanges = ranges;
+				return length;
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_BOARD_ID_READ:
+				if(length < 1)
+					return -1;
+				buffer[0] = BOARD_ID;
+				return 1;
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_VERSION_STRING_READ:
+				int len = Math.min(length, VERSION_STRING.length());
+				for(int i = 0; i < len; i++)
+					buffer[i] = (byte) VERSION_STRING.charAt(i);
+				return len;
+
+			case Hackrf.HACKRF_VENDOR_REQUEST_BOARD_PARTID_SERIALNO_READ:
+				if(length < 24)
+					return -1;
+				for(int i = 0; i < 24; i++)
+					buffer[i] = (byte) i;
+				return 24;
+
+			default:
+				return -1;	// request not supported by the simulation
+		}
+	}
+
+	@Override
+	public HackrfTransfer createTransfer(int direction)
+	{
+		return new SimulatedTransfer(direction);
+	}
+
+	@Override
+	public HackrfTransfer waitTransfer()
+	{
+		return awaitTransfer(-1);
+	}
+
+	@Override
+	public HackrfTransfer waitTransfer(long timeout)
+	{
+		return awaitTransfer(timeout * 1000000);
+	}
+
+	/**
+	 * Waits for the next transfer. Cancelled transfers are returned first (without
+	 * data), then the pending transfers complete in FIFO order.
+	 *
+	 * @param timeout	timeout in ns (negative: wait forever)
+	 * @return completed transfer or null on timeout / error
+	 */
+	private HackrfTransfer awaitTransfer(long timeout)
+	{
+		SimulatedTransfer transfer;
+		long deadline = System.nanoTime() + timeout;
+		long dueTime = 0;
+
+		synchronized (lock) {
+			while(pending.isEmpty() && cancelled.isEmpty() && !closed)
+			{
+				try {
+					if(timeout < 0)
+						lock.wait();
+					else
+					{
+						long remaining = deadline - System.nanoTime();
+						if(remaining <= 0)
+							return null;
+						lock.wait(remaining / 1000000, (int) (remaining % 1000000));
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return null;
+				}
+			}
+			if(closed)
+				return null;
+
+			transfer = cancelled.poll();
+			if(transfer != null)
+			{
+				transfer.buffer = null;
+				return transfer;
+			}
+
+			transfer = pending.peek();
+			if(realtime && transceiverMode != Hackrf.HACKRF_TRANSCEIVER_MODE_OFF)
+				dueTime = streamStartTime + (long) ((streamBytes + transfer.buffer.remaining()) * 1000000000.0 / (2.0 * sampleRate));
+			if(timeout >= 0 && dueTime != 0 && dueTime - deadline > 0)
+				transfer = null;		// would not be completed before the timeout
+			else
+			{
+				pending.poll();
+				streamBytes += transfer.buffer.remaining();
+			}
+		}
+
+		// Wait until the transfer would be completed by real hardware (or until the timeout):
+		long waitUntil = transfer == null ? deadline : dueTime;
+		long waitTime;
+		while(waitUntil != 0 && (waitTime = waitUntil - System.nanoTime()) > 0)
+			LockSupport.parkNanos(waitTime);
+		if(transfer == null)
+			return null;
+
+		if(transfer.direction == DIR_IN)
+			fillBuffer(transfer.buffer);
+		else
+		{
+			consumedBytes += transfer.buffer.remaining();
+			transfer.buffer.position(transfer.buffer.limit());
+		}
+		transfer.buffer = null;
+		return transfer;
+	}
+
+	@Override
+	public void close()
+	{
+		synchronized (lock) {
+			closed = true;
+			pending.clear();
+			cancelled.clear();
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Fills the remaining bytes of the buffer with the next samples of the pattern.
+	 *
+	 * @param buffer	buffer of an IN transfer
+	 */
+	private void fillBuffer(ByteBuffer buffer)
+	{
+		byte[] pattern = this.pattern;
+		if(patternPosition >= pattern.length)
+			patternPosition = 0;
+
+		generatedBytes += buffer.remaining();
+		int start = buffer.position();
+		while(buffer.hasRemaining())
+		{
+			int len = Math.min(buffer.remaining(), pattern.length - patternPosition);
+			buffer.put(pattern, patternPosition, len);
+			patternPosition = (patternPosition + len) % pattern.length;
+		}
+		if(transceiverMode == Hackrf.HACKRF_TRANSCEIVER_MODE_RX_SWEEP && sweepRanges != null)
+			writeSweepHeaders(buffer, start);
+	}
+
+	/**
+	 * Writes the sweep header (like the firmware) into each 16 KiB block of the buffer
+	 * and steps through the sweep ranges.
+	 *
+	 * @param buffer	buffer of an IN transfer that was just filled
+	 * @param start		position of the first byte that was filled
+	 */
+	private void writeSweepHeaders(ByteBuffer buffer, int start)
+	{
+		int[] ranges = sweepRanges;
+		for(int offset = start; offset + HackrfSweepParser.BYTES_PER_BLOCK <= buffer.position(); offset += HackrfSweepParser.BYTES_PER_BLOCK)
+		{
+			if(sweepFrequency == 0)
+				sweepFrequency = ranges[sweepRange * 2] * 1000000L;
+			long frequency = sweepFrequency + sweepOffset;
+			this.frequency = frequency;
+			buffer.put(offset, (byte) 0x7F);
+			buffer.put(offset + 1, (byte) 0x7F);
+			for(int i = 0; i < 8; i++)
+				buffer.put(offset + 2 + i, (byte) (frequency >> (8*i)));
+
+			// Retune after sweepBytes:
+			sweepStepBytes += HackrfSweepParser.BYTES_PER_BLOCK;
+			if(sweepStepBytes < sweepBytes)
+				continue;
+			sweepStepBytes = 0;
+			if(sweepStyle == Hackrf.SWEEP_STYLE_INTERLEAVED)
+				sweepFrequency += sweepOddStep ? 3 * sweepStepWidth / 4 : sweepStepWidth / 4;
+			else
+				sweepFrequency += sweepStepWidth;
+			sweepOddStep = !sweepOddStep;
+			if(sweepFrequency > ranges[sweepRange * 2 + 1] * 1000000L)
+			{
+				sweepRange = (sweepRange + 1) % (ranges.length / 2);
+				sweepFrequency = ranges[sweepRange * 2] * 1000000L;
+				sweepOddStep = false;
+			}
+		}
+	}
+
+	/**
+	 * Generates PATTERN_SAMPLES interleaved 8-bit IQ samples of the configured signal.
+	 * The tone is quantized to an integer number of cycles within the pattern.
+	 *
+	 * @return interleaved IQ pattern
+	 */
+	private byte[] generatePattern()
+	{
+		byte[] pattern = new byte[2*PATTERN_SAMPLES];
+		Random random = new Random(0);
+		long cycles = Math.round((double) toneOffset / sampleRate * PATTERN_SAMPLES);
+		for(int i = 0; i < PATTERN_SAMPLES; i++)
+		{
+			double phase = 2 * Math.PI * ((cycles * i) % PATTERN_SAMPLES) / PATTERN_SAMPLES;
+			double re = toneAmplitude * Math.cos(phase) + noiseAmplitude * (2 * random.nextDouble() - 1);
+			double im = toneAmplitude * Math.sin(phase) + noiseAmplitude * (2 * random.nextDouble() - 1);
+			pattern[2*i] 	= (byte) Math.max(-128, Math.min(127, Math.round(re)));
+			pattern[2*i+1] 	= (byte) Math.max(-128, Math.min(127, Math.round(im)));
+		}
+		return pattern;
+	}
+
+	private void setTransceiverMode(int mode)
+	{
+		if(mode == Hackrf.HACKRF_TRANSCEIVER_MODE_RX_SWEEP)
+		{
+			// The sweep starts over at the first range:
+			sweepRange = 0;
+			sweepFrequency = 0;
+			sweepStepBytes = 0;
+			sweepOddStep = false;
+		}
+		this.transceiverMode = mode;
+		restartStreamClock();
+	}
+
+	private void restartStreamClock()
+	{
+		synchronized (lock) {
+			streamStartTime = System.nanoTime();
+			streamBytes = 0;
+		}
+	}
+
+	private static int writeSuccess(byte[] buffer, int length)
+	{
+		if(length < 1)
+			return -1;
+		buffer[0] = 1;
+		return 1;
+	}
+
+	private static int readInt(byte[] b, int offset)
+	{
+		return b[offset] & 0xFF | (b[offset+1] & 0xFF) << 8 |
+				(b[offset+2] & 0xFF) << 16 | (b[offset+3] & 0xFF) << 24;
+	}
+
+	private static long readLong(byte[] b, int offset)
+	{
+		return (readInt(b, offset) & 0xFFFFFFFFl) | ((long) readInt(b, offset+4)) << 32;
+	}
+
+	/**
+	 * Transfer of the simulated device. Queued transfers complete in FIFO order.
+	 */
+	private class SimulatedTransfer implements HackrfTransfer {
+		private final int direction;
+		private ByteBuffer buffer = null;
+		private Object clientData = null;
+
+		private SimulatedTransfer(int direction)
+		{
+			this.direction = direction;
+		}
+
+		@Override
+		public int getDirection()
+		{
+			return direction;
+		}
+
+		@Override
+		public boolean queue(ByteBuffer buffer)
+		{
+			synchronized (lock) {
+				if(closed || this.buffer != null)
+					return false;
+				for(int i = 0; i < lostBuffers.size(); i++)
+					if(lostBuffers.get(i) == buffer)
+						lostBufferReuseCounter++;
+				this.buffer = buffer;
+				pending.add(this);
+				lock.notifyAll();
+			}
+			return true;
+		}
+
+		@Override
+		public boolean cancel()
+		{
+			synchronized (lock) {
+				if(!pending.remove(this))
+					return false;
+				// Like a real USB request, the cancelled transfer is still returned by waitTransfer():
+				if(loseCancelledTransfers)
+					lostBuffers.add(buffer);	// ... unless the simulated USB stack keeps it forever
+				else
+					cancelled.add(this);
+				lock.notifyAll();
+			}
+			return true;
+		}
+
+		@Override
+		public void close()
+		{
+			synchronized (lock) {
+				pending.remove(this);
+				cancelled.remove(this);
+				this.buffer = null;
+			}
+		}
+
+		@Override
+		public Object getClientData()
+		{
+			return clientData;
+		}
+
+		@Override
+		public void setClientData(Object data)
+		{
+			this.clientData = data;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeoutException;
+
+import android.hardware.usb.UsbConstants;
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+import android.hardware.usb.UsbInterface;
+import android.hardware.usb.UsbRequest;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      UsbHackrfTransport.java
+ * Description: Implementation of the HackrfTransport that uses the Android
+ * 				USB Host API (UsbDeviceConnection and UsbRequest) to talk to
+ * 				a real HackRF device.
+ *
+ * @author Dennis Mantz (USB access moved from Hackrf.java), agent
+ *
+ * Copyright (C) 2014 Dennis Mantz, 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class UsbHackrfTransport implements HackrfTransport {
+
+	private UsbDeviceConnection usbConnection = null;
+	private UsbInterface usbInterface = null;
+	private UsbEndpoint usbEndpointIN = null;
+	private UsbEndpoint usbEndpointOUT = null;
+
+	/**
+	 * Creates a transport on top of an already opened USB device connection.
+	 *
+	 * @param usbConnection		opened connection to the HackRF
+	 * @param usbInterface		interface 0 of the HackRF
+	 * @param usbEndpointIN		bulk IN endpoint (receive)
+	 * @param usbEndpointOUT	bulk OUT endpoint (transmit)
+	 */
+	public UsbHackrfTransport(UsbDeviceConnection usbConnection, UsbInterface usbInterface,
+							  UsbEndpoint usbEndpointIN, UsbEndpoint usbEndpointOUT)
+	{
+		this.usbConnection = usbConnection;
+		this.usbInterface = usbInterface;
+		this.usbEndpointIN = usbEndpointIN;
+		this.usbEndpointOUT = usbEndpointOUT;
+	}
+
+	@Override
+	public boolean claimInterface()
+	{
+		return this.usbConnection.claimInterface(this.usbInterface, true);
+	}
+
+	@Override
+	public boolean releaseInterface()
+	{
+		return this.usbConnection.releaseInterface(this.usbInterface);
+	}
+
+	@Override
+	public int controlTransfer(int direction, int request, int value, int index, byte[] buffer, int length, int timeout)
+	{
+		return this.usbConnection.controlTransfer(direction | UsbConstants.USB_TYPE_VENDOR,
+				request, value, index, buffer, length, timeout);
+	}
+
+	@Override
+	public HackrfTransfer createTransfer(int direction) throws HackrfUsbException
+	{
+		UsbTransfer transfer = new UsbTransfer(direction);
+		if(!transfer.usbRequest.initialize(this.usbConnection, direction == DIR_IN ? usbEndpointIN : usbEndpointOUT))
+			throw(new HackrfUsbException("Couldn't initialize USB Request!"));
+		return transfer;
+	}
+
+	@Override
+	public HackrfTransfer waitTransfer()
+	{
+		UsbRequest request = this.usbConnection.requestWait();
+		if(request == null)
+			return null;
+
+		// The client data of each UsbRequest points back to its UsbTransfer:
+		return (HackrfTransfer) request.getClientData();
+	}
+
+	@Override
+	public HackrfTransfer waitTransfer(long timeout)
+	{
+		UsbRequest request;
+		try {
+			request = this.usbConnection.requestWait(timeout);
+		} catch (TimeoutException e) {
+			return null;
+		}
+		if(request == null)
+			return null;
+		return (HackrfTransfer) request.getClientData();
+	}
+
+	@Override
+	public void close()
+	{
+		this.usbConnection.close();
+	}
+
+	/**
+	 * Wraps an UsbRequest. The client data of the UsbRequest is used to find the
+	 * wrapper again after UsbDeviceConnection.requestWait() returned.
+	 */
+	private static class UsbTransfer implements HackrfTransfer {
+		private final UsbRequest usbRequest = new UsbRequest();
+		private final int direction;
+		private Object clientData = null;
+
+		private UsbTransfer(int direction)
+		{
+			this.direction = direction;
+			this.usbRequest.setClientData(this);
+		}
+
+		@Override
+		public int getDirection()
+		{
+			return direction;
+		}
+
+		@Override
+		public boolean queue(ByteBuffer buffer)
+		{
+			return usbRequest.queue(buffer);
+		}
+
+		@Override
+		public boolean cancel()
+		{
+			return usbRequest.cancel();
+		}
+
+		@Override
+		public void close()
+		{
+			usbRequest.close();
+		}
+
+		@Override
+		public Object getClientData()
+		{
+			return clientData;
+		}
+
+		@Override
+		public void setClientData(Object data)
+		{
+			this.clientData = data;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.mantz_it.hackrf_android;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      WaitStrategy.java
+ * Description: Defines how a consumer thread waits for new data on a
+ * 				lock-free ring (e.g. IqBlockRing). SPIN burns a core but
+ * 				has the lowest hand-off latency, YIELD gives the core to
+ * 				other threads between checks and PARK puts the thread to
+ * 				sleep until the producer wakes it up (lowest CPU usage).
+ * 				Own strategies can be plugged in by implementing this
+ * 				interface.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public interface WaitStrategy {
+
+	public static final WaitStrategy SPIN 	= new Spin();
+	public static final WaitStrategy YIELD 	= new Yield();
+	public static final WaitStrategy PARK 	= new Park();
+
+	/**
+	 * Called repeatedly by the waiting thread as long as there is nothing to consume.
+	 *
+	 * @param iteration		number of unsuccessful checks since the thread started waiting
+	 * @param deadline		System.nanoTime() after which the thread gives up waiting
+	 */
+	public void idle(int iteration, long deadline);
+
+	/**
+	 * @return true if idle() may park the thread. In this case the producer must
+	 * 			unpark the waiting thread after it published new data.
+	 */
+	public boolean isBlocking();
+
+	/**
+	 * Busy spinning. Lowest latency, highest CPU usage.
+	 */
+	public static class Spin implements WaitStrategy {
+		@Override
+		public void idle(int iteration, long deadline)
+		{
+			// nothing to do: check again immediately
+		}
+
+		@Override
+		public boolean isBlocking()
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Spins for a few iterations and then yields the CPU between the checks.
+	 */
+	public static class Yield implements WaitStrategy {
+		private static final int spinIterations = 100;
+
+		@Override
+		public void idle(int iteration, long deadline)
+		{
+			if(iteration >= spinIterations)
+				Thread.yield();
+		}
+
+		@Override
+		public boolean isBlocking()
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Yields a few times and then parks the thread until the producer wakes it up.
+	 * The thread also wakes up after maxParkTime to recover from missed signals.
+	 */
+	public static class Park implements WaitStrategy {
+		private static final int yieldIterations = 10;
+		private static final long maxParkTime = 1000000;		// 1ms
+
+		@Override
+		public void idle(int iteration, long deadline)
+		{
+			if(iteration < yieldIterations)
+				Thread.yield();
+			else
+				LockSupport.parkNanos(Math.min(maxParkTime, deadline - System.nanoTime()));
+		}
+
+		@Override
+		public boolean isBlocking()
+		{
+			return true;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package com.mantz_it.hackrf_android;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      WorkerGroup.java
+ * Description: Group of daemon threads that split one job (e.g. the FFTs of
+ * 				a packet) into contiguous ranges of items and process them in
+ * 				parallel. The calling thread processes the first range itself
+ * 				and waits for the others, so a job with one range runs without
+ * 				any thread hand-off. Threads are started on demand and reused
+ * 				for all jobs. Used by PsdEngine and PfbChannelizer.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+class WorkerGroup {
+
+	private static final String logTag = "hackrf_android";
+
+	/**
+	 * Work of one job. run() is called once per range, each range on a different thread.
+	 */
+	interface Task {
+		/**
+		 * @param worker	index of the thread (0 = calling thread), e.g. to select scratch buffers
+		 * @param first		first item of the range
+		 * @param last		end of the range (exclusive)
+		 */
+		void run(int worker, int first, int last);
+	}
+
+	private final String threadName;
+	private final ArrayList<Thread> threads = new ArrayList<Thread>();	// worker 1, 2, ...
+	private final Object lock = new Object();
+	private Task task = null;					// guarded by lock
+	private int jobId = 0;						// guarded by lock
+	private int ranges = 0;						// guarded by lock
+	private int numItems = 0;					// guarded by lock
+	private int remaining = 0;					// guarded by lock
+	private boolean closed = false;				// guarded by lock
+	private RuntimeException failure = null;	// first exception of a worker in the current job, guarded by lock
+
+	/**
+	 * @param threadName	prefix of the thread names
+	 */
+	WorkerGroup(String threadName)
+	{
+		this.threadName = threadName;
+	}
+
+	/**
+	 * Splits numItems items into numRanges contiguous ranges and processes them in
+	 * parallel. Returns after all ranges are done. Must only be called by one thread
+	 * at a time. If a range throws a RuntimeException, the other ranges still finish
+	 * and the first exception is rethrown on the calling thread.
+	 *
+	 * @param task			work of one range
+	 * @param numItems		number of items
+	 * @param numRanges		number of threads to use (including the calling thread)
+	 * @throws RuntimeException	the exception of the calling thread's range or the first one of a worker
+	 */
+	void execute(Task task, int numItems, int numRanges)
+	{
+		numRanges = Math.max(1, Math.min(numRanges, numItems));
+		if(numRanges == 1)
+		{
+			task.run(0, 0, numItems);
+			return;
+		}
+		while(threads.size() < numRanges - 1)
+			startThread();
+
+		synchronized (lock) {
+			this.task = task;
+			this.ranges = numRanges;
+			this.numItems = numItems;
+			this.remaining = numRanges - 1;
+			this.failure = null;
+			this.jobId++;
+			lock.notifyAll();
+		}
+		RuntimeException exception = null;
+		try {
+			task.run(0, 0, numItems / numRanges);
+		} catch (RuntimeException e) {
+			exception = e;			// the workers still use the job's data, so we have to wait for them
+		}
+		boolean interrupted = false;
+		synchronized (lock) {
+			while(remaining > 0)
+			{
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;		// the workers still use the job's data, so we have to wait for them
+				}
+			}
+			this.task = null;
+			if(exception == null)
+				exception = this.failure;
+			this.failure = null;
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+		if(exception != null)
+			throw exception;
+	}
+
+	/**
+	 * @return number of threads including the calling thread
+	 */
+	int getNumThreads()
+	{
+		return threads.size() + 1;
+	}
+
+	/**
+	 * Stops the threads (they are started again by the next job that needs them).
+	 */
+	void close()
+	{
+		synchronized (lock) {
+			closed = true;
+			lock.notifyAll();
+		}
+		for(Thread thread: threads)
+		{
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Log.e(logTag, "WorkerGroup.close: Interrupted while waiting for the threads!");
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		threads.clear();
+	}
+
+	private void startThread()
+	{
+		final int index = threads.size() + 1;
+		final int startJobId;
+		synchronized (lock) {
+			closed = false;
+			startJobId = jobId;
+		}
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				int lastJobId = startJobId;
+				while(true)
+				{
+					Task task;
+					int first;
+					int last;
+					synchronized (lock) {
+						while(jobId == lastJobId && !closed)
+						{
+							try {
+								lock.wait();
+							} catch (InterruptedException e) {
+								// keep waiting: the group stops its threads with close()
+							}
+						}
+						if(closed)
+							return;
+						lastJobId = jobId;
+						if(index >= ranges)
+							continue;
+						task = WorkerGroup.this.task;
+						first = (int) ((long) numItems * index / ranges);
+						last = (int) ((long) numItems * (index + 1) / ranges);
+					}
+					RuntimeException exception = null;
+					try {
+						task.run(index, first, last);
+					} catch (RuntimeException e) {
+						Log.e(logTag, threadName + " " + index + ": " + e.getMessage());
+						exception = e;
+					}
+					synchronized (lock) {
+						if(exception != null && failure == null)
+							failure = exception;
+						remaining--;
+						if(remaining == 0)
+							lock.notifyAll();
+					}
+				}
+			}
+		}, threadName + " " + index);
+		thread.setDaemon(true);
+		threads.add(thread);
+		thread.start();
+	}
+}
@@ -0,0 +1,187 @@
+package com.mantz_it.hackrf_android;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      DecimatorTest.java
+ * Description: Local JVM tests of the decimation stages: splitting the input into
+ * 				packets of any size must not change the output, and the FirDesign
+ * 				taps must meet their pass band and stop band.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class DecimatorTest {
+
+	private static final int numSamples = 50000;
+	private static final int maxPacketSize = 5000;			// random packet sizes from 1 to this
+	private static final float attenuation = 60;
+	private static final int gridSize = 2000;				// frequencies per band of the response check
+	private static final float[] attenuations = {40, 60, 80, 90};
+
+	@Test
+	public void firDecimatorDoesNotDependOnPacketSizes()
+	{
+		checkSplits(FirDecimator.create(5, 0.08, 0.12, attenuation));
+	}
+
+	@Test
+	public void halfBandDecimatorDoesNotDependOnPacketSizes()
+	{
+		checkSplits(HalfBandDecimator.create(0.2, attenuation));
+	}
+
+	@Test
+	public void rationalResamplerDoesNotDependOnPacketSizes()
+	{
+		checkSplits(RationalResampler.create(3, 10, 0.1, 0.14, attenuation));
+	}
+
+	@Test
+	public void decimatorChainDoesNotDependOnPacketSizes()
+	{
+		checkSplits(DecimatorChain.create(10000000, 1000000, 800000, attenuation));	// half band + FIR
+		checkSplits(DecimatorChain.create(10000000, 48000, 40000, attenuation));	// FIR decimators + resampler
+	}
+
+	@Test
+	public void lowPassMeetsItsBands()
+	{
+		// Narrow and wide transition bands, also near 0.5 (where the estimate of the number
+		// of taps is least accurate):
+		double[][] bands = {{0.1, 0.15}, {0.02, 0.025}, {0.2, 0.25}, {0.3, 0.45}, {0.378, 0.478}, {0.447, 0.457}};
+		for(double[] band: bands)
+		{
+			for(float attenuation: attenuations)
+			{
+				float[] taps = FirDesign.lowPass(band[0], band[1], attenuation, 1);
+				checkResponse(taps, band[0], band[1], attenuation, "lowPass(" + band[0] + ", " + band[1] + ", " + attenuation + ")");
+			}
+		}
+		// The gain of a resampler's filter scales the whole response:
+		float[] taps = FirDesign.lowPass(0.05, 0.08, attenuation, 3);
+		float[] scaled = new float[taps.length];
+		for(int i = 0; i < taps.length; i++)
+			scaled[i] = taps[i] / 3;
+		checkResponse(scaled, 0.05, 0.08, attenuation, "lowPass with gain 3");
+	}
+
+	@Test
+	public void halfBandMeetsItsBands()
+	{
+		for(double passEdge: new double[] {0.05, 0.1, 0.2, 0.23})
+		{
+			for(float attenuation: attenuations)
+			{
+				float[] taps = FirDesign.halfBand(passEdge, attenuation);
+				assertEquals(3, taps.length % 4);
+				checkResponse(taps, passEdge, 0.5 - passEdge, attenuation, "halfBand(" + passEdge + ", " + attenuation + ")");
+			}
+		}
+	}
+
+	/**
+	 * Runs the same input through the stage in one call and in packets of random sizes
+	 * (after a reset) and compares the outputs.
+	 */
+	private static void checkSplits(IqStage stage)
+	{
+		Random random = new Random(7);
+		float[] input = new float[2 * numSamples];
+		for(int n = 0; n < numSamples; n++)
+		{
+			double angle = 2 * Math.PI * 0.0123 * n;
+			input[2*n] = (float) (0.3 * Math.cos(angle) + 0.05 * random.nextGaussian());
+			input[2*n+1] = (float) (0.3 * Math.sin(angle) + 0.05 * random.nextGaussian());
+		}
+
+		float[] expected = new float[2 * stage.getMaxOutputLength(numSamples)];
+		int numExpected = stage.process(input, 0, numSamples, expected, 0);
+		assertEquals((long) numSamples * stage.getInterpolation() / stage.getDecimation(), numExpected, 2);
+
+		stage.reset();
+		float[] actual = new float[2 * numSamples];
+		int numActual = 0;
+		for(int offset = 0; offset < numSamples; )
+		{
+			int size = Math.min(numSamples - offset, 1 + random.nextInt(random.nextBoolean() ? 8 : maxPacketSize));
+			int count = stage.process(input, 2 * offset, size, actual, 2 * numActual);
+			assertTrue(count <= stage.getMaxOutputLength(size));
+			numActual += count;
+			offset += size;
+		}
+		assertEquals(stage.toString(), numExpected, numActual);
+		float[] head = new float[2 * numActual];
+		System.arraycopy(actual, 0, head, 0, head.length);
+		float[] expectedHead = new float[2 * numExpected];
+		System.arraycopy(expected, 0, expectedHead, 0, expectedHead.length);
+		assertArrayEquals(stage.toString(), expectedHead, head, 1e-6f);
+	}
+
+	/**
+	 * Checks the magnitude of the frequency response in the stop band ([stopEdge; 0.5],
+	 * below -attenuation) and in the pass band ([0; passEdge], a window design has the
+	 * same ripple in both bands).
+	 */
+	private static void checkResponse(float[] taps, double passEdge, double stopEdge, float attenuation, String name)
+	{
+		double maxStop = Math.pow(10, -attenuation / 20);
+		double minPass = 1 - 2 * maxStop;		// the normalization to a DC gain of 1 adds to the ripple
+		double maxPass = 1 + 2 * maxStop;
+		for(int k = 0; k <= gridSize; k++)
+		{
+			double pass = magnitude(taps, passEdge * k / gridSize);
+			assertTrue(name + ": pass band at " + passEdge * k / gridSize + ": " + pass, pass >= minPass && pass <= maxPass);
+			double frequency = stopEdge + (0.5 - stopEdge) * k / gridSize;
+			double stop = magnitude(taps, frequency);
+			assertTrue(name + ": stop band at " + frequency + ": " + 20 * Math.log10(stop) + " dB", stop <= maxStop);
+		}
+	}
+
+	/**
+	 * @return |H(f)| of the taps at the normalized frequency f
+	 */
+	private static double magnitude(float[] taps, double frequency)
+	{
+		// sum(taps[n] * e^(-j*2*pi*f*n)), the phasor is rotated by one step per tap:
+		double stepRe = Math.cos(2 * Math.PI * frequency);
+		double stepIm = -Math.sin(2 * Math.PI * frequency);
+		double phasorRe = 1;
+		double phasorIm = 0;
+		double re = 0;
+		double im = 0;
+		for(float tap: taps)
+		{
+			re += tap * phasorRe;
+			im += tap * phasorIm;
+			double next = phasorRe * stepRe - phasorIm * stepIm;
+			phasorIm = phasorRe * stepIm + phasorIm * stepRe;
+			phasorRe = next;
+		}
+		return Math.sqrt(re * re + im * im);
+	}
+}
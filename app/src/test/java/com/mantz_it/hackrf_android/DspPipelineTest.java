@@ -0,0 +1,209 @@
+package com.mantz_it.hackrf_android;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      DspPipelineTest.java
+ * Description: Local JVM tests of DspPipeline: a stage with several workers must
+ * 				keep the order of the items, and a stalled stage must fill the
+ * 				rings back to the USB thread, where the overflow policy applies,
+ * 				without losing a block of the pool.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class DspPipelineTest {
+
+	private static final int numItems = 2000;
+	private static final int numWorkers = 4;
+	private static final long maxDelay = 200000;		// ns per item in the parallel stage
+	private static final int sampleRate = 10000000;
+	private static final long timeout = 5000;			// ms
+
+	@Test
+	public void parallelStageKeepsTheOrder() throws InterruptedException
+	{
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+		final ArrayList<Integer> output = new ArrayList<Integer>();
+		DspPipeline pipeline = new DspPipeline(8, WaitStrategy.PARK);
+		pipeline.addStage("delay", new DspPipeline.Stage<Integer, Integer>() {
+			@Override
+			public Integer process(Integer item)
+			{
+				int now = active.incrementAndGet();
+				while(maxActive.get() < now)
+					maxActive.compareAndSet(maxActive.get(), now);
+				LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(maxDelay));
+				active.decrementAndGet();
+				return item % 10 == 3 ? null : item;		// some items produce no output
+			}
+
+			@Override
+			public void discard(Integer item)
+			{
+			}
+		}, numWorkers);
+		pipeline.addStage("collect", new DspPipeline.Stage<Integer, Object>() {
+			@Override
+			public Object process(Integer item)
+			{
+				synchronized(output) {
+					output.add(item);
+				}
+				return null;
+			}
+
+			@Override
+			public void discard(Integer item)
+			{
+			}
+		}, 1);
+
+		pipeline.start();
+		try {
+			for(int i = 0; i < numItems; i++)
+				assertTrue("offer " + i, pipeline.offer(i, timeout, TimeUnit.MILLISECONDS));
+			long deadline = System.currentTimeMillis() + timeout;
+			while(pipeline.getStage(1).getItemCounter() < numItems - numItems / 10 && System.currentTimeMillis() < deadline)
+				Thread.sleep(1);
+		} finally {
+			pipeline.stop();
+		}
+
+		assertTrue("workers didn't overlap", maxActive.get() > 1);
+		synchronized(output) {
+			assertEquals(numItems - numItems / 10, output.size());
+			int index = 0;
+			for(int i = 0; i < numItems; i++)
+				if(i % 10 != 3)
+					assertEquals(i, (int) output.get(index++));
+		}
+	}
+
+	@Test
+	public void stalledStageDropsNewestBlocks() throws Exception
+	{
+		checkStall(Hackrf.OVERFLOW_POLICY_DROP_NEWEST);
+	}
+
+	@Test
+	public void stalledStageDropsOldestBlocks() throws Exception
+	{
+		checkStall(Hackrf.OVERFLOW_POLICY_DROP_OLDEST);
+	}
+
+	/**
+	 * Receives into a pipeline whose last stage doesn't return, checks that the
+	 * IqBlockRing fills up and the overflow policy drops blocks while receiving goes
+	 * on, and that all blocks are back in the pool after stopping.
+	 */
+	private static void checkStall(int overflowPolicy) throws Exception
+	{
+		SimulatedHackrfTransport transport = new SimulatedHackrfTransport(sampleRate);
+		transport.setRealtime(false);
+		Hackrf hackrf = new Hackrf(transport, 64);
+		hackrf.setSampleRate(sampleRate, 1);
+		hackrf.setOverflowPolicy(overflowPolicy, 0);
+
+		final CountDownLatch stall = new CountDownLatch(1);
+		DspPipeline pipeline = new DspPipeline(4, WaitStrategy.PARK);
+		pipeline.addStage("pass", new DspPipeline.Stage<IqBlock, IqBlock>() {
+			@Override
+			public IqBlock process(IqBlock block)
+			{
+				return block;
+			}
+
+			@Override
+			public void discard(IqBlock block)
+			{
+				block.release();
+			}
+		}, 2);
+		pipeline.addStage("stalled", new DspPipeline.Stage<IqBlock, Object>() {
+			@Override
+			public Object process(IqBlock block)
+			{
+				try {
+					stall.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				block.release();
+				return null;
+			}
+
+			@Override
+			public void discard(IqBlock block)
+			{
+				block.release();
+			}
+		}, 1);
+
+		IqBlockRing ring = hackrf.startRXPipeline(pipeline);
+		try {
+			// The stalled stage is full (the items in front of it are held by the workers of
+			// the first stage and the source thread):
+			DspPipeline.StageInfo stalled = pipeline.getStage(1);
+			long deadline = System.currentTimeMillis() + timeout;
+			while((ring.size() < ring.capacity() || hackrf.getDroppedPacketCounter() == 0
+					|| stalled.getQueueSize() < stalled.getQueueCapacity()) && System.currentTimeMillis() < deadline)
+				Thread.sleep(1);
+			assertEquals("ring didn't fill up", ring.capacity(), ring.size());
+			assertEquals("ring of the stalled stage", stalled.getQueueCapacity(), stalled.getQueueSize());
+			assertEquals(0, stalled.getItemCounter());
+			long dropped = hackrf.getDroppedPacketCounter();
+			assertTrue("no block was dropped", dropped > 0);
+
+			// Receiving goes on (the policy doesn't stop it):
+			deadline = System.currentTimeMillis() + timeout;
+			while(hackrf.getDroppedPacketCounter() == dropped && System.currentTimeMillis() < deadline)
+				Thread.sleep(1);
+			assertTrue("receiving stopped", hackrf.getDroppedPacketCounter() > dropped);
+			assertTrue(pipeline.isRunning());
+		} finally {
+			hackrf.stop();
+			stall.countDown();
+			pipeline.stop();
+		}
+
+		// The pipeline released its blocks. The ring keeps its blocks until the next start,
+		// so the test takes them out (once the USB thread stopped filling it):
+		IqBlockPool pool = hackrf.getBlockPool();
+		long deadline = System.currentTimeMillis() + timeout;
+		do {
+			ring.clear();
+			Thread.sleep(1);
+		} while(pool.getAvailableCount() < pool.getSize() && System.currentTimeMillis() < deadline);
+		assertEquals("leaked blocks", pool.getSize(), pool.getAvailableCount());
+	}
+}
@@ -0,0 +1,94 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      FusedDecimatorBenchmark.java
+ * Description: Compares the throughput of FusedDecimator with the chained stages
+ * 				(IqCorrector -> Nco -> DecimatorChain) at 10 and 20 Msps. Not a
+ * 				unit test: run main() on the JVM or on a device.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class FusedDecimatorBenchmark {
+
+	private static final int packetSize = 131072;		// samples (one 256 KiB packet)
+	private static final int iterations = 100;			// packets per measurement
+	private static final int rounds = 9;				// the fastest round is reported
+	private static final double mixFrequency = -0.0371;
+	// {input rate, output rate, bandwidth}
+	private static final int[][] configs = {
+			{10000000, 1000000, 800000},
+			{20000000, 1000000, 800000},
+			{10000000, 250000, 200000},
+			{20000000, 250000, 200000}};
+
+	public static void main(String[] args)
+	{
+		byte[] input = FusedDecimatorTest.createInput(packetSize);
+		ByteBuffer direct = ByteBuffer.allocateDirect(input.length);		// like IqBlock.getBuffer()
+		direct.put(input);
+
+		for(int[] config: configs)
+		{
+			IqCorrector corrector = new IqCorrector();
+			Nco nco = new Nco(mixFrequency);
+			DecimatorChain chain = DecimatorChain.create(config[0], config[1], config[2], 60);
+			float[] samples = new float[2 * packetSize];
+			float[] chainedOutput = new float[2 * chain.getMaxOutputLength(packetSize)];
+
+			FusedDecimator fused = FusedDecimator.create(config[0], config[1], config[2], 60);
+			fused.setMixFrequency(mixFrequency);
+			DecimatorChain rest = fused.getChain();
+			float[] fusedOutput = new float[2 * fused.getMaxOutputLength(packetSize)];
+			float[] restOutput = new float[2 * (rest == null ? 1 : rest.getMaxOutputLength(packetSize))];
+
+			double chained = Double.MAX_VALUE;
+			double fusedTime = Double.MAX_VALUE;
+			for(int round = 0; round < rounds; round++)
+			{
+				long start = System.nanoTime();
+				for(int i = 0; i < iterations; i++)
+				{
+					corrector.convertAndCorrect(direct, 0, samples, 0, packetSize);
+					nco.mix(samples, 0, packetSize);
+					chain.process(samples, 0, packetSize, chainedOutput, 0);
+				}
+				chained = Math.min(chained, (System.nanoTime() - start) / 1e9 / iterations);
+
+				start = System.nanoTime();
+				for(int i = 0; i < iterations; i++)
+				{
+					int count = fused.process(direct, 0, packetSize, fusedOutput, 0);
+					if(rest != null)
+						rest.process(fusedOutput, 0, count, restOutput, 0);
+				}
+				fusedTime = Math.min(fusedTime, (System.nanoTime() - start) / 1e9 / iterations);
+			}
+
+			double packetDuration = (double) packetSize / config[0];
+			System.out.printf("%d -> %d Sps (%s): chained %.1f Msps (load %.2f), fused %.1f Msps (load %.2f)%n",
+					config[0], config[1], chain, packetSize / chained / 1e6, chained / packetDuration,
+					packetSize / fusedTime / 1e6, fusedTime / packetDuration);
+		}
+	}
+}
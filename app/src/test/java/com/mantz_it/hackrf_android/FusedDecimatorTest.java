@@ -0,0 +1,209 @@
+package com.mantz_it.hackrf_android;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      FusedDecimatorTest.java
+ * Description: Local JVM tests of FusedDecimator: the fused kernel must give the
+ * 				same output as IqCorrector -> Nco -> DecimatorChain for the same
+ * 				8-bit packets, across packet boundaries and discontinuities.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class FusedDecimatorTest {
+
+	private static final long frequency = 100000000L;
+	private static final float attenuation = 60;
+	private static final double mixFrequency = -0.0371;		// normalized to the input rate
+	// Packet sizes in samples: not multiples of the chunk size or the decimation. The
+	// packet at discontinuityIndex is flagged as the first one after a gap:
+	private static final int[] packetSizes = {5000, 1, 1023, 4097, 777, 20000, 333, 8192, 3};
+	private static final int discontinuityIndex = 5;
+	// {input rate, output rate, bandwidth}: half band first, FIR decimator first, resampler
+	private static final int[][] configs = {
+			{10000000, 1000000, 800000},
+			{20000000, 250000, 200000},
+			{10000000, 2000000, 1600000},
+			{10000000, 3000000, 2000000}};
+
+	@Test
+	public void matchesChainedStagesWithoutCorrection()
+	{
+		// Without DC and imbalance correction the only differences are rounding errors:
+		for(int[] config: configs)
+			compare(config, false, 1e-4);
+	}
+
+	@Test
+	public void matchesChainedStagesWithCorrection()
+	{
+		// The fused kernel estimates DC and imbalance from every 4th sample only, so the
+		// corrections (and with them the output) differ by about 1%. Without a correction
+		// of the DC or the gain the difference is 5% or more:
+		for(int[] config: configs)
+			compare(config, true, 2e-2);
+	}
+
+	@Test
+	public void byteArrayAndBufferGiveTheSameOutput()
+	{
+		byte[] input = createInput(sum(packetSizes));
+		FusedDecimator fromArray = FusedDecimator.create(configs[0][0], configs[0][1], configs[0][2], attenuation);
+		FusedDecimator fromBuffer = FusedDecimator.create(configs[0][0], configs[0][1], configs[0][2], attenuation);
+		fromArray.setMixFrequency(mixFrequency);
+		fromBuffer.setMixFrequency(mixFrequency);
+		ByteBuffer direct = ByteBuffer.allocateDirect(input.length);
+		direct.put(input);
+		float[] expected = new float[2 * fromArray.getMaxOutputLength(input.length / 2)];
+		float[] actual = new float[expected.length];
+		int offset = 0;
+		for(int size: packetSizes)
+		{
+			int count = fromArray.process(input, 2 * offset, size, expected, 0);
+			assertEquals(count, fromBuffer.process(direct, 2 * offset, size, actual, 0));
+			assertTrue(Arrays.equals(Arrays.copyOf(expected, 2 * count), Arrays.copyOf(actual, 2 * count)));
+			offset += size;
+		}
+	}
+
+	/**
+	 * Runs the same packets through the fused kernel (as IqBlocks, so the discontinuity
+	 * reaches onIqBlock()) and through the separate stages, and compares the outputs.
+	 *
+	 * @param maxError	largest allowed difference relative to the largest output value
+	 */
+	private static void compare(int[] config, boolean correction, double maxError)
+	{
+		int inputRate = config[0];
+		byte[] input = createInput(sum(packetSizes));
+
+		FusedDecimator fused = FusedDecimator.create(inputRate, config[1], config[2], attenuation);
+		fused.setMixFrequency(mixFrequency);
+		fused.getCorrector().setDcCorrection(correction);
+		fused.getCorrector().setImbalanceCorrection(correction);
+		SampleCollector collector = new SampleCollector();
+		fused.setHandler(collector);
+		IqBlockPool pool = new IqBlockPool(1, 2 * max(packetSizes));
+		int offset = 0;
+		for(int p = 0; p < packetSizes.length; p++)
+		{
+			IqBlock block = pool.acquire();
+			block.prepareReceive(2 * packetSizes[p], frequency, inputRate, 0, 0).put(input, 2 * offset, 2 * packetSizes[p]);
+			block.completeReceive(p, 0, p == discontinuityIndex);
+			assertTrue(fused.onIqBlock(block));
+			block.release();
+			offset += packetSizes[p];
+		}
+
+		IqCorrector corrector = new IqCorrector();
+		corrector.setDcCorrection(correction);
+		corrector.setImbalanceCorrection(correction);
+		Nco nco = new Nco(mixFrequency);
+		DecimatorChain chain = DecimatorChain.create(inputRate, config[1], config[2], attenuation);
+		float[] samples = new float[2 * max(packetSizes)];
+		float[] expected = new float[2 * chain.getMaxOutputLength(sum(packetSizes))];
+		int numExpected = 0;
+		offset = 0;
+		for(int p = 0; p < packetSizes.length; p++)
+		{
+			if(p == discontinuityIndex)
+			{
+				corrector.reset();
+				nco.reset();
+				chain.reset();
+			}
+			corrector.convertAndCorrect(input, 2 * offset, samples, 0, packetSizes[p]);
+			nco.mix(samples, 0, packetSizes[p]);
+			numExpected += chain.process(samples, 0, packetSizes[p], expected, 2 * numExpected);
+			offset += packetSizes[p];
+		}
+
+		String name = inputRate + " -> " + config[1] + ": ";
+		assertEquals(name + "number of samples", numExpected, collector.numSamples);
+		assertEquals(name + "sample rate", config[1], collector.sampleRate);
+		float largest = 0;
+		float error = 0;
+		for(int i = 0; i < 2 * numExpected; i++)
+		{
+			largest = Math.max(largest, Math.abs(expected[i]));
+			error = Math.max(error, Math.abs(expected[i] - collector.samples[i]));
+		}
+		assertTrue(name + "no output", largest > 0.1f);
+		assertTrue(name + "difference " + error + " of " + largest, error <= maxError * largest);
+	}
+
+	/**
+	 * @return 8-bit samples of a tone with noise, DC offset and IQ imbalance
+	 */
+	static byte[] createInput(int numSamples)
+	{
+		Random random = new Random(5);
+		byte[] input = new byte[2 * numSamples];
+		for(int n = 0; n < numSamples; n++)
+		{
+			double angle = 2 * Math.PI * -mixFrequency * n;
+			input[2*n] = (byte) Math.round(40 * Math.cos(angle) + 5 * random.nextGaussian() + 3);
+			input[2*n+1] = (byte) Math.round(36 * Math.sin(angle + 0.05) + 5 * random.nextGaussian() - 2);
+		}
+		return input;
+	}
+
+	private static int sum(int[] values)
+	{
+		int sum = 0;
+		for(int value: values)
+			sum += value;
+		return sum;
+	}
+
+	private static int max(int[] values)
+	{
+		int max = 0;
+		for(int value: values)
+			max = Math.max(max, value);
+		return max;
+	}
+
+	private static class SampleCollector implements IqSampleHandler {
+		float[] samples = new float[0];
+		int numSamples = 0;
+		int sampleRate = 0;
+
+		@Override
+		public boolean onSamples(float[] samples, int offset, int numSamples, long frequency, int sampleRate)
+		{
+			if(this.samples.length < 2 * (this.numSamples + numSamples))
+				this.samples = Arrays.copyOf(this.samples, 2 * (this.numSamples + numSamples) + 4096);
+			System.arraycopy(samples, offset, this.samples, 2 * this.numSamples, 2 * numSamples);
+			this.numSamples += numSamples;
+			this.sampleRate = sampleRate;
+			return true;
+		}
+	}
+}
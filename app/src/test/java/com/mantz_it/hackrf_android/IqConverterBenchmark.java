@@ -0,0 +1,153 @@
+package com.mantz_it.hackrf_android;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      IqConverterBenchmark.java
+ * Description: Measures the throughput of each IqConverter kernel for all
+ * 				conversions, from byte[] and from direct ByteBuffers, and prints
+ * 				the kernel IqConverter.calibrate() picks. Not a unit test: run
+ * 				main() on the JVM or on a device.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class IqConverterBenchmark {
+
+	private static final int packetSize = 131072;		// samples (one 256 KiB packet)
+	private static final int warmup = 300;				// packets before the measurement
+	private static final int iterations = 200;			// packets per round
+	private static final int rounds = 5;				// the fastest round is reported
+	private static final String[] kernelNames = {"LOOP", "LUT", "UNROLLED"};
+
+	private static final byte[] array = new byte[2 * packetSize];
+	private static final ByteBuffer direct = ByteBuffer.allocateDirect(2 * packetSize);
+	private static final float[] floats = new float[2 * packetSize];
+	private static final float[] re = new float[packetSize];
+	private static final float[] im = new float[packetSize];
+	private static final short[] shorts = new short[2 * packetSize];
+
+	/**
+	 * One conversion of one packet with the given converter.
+	 */
+	private static abstract class Operation {
+		final String name;
+
+		Operation(String name)
+		{
+			this.name = name;
+		}
+
+		abstract void run(IqConverter converter, boolean fromDirect);
+	}
+
+	private static final Operation[] operations = {
+			new Operation("float") {
+				@Override
+				void run(IqConverter converter, boolean fromDirect)
+				{
+					if(fromDirect)
+						converter.toFloat(direct, 0, floats, 0, packetSize);
+					else
+						converter.toFloat(array, 0, floats, 0, packetSize);
+				}
+			},
+			new Operation("planar") {
+				@Override
+				void run(IqConverter converter, boolean fromDirect)
+				{
+					if(fromDirect)
+						converter.toFloatPlanar(direct, 0, re, im, 0, packetSize);
+					else
+						converter.toFloatPlanar(array, 0, re, im, 0, packetSize);
+				}
+			},
+			new Operation("short") {
+				@Override
+				void run(IqConverter converter, boolean fromDirect)
+				{
+					if(fromDirect)
+						converter.toShort(direct, 0, shorts, 0, packetSize);
+					else
+						converter.toShort(array, 0, shorts, 0, packetSize);
+				}
+			},
+			new Operation("power") {
+				@Override
+				void run(IqConverter converter, boolean fromDirect)
+				{
+					if(fromDirect)
+						converter.power(direct, 0, re, 0, packetSize);
+					else
+						converter.power(array, 0, re, 0, packetSize);
+				}
+			},
+			new Operation("magnitude") {
+				@Override
+				void run(IqConverter converter, boolean fromDirect)
+				{
+					if(fromDirect)
+						converter.magnitude(direct, 0, re, 0, packetSize);
+					else
+						converter.magnitude(array, 0, re, 0, packetSize);
+				}
+			}};
+
+	public static void main(String[] args)
+	{
+		new Random(1).nextBytes(array);
+		direct.put(array);
+		direct.clear();
+
+		for(boolean fromDirect: new boolean[] {false, true})
+		{
+			System.out.println(fromDirect ? "From a direct ByteBuffer (Msps):" : "From byte[] (Msps):");
+			for(int kernel = 0; kernel < kernelNames.length; kernel++)
+			{
+				IqConverter converter = new IqConverter(kernel);
+				StringBuilder line = new StringBuilder(String.format("  %-9s", kernelNames[kernel]));
+				for(Operation operation: operations)
+					line.append(String.format(" %s %6.0f", operation.name, measure(operation, converter, fromDirect)));
+				System.out.println(line);
+			}
+			System.out.println("  calibrate() picks " + kernelNames[IqConverter.calibrate(packetSize, 50, fromDirect)]);
+		}
+	}
+
+	/**
+	 * @return throughput in Msps
+	 */
+	private static double measure(Operation operation, IqConverter converter, boolean fromDirect)
+	{
+		for(int i = 0; i < warmup; i++)
+			operation.run(converter, fromDirect);
+		long best = Long.MAX_VALUE;
+		for(int round = 0; round < rounds; round++)
+		{
+			long start = System.nanoTime();
+			for(int i = 0; i < iterations; i++)
+				operation.run(converter, fromDirect);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return (double) packetSize * iterations / best * 1000;
+	}
+}
@@ -0,0 +1,172 @@
+package com.mantz_it.hackrf_android;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      IqConverterTest.java
+ * Description: Local JVM tests of IqConverter: all kernels must give the same
+ * 				output as the plain loop, for byte[] and direct ByteBuffer sources.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class IqConverterTest {
+
+	private static final int[] kernels = {IqConverter.KERNEL_LOOP, IqConverter.KERNEL_LUT, IqConverter.KERNEL_UNROLLED};
+	// All 65536 combinations of I and Q, behind an odd offset and with an odd number of
+	// samples (so the unrolled kernel also runs its remainder loop):
+	private static final int offset = 3;
+	private static final int numSamples = 65536 - 3;
+
+	private final byte[] array = createInput();
+	private final ByteBuffer direct = toDirectBuffer(array);
+	private final IqConverter reference = new IqConverter(IqConverter.KERNEL_LOOP);
+
+	@Test
+	public void toFloatIsTheSameForAllKernels()
+	{
+		float[] expected = new float[2 * numSamples];
+		reference.toFloat(array, offset, expected, 0, numSamples);
+		assertEquals(-1.0f, min(expected), 0);
+		for(int kernel: kernels)
+		{
+			IqConverter converter = new IqConverter(kernel);
+			float[] actual = new float[2 * numSamples];
+			converter.toFloat(array, offset, actual, 0, numSamples);
+			assertArrayEquals("byte[], kernel " + kernel, expected, actual, 0);
+			actual = new float[2 * numSamples];
+			converter.toFloat(direct, offset, actual, 0, numSamples);
+			assertArrayEquals("direct, kernel " + kernel, expected, actual, 0);
+		}
+		assertEquals(0, direct.position());
+	}
+
+	@Test
+	public void toFloatPlanarIsTheSameForAllKernels()
+	{
+		float[] interleaved = new float[2 * numSamples];
+		reference.toFloat(array, offset, interleaved, 0, numSamples);
+		float[] expectedRe = new float[numSamples];
+		float[] expectedIm = new float[numSamples];
+		for(int n = 0; n < numSamples; n++)
+		{
+			expectedRe[n] = interleaved[2*n];
+			expectedIm[n] = interleaved[2*n+1];
+		}
+		for(int kernel: kernels)
+		{
+			IqConverter converter = new IqConverter(kernel);
+			float[] re = new float[numSamples];
+			float[] im = new float[numSamples];
+			converter.toFloatPlanar(array, offset, re, im, 0, numSamples);
+			assertArrayEquals("byte[] re, kernel " + kernel, expectedRe, re, 0);
+			assertArrayEquals("byte[] im, kernel " + kernel, expectedIm, im, 0);
+			re = new float[numSamples];
+			im = new float[numSamples];
+			converter.toFloatPlanar(direct, offset, re, im, 0, numSamples);
+			assertArrayEquals("direct re, kernel " + kernel, expectedRe, re, 0);
+			assertArrayEquals("direct im, kernel " + kernel, expectedIm, im, 0);
+		}
+	}
+
+	@Test
+	public void toShortIsTheSameForAllKernels()
+	{
+		short[] expected = new short[2 * numSamples];
+		reference.toShort(array, offset, expected, 0, numSamples);
+		for(int kernel: kernels)
+		{
+			IqConverter converter = new IqConverter(kernel);
+			short[] actual = new short[2 * numSamples];
+			converter.toShort(array, offset, actual, 0, numSamples);
+			assertArrayEquals("byte[], kernel " + kernel, expected, actual);
+			actual = new short[2 * numSamples];
+			converter.toShort(direct, offset, actual, 0, numSamples);
+			assertArrayEquals("direct, kernel " + kernel, expected, actual);
+		}
+	}
+
+	@Test
+	public void powerIsTheSameForAllKernels()
+	{
+		float[] expected = new float[numSamples];
+		reference.power(array, offset, expected, 0, numSamples);
+		for(int kernel: kernels)
+		{
+			IqConverter converter = new IqConverter(kernel);
+			float[] actual = new float[numSamples];
+			converter.power(array, offset, actual, 0, numSamples);
+			assertArrayEquals("byte[], kernel " + kernel, expected, actual, 0);
+			actual = new float[numSamples];
+			converter.power(direct, offset, actual, 0, numSamples);
+			assertArrayEquals("direct, kernel " + kernel, expected, actual, 0);
+		}
+	}
+
+	@Test
+	public void magnitudeIsTheSameForAllKernels()
+	{
+		float[] expected = new float[numSamples];
+		reference.magnitude(array, offset, expected, 0, numSamples);
+		for(int kernel: kernels)
+		{
+			IqConverter converter = new IqConverter(kernel);
+			float[] actual = new float[numSamples];
+			converter.magnitude(array, offset, actual, 0, numSamples);
+			assertArrayEquals("byte[], kernel " + kernel, expected, actual, 0);
+			actual = new float[numSamples];
+			converter.magnitude(direct, offset, actual, 0, numSamples);
+			assertArrayEquals("direct, kernel " + kernel, expected, actual, 0);
+		}
+	}
+
+	private static byte[] createInput()
+	{
+		byte[] input = new byte[2 * (offset + numSamples) + 1];
+		for(int n = 0; n < offset + numSamples; n++)
+		{
+			input[2*n] = (byte) n;
+			input[2*n+1] = (byte) (n >> 8);
+		}
+		return input;
+	}
+
+	private static ByteBuffer toDirectBuffer(byte[] array)
+	{
+		ByteBuffer buffer = ByteBuffer.allocateDirect(array.length);
+		buffer.put(array);
+		buffer.clear();
+		return buffer;
+	}
+
+	private static float min(float[] values)
+	{
+		float min = Float.MAX_VALUE;
+		for(float value: values)
+			min = Math.min(min, value);
+		return min;
+	}
+}
@@ -0,0 +1,202 @@
+package com.mantz_it.hackrf_android;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      MappedRecorderTest.java
+ * Description: Local JVM tests of MappedRecorder in a temporary file with small
+ * 				windows: writes that straddle windows, growth past the
+ * 				preallocation and the truncation to the recorded length.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class MappedRecorderTest {
+
+	private static final int windowSize = 1024;
+	private static final long preallocation = 4096;			// 4 windows
+	// Odd lengths, so that most writes straddle a window (one of them spans several):
+	private static final int[] writeSizes = {1000, 333, 1, 2047, 700, 1024, 3001, 5, 1500, 389};
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		file = File.createTempFile("mapped_recorder", ".iq");
+	}
+
+	@After
+	public void tearDown()
+	{
+		file.delete();
+	}
+
+	@Test
+	public void arrayWritesGrowTheFileAndAreTruncatedOnClose() throws IOException
+	{
+		byte[] data = createData(sum(writeSizes));
+		MappedRecorder recorder = new MappedRecorder(file, preallocation, windowSize);
+		assertEquals(preallocation, recorder.getFileSize());
+		int offset = 0;
+		for(int size: writeSizes)
+		{
+			recorder.write(data, offset, size);
+			offset += size;
+			assertEquals(offset, recorder.getBytesWritten());
+			assertTrue(recorder.getFileSize() >= recorder.getBytesWritten());
+		}
+		checkGrowth(recorder, data.length);
+		recorder.close();
+
+		assertEquals(data.length, file.length());
+		assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+	}
+
+	@Test
+	public void bufferWritesGrowTheFileAndAreTruncatedOnClose() throws IOException
+	{
+		byte[] data = createData(sum(writeSizes));
+		// The data starts at an odd offset of the buffer, which must not be moved:
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 10);
+		buffer.position(3);
+		buffer.put(data);
+		buffer.position(5);
+		buffer.limit(7);
+		MappedRecorder recorder = new MappedRecorder(file, preallocation, windowSize);
+		int offset = 0;
+		for(int size: writeSizes)
+		{
+			recorder.write(buffer, 3 + offset, size);
+			offset += size;
+			assertEquals(5, buffer.position());
+			assertEquals(7, buffer.limit());
+		}
+		checkGrowth(recorder, data.length);
+		recorder.close();
+
+		assertEquals(data.length, file.length());
+		assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+	}
+
+	@Test
+	public void recordWritesTheBlocksAndReleasesThem() throws IOException
+	{
+		int packetSize = 1500;						// each block straddles a window
+		byte[] data = createData(5 * packetSize);
+		IqBlockPool pool = new IqBlockPool(1, packetSize);
+		MappedRecorder recorder = new MappedRecorder(file, preallocation, windowSize);
+		for(int i = 0; i < 5; i++)
+		{
+			IqBlock block = pool.acquire();
+			block.prepareReceive(packetSize, 0, 0, 0, 0).put(data, i * packetSize, packetSize);
+			block.completeReceive(i, 0, false);
+			recorder.record(block);
+			assertEquals(1, pool.getAvailableCount());
+		}
+		checkGrowth(recorder, data.length);
+		recorder.close();
+
+		assertEquals(data.length, file.length());
+		assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+	}
+
+	@Test
+	public void preallocationIsRoundedUpToWholeWindows() throws IOException
+	{
+		byte[] data = createData(3 * windowSize);
+		MappedRecorder recorder = new MappedRecorder(file, 2 * windowSize + 1, windowSize);
+		assertEquals(3 * windowSize, recorder.getFileSize());
+		// Exactly filling the preallocation doesn't extend the file:
+		recorder.write(data, 0, data.length);
+		assertEquals(0, recorder.getGrowCounter());
+		assertEquals(3, recorder.getMapCounter());
+		recorder.write(data, 0, 1);
+		assertEquals(1, recorder.getGrowCounter());
+		assertEquals(6 * windowSize, recorder.getFileSize());
+		recorder.close();
+
+		assertEquals(data.length + 1, file.length());
+		byte[] expected = Arrays.copyOf(data, data.length + 1);
+		expected[data.length] = data[0];
+		assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+	}
+
+	@Test
+	public void closeWithoutWritesLeavesAnEmptyFile() throws IOException
+	{
+		MappedRecorder recorder = new MappedRecorder(file, preallocation, windowSize);
+		recorder.close();
+		recorder.close();
+		assertEquals(0, file.length());
+		try {
+			recorder.write(new byte[1], 0, 1);
+			fail("write after close()");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Checks that the file grew in steps of the preallocation and that each window
+	 * was mapped once.
+	 */
+	private static void checkGrowth(MappedRecorder recorder, long length)
+	{
+		long steps = (length + preallocation - 1) / preallocation;
+		assertTrue("test data doesn't exceed the preallocation", steps > 1);
+		assertEquals(steps - 1, recorder.getGrowCounter());
+		assertEquals(steps * preallocation, recorder.getFileSize());
+		assertEquals((length + windowSize - 1) / windowSize, recorder.getMapCounter());
+	}
+
+	private static int sum(int[] values)
+	{
+		int sum = 0;
+		for(int value: values)
+			sum += value;
+		return sum;
+	}
+
+	/**
+	 * @return bytes that differ from their neighbors (so misplaced data is detected)
+	 */
+	private static byte[] createData(int length)
+	{
+		byte[] data = new byte[length];
+		for(int i = 0; i < length; i++)
+			data[i] = (byte) (i * 7 + i / 251);
+		return data;
+	}
+}
@@ -0,0 +1,162 @@
+package com.mantz_it.hackrf_android;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      PfbChannelizerTest.java
+ * Description: Local JVM tests of PfbChannelizer: a tone at the center of a
+ * 				channel must end up in that channel only, for critical and
+ * 				2x oversampled output, and the output must not depend on how
+ * 				the input is split into packets.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class PfbChannelizerTest {
+
+	private static final int numChannels = 16;
+	private static final int tapsPerBranch = 12;
+	private static final float attenuation = 60;
+	private static final int sampleRate = 1600000;
+	private static final long frequency = 100000000L;
+	private static final int toneChannel = 3;
+	private static final int numSamples = numChannels * 400;
+
+	@Test
+	public void criticallySampledToneStaysInItsChannel() throws InterruptedException
+	{
+		checkTone(numChannels);
+	}
+
+	@Test
+	public void oversampledToneStaysInItsChannel() throws InterruptedException
+	{
+		checkTone(numChannels / 2);
+	}
+
+	@Test
+	public void criticallySampledOutputIsContinuousAcrossPackets() throws InterruptedException
+	{
+		checkPacketSplit(numChannels);
+	}
+
+	@Test
+	public void oversampledOutputIsContinuousAcrossPackets() throws InterruptedException
+	{
+		checkPacketSplit(numChannels / 2);
+	}
+
+	private void checkTone(int decimation) throws InterruptedException
+	{
+		PfbChannelizer pfb = new PfbChannelizer(numChannels, decimation, tapsPerBranch, attenuation, 8);
+		float[][] out = run(pfb, tone(toneChannel), new int[] { numSamples });
+		int settle = 2 * tapsPerBranch * numChannels / decimation;		// steps until the filter is filled
+
+		double[] power = new double[numChannels];
+		for(int c = 0; c < numChannels; c++)
+			for(int i = settle; i < out[c].length / 2; i++)
+				power[c] += out[c][2*i] * out[c][2*i] + out[c][2*i+1] * out[c][2*i+1];
+		for(int c = 0; c < numChannels; c++)
+			assertTrue("channel " + c + " has more power than the tone's channel", power[c] <= power[toneChannel]);
+		for(int c = toneChannel - 1; c <= toneChannel + 1; c += 2)
+		{
+			double rejection = 10 * Math.log10(power[c] / power[toneChannel]);
+			assertTrue("neighbor channel " + c + " only attenuated by " + (-rejection) + " dB", rejection <= -attenuation);
+		}
+
+		// At the channel center the tone is a constant phasor; a wrong commutator rotation
+		// would show up as phase jumps:
+		float[] samples = out[toneChannel];
+		double magnitude = Math.hypot(samples[2*settle], samples[2*settle+1]);
+		assertTrue("tone too weak: " + magnitude, magnitude > 0.5);
+		for(int i = settle + 1; i < samples.length / 2; i++)
+		{
+			double step = Math.hypot(samples[2*i] - samples[2*i-2], samples[2*i+1] - samples[2*i-1]);
+			assertTrue("phase jump at output sample " + i + ": " + step, step < 1e-3 * magnitude);
+		}
+	}
+
+	private void checkPacketSplit(int decimation) throws InterruptedException
+	{
+		byte[] input = tone(toneChannel);
+		float[][] whole = run(new PfbChannelizer(numChannels, decimation, tapsPerBranch, attenuation, 8),
+				input, new int[] { numSamples });
+		float[][] split = run(new PfbChannelizer(numChannels, decimation, tapsPerBranch, attenuation, 8),
+				input, new int[] { 1, 1000, 333, 7, numChannels, 4097 });
+
+		for(int c = 0; c < numChannels; c++)
+		{
+			assertEquals("channel " + c + " output length", whole[c].length, split[c].length);
+			for(int i = 0; i < whole[c].length; i++)
+				assertEquals("channel " + c + " value " + i, whole[c][i], split[c][i], 1e-6);
+		}
+	}
+
+	/**
+	 * Feeds the input in packets of the given sizes (in samples, repeated until the input
+	 * is used up) and collects the output of all channels.
+	 */
+	private static float[][] run(PfbChannelizer pfb, byte[] input, int[] packetSizes) throws InterruptedException
+	{
+		float[][] out = new float[numChannels][2 * numSamples];
+		int outLength = 0;
+		int offset = 0;
+		for(int p = 0; offset < input.length; p++)
+		{
+			int length = Math.min(2 * packetSizes[p % packetSizes.length], input.length - offset);
+			pfb.process(input, offset, length, frequency, sampleRate);
+			offset += length;
+			ChannelBlock block;
+			while((block = pfb.getBlock(0)) != null)
+			{
+				for(int c = 0; c < numChannels; c++)
+					System.arraycopy(block.getSamples(c), 0, out[c], outLength, 2 * block.getNumSamples());
+				outLength += 2 * block.getNumSamples();
+				block.release();
+			}
+		}
+		assertEquals("dropped blocks", 0, pfb.getDroppedBlockCounter());
+		pfb.close();
+		for(int c = 0; c < numChannels; c++)
+			out[c] = Arrays.copyOf(out[c], outLength);
+		return out;
+	}
+
+	/**
+	 * @return 8-bit IQ samples of a complex tone at the center of the given channel
+	 */
+	private static byte[] tone(int channel)
+	{
+		byte[] samples = new byte[2 * numSamples];
+		for(int i = 0; i < numSamples; i++)
+		{
+			double phase = 2 * Math.PI * channel * i / numChannels;
+			samples[2*i] = (byte) Math.round(100 * Math.cos(phase));
+			samples[2*i+1] = (byte) Math.round(100 * Math.sin(phase));
+		}
+		return samples;
+	}
+}
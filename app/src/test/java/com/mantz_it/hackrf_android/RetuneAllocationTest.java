@@ -0,0 +1,69 @@
+package com.mantz_it.hackrf_android;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      RetuneAllocationTest.java
+ * Description: Local JVM test of the retune path: once it is warmed up,
+ * 				setFrequency() must not allocate on the calling thread.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class RetuneAllocationTest {
+
+	private static final int warmupRetunes = 20000;
+	private static final int measuredRetunes = 10000;
+
+	@Test
+	public void setFrequencyDoesNotAllocate() throws HackrfUsbException
+	{
+		com.sun.management.ThreadMXBean threadBean =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assertTrue("thread allocation measurement not supported", threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+
+		SimulatedHackrfTransport transport = new SimulatedHackrfTransport();
+		Hackrf hackrf = new Hackrf(transport, 16);
+		hackrf.openControlSession();
+		try {
+			// Alternate between two frequencies, the shadow state would skip a repeated one:
+			for(int i = 0; i < warmupRetunes; i++)
+				hackrf.setFrequency(100000000L + (i & 1) * 1000000L);
+
+			long threadId = Thread.currentThread().getId();
+			long before = threadBean.getThreadAllocatedBytes(threadId);
+			for(int i = 0; i < measuredRetunes; i++)
+				hackrf.setFrequency(100000000L + (i & 1) * 1000000L);
+			long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+			assertEquals("bytes allocated by " + measuredRetunes + " retunes", 0, allocated);
+			assertEquals("frequency", 101000000L, transport.getFrequency());
+		} finally {
+			hackrf.closeControlSession();
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package com.mantz_it.hackrf_android;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      SegmentedRecorderTest.java
+ * Description: Local JVM tests of SegmentedRecorder in a temporary directory:
+ * 				rotation by size, time and tuning, retention, the sample ranges
+ * 				of the manifest and the cleanup on close().
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class SegmentedRecorderTest {
+
+	private static final String baseName = "rec";
+	private static final int packetSize = 1000;				// bytes (500 samples)
+	private static final long segmentSize = 4096;			// 4 packets per segment
+	private static final long frequency = 100000000L;
+	private static final int sampleRate = 2000000;
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		directory = Files.createTempDirectory("segmented_recorder").toFile();
+	}
+
+	@After
+	public void tearDown()
+	{
+		File[] files = directory.listFiles();
+		if(files != null)
+			for(File file: files)
+				file.delete();
+		directory.delete();
+	}
+
+	@Test
+	public void rotatesBySizeAndDeletesThePreparedSegmentOnClose() throws IOException
+	{
+		SegmentedRecorder recorder = new SegmentedRecorder(directory, baseName, segmentSize, 0, 0, SegmentedRecorder.SYNC_SEGMENT);
+		byte[] data = createData(10 * packetSize);
+		for(int i = 0; i < 10; i++)
+			recorder.write(data, i * packetSize, packetSize, frequency, sampleRate);
+		recorder.close();
+
+		assertEquals(3, recorder.getSegmentCounter());
+		assertEquals(Arrays.asList("rec.manifest", "rec_00000.iq", "rec_00001.iq", "rec_00002.iq"), listDirectory());
+		// The segments are truncated to their samples and hold the data in order:
+		assertArrayEquals(Arrays.copyOfRange(data, 0, 4000), readFile("rec_00000.iq"));
+		assertArrayEquals(Arrays.copyOfRange(data, 4000, 8000), readFile("rec_00001.iq"));
+		assertArrayEquals(Arrays.copyOfRange(data, 8000, 10000), readFile("rec_00002.iq"));
+
+		List<String[]> manifest = readManifest(recorder);
+		assertEquals(3, manifest.size());
+		checkRange(manifest.get(0), 0, "rec_00000.iq", 0, 2000, frequency, sampleRate, 0);
+		checkRange(manifest.get(1), 1, "rec_00001.iq", 2000, 2000, frequency, sampleRate, 0);
+		checkRange(manifest.get(2), 2, "rec_00002.iq", 4000, 1000, frequency, sampleRate, 0);
+	}
+
+	@Test
+	public void retentionDeletesTheOldestSegments() throws IOException
+	{
+		SegmentedRecorder recorder = new SegmentedRecorder(directory, baseName, segmentSize, 0, 2, SegmentedRecorder.SYNC_NONE);
+		byte[] data = createData(10 * packetSize);
+		for(int i = 0; i < 10; i++)
+			recorder.write(data, i * packetSize, packetSize, frequency, sampleRate);
+		recorder.close();
+
+		assertEquals(0, recorder.getBackgroundErrorCounter());
+		assertEquals(Arrays.asList("rec.manifest", "rec_00001.iq", "rec_00002.iq"), listDirectory());
+		List<String[]> manifest = readManifest(recorder);
+		assertEquals(2, manifest.size());
+		// first_sample is counted from the start of the recording, also after deletions:
+		checkRange(manifest.get(0), 1, "rec_00001.iq", 2000, 2000, frequency, sampleRate, 0);
+		checkRange(manifest.get(1), 2, "rec_00002.iq", 4000, 1000, frequency, sampleRate, 0);
+		assertArrayEquals(Arrays.copyOfRange(data, 2 * 2000, 2 * 4000), readFile("rec_00001.iq"));
+	}
+
+	@Test
+	public void rotatesByTime() throws IOException, InterruptedException
+	{
+		SegmentedRecorder recorder = new SegmentedRecorder(directory, baseName, 1024 * 1024, 50, 0, SegmentedRecorder.SYNC_NONE);
+		byte[] data = createData(3 * packetSize);
+		recorder.write(data, 0, packetSize, frequency, sampleRate);
+		Thread.sleep(100);
+		recorder.write(data, packetSize, packetSize, frequency, sampleRate);
+		recorder.write(data, 2 * packetSize, packetSize, frequency, sampleRate);
+		recorder.close();
+
+		assertEquals(Arrays.asList("rec.manifest", "rec_00000.iq", "rec_00001.iq"), listDirectory());
+		List<String[]> manifest = readManifest(recorder);
+		assertEquals(2, manifest.size());
+		checkRange(manifest.get(0), 0, "rec_00000.iq", 0, 500, frequency, sampleRate, 0);
+		checkRange(manifest.get(1), 1, "rec_00001.iq", 500, 1000, frequency, sampleRate, 0);
+		assertTrue(Long.parseLong(manifest.get(1)[4]) - Long.parseLong(manifest.get(0)[4]) >= 100);
+		assertArrayEquals(Arrays.copyOfRange(data, packetSize, 3 * packetSize), readFile("rec_00001.iq"));
+	}
+
+	@Test
+	public void tuningChangesStartNewRanges() throws IOException
+	{
+		SegmentedRecorder recorder = new SegmentedRecorder(directory, baseName, 1024 * 1024, 0, 0, SegmentedRecorder.SYNC_NONE);
+		byte[] data = createData(6 * packetSize);
+		IqBlockPool pool = new IqBlockPool(1, packetSize);
+		recorder.write(data, 0, packetSize, frequency, sampleRate);
+		recorder.write(data, packetSize, packetSize, frequency, sampleRate);
+		recorder.write(data, 2 * packetSize, packetSize, frequency + 1000000, sampleRate);
+		// A block after a gap with the same tuning only counts as a discontinuity:
+		IqBlock block = pool.acquire();
+		block.prepareReceive(packetSize, frequency + 1000000, sampleRate, 0, 0).put(data, 3 * packetSize, packetSize);
+		block.completeReceive(3, 0, true);
+		recorder.record(block);
+		recorder.write(data, 4 * packetSize, packetSize, frequency + 1000000, 4000000);
+		recorder.write(data, 5 * packetSize, packetSize, frequency, sampleRate);
+		recorder.close();
+
+		assertEquals(1, pool.getAvailableCount());
+		assertEquals(1, recorder.getSegmentCounter());
+		assertEquals(Arrays.asList("rec.manifest", "rec_00000.iq"), listDirectory());
+		assertArrayEquals(data, readFile("rec_00000.iq"));
+		List<String[]> manifest = readManifest(recorder);
+		assertEquals(4, manifest.size());
+		checkRange(manifest.get(0), 0, "rec_00000.iq", 0, 1000, frequency, sampleRate, 0);
+		checkRange(manifest.get(1), 0, "rec_00000.iq", 1000, 1000, frequency + 1000000, sampleRate, 1);
+		checkRange(manifest.get(2), 0, "rec_00000.iq", 2000, 500, frequency + 1000000, 4000000, 0);
+		checkRange(manifest.get(3), 0, "rec_00000.iq", 2500, 500, frequency, sampleRate, 0);
+	}
+
+	@Test
+	public void rotatesOnTuningChangeIfEnabled() throws IOException
+	{
+		SegmentedRecorder recorder = new SegmentedRecorder(directory, baseName, 1024 * 1024, 0, 0, SegmentedRecorder.SYNC_NONE);
+		recorder.setRotateOnTuningChange(true);
+		byte[] data = createData(4 * packetSize);
+		recorder.write(data, 0, packetSize, frequency, sampleRate);
+		recorder.write(data, packetSize, packetSize, frequency + 1000000, sampleRate);
+		recorder.write(data, 2 * packetSize, packetSize, frequency + 1000000, sampleRate);
+		recorder.write(data, 3 * packetSize, packetSize, frequency, sampleRate);
+		recorder.close();
+
+		assertEquals(Arrays.asList("rec.manifest", "rec_00000.iq", "rec_00001.iq", "rec_00002.iq"), listDirectory());
+		List<String[]> manifest = readManifest(recorder);
+		assertEquals(3, manifest.size());
+		checkRange(manifest.get(0), 0, "rec_00000.iq", 0, 500, frequency, sampleRate, 0);
+		checkRange(manifest.get(1), 1, "rec_00001.iq", 500, 1000, frequency + 1000000, sampleRate, 0);
+		checkRange(manifest.get(2), 2, "rec_00002.iq", 1500, 500, frequency, sampleRate, 0);
+	}
+
+	@Test
+	public void closeWithoutSamplesLeavesNoSegments() throws IOException
+	{
+		SegmentedRecorder recorder = new SegmentedRecorder(directory, baseName, segmentSize, 0, 0, SegmentedRecorder.SYNC_NONE);
+		recorder.close();
+		recorder.close();
+		assertTrue(listDirectory().isEmpty());
+		assertFalse(recorder.getManifestFile().exists());
+	}
+
+	/**
+	 * @return bytes that differ from their neighbors (so misplaced data is detected)
+	 */
+	private static byte[] createData(int length)
+	{
+		byte[] data = new byte[length];
+		for(int i = 0; i < length; i++)
+			data[i] = (byte) (i * 7 + i / 251);
+		return data;
+	}
+
+	private List<String> listDirectory()
+	{
+		String[] names = directory.list();
+		Arrays.sort(names);
+		return Arrays.asList(names);
+	}
+
+	private byte[] readFile(String name) throws IOException
+	{
+		return Files.readAllBytes(new File(directory, name).toPath());
+	}
+
+	/**
+	 * @return fields of the ranges in the manifest (without the comment line)
+	 */
+	private static List<String[]> readManifest(SegmentedRecorder recorder) throws IOException
+	{
+		List<String[]> ranges = new ArrayList<String[]>();
+		for(String line: Files.readAllLines(recorder.getManifestFile().toPath()))
+		{
+			if(line.startsWith("#"))
+				continue;
+			String[] fields = line.split(",");
+			assertEquals(line, 8, fields.length);
+			ranges.add(fields);
+		}
+		return ranges;
+	}
+
+	private static void checkRange(String[] fields, int index, String file, long firstSample, long numSamples,
+								   long frequency, int sampleRate, int discontinuities)
+	{
+		String line = Arrays.toString(fields);
+		assertEquals(line, index, Integer.parseInt(fields[0]));
+		assertEquals(line, file, fields[1]);
+		assertEquals(line, firstSample, Long.parseLong(fields[2]));
+		assertEquals(line, numSamples, Long.parseLong(fields[3]));
+		assertTrue(line, Long.parseLong(fields[4]) > 0);
+		assertEquals(line, frequency, Long.parseLong(fields[5]));
+		assertEquals(line, sampleRate, Integer.parseInt(fields[6]));
+		assertEquals(line, discontinuities, Integer.parseInt(fields[7]));
+	}
+}
@@ -0,0 +1,189 @@
+package com.mantz_it.hackrf_android;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>HackRF USB Library for Android</h1>
+ *
+ * Module:      SimulatedStreamTest.java
+ * Description: Local JVM tests of the receive modes against a
+ * 				SimulatedHackrfTransport: every mode must deliver a continuous
+ * 				stream, and the zero-copy path must keep up with 20 Msps.
+ *
+ * @author agent
+ *
+ * Copyright (C) 2026 agent
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+public class SimulatedStreamTest {
+
+	private static final int sampleRate = 10000000;
+	private static final int queueSize = 64;
+
+	private SimulatedHackrfTransport transport;
+	private Hackrf hackrf;
+
+	@Before
+	public void setUp() throws HackrfUsbException
+	{
+		transport = new SimulatedHackrfTransport(sampleRate);
+		hackrf = new Hackrf(transport, queueSize);
+		hackrf.setSampleRate(sampleRate, 1);
+	}
+
+	@After
+	public void tearDown() throws HackrfUsbException
+	{
+		hackrf.stop();
+	}
+
+	@Test
+	public void queueModeDeliversContinuousStream() throws Exception
+	{
+		ArrayBlockingQueue<byte[]> queue = hackrf.startRX();
+		assertEquals("queue size", queueSize, queue.size() + queue.remainingCapacity());
+
+		// One second of samples at 10 Msps (the simulator runs in real time):
+		long bytes = 0;
+		long end = System.currentTimeMillis() + 1000;
+		while(System.currentTimeMillis() < end)
+		{
+			byte[] packet = queue.poll(100, TimeUnit.MILLISECONDS);
+			if(packet == null)
+				continue;
+			bytes += packet.length;
+			assertFalse("gap without dropped packets", hackrf.isDiscontinuity(packet));
+			hackrf.returnBufferToBufferPool(packet);
+		}
+		assertEquals("transceiver mode", Hackrf.HACKRF_TRANSCEIVER_MODE_RECEIVE, hackrf.getTransceiverMode());
+		assertEquals("dropped packets", 0, hackrf.getDroppedPacketCounter());
+		assertTrue("received only " + bytes + " bytes", bytes > sampleRate);		// > 50% of 2 * sampleRate
+	}
+
+	@Test
+	public void queueModeFlagsGaps() throws Exception
+	{
+		transport.setRealtime(false);
+		int[] policies = { Hackrf.OVERFLOW_POLICY_DROP_NEWEST, Hackrf.OVERFLOW_POLICY_DROP_OLDEST };
+		for(int policy: policies)
+		{
+			HackrfStreamConfig config = new HackrfStreamConfig();
+			config.setNumBlocks(4);
+			config.setOverflowPolicy(policy, 0);
+			ArrayBlockingQueue<byte[]> queue = hackrf.startRX(config);
+			Thread.sleep(100);		// the simulation overflows the queue
+
+			int gaps = 0;
+			for(int i = 0; i < 50; i++)
+			{
+				byte[] packet = queue.poll(1000, TimeUnit.MILLISECONDS);
+				assertTrue("no packet received", packet != null);
+				if(hackrf.isDiscontinuity(packet))
+					gaps++;
+				hackrf.returnBufferToBufferPool(packet);
+			}
+			hackrf.stop();
+			assertTrue("policy " + policy + ": no packet dropped", hackrf.getDroppedPacketCounter() > 0);
+			assertTrue("policy " + policy + ": no packet flagged", gaps > 0);
+		}
+	}
+
+	@Test
+	public void queueModeUsesStreamConfigDepth() throws Exception
+	{
+		HackrfStreamConfig config = new HackrfStreamConfig();
+		config.setNumBlocks(7);
+		ArrayBlockingQueue<byte[]> queue = hackrf.startRX(config);
+		assertEquals("queue size", 7, queue.size() + queue.remainingCapacity());
+		assertTrue("no packet received", queue.poll(1000, TimeUnit.MILLISECONDS) != null);
+	}
+
+	@Test
+	public void directModeSustains20Msps() throws Exception
+	{
+		transport.setRealtime(false);
+		ArrayBlockingQueue<IqBlock> queue = hackrf.startRXDirect();
+
+		long bytes = 0;
+		long start = System.nanoTime();
+		long end = start + 500000000L;
+		while(System.nanoTime() < end)
+		{
+			IqBlock block = queue.poll(100, TimeUnit.MILLISECONDS);
+			if(block == null)
+				continue;
+			bytes += block.getLength();
+			block.release();
+		}
+		double samplesPerSecond = bytes / 2 * 1e9 / (System.nanoTime() - start);
+		assertTrue("only " + samplesPerSecond + " samples/s", samplesPerSecond > 20e6);
+	}
+
+	@Test
+	public void ringModeDeliversInOrder() throws Exception
+	{
+		IqBlockRing ring = hackrf.startRXRing();
+		long expected = -1;
+		for(int i = 0; i < 20; i++)
+		{
+			IqBlock block = ring.poll(1000, TimeUnit.MILLISECONDS);
+			assertTrue("no block received", block != null);
+			if(expected >= 0)
+				assertEquals("sequence number", expected, block.getSequenceNumber());
+			expected = block.getSequenceNumber() + 1;
+			block.release();
+		}
+	}
+
+	@Test
+	public void unreapedTransfersAreNeverReused() throws Exception
+	{
+		transport.setRealtime(false);
+		hackrf.setOverflowPolicy(Hackrf.OVERFLOW_POLICY_DROP_NEWEST, 0);	// the test reads slower than the simulation
+		ArrayBlockingQueue<IqBlock> queue = hackrf.startRXDirect();
+		for(int i = 0; i < 10; i++)
+		{
+			IqBlock block = queue.poll(1000, TimeUnit.MILLISECONDS);
+			assertTrue("no block received", block != null);
+			block.release();
+		}
+
+		// The cancelled transfers of the first session never come back:
+		transport.setLoseCancelledTransfers(true);
+		hackrf.stop();
+		queue = hackrf.startRXDirect();		// waits until the first session is finished
+		transport.setLoseCancelledTransfers(false);
+		assertTrue("no transfer was lost", transport.getLostTransferCounter() > 0);
+
+		for(int i = 0; i < 200; i++)
+		{
+			IqBlock block = queue.poll(1000, TimeUnit.MILLISECONDS);
+			assertTrue("no block received", block != null);
+			block.release();
+		}
+		assertEquals("buffers of lost transfers queued again", 0, transport.getLostBufferReuseCounter());
+	}
+}
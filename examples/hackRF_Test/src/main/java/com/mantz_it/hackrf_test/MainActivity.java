@@ -26,12 +26,12 @@ import android.widget.TextView;
 import com.mantz_it.hackrf_android.Hackrf;
 import com.mantz_it.hackrf_android.HackrfCallbackInterface;
 import com.mantz_it.hackrf_android.HackrfUsbException;
+import com.mantz_it.hackrf_android.IqBlock;
+import com.mantz_it.hackrf_android.MappedRecorder;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -528,56 +528,57 @@ public class MainActivity extends AppCompatActivity implements Runnable, HackrfC
 		    }
 			
 			// Create a file ...
-			// If no filename was given, write to /dev/null
-			File file;
-			if(filename.equals(""))
-				file = new File("/dev/", "null");
-			else
+			// If no filename was given, the samples are not recorded
+			File file = null;
+			if(!filename.equals(""))
+			{
 				file = new File(Environment.getExternalStorageDirectory() + "/" + foldername, filename);
-			file.getParentFile().mkdir();	// Create folder if it does not exist
-			printOnScreen("Saving samples to " + file.getAbsolutePath() + "\n");
+				file.getParentFile().mkdir();	// Create folder if it does not exist
+				printOnScreen("Saving samples to " + file.getAbsolutePath() + "\n");
+			}
+			else
+				printOnScreen("No filename given. The samples are not saved.\n");
 			
-			// ... and open it with a buffered output stream
-			BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(new FileOutputStream(file));
+			// ... and open it with a recorder that writes the blocks directly into the
+			// memory mapped (and preallocated) file
+			MappedRecorder recorder = file != null ? new MappedRecorder(file) : null;
 			
 			// Start Receiving:
 			printOnScreen("Start Receiving... \n");
-			ArrayBlockingQueue<byte[]> queue = hackrf.startRX();
+			ArrayBlockingQueue<IqBlock> queue = hackrf.startRXDirect();
 			
 			// Run until user hits the 'Stop' button
 			while(!this.stopRequested)
 			{
 				i++;	// only for statistics
 				
-				// Grab one packet from the top of the queue. Will block if queue is
+				// Grab one block from the top of the queue. Will block if queue is
 				// empty and timeout after one second if the queue stays empty.
-				byte[] receivedBytes = queue.poll(1000, TimeUnit.MILLISECONDS);
+				IqBlock block = queue.poll(1000, TimeUnit.MILLISECONDS);
 				
-				/*  HERE should be the DSP portion of the app. The receivedBytes
-				 *  variable now contains a byte array of size hackrf.getPacketSize().
-				 *  This is currently set to 16KB, but may change in the future.
-				 *  The bytes are interleaved, 8-bit, signed IQ samples (in-phase
-				 *  component first, followed by the quadrature component):
+				/*  HERE should be the DSP portion of the app. block.getBuffer() returns
+				 *  a (read-only) ByteBuffer with block.getLength() bytes. These are
+				 *  interleaved, 8-bit, signed IQ samples (in-phase component first,
+				 *  followed by the quadrature component):
 				 *  
 				 *  [--------- first sample ----------]   [-------- second sample --------]
 				 *         I                  Q                  I                Q ...
-				 *  receivedBytes[0]   receivedBytes[1]   receivedBytes[2]       ...
+				 *  buffer.get(0)       buffer.get(1)      buffer.get(2)          ...
 				 *  
 				 *  Note: Make sure you read from the queue fast enough, because if it runs
 				 *  full, the hackrf_android library will abort receiving and go back to
 				 *  OFF mode.
 				 */
 				
-				// We just write the whole packet into the file:
-				if(receivedBytes != null)
+				// We just write the whole block into the file:
+				if(block != null)
 				{
-					// On my Nexus 7 this is to slow for high sample rates. Nexus 5 works, though.
-					bufferedOutputStream.write(receivedBytes);
-					
-					// IMPORTANT: After we used the receivedBytes buffer and don't need it any more,
-					// we should return it to the buffer pool of the hackrf! This will save a lot of
-					// allocation time and the garbage collector won't go off every second.
-					hackrf.returnBufferToBufferPool(receivedBytes);
+					// IMPORTANT: After we used the block and don't need it any more, it has to go back
+					// to the block pool of the hackrf! The recorder releases it right after the copy.
+					if(recorder != null)
+						recorder.record(block);
+					else
+						block.release();
 				}
 				else
 				{
@@ -593,13 +594,17 @@ public class MainActivity extends AppCompatActivity implements Runnable, HackrfC
 					long bytes = (hackrf.getTransceiverPacketCounter() - lastTransceiverPacketCounter) * hackrf.getPacketSize();
 					double time = (hackrf.getTransceivingTime() - lastTransceivingTime)/1000.0;
 					printOnScreen( String.format("Current Transfer Rate: %4.1f MB/s\n",(bytes/time)/1000000.0));
+					if(recorder != null)
+						printOnScreen( String.format("Recorder: %4.1f MB/s max. (longest write: %4.1f ms)\n",
+								recorder.getWriteRate()/1000000.0, recorder.getMaxWriteTime()/1000000.0));
 					lastTransceiverPacketCounter = hackrf.getTransceiverPacketCounter();
 					lastTransceivingTime = hackrf.getTransceivingTime();
 				}
 			}
 			
 			// After loop ended: close the file and print more statistics:
-			bufferedOutputStream.close();
+			if(recorder != null)
+				recorder.close();
 			printOnScreen( String.format("Finished! (Average Transfer Rate: %4.1f MB/s\n", 
 											hackrf.getAverageTransceiveRate()/1000000.0));
 			printOnScreen(String.format("Recorded %d packets (each %d Bytes) in %5.3f Seconds.\n\n", 